@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -98,6 +98,16 @@ public class LocalFile extends FileStore {
 		}
 	}
 
+	/**
+	 * Lists the children together with their attributes, without creating a
+	 * store for every child.
+	 */
+	@Override
+	public IFileInfo[] childInfos(int options, IProgressMonitor monitor) {
+		FileInfo[] infos = LocalFileNativesManager.fetchChildInfos(filePath);
+		return (infos == null ? EMPTY_FILE_INFO_ARRAY : infos);
+	}
+
 	@Override
 	public String[] childNames(int options, IProgressMonitor monitor) {
 		String[] names = file.list();
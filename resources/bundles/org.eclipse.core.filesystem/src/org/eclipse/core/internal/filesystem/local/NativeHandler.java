@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2012 IBM Corporation and others.
+ * Copyright (c) 2012, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.core.internal.filesystem.local;
 
+import java.io.File;
 import org.eclipse.core.filesystem.IFileInfo;
 import org.eclipse.core.filesystem.provider.FileInfo;
 
@@ -24,5 +25,32 @@ public abstract class NativeHandler {
 
 	public abstract FileInfo fetchFileInfo(String fileName);
 
+	/**
+	 * Returns the information about the children of the given directory, or
+	 * <code>null</code> if the directory cannot be listed. The information
+	 * about every child is the same as the one returned by
+	 * {@link #fetchFileInfo(String)}, with the name set.
+	 * <p>
+	 * The default implementation fetches the information of the listed children
+	 * one at a time. Subclasses may override to read the children together with
+	 * their attributes.
+	 * </p>
+	 */
+	public FileInfo[] fetchChildInfos(String directoryName) {
+		String[] names = new File(directoryName).list();
+		if (names == null)
+			return null;
+		String prefix = directoryName.endsWith(File.separator) ? directoryName : directoryName + File.separatorChar;
+		FileInfo[] infos = new FileInfo[names.length];
+		for (int i = 0; i < names.length; i++) {
+			FileInfo info = fetchFileInfo(prefix + names[i]);
+			//natives don't set the file name on all platforms
+			if (info.getName().isEmpty())
+				info.setName(names[i]);
+			infos[i] = info;
+		}
+		return infos;
+	}
+
 	public abstract boolean putFileInfo(String fileName, IFileInfo info, int options);
 }
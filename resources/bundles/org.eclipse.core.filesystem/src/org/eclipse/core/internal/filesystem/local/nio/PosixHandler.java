@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013, 2016 IBM Corporation and others.
+ * Copyright (c) 2013, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,8 +18,7 @@ package org.eclipse.core.internal.filesystem.local.nio;
 import java.io.IOException;
 import java.nio.file.*;
 import java.nio.file.attribute.*;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileInfo;
 import org.eclipse.core.filesystem.provider.FileInfo;
@@ -48,9 +47,41 @@ public class PosixHandler extends NativeHandler {
 		// if the file system is case insensitive.
 		Path fileNamePath = path.getFileName();
 		info.setName(fileNamePath == null ? "" : fileNamePath.toString()); //$NON-NLS-1$
+		readAttributes(info, path, Files.getFileAttributeView(path, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS));
+		return info;
+	}
+
+	/**
+	 * Reads the attributes of the children while listing the directory. Where
+	 * the directory stream supports it, the attributes are read relative to the
+	 * open directory, so the path of every child is not resolved again.
+	 */
+	@Override
+	public FileInfo[] fetchChildInfos(String directoryName) {
+		List<FileInfo> infos = new ArrayList<>();
+		try (DirectoryStream<Path> children = Files.newDirectoryStream(Paths.get(directoryName))) {
+			SecureDirectoryStream<Path> secure = children instanceof SecureDirectoryStream ? (SecureDirectoryStream<Path>) children : null;
+			for (Path child : children) {
+				Path name = child.getFileName();
+				FileInfo info = new FileInfo(name.toString());
+				PosixFileAttributeView view;
+				if (secure != null)
+					view = secure.getFileAttributeView(name, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+				else
+					view = Files.getFileAttributeView(child, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+				readAttributes(info, child, view);
+				infos.add(info);
+			}
+		} catch (IOException | DirectoryIteratorException e) {
+			// like java.io.File.list(), treat the directory as not listable
+			return null;
+		}
+		return infos.toArray(new FileInfo[infos.size()]);
+	}
 
+	private static void readAttributes(FileInfo info, Path path, PosixFileAttributeView view) {
 		try {
-			PosixFileAttributes attrs = Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			PosixFileAttributes attrs = view.readAttributes();
 
 			if (attrs.isSymbolicLink()) {
 				info.setAttribute(EFS.ATTRIBUTE_SYMLINK, true);
@@ -79,7 +110,6 @@ public class PosixHandler extends NativeHandler {
 			// Leave alone and continue.
 			info.setError(IFileInfo.IO_ERROR);
 		}
-		return info;
 	}
 
 	@Override
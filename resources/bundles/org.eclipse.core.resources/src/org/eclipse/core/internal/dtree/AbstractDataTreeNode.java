@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@ package org.eclipse.core.internal.dtree;
 import java.util.Arrays;
 import java.util.stream.Collectors;
 import org.eclipse.core.internal.utils.Messages;
+import org.eclipse.core.internal.utils.ParallelLoop;
 import org.eclipse.core.internal.utils.StringPool;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.osgi.util.NLS;
@@ -31,7 +32,23 @@ public abstract class AbstractDataTreeNode {
 	 * Singleton indicating no children.
 	 */
 	static final AbstractDataTreeNode[] NO_CHILDREN = new AbstractDataTreeNode[0];
+	/**
+	 * The number of changed nodes from which the projects are compared in
+	 * parallel. Smaller deltas are not worth starting threads for.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1000;
+	/**
+	 * The children of this node, sorted by name so that they can be found
+	 * by binary search. This is <code>null</code> for a
+	 * {@link PackedDataTreeNode}, which keeps the names and data of its
+	 * children instead, so callers must use {@link #getChildren()} rather
+	 * than this field.
+	 */
 	protected AbstractDataTreeNode children[];
+	/**
+	 * The name of this node, shared with equal names of other nodes and layers
+	 * by {@link #storeStrings(StringPool)} and by {@link DataTreeReader}.
+	 */
 	protected String name;
 
 	/* Node types for comparison */
@@ -188,21 +205,21 @@ public abstract class AbstractDataTreeNode {
 			if (this.isDelta()) {
 				// keep deletions because they still need
 				// to hide child nodes in the parent.
-				AbstractDataTreeNode[] assembledChildren = assembleWith(children, node.children, true);
+				AbstractDataTreeNode[] assembledChildren = assembleWith(getChildren(), node.children, true);
 				return new DataDeltaNode(name, node.getData(), assembledChildren);
 			}
 			// This is a complete picture, so deletions
 			// wipe out the child and are no longer useful
-			AbstractDataTreeNode[] assembledChildren = assembleWith(children, node.children, false);
+			AbstractDataTreeNode[] assembledChildren = assembleWith(getChildren(), node.children, false);
 			return new DataTreeNode(name, node.getData(), assembledChildren);
 		}
 		if (this.isDelta()) {
-			AbstractDataTreeNode[] assembledChildren = assembleWith(children, node.children, true);
+			AbstractDataTreeNode[] assembledChildren = assembleWith(getChildren(), node.children, true);
 			if (this.hasData())
 				return new DataDeltaNode(name, this.getData(), assembledChildren);
 			return new NoDataDeltaNode(name, assembledChildren);
 		}
-		AbstractDataTreeNode[] assembledChildren = assembleWith(children, node.children, false);
+		AbstractDataTreeNode[] assembledChildren = assembleWith(getChildren(), node.children, false);
 		return new DataTreeNode(name, this.getData(), assembledChildren);
 	}
 
@@ -350,13 +367,21 @@ public abstract class AbstractDataTreeNode {
 	}
 
 	/**
+	 * Compares the given children of the node with the given key with the
+	 * parent tree. The children of the root, the projects, are compared in
+	 * parallel if the delta is large, since both trees are only read.
 	 */
 	protected static AbstractDataTreeNode[] compareWithParent(AbstractDataTreeNode[] nodes, IPath key, DeltaDataTree parent, IComparator comparator) {
 
 		AbstractDataTreeNode[] comparedNodes = new AbstractDataTreeNode[nodes.length];
+		if (key.isRoot() && nodes.length > 1 && countNodes(nodes, PARALLEL_THRESHOLD) >= PARALLEL_THRESHOLD) {
+			ParallelLoop.run(nodes.length, i -> comparedNodes[i] = nodes[i].compareWithParent(key.append(nodes[i].getName()), parent, comparator));
+		} else {
+			for (int i = 0; i < nodes.length; i++)
+				comparedNodes[i] = nodes[i].compareWithParent(key.append(nodes[i].getName()), parent, comparator);
+		}
 		int count = 0;
-		for (AbstractDataTreeNode node : nodes) {
-			AbstractDataTreeNode comparedNode = node.compareWithParent(key.append(node.getName()), parent, comparator);
+		for (AbstractDataTreeNode comparedNode : comparedNodes) {
 			NodeComparison comparison = (NodeComparison) comparedNode.getData();
 			// Skip it if it's an empty comparison (and no children).
 			if (!(comparison.isUnchanged() && comparedNode.size() == 0)) {
@@ -366,14 +391,25 @@ public abstract class AbstractDataTreeNode {
 		if (count == 0) {
 			return NO_CHILDREN;
 		}
-		if (count < comparedNodes.length) {
-			System.arraycopy(comparedNodes, 0, comparedNodes = new AbstractDataTreeNode[count], 0, count);
-		}
-		return comparedNodes;
+		return count < comparedNodes.length ? Arrays.copyOf(comparedNodes, count) : comparedNodes;
 	}
 
 	abstract AbstractDataTreeNode compareWithParent(IPath key, DeltaDataTree parent, IComparator comparator);
 
+	/**
+	 * Returns the number of nodes in the subtrees of the given nodes, counting
+	 * no further than the given limit.
+	 */
+	private static int countNodes(AbstractDataTreeNode[] nodes, int limit) {
+		int count = 0;
+		for (AbstractDataTreeNode node : nodes) {
+			if (count >= limit)
+				break;
+			count += 1 + countNodes(node.getChildren(), limit - count - 1);
+		}
+		return count;
+	}
+
 	static AbstractDataTreeNode convertToAddedComparisonNode(AbstractDataTreeNode newNode, int userComparison) {
 		AbstractDataTreeNode[] children = newNode.getChildren();
 		int n = children.length;
@@ -415,9 +451,10 @@ public abstract class AbstractDataTreeNode {
 	 * #replaceFrom:to:with:startingAt: method for copying children in data nodes
 	 */
 	protected void copyChildren(int from, int to, AbstractDataTreeNode otherNode, int start) {
+		AbstractDataTreeNode[] otherChildren = otherNode.getChildren();
 		int other = start;
 		for (int i = from; i <= to; i++, other++) {
-			this.children[i] = otherNode.children[other];
+			this.children[i] = otherChildren[other];
 		}
 	}
 
@@ -466,7 +503,12 @@ public abstract class AbstractDataTreeNode {
 		int right = nodes.length - 1;
 		while (left <= right) {
 			int mid = (left + right) / 2;
-			int compare = localName.compareTo(nodes[mid].name);
+			String midName = nodes[mid].name;
+			// names are shared by the string pool, so lookups with a name taken
+			// from the tree can skip the character comparison
+			if (localName == midName)
+				return mid;
+			int compare = localName.compareTo(midName);
 			if (compare < 0) {
 				right = mid - 1;
 			} else if (compare > 0) {
@@ -511,6 +553,39 @@ public abstract class AbstractDataTreeNode {
 		return names;
 	}
 
+	/**
+	 * Returns a node with the same contents as the receiver, in which the
+	 * complete nodes whose children are all leaves are packed. Returns the
+	 * receiver if there was nothing to pack.
+	 *
+	 * @see PackedDataTreeNode
+	 */
+	AbstractDataTreeNode packCompleteNodes() {
+		AbstractDataTreeNode[] packed = packCompleteNodes(children);
+		if (packed == children)
+			return this;
+		AbstractDataTreeNode copy = copy();
+		copy.children = packed;
+		return copy;
+	}
+
+	/**
+	 * Packs the complete nodes among the given nodes and their descendants.
+	 * Returns the given array if there was nothing to pack.
+	 */
+	static AbstractDataTreeNode[] packCompleteNodes(AbstractDataTreeNode[] nodes) {
+		AbstractDataTreeNode[] result = nodes;
+		for (int i = 0; i < nodes.length; i++) {
+			AbstractDataTreeNode node = nodes[i].packCompleteNodes();
+			if (node != nodes[i]) {
+				if (result == nodes)
+					result = nodes.clone();
+				result[i] = node;
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Replaces the child with the given local name.
 	 */
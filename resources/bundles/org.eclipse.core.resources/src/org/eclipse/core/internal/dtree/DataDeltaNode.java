@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -93,6 +93,14 @@ public class DataDeltaNode extends DataTreeNode {
 		return true;
 	}
 
+	@Override
+	AbstractDataTreeNode packCompleteNodes() {
+		AbstractDataTreeNode[] packed = packCompleteNodes(children);
+		if (packed == children)
+			return this;
+		return new DataDeltaNode(name, data, packed);
+	}
+
 	/**
 	 * Simplifies the given node, and answers its replacement.
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -99,7 +99,7 @@ public class DataTreeNode extends AbstractDataTreeNode {
 	}
 
 	AbstractDataTreeNode compareWith(DataTreeNode other, IComparator comparator) {
-		AbstractDataTreeNode[] comparedChildren = compareWith(children, other.children, comparator);
+		AbstractDataTreeNode[] comparedChildren = compareWith(getChildren(), other.getChildren(), comparator);
 		Object oldData = data;
 		Object newData = other.data;
 
@@ -144,7 +144,7 @@ public class DataTreeNode extends AbstractDataTreeNode {
 	 */
 	DataTreeNode copyWithNewChild(String localName, DataTreeNode childNode) {
 
-		AbstractDataTreeNode[] children = this.children;
+		AbstractDataTreeNode[] children = getChildren();
 		int left = 0;
 		int right = children.length - 1;
 		while (left <= right) {
@@ -291,7 +291,7 @@ public class DataTreeNode extends AbstractDataTreeNode {
 	 * Although typed as abstract nodes, the given nodes must be complete.
 	 */
 	protected static AbstractDataTreeNode forwardDeltaWithOrNullIfEqual(AbstractDataTreeNode oldNode, AbstractDataTreeNode newNode, IComparator comparer) {
-		AbstractDataTreeNode[] childDeltas = forwardDeltaWith(oldNode.children, newNode.children, comparer);
+		AbstractDataTreeNode[] childDeltas = forwardDeltaWith(oldNode.getChildren(), newNode.getChildren(), comparer);
 		Object newData = newNode.getData();
 		if (comparer.compare(oldNode.getData(), newData) == 0) {
 			if (childDeltas.length == 0) {
@@ -318,6 +318,16 @@ public class DataTreeNode extends AbstractDataTreeNode {
 		return true;
 	}
 
+	@Override
+	AbstractDataTreeNode packCompleteNodes() {
+		AbstractDataTreeNode[] nodes = packCompleteNodes(children);
+		if (PackedDataTreeNode.isPackable(nodes))
+			return new PackedDataTreeNode(name, data, nodes);
+		if (nodes == children)
+			return this;
+		return new DataTreeNode(name, data, nodes);
+	}
+
 	/**
 	 * Sets the data for the node
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,7 +16,9 @@ package org.eclipse.core.internal.dtree;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.function.Function;
 import org.eclipse.core.internal.utils.Messages;
+import org.eclipse.core.internal.utils.StringPool;
 import org.eclipse.core.runtime.*;
 
 /**
@@ -33,6 +35,13 @@ public class DataTreeReader {
 	 */
 	protected DataInput input;
 
+	/**
+	 * The names read so far. The same names occur in every layer of a
+	 * delta chain, sharing them keeps a restored tree as small as one
+	 * that was built in memory and compacted by the string pool job.
+	 */
+	private final StringPool names = new StringPool();
+
 	/**
 	 * Creates a new DeltaTreeReader.
 	 */
@@ -63,7 +72,7 @@ public class DataTreeReader {
 	 */
 	protected AbstractDataTreeNode readNode(IPath parentPath, String newProjectName) throws IOException {
 		/* read the node name */
-		String name = input.readUTF();
+		String name = names.add(input.readUTF());
 
 		/* read the node type */
 		int nodeType = readNumber();
@@ -109,7 +118,7 @@ public class DataTreeReader {
 		/* create the appropriate node */
 		switch (nodeType) {
 			case AbstractDataTreeNode.T_COMPLETE_NODE :
-				return new DataTreeNode(name, data, children);
+				return PackedDataTreeNode.newCompleteNode(name, data, children);
 			case AbstractDataTreeNode.T_DELTA_NODE :
 				return new DataDeltaNode(name, data, children);
 			case AbstractDataTreeNode.T_DELETED_NODE :
@@ -122,6 +131,21 @@ public class DataTreeReader {
 		}
 	}
 
+	/**
+	 * Reads the children of a node with the given path, as written by
+	 * {@link DataTreeWriter#writeChildren(DeltaDataTree, IPath, DataOutput)}.
+	 */
+	public AbstractDataTreeNode[] readChildren(IPath path, DataInput input) throws IOException {
+		this.input = input;
+		int childCount = readNumber();
+		if (childCount == 0)
+			return AbstractDataTreeNode.NO_CHILDREN;
+		AbstractDataTreeNode[] children = new AbstractDataTreeNode[childCount];
+		for (int i = 0; i < childCount; i++)
+			children[i] = readNode(path, ""); //$NON-NLS-1$
+		return children;
+	}
+
 	/**
 	 * Reads an integer stored in compact format.  Numbers between
 	 * 0 and 254 inclusive occupy 1 byte; other numbers occupy 5 bytes,
@@ -149,4 +173,25 @@ public class DataTreeReader {
 		AbstractDataTreeNode root = readNode(Path.ROOT, newProjectName);
 		return new DeltaDataTree(root, parent);
 	}
+
+	/**
+	 * Reads a DeltaDataTree that was written with a depth of one from the given
+	 * input stream, and completes it with the children of the nodes below the
+	 * root node that are returned by the given function. The function returns
+	 * <code>null</code> for nodes that have no children.
+	 */
+	public DeltaDataTree readTree(DeltaDataTree parent, DataInput input, Function<String, AbstractDataTreeNode[]> grandchildren) throws IOException {
+		this.input = input;
+		AbstractDataTreeNode root = readNode(Path.ROOT, ""); //$NON-NLS-1$
+		AbstractDataTreeNode[] rootChildren = root.getChildren();
+		for (AbstractDataTreeNode child : rootChildren) {
+			AbstractDataTreeNode[] children = grandchildren.apply(child.getName());
+			if (children != null && children.length > 0)
+				child.setChildren(children);
+		}
+		// the children of a packed root were created for the loop above
+		if (root instanceof PackedDataTreeNode)
+			root = new DataTreeNode(root.getName(), root.getData(), rootChildren);
+		return new DeltaDataTree(root, parent);
+	}
 }
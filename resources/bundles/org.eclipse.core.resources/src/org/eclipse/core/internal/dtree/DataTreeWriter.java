@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2005 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -97,6 +97,28 @@ public class DataTreeWriter {
 		}
 	}
 
+	/**
+	 * Writes the subtrees of the children of the node at the given path of the
+	 * given tree, preceded by the number of children. Writes no children if
+	 * there is no node at the given path.
+	 *
+	 * @see DataTreeReader#readChildren(IPath, DataInput)
+	 */
+	public void writeChildren(DeltaDataTree tree, IPath path, DataOutput output) throws IOException {
+		this.output = output;
+		AbstractDataTreeNode node = tree.getRootNode();
+		for (int i = 0; node != null && i < path.segmentCount(); i++)
+			node = node.childAtOrNull(path.segment(i));
+		if (node == null) {
+			writeNumber(0);
+			return;
+		}
+		AbstractDataTreeNode[] children = node.getChildren();
+		writeNumber(children.length);
+		for (AbstractDataTreeNode child : children)
+			writeNode(child, path.append(child.getName()), D_INFINITE);
+	}
+
 	/**
 	 * Writes an integer in a compact format biased towards
 	 * small non-negative numbers. Numbers between
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -44,6 +44,22 @@ public class DeltaDataTree extends AbstractDataTree {
 	private volatile AbstractDataTreeNode rootNode;
 	private volatile DeltaDataTree parent;
 
+	/**
+	 * The maximum number of layers searched before the receiver of
+	 * {@link #newEmptyDeltaTree()} gets a lookup shortcut.
+	 */
+	private static final int MAX_SEARCH_DEPTH = 16;
+
+	/**
+	 * A tree with the same contents as this immutable tree, represented as
+	 * a single delta on the complete tree at the end of the parent chain.
+	 * Searches continue in the shortcut rather than in this tree, so that
+	 * they stay fast however long the chain gets, without cutting the
+	 * intermediate trees out of the chain, which would make comparing with
+	 * them expensive. Forgotten when the representation of this tree changes.
+	 */
+	private volatile DeltaDataTree lookupShortcut;
+
 	/**
 	 * Creates a new empty tree.
 	 */
@@ -451,13 +467,22 @@ public class DeltaDataTree extends AbstractDataTree {
 	 */
 	@Override
 	public int getChildCount(IPath parentKey) {
-		return getChildNodes(parentKey).length;
+		return getNodeWithChildren(parentKey).size();
 	}
 
 	/**
 	 * Returns the child nodes of a node in the tree.
 	 */
 	protected AbstractDataTreeNode[] getChildNodes(IPath parentKey) {
+		return getNodeWithChildren(parentKey).getChildren();
+	}
+
+	/**
+	 * Returns a node with the children of a node in the tree. This is the
+	 * node itself if its children are all found in one layer, so that the
+	 * children of a packed node are not created to count or name them.
+	 */
+	private AbstractDataTreeNode getNodeWithChildren(IPath parentKey) {
 
 		/* Algorithm:
 		 *   for each delta in chain (going backwards),
@@ -467,9 +492,10 @@ public class DeltaDataTree extends AbstractDataTree {
 		 *   report error if parent is missing or has been deleted
 		 */
 
+		AbstractDataTreeNode found = null;
 		AbstractDataTreeNode[] childNodes = null;
 		int keyLength = parentKey.segmentCount();
-		for (DeltaDataTree tree = this; tree != null; tree = tree.parent) {
+		for (DeltaDataTree tree = this; tree != null; tree = nextLayer(tree)) {
 			AbstractDataTreeNode node = tree.rootNode;
 			boolean complete = !node.isDelta();
 			for (int i = 0; i < keyLength; i++) {
@@ -485,23 +511,29 @@ public class DeltaDataTree extends AbstractDataTree {
 				if (node.isDeleted()) {
 					break;
 				}
-				if (childNodes == null) {
-					childNodes = node.children;
+				if (found == null) {
+					found = node;
 				} else {
+					if (childNodes == null) {
+						childNodes = found.getChildren();
+					}
 					// Be sure to assemble(old, new) rather than (new, old).
 					// Keep deleted nodes if we haven't encountered the complete node yet.
-					childNodes = AbstractDataTreeNode.assembleWith(node.children, childNodes, !complete);
+					childNodes = AbstractDataTreeNode.assembleWith(node.getChildren(), childNodes, !complete);
 				}
 			}
 			if (complete) {
 				if (childNodes != null) {
-					return childNodes;
+					return new DataTreeNode(null, null, childNodes);
+				}
+				if (found != null) {
+					return found;
 				}
 				// Not found, but complete node encountered, so should not check parent tree.
 				break;
 			}
 		}
-		if (childNodes != null) {
+		if (found != null) {
 			// Some deltas carry info about children, but there is
 			// no complete node against which they describe deltas.
 			Assert.isTrue(false, Messages.dtree_malformedTree);
@@ -517,13 +549,13 @@ public class DeltaDataTree extends AbstractDataTree {
 	 */
 	@Override
 	public IPath[] getChildren(IPath parentKey) {
-		AbstractDataTreeNode[] childNodes = getChildNodes(parentKey);
-		int len = childNodes.length;
+		String[] childNames = getNodeWithChildren(parentKey).namesOfChildren();
+		int len = childNames.length;
 		if (len == 0)
 			return NO_CHILDREN;
 		IPath[] answer = new IPath[len];
 		for (int i = 0; i < len; ++i)
-			answer[i] = parentKey.append(childNodes[i].name);
+			answer[i] = parentKey.append(childNames[i]);
 		return answer;
 	}
 
@@ -545,7 +577,7 @@ public class DeltaDataTree extends AbstractDataTree {
 		 */
 
 		int keyLength = key.segmentCount();
-		for (DeltaDataTree tree = this; tree != null; tree = tree.parent) {
+		for (DeltaDataTree tree = this; tree != null; tree = nextLayer(tree)) {
 			AbstractDataTreeNode node = tree.rootNode;
 			boolean complete = !node.isDelta();
 			for (int i = 0; i < keyLength; i++) {
@@ -589,12 +621,7 @@ public class DeltaDataTree extends AbstractDataTree {
 	 */
 	@Override
 	public String[] getNamesOfChildren(IPath parentKey) {
-		AbstractDataTreeNode[] childNodes = getChildNodes(parentKey);
-		int len = childNodes.length;
-		String[] namesOfChildren = new String[len];
-		for (int i = 0; i < len; ++i)
-			namesOfChildren[i] = childNodes[i].name;
-		return namesOfChildren;
+		return getNodeWithChildren(parentKey).namesOfChildren();
 	}
 
 	/**
@@ -655,7 +682,7 @@ public class DeltaDataTree extends AbstractDataTree {
 	@Override
 	public DataTreeLookup lookup(IPath key) {
 		int keyLength = key.segmentCount();
-		for (DeltaDataTree tree = this; tree != null; tree = tree.parent) {
+		for (DeltaDataTree tree = this; tree != null; tree = nextLayer(tree)) {
 			AbstractDataTreeNode node = tree.rootNode;
 			boolean complete = !node.isDelta();
 			for (int i = 0; i < keyLength; i++) {
@@ -693,7 +720,7 @@ public class DeltaDataTree extends AbstractDataTree {
 	 */
 	public DataTreeLookup lookupIgnoreCase(IPath key) {
 		int keyLength = key.segmentCount();
-		for (DeltaDataTree tree = this; tree != null; tree = tree.parent) {
+		for (DeltaDataTree tree = this; tree != null; tree = nextLayer(tree)) {
 			AbstractDataTreeNode node = tree.rootNode;
 			boolean complete = !node.isDelta();
 			for (int i = 0; i < keyLength; i++) {
@@ -766,9 +793,78 @@ public class DeltaDataTree extends AbstractDataTree {
 	public DeltaDataTree newEmptyDeltaTree() {
 		if (!isImmutable())
 			throw new IllegalArgumentException(Messages.dtree_notImmutable);
+		if (lookupShortcut == null && searchDepth() > MAX_SEARCH_DEPTH)
+			createLookupShortcut();
 		return new DeltaDataTree(new NoDataDeltaNode(null), this);
 	}
 
+	/**
+	 * Returns the tree in which a search continues after the given tree.
+	 */
+	private static DeltaDataTree nextLayer(DeltaDataTree tree) {
+		DeltaDataTree next = tree.parent;
+		if (next != null) {
+			DeltaDataTree shortcut = next.lookupShortcut;
+			if (shortcut != null)
+				return shortcut;
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the number of trees a search in the receiver has to go through
+	 * in the worst case.
+	 */
+	private int searchDepth() {
+		int depth = 1;
+		for (DeltaDataTree tree = this; (tree = nextLayer(tree)) != null;)
+			depth++;
+		return depth;
+	}
+
+	/**
+	 * Assembles the deltas between the receiver and the complete tree at the end
+	 * of its chain into the lookup shortcut of the receiver. The shortcut a
+	 * search went through before is dropped, to keep the memory held by
+	 * shortcuts proportional to the size of a single delta.
+	 */
+	private void createLookupShortcut() {
+		AbstractDataTreeNode assembled = rootNode;
+		DeltaDataTree base = parent;
+		if (base == null)
+			return;
+		DeltaDataTree passed = null;
+		while (true) {
+			DeltaDataTree shortcut = base.lookupShortcut;
+			if (shortcut != null) {
+				passed = base;
+				base = shortcut;
+			}
+			if (base.parent == null)
+				break;
+			assembled = base.rootNode.assembleWith(assembled);
+			base = base.parent;
+		}
+		DeltaDataTree shortcut = new DeltaDataTree(assembled, base);
+		shortcut.immutable();
+		lookupShortcut = shortcut;
+		if (passed != null)
+			passed.lookupShortcut = null;
+	}
+
+	/**
+	 * Packs the complete nodes of the receiver whose children are all leaves.
+	 * Only the nodes of the receiver's own layer are visited, so packing a
+	 * delta costs as much as the delta is large.
+	 *
+	 * @see PackedDataTreeNode
+	 */
+	public void packCompleteNodes() {
+		AbstractDataTreeNode packed = rootNode.packCompleteNodes();
+		if (packed != rootNode)
+			setRootNode(packed);
+	}
+
 	/**
 	 * Makes the receiver the root tree in the list of trees on which it is based.
 	 * The receiver's representation becomes a complete tree, while its parents'
@@ -876,7 +972,7 @@ public class DeltaDataTree extends AbstractDataTree {
 	 */
 	protected AbstractDataTreeNode searchNodeAt(IPath key) {
 		int keyLength = key.segmentCount();
-		for (DeltaDataTree tree = this; tree != null; tree = tree.parent) {
+		for (DeltaDataTree tree = this; tree != null; tree = nextLayer(tree)) {
 			AbstractDataTreeNode node = tree.rootNode;
 			boolean complete = !node.isDelta();
 			for (int i = 0; i < keyLength; i++) {
@@ -926,6 +1022,7 @@ public class DeltaDataTree extends AbstractDataTree {
 	 */
 	protected void setParent(DeltaDataTree aTree) {
 		parent = aTree;
+		lookupShortcut = null;
 	}
 
 	/**
@@ -934,6 +1031,7 @@ public class DeltaDataTree extends AbstractDataTree {
 	@Override
 	void setRootNode(AbstractDataTreeNode aNode) {
 		rootNode = aNode;
+		lookupShortcut = null;
 	}
 
 	/**
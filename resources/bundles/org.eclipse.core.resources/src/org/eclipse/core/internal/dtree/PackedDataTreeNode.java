@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.dtree;
+
+import org.eclipse.core.internal.utils.IStringPoolParticipant;
+import org.eclipse.core.internal.utils.StringPool;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * A complete node whose children are all leaves, and which keeps their names
+ * and data in two arrays sorted by name instead of in a node per child. Most
+ * nodes of a workspace tree are files in folders without subfolders, so this
+ * saves a node object for most of the elements of a complete tree.
+ * <p>
+ * Packed nodes are immutable, and the nodes of their children are created
+ * when they are asked for. Only complete trees are packed: when they are read,
+ * and by {@link DeltaDataTree#packCompleteNodes()} before an element tree is
+ * rerooted. Assembling a packed node with a delta keeps it packed, while
+ * changing one of its children in a mutable tree unpacks it.
+ */
+class PackedDataTreeNode extends DataTreeNode {
+	/**
+	 * The names of the children, sorted.
+	 */
+	private final String[] childNames;
+
+	/**
+	 * The data of the children, in the order of their names.
+	 */
+	private final Object[] childData;
+
+	/**
+	 * Creates a node with the given name, data and children, which must
+	 * be packable.
+	 *
+	 * @see #isPackable(AbstractDataTreeNode[])
+	 */
+	PackedDataTreeNode(String name, Object data, AbstractDataTreeNode[] children) {
+		super(name, data);
+		int count = children.length;
+		this.children = null;
+		this.childNames = new String[count];
+		this.childData = new Object[count];
+		for (int i = 0; i < count; i++) {
+			childNames[i] = children[i].name;
+			childData[i] = children[i].getData();
+		}
+	}
+
+	private PackedDataTreeNode(String name, Object data, String[] childNames, Object[] childData) {
+		super(name, data);
+		this.children = null;
+		this.childNames = childNames;
+		this.childData = childData;
+	}
+
+	/**
+	 * Returns true if the given children of a complete node are all leaves.
+	 * A single child takes less memory in a node of its own.
+	 */
+	static boolean isPackable(AbstractDataTreeNode[] children) {
+		if (children.length < 2)
+			return false;
+		for (AbstractDataTreeNode child : children)
+			if (child.isDelta() || child.size() > 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns a complete node with the given name, data and children, which
+	 * is packed if the children are all leaves.
+	 */
+	static DataTreeNode newCompleteNode(String name, Object data, AbstractDataTreeNode[] children) {
+		if (isPackable(children))
+			return new PackedDataTreeNode(name, data, children);
+		return new DataTreeNode(name, data, children);
+	}
+
+	/**
+	 * Returns the result of assembling this node with the given forward delta
+	 * node, packed if the result is a complete node whose children are all
+	 * leaves.
+	 */
+	@Override
+	AbstractDataTreeNode assembleWith(AbstractDataTreeNode node) {
+		AbstractDataTreeNode assembled = super.assembleWith(node);
+		if (assembled == node || assembled.isDelta())
+			return assembled;
+		return newCompleteNode(name, assembled.getData(), assembled.children);
+	}
+
+	@Override
+	AbstractDataTreeNode assembleWith(AbstractDataTreeNode node, IPath key, int keyIndex) {
+		if (keyIndex == key.segmentCount())
+			return assembleWith(node);
+		// the child is changed in place in a copy, which needs real children
+		return new DataTreeNode(name, data, getChildren()).assembleWith(node, key, keyIndex);
+	}
+
+	/**
+	 * Returns the receiver, whose children are already packed.
+	 */
+	@Override
+	AbstractDataTreeNode packCompleteNodes() {
+		return this;
+	}
+
+	@Override
+	AbstractDataTreeNode childAtOrNull(String localName) {
+		int index = indexOfChild(localName);
+		return index >= 0 ? new DataTreeNode(childNames[index], childData[index]) : null;
+	}
+
+	@Override
+	AbstractDataTreeNode childAtIgnoreCase(String localName) {
+		for (int i = 0; i < childNames.length; i++)
+			if (childNames[i].equalsIgnoreCase(localName))
+				return new DataTreeNode(childNames[i], childData[i]);
+		return null;
+	}
+
+	/**
+	 * Returns a copy of the receiver, which shares the packed children.
+	 */
+	@Override
+	AbstractDataTreeNode copy() {
+		return new PackedDataTreeNode(name, data, childNames, childData);
+	}
+
+	/**
+	 * Returns new nodes for the children of the receiver.
+	 */
+	@Override
+	public AbstractDataTreeNode[] getChildren() {
+		int count = childNames.length;
+		AbstractDataTreeNode[] nodes = new AbstractDataTreeNode[count];
+		for (int i = 0; i < count; i++)
+			nodes[i] = new DataTreeNode(childNames[i], childData[i]);
+		return nodes;
+	}
+
+	@Override
+	protected int indexOfChild(String localName) {
+		String[] names = childNames;
+		int left = 0;
+		int right = names.length - 1;
+		while (left <= right) {
+			int mid = (left + right) / 2;
+			String midName = names[mid];
+			if (localName == midName)
+				return mid;
+			int compare = localName.compareTo(midName);
+			if (compare < 0) {
+				right = mid - 1;
+			} else if (compare > 0) {
+				left = mid + 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	String[] namesOfChildren() {
+		return childNames.clone();
+	}
+
+	@Override
+	int size() {
+		return childNames.length;
+	}
+
+	@Override
+	public void storeStrings(StringPool set) {
+		super.storeStrings(set);
+		for (int i = childNames.length; --i >= 0;) {
+			childNames[i] = set.add(childNames[i]);
+			Object o = childData[i];
+			if (o instanceof IStringPoolParticipant)
+				((IStringPoolParticipant) o).shareStrings(set);
+		}
+	}
+}
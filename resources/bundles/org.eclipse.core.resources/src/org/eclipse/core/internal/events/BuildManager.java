@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2021 IBM Corporation and others.
+ *  Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -19,12 +19,18 @@
  *******************************************************************************/
 package org.eclipse.core.internal.events;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.eclipse.core.internal.dtree.AbstractDataTreeNode;
 import org.eclipse.core.internal.dtree.DeltaDataTree;
+import org.eclipse.core.internal.localstore.SafeFileInputStream;
+import org.eclipse.core.internal.localstore.SafeFileOutputStream;
 import org.eclipse.core.internal.resources.*;
 import org.eclipse.core.internal.resources.ComputeProjectOrder.Digraph;
 import org.eclipse.core.internal.utils.Messages;
@@ -162,6 +168,30 @@ public class BuildManager implements ICoreConstants, IManager, ILifecycleListene
 	// Shows if we are in the parallel build loop or not
 	boolean parallelBuild;
 
+	/**
+	 * The version of the file the estimated build durations are kept in.
+	 */
+	private static final int BUILD_DURATIONS_VERSION = 1;
+
+	/**
+	 * Estimated build durations in milliseconds of build configurations in full
+	 * and clean builds, learned from previous parallel builds. They are kept
+	 * across sessions.
+	 */
+	private final Map<IBuildConfiguration, Long> fullBuildDurations = new ConcurrentHashMap<>();
+
+	/**
+	 * Estimated build durations in milliseconds of build configurations in
+	 * incremental and auto builds, learned from previous parallel builds. They
+	 * are kept across sessions.
+	 */
+	private final Map<IBuildConfiguration, Long> incrementalBuildDurations = new ConcurrentHashMap<>();
+
+	/**
+	 * The timeline of the last parallel build, or <code>null</code>.
+	 */
+	private volatile BuildTimeline<IBuildConfiguration> lastBuildTimeline;
+
 	private final Bundle systemBundle = Platform.getBundle("org.eclipse.osgi"); //$NON-NLS-1$
 
 	// protects against concurrent access of session stored builders during builder initialization
@@ -590,6 +620,9 @@ public class BuildManager implements ICoreConstants, IManager, ILifecycleListene
 	private void parallelBuildLoop(final Digraph<IBuildConfiguration> configs, IBuildConfiguration[] requestedConfigs, int trigger, JobGroup buildJobGroup, MultiStatus status, IProgressMonitor monitor) {
 		final int projectWork = configs.vertexList.size() > 0 ? TOTAL_BUILD_WORK / configs.vertexList.size() : 0;
 		builtProjects.clear();
+		final Map<IBuildConfiguration, Long> durations = getBuildDurations(trigger);
+		// configs that were never built are assumed to take as long as the average one
+		final long defaultDuration = (long) durations.values().stream().mapToLong(Long::longValue).average().orElse(1);
 		final GraphProcessor<IBuildConfiguration> graphProcessor = new GraphProcessor<>(configs, IBuildConfiguration.class, (config, graphCrawler) -> {
 			IBuildContext context = new BuildContext(config, requestedConfigs, graphCrawler.getSequentialOrder()); // TODO consider passing Digraph to BuildConfig?
 			try {
@@ -601,13 +634,44 @@ public class BuildManager implements ICoreConstants, IManager, ILifecycleListene
 			} catch (CoreException ex) {
 				status.add(new Status(IStatus.ERROR, ResourcesPlugin.PI_RESOURCES, ex.getMessage(), ex));
 			}
-		}, config -> getRule(config, trigger, null, Collections.emptyMap()), buildJobGroup);
+		}, config -> getRule(config, trigger, null, Collections.emptyMap()), buildJobGroup, config -> durations.getOrDefault(config, defaultDuration));
 		graphProcessor.processGraphWithParallelJobs();
 		try {
 			Job.getJobManager().join(graphProcessor, monitor);
 		} catch (OperationCanceledException | InterruptedException e) {
 			status.add(new Status(IStatus.ERROR, ResourcesPlugin.PI_RESOURCES, e.getMessage(), e));
 		}
+		BuildTimeline<IBuildConfiguration> timeline = graphProcessor.getTimeline();
+		for (BuildTimeline.Entry<IBuildConfiguration> entry : timeline.getEntries()) {
+			// smooth the estimate, builds of the same config vary a lot
+			durations.merge(entry.getItem(), entry.getDuration(), (previous, last) -> (previous + last) / 2);
+		}
+		lastBuildTimeline = timeline;
+		if (Policy.DEBUG_BUILD_INVOKING)
+			Policy.debug(timeline.toString());
+	}
+
+	private Map<IBuildConfiguration, Long> getBuildDurations(int trigger) {
+		if (trigger == IncrementalProjectBuilder.FULL_BUILD || trigger == IncrementalProjectBuilder.CLEAN_BUILD)
+			return fullBuildDurations;
+		return incrementalBuildDurations;
+	}
+
+	/**
+	 * Returns the estimated duration in milliseconds of building the given
+	 * configuration with the given trigger, or <code>-1</code> if it was never
+	 * built in a parallel build.
+	 */
+	public long getEstimatedBuildDuration(IBuildConfiguration config, int trigger) {
+		return getBuildDurations(trigger).getOrDefault(config, -1L);
+	}
+
+	/**
+	 * Returns the timeline of the last parallel build, or <code>null</code> if
+	 * there was no parallel build in this session.
+	 */
+	public BuildTimeline<IBuildConfiguration> getLastBuildTimeline() {
+		return lastBuildTimeline;
 	}
 
 	/**
@@ -1060,6 +1124,9 @@ public class BuildManager implements ICoreConstants, IManager, ILifecycleListene
 				//make sure the builder persistent info is deleted for the project move case
 				if (project.isAccessible())
 					setBuildersPersistentInfo(project, null);
+				IProject removed = project;
+				fullBuildDurations.keySet().removeIf(config -> removed.equals(config.getProject()));
+				incrementalBuildDurations.keySet().removeIf(config -> removed.equals(config.getProject()));
 		}
 	}
 
@@ -1484,11 +1551,74 @@ public class BuildManager implements ICoreConstants, IManager, ILifecycleListene
 	@Override
 	public void shutdown(IProgressMonitor monitor) {
 		autoBuildJob.cancel();
+		writeBuildDurations();
 	}
 
 	@Override
 	public void startup(IProgressMonitor monitor) {
 		workspace.addLifecycleListener(this);
+		readBuildDurations();
+	}
+
+	/**
+	 * Reads the estimated build durations of the previous session. They are
+	 * only estimates, so they are discarded if they cannot be read.
+	 */
+	private void readBuildDurations() {
+		File location = workspace.getMetaArea().getBuildDurationsLocation().toFile();
+		if (!location.exists() && !new File(location.getAbsolutePath() + ".bak").exists()) //$NON-NLS-1$
+			return;
+		try (DataInputStream input = new DataInputStream(new SafeFileInputStream(location))) {
+			if (input.readInt() != BUILD_DURATIONS_VERSION)
+				return;
+			readBuildDurations(input, fullBuildDurations);
+			readBuildDurations(input, incrementalBuildDurations);
+		} catch (IOException e) {
+			fullBuildDurations.clear();
+			incrementalBuildDurations.clear();
+			if (Policy.DEBUG_BUILD_FAILURE)
+				Policy.debug("Could not read the build durations " + location + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private void readBuildDurations(DataInputStream input, Map<IBuildConfiguration, Long> durations) throws IOException {
+		IWorkspaceRoot root = workspace.getRoot();
+		int count = input.readInt();
+		for (int i = 0; i < count; i++) {
+			IProject project = root.getProject(input.readUTF());
+			String configName = input.readUTF();
+			durations.put(new BuildConfiguration(project, configName), input.readLong());
+		}
+	}
+
+	/**
+	 * Writes the estimated build durations of the configurations of the existing
+	 * projects, so that the next session schedules parallel builds with them.
+	 */
+	private void writeBuildDurations() {
+		File location = workspace.getMetaArea().getBuildDurationsLocation().toFile();
+		try (DataOutputStream output = new DataOutputStream(new SafeFileOutputStream(location))) {
+			output.writeInt(BUILD_DURATIONS_VERSION);
+			writeBuildDurations(output, fullBuildDurations);
+			writeBuildDurations(output, incrementalBuildDurations);
+		} catch (IOException e) {
+			String message = NLS.bind(Messages.resources_writeWorkspaceMeta, location.getAbsolutePath());
+			Policy.log(IStatus.WARNING, message, e);
+		}
+	}
+
+	private void writeBuildDurations(DataOutputStream output, Map<IBuildConfiguration, Long> durations) throws IOException {
+		Map<IBuildConfiguration, Long> existing = new HashMap<>();
+		durations.forEach((config, duration) -> {
+			if (config.getProject().exists())
+				existing.put(config, duration);
+		});
+		output.writeInt(existing.size());
+		for (Map.Entry<IBuildConfiguration, Long> entry : existing.entrySet()) {
+			output.writeUTF(entry.getKey().getProject().getName());
+			output.writeUTF(entry.getKey().getName());
+			output.writeLong(entry.getValue());
+		}
 	}
 
 	/**
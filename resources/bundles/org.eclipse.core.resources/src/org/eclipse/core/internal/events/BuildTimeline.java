@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.events;
+
+import java.util.*;
+
+/**
+ * The timeline of a parallel build. For every processed item, it records when
+ * the item became ready (all of its predecessors were processed), when a job
+ * was scheduled for it, when that job started and when it ended, and the main
+ * reason why the item did not start earlier.
+ * <p>
+ * All times are in milliseconds since the start of the build. Entries are
+ * sorted by start time.
+ * </p>
+ */
+public class BuildTimeline<T> {
+	/**
+	 * The main reason why an item did not start when the build started.
+	 */
+	public enum WaitReason {
+		/** The item started right away. */
+		NONE,
+		/** The item waited for its predecessors to be processed. */
+		PREDECESSORS,
+		/** The item was ready, but the maximum number of concurrent builds was reached. */
+		CONCURRENCY_LIMIT,
+		/** The job of the item waited for its scheduling rule or for a worker thread. */
+		SCHEDULING,
+		/** The item was part of a cycle and was started to break it. */
+		CYCLE
+	}
+
+	/**
+	 * The timeline of one item.
+	 */
+	public static final class Entry<T> {
+		final T item;
+		final long priority;
+		final T criticalPredecessor;
+		final long readyTime;
+		final long scheduleTime;
+		final long startTime;
+		final long endTime;
+		final boolean cycle;
+
+		Entry(T item, long priority, T criticalPredecessor, long readyTime, long scheduleTime, long startTime, long endTime, boolean cycle) {
+			this.item = item;
+			this.priority = priority;
+			this.criticalPredecessor = criticalPredecessor;
+			this.readyTime = readyTime;
+			this.scheduleTime = scheduleTime;
+			this.startTime = startTime;
+			this.endTime = endTime;
+			this.cycle = cycle;
+		}
+
+		public T getItem() {
+			return item;
+		}
+
+		/**
+		 * Returns the estimated length of the longest chain of items that
+		 * starts with this item, which is the priority the item was scheduled
+		 * with.
+		 */
+		public long getPriority() {
+			return priority;
+		}
+
+		/**
+		 * Returns the predecessor that was processed last before this item
+		 * became ready, or <code>null</code> if the item had no predecessors.
+		 */
+		public T getCriticalPredecessor() {
+			return criticalPredecessor;
+		}
+
+		public long getReadyTime() {
+			return readyTime;
+		}
+
+		public long getScheduleTime() {
+			return scheduleTime;
+		}
+
+		public long getStartTime() {
+			return startTime;
+		}
+
+		public long getEndTime() {
+			return endTime;
+		}
+
+		public long getDuration() {
+			return endTime - startTime;
+		}
+
+		public WaitReason getWaitReason() {
+			if (cycle)
+				return WaitReason.CYCLE;
+			long predecessors = readyTime;
+			long limit = scheduleTime - readyTime;
+			long scheduling = startTime - scheduleTime;
+			if (predecessors <= 0 && limit <= 0 && scheduling <= 0)
+				return WaitReason.NONE;
+			if (predecessors >= limit && predecessors >= scheduling)
+				return WaitReason.PREDECESSORS;
+			return limit >= scheduling ? WaitReason.CONCURRENCY_LIMIT : WaitReason.SCHEDULING;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder result = new StringBuilder();
+			result.append(item).append(": ready ").append(readyTime); //$NON-NLS-1$
+			result.append("ms, scheduled ").append(scheduleTime); //$NON-NLS-1$
+			result.append("ms, started ").append(startTime); //$NON-NLS-1$
+			result.append("ms, ended ").append(endTime); //$NON-NLS-1$
+			result.append("ms, waited for: ").append(getWaitReason()); //$NON-NLS-1$
+			if (criticalPredecessor != null)
+				result.append(" (last predecessor: ").append(criticalPredecessor).append(')'); //$NON-NLS-1$
+			return result.toString();
+		}
+	}
+
+	private final List<Entry<T>> entries;
+	private final long duration;
+
+	BuildTimeline(List<Entry<T>> entries, long duration) {
+		List<Entry<T>> sorted = new ArrayList<>(entries);
+		sorted.sort(Comparator.comparingLong(Entry::getStartTime));
+		this.entries = Collections.unmodifiableList(sorted);
+		this.duration = duration;
+	}
+
+	/**
+	 * Returns the entries of all processed items, sorted by start time.
+	 */
+	public List<Entry<T>> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Returns the time between the start of the build and the end of the last
+	 * processed item.
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append("Build timeline (").append(duration).append("ms):"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (Entry<T> entry : entries)
+			result.append("\n  ").append(entry); //$NON-NLS-1$
+		return result.toString();
+	}
+}
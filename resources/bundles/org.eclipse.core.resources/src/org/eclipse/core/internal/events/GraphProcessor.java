@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2018 Red Hat Inc. and others.
+ * Copyright (c) 2018, 2022 Red Hat Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,87 +14,175 @@
 package org.eclipse.core.internal.events;
 
 import java.util.*;
-import java.util.function.BiConsumer;
-import java.util.function.Function;
+import java.util.function.*;
 import org.eclipse.core.internal.resources.ComputeProjectOrder;
 import org.eclipse.core.internal.resources.ComputeProjectOrder.Digraph;
-import org.eclipse.core.internal.resources.ComputeProjectOrder.Digraph.Edge;
+import org.eclipse.core.internal.resources.ComputeProjectOrder.Digraph.Vertex;
 import org.eclipse.core.internal.resources.ComputeProjectOrder.VertexOrder;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.*;
 
 /**
- *
+ * Processes the vertexes of a graph with parallel jobs, processing a vertex only
+ * after all of its predecessors have been processed.
+ * <p>
+ * Ready vertexes are started in order of priority, where the priority of a vertex
+ * is the estimated length of the longest chain of vertexes that starts with it
+ * (its critical path). Starting the longest chains first keeps the end of the
+ * processing from being dominated by a single chain that started late.
+ * The ready set is updated incrementally: every vertex counts its unprocessed
+ * predecessors, and processing a vertex only visits its successors.
+ * </p>
+ * <p>
+ * When the job group limits the number of concurrent jobs, at most that many
+ * jobs are scheduled but not yet started at any time, so that the next vertex is
+ * chosen as late as possible, among all vertexes that are ready by then.
+ * </p>
  */
 class GraphProcessor<T> {
 
-	final private Digraph<T> graph;
-	final private Set<T> toProcess;
-	final private Set<T> processing;
-	final private Set<T> processed;
+	/**
+	 * The processing state of a vertex.
+	 * @GuardedBy("GraphProcessor.this")
+	 */
+	private static final class Node<T> {
+		final T item;
+		/** position of the item in the sequential order, used to break ties */
+		final int order;
+		final List<Node<T>> successors = new ArrayList<>(3);
+		int unprocessedPredecessors;
+		long estimate;
+		long priority;
+		boolean triggered;
+		boolean cycle;
+		Node<T> criticalPredecessor;
+		long readyTime = -1;
+		long scheduleTime = -1;
+		long startTime = -1;
+		long endTime = -1;
+
+		Node(T item, int order) {
+			this.item = item;
+			this.order = order;
+		}
+	}
+
+	final private Map<T, Node<T>> nodes;
+	final private List<Node<T>> nodesInOrder;
+	final private PriorityQueue<Node<T>> ready;
 	final private VertexOrder<T> sequentialOrder;
 	final private JobGroup buildJobGroup;
 	final private BiConsumer<T, GraphProcessor<T>> processor;
 	final private Function<T, ISchedulingRule> ruleFactory;
+	final private long start = System.nanoTime();
+	private boolean started;
+	private int untriggered;
+	/** number of jobs that were scheduled but did not start yet */
+	private int scheduled;
+	/** number of jobs that were scheduled but did not finish yet */
+	private int processing;
 
-	GraphProcessor(Digraph<T> graph1, Class<T> clazz, final BiConsumer<T, GraphProcessor<T>> processor, Function<T, ISchedulingRule> ruleFactory, JobGroup buildJobGroup) {
-		this.graph = graph1;
+	/**
+	 * @param estimator returns the estimated processing time of a vertex, used to
+	 * compute the critical paths
+	 */
+	GraphProcessor(Digraph<T> graph, Class<T> clazz, final BiConsumer<T, GraphProcessor<T>> processor, Function<T, ISchedulingRule> ruleFactory, JobGroup buildJobGroup, ToLongFunction<T> estimator) {
 		this.processor = processor;
 		this.ruleFactory = ruleFactory;
 		this.buildJobGroup = buildJobGroup;
-		toProcess = new HashSet<>(graph.vertexMap.keySet());
-		processing = new HashSet<>();
-		processed = new HashSet<>();
 		sequentialOrder = ComputeProjectOrder.computeVertexOrder(graph, clazz);
+		nodes = new HashMap<>(graph.vertexList.size() * 2);
+		nodesInOrder = new ArrayList<>(sequentialOrder.vertexes.length);
+		for (int i = 0; i < sequentialOrder.vertexes.length; i++) {
+			T item = sequentialOrder.vertexes[i];
+			Node<T> node = new Node<>(item, i);
+			node.estimate = Math.max(1, estimator.applyAsLong(item));
+			nodesInOrder.add(node);
+			nodes.put(item, node);
+		}
+		untriggered = nodesInOrder.size();
+		for (Vertex<T> vertex : graph.vertexList) {
+			Node<T> from = nodes.get(vertex.id);
+			Set<Node<T>> successors = new HashSet<>();
+			for (Vertex<T> adjacent : vertex.adjacent) {
+				Node<T> to = nodes.get(adjacent.id);
+				if (successors.add(to)) {
+					from.successors.add(to);
+					to.unprocessedPredecessors++;
+				}
+			}
+		}
+		computePriorities();
+		ready = new PriorityQueue<>(Math.max(1, nodesInOrder.size()), (n1, n2) -> {
+			int result = Long.compare(n2.priority, n1.priority);
+			return result != 0 ? result : Integer.compare(n1.order, n2.order);
+		});
 	}
 
-	private boolean complete() {
-		return processed.size() == graph.vertexList.size();
+	/**
+	 * Computes the length of the longest chain of successors of every vertex,
+	 * with an iterative depth-first search. Edges that close a cycle are ignored.
+	 */
+	private void computePriorities() {
+		// 0 = not visited, 1 = on the stack, 2 = done
+		Map<Node<T>, Integer> state = new HashMap<>(nodes.size() * 2);
+		Deque<Node<T>> stack = new ArrayDeque<>();
+		Deque<Iterator<Node<T>>> iterators = new ArrayDeque<>();
+		for (Node<T> root : nodesInOrder) {
+			if (state.containsKey(root))
+				continue;
+			state.put(root, 1);
+			stack.push(root);
+			iterators.push(root.successors.iterator());
+			while (!stack.isEmpty()) {
+				Node<T> node = stack.peek();
+				Iterator<Node<T>> successors = iterators.peek();
+				if (successors.hasNext()) {
+					Node<T> successor = successors.next();
+					if (!state.containsKey(successor)) {
+						state.put(successor, 1);
+						stack.push(successor);
+						iterators.push(successor.successors.iterator());
+					}
+					continue;
+				}
+				long longest = 0;
+				for (Node<T> successor : node.successors)
+					if (state.get(successor) == 2)
+						longest = Math.max(longest, successor.priority);
+				node.priority = node.estimate + longest;
+				state.put(node, 2);
+				stack.pop();
+				iterators.pop();
+			}
+		}
 	}
 
-	private boolean allTriggered() {
-		return toProcess.isEmpty();
+	private long now() {
+		return (System.nanoTime() - start) / 1_000_000;
 	}
 
-	private void markProcessing(T item) {
-		if (!toProcess.remove(item)) {
-			throw new IllegalArgumentException();
-		}
-		processing.add(item);
+	private boolean complete() {
+		return untriggered == 0 && processing == 0;
 	}
 
 	void markProcessed(T item) {
-		if (!processing.remove(item)) {
+		Node<T> node = nodes.get(item);
+		if (node == null || !node.triggered || node.endTime >= 0) {
 			throw new IllegalArgumentException();
 		}
-		processed.add(item);
-	}
-
-	private Set<T> computeReadyVertexes() {
-		Set<T> res = new HashSet<>(toProcess);
-		for (T item : toProcess) {
-			for (Edge<T> edge : graph.getEdges()) {
-				if (edge.to == item && !processed.contains(edge.from)) {
-					res.remove(item);
-				}
-			}
-		}
-		if (res.isEmpty() && !isProcessing()) { // nothing ready, nothing running: a cycle!
-			for (T id : sequentialOrder.vertexes) {
-				if (!isProcessed(id)) {
-					return Collections.singleton(id);
+		node.endTime = now();
+		processing--;
+		for (Node<T> successor : node.successors) {
+			successor.unprocessedPredecessors--;
+			if (!successor.triggered) {
+				successor.criticalPredecessor = node;
+				if (successor.unprocessedPredecessors == 0) {
+					successor.readyTime = node.endTime;
+					ready.add(successor);
 				}
 			}
 		}
-		return res;
-	}
-
-	private boolean isProcessing() {
-		return !processing.isEmpty();
-	}
-
-	private boolean isProcessed(T item) {
-		return processed.contains(item);
 	}
 
 	public T[] getSequentialOrder() {
@@ -102,29 +190,77 @@ class GraphProcessor<T> {
 	}
 
 	public synchronized void processGraphWithParallelJobs() {
-		if (!complete()) {
-			if (!allTriggered()) {
-				Set<T> readyToBuild = computeReadyVertexes();
-				readyToBuild.forEach(this::triggerJob);
+		if (!started) {
+			started = true;
+			for (Node<T> node : nodesInOrder) {
+				if (node.unprocessedPredecessors == 0) {
+					node.readyTime = 0;
+					ready.add(node);
+				}
+			}
+		}
+		if (complete()) {
+			return;
+		}
+		int maxScheduled = buildJobGroup == null ? 0 : buildJobGroup.getMaxThreads();
+		while (!ready.isEmpty() && (maxScheduled <= 0 || scheduled < maxScheduled)) {
+			triggerJob(ready.poll());
+		}
+		if (ready.isEmpty() && processing == 0 && untriggered > 0) { // nothing ready, nothing running: a cycle!
+			for (Node<T> node : nodesInOrder) {
+				if (!node.triggered) {
+					node.cycle = true;
+					node.readyTime = now();
+					triggerJob(node);
+					return;
+				}
 			}
 		}
 	}
 
-	private void triggerJob(T item) {
-		synchronized (this) {
-			markProcessing(item);
+	/**
+	 * Returns the timeline of the processed vertexes.
+	 */
+	synchronized BuildTimeline<T> getTimeline() {
+		List<BuildTimeline.Entry<T>> entries = new ArrayList<>(nodesInOrder.size());
+		long end = 0;
+		for (Node<T> node : nodesInOrder) {
+			if (node.endTime < 0)
+				continue;
+			T predecessor = node.criticalPredecessor == null ? null : node.criticalPredecessor.item;
+			entries.add(new BuildTimeline.Entry<>(node.item, node.priority, predecessor, node.readyTime, node.scheduleTime, node.startTime, node.endTime, node.cycle));
+			end = Math.max(end, node.endTime);
 		}
+		return new BuildTimeline<>(entries, end);
+	}
+
+	private void triggerJob(Node<T> node) {
+		T item = node.item;
+		node.triggered = true;
+		node.scheduleTime = now();
+		untriggered--;
+		scheduled++;
+		processing++;
 		Job buildJob = new Job(item.toString()) {
 
 			@Override
 			protected IStatus run(IProgressMonitor monitor) {
-				processor.accept(item, GraphProcessor.this);
 				synchronized (GraphProcessor.this) {
-					markProcessed(item);
-					// do it as part of Job so we're sure following jobs are triggered before this one completes,
-					// so we can safely rely on join(family)
+					node.startTime = now();
+					scheduled--;
+					// a slot for a scheduled job was freed, fill it
 					processGraphWithParallelJobs();
 				}
+				try {
+					processor.accept(item, GraphProcessor.this);
+				} finally {
+					synchronized (GraphProcessor.this) {
+						markProcessed(item);
+						// do it as part of Job so we're sure following jobs are triggered before this one completes,
+						// so we can safely rely on join(family)
+						processGraphWithParallelJobs();
+					}
+				}
 				return Status.OK_STATUS;
 			}
 
@@ -140,4 +276,4 @@ class GraphProcessor<T> {
 		buildJob.schedule();
 	}
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,8 +14,7 @@
  *******************************************************************************/
 package org.eclipse.core.internal.events;
 
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import org.eclipse.core.internal.events.ResourceChangeListenerList.ListenerEntry;
 import org.eclipse.core.internal.resources.*;
@@ -25,6 +24,7 @@ import org.eclipse.core.internal.watson.ElementTree;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
 
 public class NotificationManager implements IManager, ILifecycleListener {
 	class NotifyJob extends Job {
@@ -57,6 +57,16 @@ public class NotificationManager implements IManager, ILifecycleListener {
 	}
 
 	private static final long NOTIFICATION_DELAY = 1500;
+
+	/**
+	 * The maximum number of asynchronous listeners notified at the same time.
+	 */
+	private static final int MAX_ASYNC_NOTIFICATIONS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+	/**
+	 * The jobs notifying asynchronous listeners.
+	 */
+	private final JobGroup asyncNotifications = new JobGroup(Messages.resources_updating, MAX_ASYNC_NOTIFICATIONS, 0);
 	/**
 	 * The Threads that are currently avoiding notification.
 	 */
@@ -121,6 +131,19 @@ public class NotificationManager implements IManager, ILifecycleListener {
 			ResourceStats.listenerAdded(listener);
 	}
 
+	/**
+	 * Adds a listener that is only notified of the changes that pass the given
+	 * filter, and that is notified in the background if it is asynchronous.
+	 */
+	public void addListener(IResourceChangeListener listener, int eventMask, ResourceChangeFilter filter, boolean asynchronous) {
+		if (asynchronous && (eventMask & ~IResourceChangeEvent.POST_CHANGE) != 0)
+			throw new IllegalArgumentException("Asynchronous listeners can only be notified of POST_CHANGE events"); //$NON-NLS-1$
+		ResourceChangeDispatchJob dispatcher = asynchronous ? new ResourceChangeDispatchJob(listener, asyncNotifications) : null;
+		listeners.add(listener, eventMask, filter, dispatcher);
+		if (ResourceStats.TRACE_LISTENERS)
+			ResourceStats.listenerAdded(listener);
+	}
+
 	/**
 	 * Indicates the beginning of a block where periodic notifications should be avoided.
 	 * Returns true if notification avoidance really started, and false for nested
@@ -289,26 +312,30 @@ public class NotificationManager implements IManager, ILifecycleListener {
 		if (lockTree)
 			workspace.setTreeLocked(true);
 		try {
+			// the deltas reduced by each filter, computed once per filter
+			Map<ResourceChangeFilter, ResourceDelta> filteredDeltas = null;
 			for (ListenerEntry resourceListener : resourceListeners) {
 				if ((type & resourceListener.eventMask) != 0) {
 					final IResourceChangeListener listener = resourceListener.listener;
-					if (ResourceStats.TRACE_LISTENERS)
-						ResourceStats.startNotify(listener);
-					SafeRunner.run(new ISafeRunnable() {
-						@Override
-						public void handleException(Throwable e) {
-							// exception logged in SafeRunner#run
-						}
-
-						@Override
-						public void run() throws Exception {
-							if (Policy.DEBUG_NOTIFICATIONS)
-								Policy.debug("Notifying " + listener.getClass().getName() + " about resource change event" + event.toDebugString()); //$NON-NLS-1$ //$NON-NLS-2$
-							listener.resourceChanged(event);
-						}
-					});
-					if (ResourceStats.TRACE_LISTENERS)
-						ResourceStats.endNotify();
+					ResourceDelta delta = (ResourceDelta) event.getDelta();
+					if (delta != null && (resourceListener.filter != null || resourceListener.dispatcher != null)) {
+						if (filteredDeltas == null)
+							filteredDeltas = new HashMap<>();
+						// a null key stands for the unfiltered copy passed on to asynchronous listeners
+						ResourceChangeFilter filter = resourceListener.filter;
+						if (!filteredDeltas.containsKey(filter))
+							filteredDeltas.put(filter, new ResourceDeltaFilter(filter).filter(delta));
+						ResourceDelta filtered = filteredDeltas.get(filter);
+						if (filtered == null)
+							continue;
+						ResourceChangeEvent filteredEvent = new ResourceChangeEvent(event.getSource(), type, event.getBuildKind(), filtered);
+						if (resourceListener.dispatcher != null)
+							resourceListener.dispatcher.dispatch(filteredEvent);
+						else
+							notify(listener, filteredEvent);
+					} else {
+						notify(listener, event);
+					}
 				}
 			}
 		} finally {
@@ -317,6 +344,26 @@ public class NotificationManager implements IManager, ILifecycleListener {
 		}
 	}
 
+	private void notify(final IResourceChangeListener listener, final ResourceChangeEvent event) {
+		if (ResourceStats.TRACE_LISTENERS)
+			ResourceStats.startNotify(listener);
+		SafeRunner.run(new ISafeRunnable() {
+			@Override
+			public void handleException(Throwable e) {
+				// exception logged in SafeRunner#run
+			}
+
+			@Override
+			public void run() throws Exception {
+				if (Policy.DEBUG_NOTIFICATIONS)
+					Policy.debug("Notifying " + listener.getClass().getName() + " about resource change event" + event.toDebugString()); //$NON-NLS-1$ //$NON-NLS-2$
+				listener.resourceChanged(event);
+			}
+		});
+		if (ResourceStats.TRACE_LISTENERS)
+			ResourceStats.endNotify();
+	}
+
 	public void removeListener(IResourceChangeListener listener) {
 		listeners.remove(listener);
 		if (ResourceStats.TRACE_LISTENERS)
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.events;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.eclipse.core.internal.utils.Messages;
+import org.eclipse.core.internal.utils.Policy;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
+
+/**
+ * Notifies an asynchronous resource change listener of the events queued for
+ * it, one at a time and in the order they were broadcast.
+ */
+class ResourceChangeDispatchJob extends Job {
+	private final IResourceChangeListener listener;
+	private final ConcurrentLinkedQueue<IResourceChangeEvent> events = new ConcurrentLinkedQueue<>();
+
+	ResourceChangeDispatchJob(IResourceChangeListener listener, JobGroup group) {
+		super(Messages.resources_updating);
+		this.listener = listener;
+		setSystem(true);
+		setJobGroup(group);
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return NotificationManager.class == family;
+	}
+
+	/**
+	 * Queues the given event and makes sure the listener gets notified of it.
+	 */
+	void dispatch(IResourceChangeEvent event) {
+		events.add(event);
+		schedule();
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		IResourceChangeEvent event;
+		while ((event = events.poll()) != null) {
+			if (monitor.isCanceled()) {
+				events.clear();
+				return Status.CANCEL_STATUS;
+			}
+			final IResourceChangeEvent current = event;
+			SafeRunner.run(new ISafeRunnable() {
+				@Override
+				public void handleException(Throwable e) {
+					// exception logged in SafeRunner#run
+				}
+
+				@Override
+				public void run() throws Exception {
+					if (Policy.DEBUG_NOTIFICATIONS)
+						Policy.debug("Notifying " + listener.getClass().getName() + " asynchronously about resource change event" + ((ResourceChangeEvent) current).toDebugString()); //$NON-NLS-1$ //$NON-NLS-2$
+					listener.resourceChanged(current);
+				}
+			});
+		}
+		return Status.OK_STATUS;
+	}
+}
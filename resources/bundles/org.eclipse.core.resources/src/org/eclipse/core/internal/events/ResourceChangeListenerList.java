@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,6 +16,7 @@ package org.eclipse.core.internal.events;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.ResourceChangeFilter;
 
 /**
  * This class is used to maintain a list of listeners. It is a fairly lightweight object,
@@ -36,10 +37,32 @@ public class ResourceChangeListenerList {
 	static final class ListenerEntry {
 		final int eventMask;
 		final IResourceChangeListener listener;
+		/**
+		 * The filter of the changes the listener is interested in, or <code>null</code>
+		 */
+		final ResourceChangeFilter filter;
+		/**
+		 * The job notifying an asynchronous listener, or <code>null</code>
+		 */
+		final ResourceChangeDispatchJob dispatcher;
 
 		ListenerEntry(IResourceChangeListener listener, int eventMask) {
+			this(listener, eventMask, null, null);
+		}
+
+		ListenerEntry(IResourceChangeListener listener, int eventMask, ResourceChangeFilter filter, ResourceChangeDispatchJob dispatcher) {
 			this.listener = listener;
 			this.eventMask = eventMask;
+			this.filter = filter;
+			this.dispatcher = dispatcher;
+		}
+
+		/**
+		 * Stops notifying the listener of the events that are still queued.
+		 */
+		void dispose() {
+			if (dispatcher != null)
+				dispatcher.cancel();
 		}
 
 		@Override
@@ -47,6 +70,12 @@ public class ResourceChangeListenerList {
 			StringBuilder sb = new StringBuilder();
 			sb.append("Listener [eventMask="); //$NON-NLS-1$
 			sb.append(eventMask);
+			if (filter != null) {
+				sb.append(", "); //$NON-NLS-1$
+				sb.append(filter);
+			}
+			if (dispatcher != null)
+				sb.append(", asynchronous"); //$NON-NLS-1$
 			sb.append(", "); //$NON-NLS-1$
 			sb.append(listener);
 			sb.append("]"); //$NON-NLS-1$
@@ -73,13 +102,26 @@ public class ResourceChangeListenerList {
 	 * @param listener the listener
 	 * @param mask     event types
 	 */
-	public synchronized void add(IResourceChangeListener listener, int mask) {
+	public void add(IResourceChangeListener listener, int mask) {
+		add(listener, mask, null, null);
+	}
+
+	/**
+	 * Adds the given listener to this list. If an identical listener is already
+	 * registered the mask, filter and dispatcher are updated.
+	 *
+	 * @param listener   the listener
+	 * @param mask       event types
+	 * @param filter     the filter of the changes of interest, or <code>null</code>
+	 * @param dispatcher the job notifying an asynchronous listener, or <code>null</code>
+	 */
+	public synchronized void add(IResourceChangeListener listener, int mask, ResourceChangeFilter filter, ResourceChangeDispatchJob dispatcher) {
 		Objects.requireNonNull(listener);
 		if (mask == 0) {
 			remove(listener);
 			return;
 		}
-		ResourceChangeListenerList.ListenerEntry entry = new ResourceChangeListenerList.ListenerEntry(listener, mask);
+		ResourceChangeListenerList.ListenerEntry entry = new ResourceChangeListenerList.ListenerEntry(listener, mask, filter, dispatcher);
 		final int oldSize = listeners.size();
 		// check for duplicates using identity
 		for (int i = 0; i < oldSize; ++i) {
@@ -88,6 +130,7 @@ public class ResourceChangeListenerList {
 				removing(oldEntry.eventMask);
 				adding(mask);
 				listeners.set(i, entry);
+				oldEntry.dispose();
 				return;
 			}
 		}
@@ -151,12 +194,15 @@ public class ResourceChangeListenerList {
 			if (oldEntry.listener == listener) {
 				removing(oldEntry.eventMask);
 				listeners.remove(i);
+				oldEntry.dispose();
 				return;
 			}
 		}
 	}
 
 	public synchronized void clear() {
+		for (ListenerEntry entry : listeners)
+			entry.dispose();
 		listeners.clear();
 		count1 = 0;
 		count2 = 0;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,9 +15,9 @@
 package org.eclipse.core.internal.events;
 
 import java.util.Map;
-import org.eclipse.core.internal.dtree.DeltaDataTree;
-import org.eclipse.core.internal.dtree.NodeComparison;
+import org.eclipse.core.internal.dtree.*;
 import org.eclipse.core.internal.resources.*;
+import org.eclipse.core.internal.utils.ParallelLoop;
 import org.eclipse.core.internal.watson.ElementTree;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResourceDelta;
@@ -34,6 +34,12 @@ public class ResourceDeltaFactory {
 	 */
 	protected static final ResourceDelta[] NO_CHILDREN = new ResourceDelta[0];
 
+	/**
+	 * The number of changed resources from which the deltas of the projects are
+	 * created in parallel. Smaller deltas are not worth starting threads for.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1000;
+
 	/**
 	 * Returns the resource delta representing the changes made between the given old and new trees,
 	 * starting from the given root element.
@@ -93,6 +99,20 @@ public class ResourceDeltaFactory {
 			checkForOpen((ResourceDelta) element, 1);
 	}
 
+	/**
+	 * Returns the number of nodes in the subtree of the given node, counting
+	 * no further than the given limit.
+	 */
+	private static int countNodes(AbstractDataTreeNode node, int limit) {
+		int count = 1;
+		for (AbstractDataTreeNode child : node.getChildren()) {
+			if (count >= limit)
+				break;
+			count += countNodes(child, limit - count);
+		}
+		return count;
+	}
+
 	/**
 	 * Creates the map from node id to element id for the old and new states.
 	 * Used for recognizing moves.  Returns the map.
@@ -151,11 +171,16 @@ public class ResourceDeltaFactory {
 		if (numChildren == 0) {
 			result.setChildren(NO_CHILDREN);
 		} else {
-			ResourceDelta[] children = new ResourceDelta[numChildren];
-			for (int i = 0; i < numChildren; i++) {
-				//reuse the delta path if tree-relative and delta-relative are the same
-				IPath newTreePath = pathInTree == pathInDelta ? childKeys[i] : pathInTree.append(childKeys[i].lastSegment());
-				children[i] = createDelta(workspace, delta, deltaInfo, newTreePath, childKeys[i]);
+			ResourceDelta[] children;
+			if (numChildren > 1 && pathInTree.isRoot() && countNodes(delta.findNodeAt(pathInDelta), PARALLEL_THRESHOLD) >= PARALLEL_THRESHOLD) {
+				children = createProjectDeltas(workspace, delta, deltaInfo, childKeys);
+			} else {
+				children = new ResourceDelta[numChildren];
+				for (int i = 0; i < numChildren; i++) {
+					//reuse the delta path if tree-relative and delta-relative are the same
+					IPath newTreePath = pathInTree == pathInDelta ? childKeys[i] : pathInTree.append(childKeys[i].lastSegment());
+					children[i] = createDelta(workspace, delta, deltaInfo, newTreePath, childKeys[i]);
+				}
 			}
 			result.setChildren(children);
 		}
@@ -169,6 +194,17 @@ public class ResourceDeltaFactory {
 		return result;
 	}
 
+	/**
+	 * Creates the deltas of the given projects in parallel. The comparison tree
+	 * is complete and not modified anymore, and the workspace tree is only read,
+	 * so the projects can be walked independently of each other.
+	 */
+	private static ResourceDelta[] createProjectDeltas(Workspace workspace, DeltaDataTree delta, ResourceDeltaInfo deltaInfo, IPath[] projectKeys) {
+		ResourceDelta[] result = new ResourceDelta[projectKeys.length];
+		ParallelLoop.run(projectKeys.length, i -> result[i] = createDelta(workspace, delta, deltaInfo, projectKeys[i], projectKeys[i]));
+		return result;
+	}
+
 	/**
 	 * Returns an empty build delta describing the fact that no
 	 * changes occurred in the given project.  The returned delta
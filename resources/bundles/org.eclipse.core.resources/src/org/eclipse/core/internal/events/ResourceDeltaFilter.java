@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.events;
+
+import java.util.*;
+import org.eclipse.core.internal.resources.MarkerSet;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.core.runtime.content.IContentTypeManager;
+
+/**
+ * Reduces resource deltas to the resources that match a resource change filter,
+ * along with their ancestors.
+ * <p>
+ * The reduced delta is a copy that does not share any mutable state with the
+ * original delta, so that it can also be passed on to listeners that are
+ * notified after the original delta was updated or discarded.
+ * </p>
+ */
+class ResourceDeltaFilter {
+	private final IPath[] paths;
+	private final IContentType[] contentTypes;
+	private final int kindMask;
+	private final String[] markerTypes;
+
+	/**
+	 * Creates a filter that matches the given filter, or all resources if it is
+	 * <code>null</code>.
+	 */
+	ResourceDeltaFilter(ResourceChangeFilter filter) {
+		if (filter == null) {
+			paths = null;
+			contentTypes = null;
+			kindMask = IResourceDelta.ALL_WITH_PHANTOMS;
+			markerTypes = null;
+			return;
+		}
+		paths = filter.getPaths();
+		kindMask = filter.getKindMask();
+		markerTypes = filter.getMarkerTypes();
+		String[] contentTypeIds = filter.getContentTypeIds();
+		if (contentTypeIds == null) {
+			contentTypes = null;
+		} else {
+			IContentTypeManager contentTypeManager = Platform.getContentTypeManager();
+			contentTypes = Arrays.stream(contentTypeIds).map(contentTypeManager::getContentType).filter(Objects::nonNull).toArray(IContentType[]::new);
+		}
+	}
+
+	/**
+	 * Returns the reduced copy of the given delta, or <code>null</code> if no
+	 * resource in the delta matches.
+	 */
+	ResourceDelta filter(ResourceDelta delta) {
+		ResourceDeltaInfo deltaInfo = delta.deltaInfo;
+		ResourceDeltaInfo copyInfo = new ResourceDeltaInfo(deltaInfo.getWorkspace(), deltaInfo.getMarkerDeltas() == null ? null : new HashMap<>(), deltaInfo.getComparator());
+		copyInfo.setNodeIDMap(deltaInfo.getNodeIDMap());
+		return filter(delta, copyInfo);
+	}
+
+	private ResourceDelta filter(ResourceDelta delta, ResourceDeltaInfo copyInfo) {
+		IPath path = delta.getFullPath();
+		if (!isOnPath(path))
+			return null;
+		List<ResourceDelta> children = null;
+		for (ResourceDelta child : delta.children) {
+			ResourceDelta childCopy = filter(child, copyInfo);
+			if (childCopy != null) {
+				if (children == null)
+					children = new ArrayList<>(delta.children.length);
+				children.add(childCopy);
+			}
+		}
+		if (children == null && !matches(delta))
+			return null;
+		ResourceDelta copy = new ResourceDelta(path, copyInfo);
+		copy.setStatus(delta.status);
+		copy.setOldInfo(delta.oldInfo);
+		copy.setNewInfo(delta.newInfo);
+		copy.setChildren(children == null ? ResourceDeltaFactory.NO_CHILDREN : children.toArray(new ResourceDelta[children.size()]));
+		Map<IPath, MarkerSet> markerDeltas = delta.deltaInfo.getMarkerDeltas();
+		if (markerDeltas != null) {
+			// marker deltas are merged in place later on, so they are copied
+			MarkerSet changes = markerDeltas.get(path);
+			if (changes != null) {
+				MarkerSet changesCopy = new MarkerSet(changes.size());
+				changesCopy.addAll(changes.elements());
+				copyInfo.getMarkerDeltas().put(path, changesCopy);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns whether the resource of the given delta matches all the criteria.
+	 */
+	private boolean matches(ResourceDelta delta) {
+		if ((delta.getKind() & kindMask) == 0)
+			return false;
+		IPath path = delta.getFullPath();
+		if (paths != null && Arrays.stream(paths).noneMatch(p -> p.isPrefixOf(path)))
+			return false;
+		if (contentTypes != null) {
+			if (path.segmentCount() < 2 || !matchesContentType(path.lastSegment()))
+				return false;
+			if (delta.getResource().getType() != IResource.FILE)
+				return false;
+		}
+		if (markerTypes != null) {
+			for (IMarkerDelta markerDelta : delta.getMarkerDeltas())
+				for (String markerType : markerTypes)
+					if (markerDelta.isSubtypeOf(markerType))
+						return true;
+			return false;
+		}
+		return true;
+	}
+
+	private boolean matchesContentType(String fileName) {
+		IContentType[] candidates = Platform.getContentTypeManager().findContentTypesFor(fileName);
+		for (IContentType candidate : candidates)
+			for (IContentType contentType : contentTypes)
+				if (candidate.isKindOf(contentType))
+					return true;
+		return false;
+	}
+
+	/**
+	 * Returns whether the given path is one of the paths of interest, or one of
+	 * their descendants or ancestors.
+	 */
+	private boolean isOnPath(IPath path) {
+		if (paths == null)
+			return true;
+		for (IPath p : paths)
+			if (p.isPrefixOf(path) || path.isPrefixOf(p))
+				return true;
+		return false;
+	}
+}
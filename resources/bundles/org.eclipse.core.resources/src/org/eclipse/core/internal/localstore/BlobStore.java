@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,20 +13,44 @@
  *******************************************************************************/
 package org.eclipse.core.internal.localstore;
 
-import java.io.InputStream;
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Set;
+import java.util.zip.*;
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
-import org.eclipse.core.internal.utils.UniversalUniqueIdentifier;
-import org.eclipse.core.runtime.Assert;
-import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.internal.resources.ResourceException;
+import org.eclipse.core.internal.utils.*;
+import org.eclipse.core.resources.IResourceStatus;
+import org.eclipse.core.runtime.*;
+import org.eclipse.osgi.util.NLS;
 
 /**
  * Blob store which maps UUIDs to blobs on disk. The UUID is mapped
  * to a file in the file-system and the blob is the file contents. For scalability,
  * the blobs are split among 255 directories with the names 00 to FF.
+ * <p>
+ * Blobs are either named by a fresh time based UUID (see {@link #addBlob(IFileStore, boolean)}),
+ * or by a key derived from the SHA-256 digest of their contents (see
+ * {@link #addContentBlob(IFileStore, boolean, boolean)}), so that equal contents
+ * are stored only once. Content keys are UUIDs whose version field tells them
+ * apart from time based UUIDs and tells whether the blob is stored deflated.
+ * Both kinds of blobs can live in the same store.
+ * </p>
  */
 public class BlobStore {
+	/** The version of the keys of content blobs stored as is */
+	private static final int VERSION_CONTENT = 8;
+	/** The version of the keys of content blobs stored deflated */
+	private static final int VERSION_CONTENT_DEFLATED = 9;
+
+	private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+	private static final String TEMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+	private static final int BUFFER_SIZE = 8192;
+
 	protected IFileStore localStore;
 
 	/** Limits the range of directories' names. */
@@ -60,6 +84,26 @@ public class BlobStore {
 		return uuid;
 	}
 
+	/**
+	 * Adds a blob keyed by its contents. If a blob with the same contents
+	 * already exists, no data is written and the key of the existing blob is
+	 * returned, whether it is deflated or not. Otherwise the blob is written,
+	 * deflated if <code>compress</code> is <code>true</code>.
+	 */
+	public UniversalUniqueIdentifier addContentBlob(IFileStore target, boolean moveContents, boolean compress) throws CoreException {
+		if (moveContents) {
+			// take the contents out of reach of other writers before digesting them
+			IFileStore temp = localStore.getChild(new UniversalUniqueIdentifier().toString() + TEMP_SUFFIX);
+			target.move(temp, EFS.NONE, null);
+			try {
+				return storeContentBlob(temp, true, compress);
+			} finally {
+				temp.delete(EFS.NONE, null);
+			}
+		}
+		return storeContentBlob(target, false, compress);
+	}
+
 	/**
 	 * @see UniversalUniqueIdentifier#appendByteString(StringBuilder, byte)
 	 */
@@ -87,6 +131,17 @@ public class BlobStore {
 		return buffer.toString();
 	}
 
+	/**
+	 * Returns the key of the content blob with the given digest.
+	 */
+	private static UniversalUniqueIdentifier contentKey(byte[] digest, boolean deflated) {
+		byte[] bytes = Arrays.copyOf(digest, UniversalUniqueIdentifier.BYTES_SIZE);
+		int version = deflated ? VERSION_CONTENT_DEFLATED : VERSION_CONTENT;
+		int index = UniversalUniqueIdentifier.TIME_HIGH_AND_VERSION;
+		bytes[index] = (byte) ((bytes[index] & UniversalUniqueIdentifier.LOW_NIBBLE_MASK) | (version << UniversalUniqueIdentifier.SHIFT_NIBBLE));
+		return new UniversalUniqueIdentifier(bytes);
+	}
+
 	/**
 	 * Deletes a blobFile.
 	 */
@@ -107,11 +162,42 @@ public class BlobStore {
 			deleteBlob(id);
 	}
 
+	/**
+	 * Returns the SHA-256 digest of the contents of the given file.
+	 */
+	private static byte[] digest(IFileStore source) throws CoreException {
+		MessageDigest digest = newDigest();
+		try (InputStream input = source.openInputStream(EFS.NONE, null)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = input.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		} catch (IOException e) {
+			String message = NLS.bind(Messages.localstore_couldNotRead, source.toString());
+			throw new ResourceException(IResourceStatus.FAILED_READ_LOCAL, null, message, e);
+		}
+		return digest.digest();
+	}
+
 	public IFileStore fileFor(UniversalUniqueIdentifier uuid) {
 		IFileStore root = folderFor(uuid);
 		return root.getChild(bytesToHexString(uuid.toBytes()));
 	}
 
+	/**
+	 * Returns the key of the existing content blob with the given digest, or
+	 * <code>null</code> if there is none.
+	 */
+	private UniversalUniqueIdentifier findContentBlob(byte[] digest) {
+		UniversalUniqueIdentifier key = contentKey(digest, false);
+		if (fileFor(key).fetchInfo().exists())
+			return key;
+		key = contentKey(digest, true);
+		if (fileFor(key).fetchInfo().exists())
+			return key;
+		return null;
+	}
+
 	/**
 	 * Find out the name of the directory that fits better to this UUID.
 	 */
@@ -124,7 +210,15 @@ public class BlobStore {
 
 	public InputStream getBlob(UniversalUniqueIdentifier uuid) throws CoreException {
 		IFileStore blobFile = fileFor(uuid);
-		return blobFile.openInputStream(EFS.NONE, null);
+		InputStream contents = blobFile.openInputStream(EFS.NONE, null);
+		if (getVersion(uuid) == VERSION_CONTENT_DEFLATED)
+			return new InflaterInputStream(contents);
+		return contents;
+	}
+
+	private static int getVersion(UniversalUniqueIdentifier uuid) {
+		byte[] bytes = uuid.toBytes();
+		return (bytes[UniversalUniqueIdentifier.TIME_HIGH_AND_VERSION] & UniversalUniqueIdentifier.HIGH_NIBBLE_MASK) >>> UniversalUniqueIdentifier.SHIFT_NIBBLE;
 	}
 
 	/**
@@ -138,4 +232,95 @@ public class BlobStore {
 			hash ^= randomArray[b + 128]; // +128 makes sure the index is >0
 		return hash;
 	}
+
+	/**
+	 * Returns whether the given key names a blob by its contents.
+	 */
+	public static boolean isContentKey(UniversalUniqueIdentifier uuid) {
+		int version = getVersion(uuid);
+		return version == VERSION_CONTENT || version == VERSION_CONTENT_DEFLATED;
+	}
+
+	/**
+	 * Copies a blob named by a time based UUID to a content blob, and returns
+	 * the key of the content blob. The original blob is left in place, it is up
+	 * to the caller to delete it when it is no longer referenced.
+	 */
+	public UniversalUniqueIdentifier migrateBlob(UniversalUniqueIdentifier uuid, boolean compress) throws CoreException {
+		Assert.isLegal(!isContentKey(uuid));
+		return storeContentBlob(fileFor(uuid), false, compress);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param owned whether the source is a temporary file of this store, that can
+	 * be renamed into place
+	 */
+	private UniversalUniqueIdentifier storeContentBlob(IFileStore source, boolean owned, boolean compress) throws CoreException {
+		// a dedicated read for the digest, so that known contents are never written
+		byte[] digest = digest(source);
+		UniversalUniqueIdentifier existing = findContentBlob(digest);
+		if (existing != null)
+			return existing;
+		UniversalUniqueIdentifier key = contentKey(digest, compress);
+		IFileStore folder = folderFor(key);
+		folder.mkdir(EFS.NONE, null);
+		IFileStore destination = fileFor(key);
+		if (owned && !compress) {
+			source.move(destination, EFS.OVERWRITE, null);
+			return key;
+		}
+		// blobs are only visible once complete: a truncated blob must never be found by its key
+		IFileStore temp = folder.getChild(destination.getName() + TEMP_SUFFIX);
+		byte[] written;
+		try {
+			written = write(source, temp, compress);
+		} catch (CoreException e) {
+			temp.delete(EFS.NONE, null);
+			throw e;
+		}
+		if (!Arrays.equals(digest, written)) {
+			// the contents changed since they were digested, key what was written
+			existing = findContentBlob(written);
+			if (existing != null) {
+				temp.delete(EFS.NONE, null);
+				return existing;
+			}
+			key = contentKey(written, compress);
+			folder = folderFor(key);
+			folder.mkdir(EFS.NONE, null);
+			destination = fileFor(key);
+		}
+		temp.move(destination, EFS.OVERWRITE, null);
+		return key;
+	}
+
+	/**
+	 * Copies the contents of the source to the destination, deflating them if
+	 * <code>compress</code> is <code>true</code>. Returns the SHA-256 digest of
+	 * the contents that were copied.
+	 */
+	private static byte[] write(IFileStore source, IFileStore destination, boolean compress) throws CoreException {
+		MessageDigest digest = newDigest();
+		InputStream input = new DigestInputStream(source.openInputStream(EFS.NONE, null), digest);
+		OutputStream output;
+		try {
+			output = destination.openOutputStream(EFS.NONE, null);
+		} catch (CoreException e) {
+			FileUtil.safeClose(input);
+			throw e;
+		}
+		if (compress)
+			output = new DeflaterOutputStream(output);
+		FileUtil.transferStreams(input, output, destination.toString(), null);
+		return digest.digest();
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2021 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -261,6 +261,22 @@ public abstract class Bucket {
 		needSaving = false;
 	}
 
+	/**
+	 * Returns the directory of the index file currently loaded, or <code>null</code>
+	 * if no index file is loaded.
+	 */
+	File getDirectory() {
+		return location == null ? null : location.getParentFile();
+	}
+
+	/**
+	 * Returns an immutable copy of the entries of this bucket, which maps the
+	 * paths to the entry values.
+	 */
+	public final Map<String, Object> copyEntries() {
+		return Map.copyOf(entries);
+	}
+
 	/**
 	 * Returns how many entries there are in this bucket.
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2011 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@
 package org.eclipse.core.internal.localstore;
 
 import java.io.*;
+import java.util.*;
 import org.eclipse.core.internal.localstore.Bucket.Visitor;
 import org.eclipse.core.internal.resources.ResourceException;
 import org.eclipse.core.internal.resources.Workspace;
@@ -81,11 +82,57 @@ public class BucketTree {
 			internalAccept(visitor, base, locationFor(base), depth, 0);
 	}
 
+	/**
+	 * Visits the entries of a single bucket of the tree.
+	 *
+	 * @param visitor   the processor for the bucket entries
+	 * @param base      the path of the resource the bucket belongs to, as returned
+	 *                  by {@link #getBucketDirectories()}
+	 * @param bucketDir the directory of the bucket
+	 * @return one of STOP, RETURN or CONTINUE constants
+	 *
+	 * @exception CoreException thrown by the visitor or failure to load/save the
+	 *                          bucket
+	 */
+	public int accept(Bucket.Visitor visitor, IPath base, File bucketDir) throws CoreException {
+		boolean root = Path.ROOT.equals(base);
+		current.load(root ? null : base.segment(0), bucketDir);
+		return current.accept(visitor, base, root ? DEPTH_ZERO : DEPTH_INFINITE);
+	}
+
 	public void close() throws CoreException {
 		current.save();
 		saveVersion();
 	}
 
+	/**
+	 * Returns the directories of all the buckets in the tree, mapped to the path
+	 * of the workspace root or project they belong to. The bucket of the
+	 * workspace root comes first, followed by the buckets of every project in
+	 * the order they are visited by {@link #accept(Visitor, IPath, int)}.
+	 * Buckets can be visited one at a time with {@link #accept(Visitor, IPath, File)}.
+	 */
+	public Map<File, IPath> getBucketDirectories() {
+		Map<File, IPath> result = new LinkedHashMap<>();
+		result.put(locationFor(Path.ROOT), Path.ROOT);
+		IProject[] projects = workspace.getRoot().getProjects(IContainer.INCLUDE_HIDDEN);
+		for (IProject project : projects) {
+			IPath projectPath = project.getFullPath();
+			collectBucketDirectories(locationFor(projectPath), projectPath, result);
+		}
+		return result;
+	}
+
+	private void collectBucketDirectories(File bucketDir, IPath base, Map<File, IPath> result) {
+		result.put(bucketDir, base);
+		File[] subDirs = bucketDir.listFiles();
+		if (subDirs == null)
+			return;
+		for (File subDir : subDirs)
+			if (subDir.isDirectory())
+				collectBucketDirectories(subDir, base, result);
+	}
+
 	public Bucket getCurrent() {
 		return current;
 	}
@@ -123,7 +170,11 @@ public class BucketTree {
 		current.load(Path.ROOT.equals(path) ? null : path.segment(0), locationFor(path));
 	}
 
-	private File locationFor(IPath resourcePath) {
+	/**
+	 * Returns the directory of the bucket that holds the entry of the resource
+	 * with the given path.
+	 */
+	public File locationFor(IPath resourcePath) {
 		//optimized to avoid string and path creations
 		IPath baseLocation = workspace.getMetaArea().locationFor(resourcePath).removeTrailingSeparator();
 		int segmentCount = resourcePath.segmentCount();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -40,6 +40,17 @@ import org.xml.sax.InputSource;
  */
 public class FileSystemResourceManager implements ICoreConstants, IManager, Preferences.IPropertyChangeListener {
 
+	/**
+	 * Whether the local history stores each distinct file content once, in
+	 * blobs keyed by a digest of their contents.
+	 */
+	private static final boolean HISTORY_CONTENT_ADDRESSED = Boolean.getBoolean("org.eclipse.core.resources.history.contentAddressed"); //$NON-NLS-1$
+
+	/**
+	 * Whether the local history deflates the blobs keyed by their contents.
+	 */
+	private static final boolean HISTORY_COMPRESS = Boolean.getBoolean("org.eclipse.core.resources.history.compress"); //$NON-NLS-1$
+
 	/**
 	 * The history store is initialized lazily - always use the accessor method
 	 */
@@ -506,7 +517,7 @@ public class FileSystemResourceManager implements ICoreConstants, IManager, Pref
 			IPath location = getWorkspace().getMetaArea().getHistoryStoreLocation();
 			location.toFile().mkdirs();
 			IFileStore store = EFS.getLocalFileSystem().getStore(location);
-			_historyStore = new HistoryStore2(getWorkspace(), store, 256);
+			_historyStore = new HistoryStore2(getWorkspace(), store, 256, HISTORY_CONTENT_ADDRESSED, HISTORY_COMPRESS);
 		}
 		return _historyStore;
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,8 +15,8 @@
 package org.eclipse.core.internal.localstore;
 
 import java.io.*;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.nio.ByteBuffer;
+import java.util.*;
 import org.eclipse.core.internal.utils.UniversalUniqueIdentifier;
 import org.eclipse.core.runtime.IPath;
 
@@ -25,6 +25,8 @@ public class HistoryBucket extends Bucket {
 	/**
 	 * A entry in the bucket index. Each entry has one path and a collection
 	 * of states, which by their turn contain a (UUID, timestamp) pair.
+	 * The UUID is the key of the blob in the {@link BlobStore}, which is either
+	 * a time based UUID or a key derived from the contents of the blob.
 	 * <p>
 	 * This class is intended as a lightweight way of hiding the internal data structure.
 	 * Objects of this class are supposed to be short-lived. No instances
@@ -50,6 +52,11 @@ public class HistoryBucket extends Bucket {
 		 */
 		private byte[][] data;
 
+		/**
+		 * Whether the states are known to be sorted.
+		 */
+		private boolean sorted = true;
+
 		/**
 		 * Comparison logic for states in byte[] form.
 		 *
@@ -139,7 +146,7 @@ public class HistoryBucket extends Bucket {
 			return finalResult;
 		}
 
-		private static int search(byte[][] existing, byte[] element) {
+		static int search(byte[][] existing, byte[] element) {
 			return Arrays.binarySearch(existing, element, COMPARATOR);
 		}
 
@@ -155,8 +162,9 @@ public class HistoryBucket extends Bucket {
 		}
 
 		/**
-		 * Compacts the data array removing any null slots. If non-null slots
-		 * are found, the entry is marked for removal.
+		 * Compacts the data array removing any null slots, and sorts the
+		 * states again if blobs were replaced. If non-null slots are found,
+		 * the entry is marked for removal.
 		 */
 		private void compact() {
 			if (!isDirty())
@@ -167,6 +175,10 @@ public class HistoryBucket extends Bucket {
 					data[occurrences++] = d;
 				}
 			}
+			if (!sorted) {
+				Arrays.sort(data, 0, occurrences, COMPARATOR);
+				sorted = true;
+			}
 			if (occurrences == data.length)
 				// no states deleted
 				return;
@@ -186,6 +198,13 @@ public class HistoryBucket extends Bucket {
 			data[i] = null;
 		}
 
+		/**
+		 * Returns whether the given state was deleted.
+		 */
+		public boolean isDeletedOccurrence(int i) {
+			return data[i] == null;
+		}
+
 		byte[][] getData() {
 			return data;
 		}
@@ -203,6 +222,28 @@ public class HistoryBucket extends Bucket {
 			return new UniversalUniqueIdentifier(data[i]);
 		}
 
+		/**
+		 * Replaces the blob of the given state, keeping its timestamp. If the
+		 * entry already has a state for the new blob and timestamp, the given
+		 * state is deleted instead.
+		 *
+		 * @return whether the state was replaced
+		 */
+		public boolean setUUID(int i, UniversalUniqueIdentifier uuid) {
+			byte[] state = getState(uuid, getTimestamp(i));
+			markDirty();
+			for (byte[] d : data) {
+				if (Arrays.equals(d, state)) {
+					data[i] = null;
+					return false;
+				}
+			}
+			data[i] = state;
+			// the order of states with equal timestamps depends on their blobs
+			sorted = false;
+			return true;
+		}
+
 		@Override
 		public Object getValue() {
 			return data;
@@ -249,6 +290,23 @@ public class HistoryBucket extends Bucket {
 	 */
 	public final static byte VERSION = 2;
 
+	/**
+	 * The number of states that reference each blob, over all the buckets of
+	 * the tree, or <code>null</code> if references are not counted. References
+	 * are only counted by content addressed history stores, where blobs are
+	 * shared by states when their contents are equal, or when history is copied.
+	 * Blobs are keyed by their bytes, because {@link UniversalUniqueIdentifier#hashCode()}
+	 * only mixes a few of them.
+	 */
+	private Map<ByteBuffer, Integer> references;
+
+	/**
+	 * The directories of the buckets whose states were not counted yet, while
+	 * references are counted. Changes to the states of these buckets are not
+	 * counted as they happen, because the states are counted later on.
+	 */
+	private Set<File> uncounted;
+
 	public HistoryBucket() {
 		super(false); // history is fire and forget
 	}
@@ -259,12 +317,14 @@ public class HistoryBucket extends Bucket {
 		byte[][] existing = (byte[][]) getEntryValue(pathAsString);
 		if (existing == null) {
 			setEntryValue(pathAsString, new byte[][] {state});
+			addReference(state);
 			return;
 		}
 		byte[][] newValue = HistoryEntry.insert(existing, state);
 		if (newValue == null)
 			return;
 		setEntryValue(pathAsString, newValue);
+		addReference(state);
 	}
 
 	public void addBlobs(HistoryEntry fileEntry) {
@@ -272,6 +332,10 @@ public class HistoryBucket extends Bucket {
 		byte[][] additions = fileEntry.getData();
 		String pathAsString = path.toString();
 		byte[][] existing = (byte[][]) getEntryValue(pathAsString);
+		if (isCountingChanges())
+			for (byte[] state : additions)
+				if (existing == null || HistoryEntry.search(existing, state) < 0)
+					countReference(state);
 		if (existing == null) {
 			setEntryValue(pathAsString, additions);
 			return;
@@ -279,6 +343,44 @@ public class HistoryBucket extends Bucket {
 		setEntryValue(pathAsString, HistoryEntry.merge(existing, additions));
 	}
 
+	private void addReference(byte[] state) {
+		if (isCountingChanges())
+			countReference(state);
+	}
+
+	/**
+	 * Counts a new reference to the given blob, if references are counted.
+	 */
+	public void addReference(UniversalUniqueIdentifier uuid) {
+		addReference(uuid.toBytes());
+	}
+
+	/**
+	 * Counts the references of the remaining states of the given entry, if
+	 * references are counted.
+	 */
+	public void addReferences(HistoryEntry fileEntry) {
+		if (references == null)
+			return;
+		for (int i = 0; i < fileEntry.getOccurrences(); i++)
+			if (!fileEntry.isDeletedOccurrence(i))
+				countReference(fileEntry.data[i]);
+	}
+
+	private void countReference(byte[] state) {
+		references.merge(referenceKey(state), 1, Integer::sum);
+	}
+
+	/**
+	 * Records that all the states of the bucket in the given directory were
+	 * counted with {@link #addReferences(HistoryEntry)}. From now on, changes to
+	 * these states are counted as they happen.
+	 */
+	public void countedReferences(File bucketDir) {
+		if (uncounted != null)
+			uncounted.remove(bucketDir);
+	}
+
 	@Override
 	protected Bucket.Entry createEntry(IPath path, Object value) {
 		return new HistoryEntry(path, (byte[][]) value);
@@ -297,6 +399,16 @@ public class HistoryBucket extends Bucket {
 		return "history.index"; //$NON-NLS-1$
 	}
 
+	/**
+	 * Returns the number of states that reference the given blob, or -1 if
+	 * references are not counted.
+	 */
+	public int getReferenceCount(UniversalUniqueIdentifier uuid) {
+		if (references == null)
+			return -1;
+		return references.getOrDefault(referenceKey(uuid.toBytes()), 0);
+	}
+
 	@Override
 	protected byte getVersion() {
 		return VERSION;
@@ -307,6 +419,29 @@ public class HistoryBucket extends Bucket {
 		return "history.version"; //$NON-NLS-1$
 	}
 
+	/**
+	 * Returns whether changes to the states of the current bucket are counted
+	 * as they happen.
+	 */
+	private boolean isCountingChanges() {
+		return references != null && (uncounted.isEmpty() || !uncounted.contains(getDirectory()));
+	}
+
+	/**
+	 * Returns whether references are counted.
+	 */
+	public boolean isCountingReferences() {
+		return references != null;
+	}
+
+	/**
+	 * Returns whether the references of all the states of the tree were
+	 * counted, so that the counts can be relied on.
+	 */
+	public boolean isReferenceCountComplete() {
+		return references != null && uncounted.isEmpty();
+	}
+
 	@Override
 	protected Object readEntryValue(DataInputStream source) throws IOException {
 		int length = source.readUnsignedShort();
@@ -316,6 +451,46 @@ public class HistoryBucket extends Bucket {
 		return uuids;
 	}
 
+	private static ByteBuffer referenceKey(byte[] state) {
+		return ByteBuffer.wrap(state, 0, UniversalUniqueIdentifier.BYTES_SIZE).slice();
+	}
+
+	/**
+	 * Discounts a reference to the given blob, if references are counted.
+	 */
+	public void removeReference(UniversalUniqueIdentifier uuid) {
+		if (isCountingChanges())
+			references.computeIfPresent(referenceKey(uuid.toBytes()), (key, count) -> count == 1 ? null : count - 1);
+	}
+
+	/**
+	 * Starts counting references from zero, counting all changes to the states
+	 * as they happen.
+	 */
+	public void startCountingReferences() {
+		startCountingReferences(Collections.emptySet());
+	}
+
+	/**
+	 * Starts counting references from zero. The states of the buckets in the
+	 * given directories must be counted with {@link #addReferences(HistoryEntry)},
+	 * one bucket at a time followed by {@link #countedReferences(File)}, before
+	 * the counts can be relied on. Changes to the states of the other buckets
+	 * are counted as they happen.
+	 */
+	public void startCountingReferences(Collection<File> bucketDirs) {
+		references = new HashMap<>();
+		uncounted = new HashSet<>(bucketDirs);
+	}
+
+	/**
+	 * Stops counting references and forgets all counts.
+	 */
+	public void stopCountingReferences() {
+		references = null;
+		uncounted = null;
+	}
+
 	@Override
 	protected void writeEntryValue(DataOutputStream destination, Object entryValue) throws IOException {
 		byte[][] uuids = (byte[][]) entryValue;
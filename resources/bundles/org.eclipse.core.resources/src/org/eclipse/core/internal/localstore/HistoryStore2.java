@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -14,8 +14,10 @@
  *******************************************************************************/
 package org.eclipse.core.internal.localstore;
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 import org.eclipse.core.filesystem.*;
 import org.eclipse.core.internal.localstore.Bucket.Entry;
 import org.eclipse.core.internal.localstore.HistoryBucket.HistoryEntry;
@@ -23,9 +25,87 @@ import org.eclipse.core.internal.resources.*;
 import org.eclipse.core.internal.utils.*;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
 
+/**
+ * A history store that keeps the states of every file in the bucket tree, and
+ * their contents in the blob store.
+ * <p>
+ * All accesses to the bucket tree are guarded by a fair lock. Clean-ups hold
+ * the lock for one bucket at a time, so that states are added and read while
+ * the history is pruned. Full workspace saves schedule clean-ups in the
+ * background.
+ * </p>
+ */
 public class HistoryStore2 implements IHistoryStore {
 
+	/**
+	 * The maximum number of blobs that one clean-up migrates to content blobs,
+	 * to bound the time it takes.
+	 */
+	private static final int MAX_MIGRATED_BLOBS = 1000;
+
+	/**
+	 * Migrates the blobs named by time based UUIDs to content blobs, a bounded
+	 * number per clean-up. A blob shared by several states is migrated once,
+	 * and deleted when no state references it anymore.
+	 */
+	class BlobMigration {
+		private final Map<UniversalUniqueIdentifier, UniversalUniqueIdentifier> migrated = new HashMap<>();
+		private int remaining = MAX_MIGRATED_BLOBS;
+
+		void migrate(HistoryEntry entry) {
+			HistoryBucket bucket = (HistoryBucket) tree.getCurrent();
+			for (int i = 0; i < entry.getOccurrences(); i++) {
+				if (entry.isDeletedOccurrence(i))
+					continue;
+				UniversalUniqueIdentifier uuid = entry.getUUID(i);
+				if (BlobStore.isContentKey(uuid))
+					continue;
+				UniversalUniqueIdentifier key = migrated.get(uuid);
+				if (key == null) {
+					if (remaining <= 0 || !blobStore.fileFor(uuid).fetchInfo().exists())
+						continue;
+					try {
+						key = blobStore.migrateBlob(uuid, compress);
+					} catch (CoreException e) {
+						// most likely out of disk space, try again with the next clean-up
+						log(e);
+						remaining = 0;
+						continue;
+					}
+					remaining--;
+					migrated.put(uuid, key);
+				}
+				if (entry.setUUID(i, key))
+					bucket.addReference(key);
+				release(uuid);
+			}
+		}
+	}
+
+	/**
+	 * Applies the clean-up policy in the background.
+	 */
+	class CleanJob extends Job {
+		CleanJob() {
+			super(Messages.resources_pruningHistory);
+			setSystem(true);
+			setPriority(DECORATE);
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == HistoryStore2.this;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			clean(monitor);
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+
 	class HistoryCopyVisitor extends Bucket.Visitor {
 		private List<HistoryEntry> changes = new ArrayList<>();
 		private IPath destination;
@@ -68,12 +148,41 @@ public class HistoryStore2 implements IHistoryStore {
 	}
 
 	private BlobStore blobStore;
+	/** @GuardedBy("lock") */
 	private Set<UniversalUniqueIdentifier> blobsToRemove = new HashSet<>();
+	/** Serializes the clean-ups, which only hold the lock one bucket at a time */
+	private final ReentrantLock cleanLock = new ReentrantLock();
+	private final CleanJob cleanJob = new CleanJob();
+	/** Whether a clean-up was scheduled and did not complete yet */
+	private volatile boolean cleanPending;
+	/** Whether new blobs are keyed by their contents */
+	private final boolean contentAddressed;
+	/** Whether new content blobs are deflated */
+	private final boolean compress;
+	/**
+	 * Guards the bucket tree and its single bucket. The lock is fair, so that
+	 * the threads waiting for it get their turn between the buckets of a clean-up.
+	 */
+	private final ReentrantLock lock = new ReentrantLock(true);
+	/** @GuardedBy("lock") */
 	final BucketTree tree;
 	private Workspace workspace;
 
 	public HistoryStore2(Workspace workspace, IFileStore store, int limit) {
+		this(workspace, store, limit, false, false);
+	}
+
+	/**
+	 * Creates a history store. If <code>contentAddressed</code> is <code>true</code>,
+	 * blobs are keyed by their contents so that equal contents are stored once,
+	 * and the existing blobs are migrated to content blobs along the clean-ups.
+	 *
+	 * @param compress whether new content blobs are deflated
+	 */
+	public HistoryStore2(Workspace workspace, IFileStore store, int limit, boolean contentAddressed, boolean compress) {
 		this.workspace = workspace;
+		this.contentAddressed = contentAddressed;
+		this.compress = compress;
 		try {
 			store.mkdir(EFS.NONE, null);
 		} catch (CoreException e) {
@@ -88,7 +197,7 @@ public class HistoryStore2 implements IHistoryStore {
 	 * @see IHistoryStore#addState(IPath, IFileStore, IFileInfo, boolean)
 	 */
 	@Override
-	public synchronized IFileState addState(IPath key, IFileStore localFile, IFileInfo info, boolean moveContents) {
+	public IFileState addState(IPath key, IFileStore localFile, IFileInfo info, boolean moveContents) {
 		long lastModified = info.getLastModified();
 		if (Policy.DEBUG_HISTORY)
 			Policy.debug("History: Adding state for key: " + key + ", file: " + localFile + ", timestamp: " + lastModified + ", size: " + localFile.fetchInfo().getLength()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
@@ -96,11 +205,21 @@ public class HistoryStore2 implements IHistoryStore {
 			return null;
 		UniversalUniqueIdentifier uuid = null;
 		try {
-			uuid = blobStore.addBlob(localFile, moveContents);
-			tree.loadBucketFor(key);
-			HistoryBucket currentBucket = (HistoryBucket) tree.getCurrent();
-			currentBucket.addBlob(key, uuid, lastModified);
-			//			currentBucket.save();
+			// blobs named by a new UUID are not known to anybody else and can be written
+			// without the lock, but content blobs can be shared and deleted by a clean-up
+			if (!contentAddressed)
+				uuid = blobStore.addBlob(localFile, moveContents);
+			lock.lock();
+			try {
+				if (contentAddressed)
+					uuid = blobStore.addContentBlob(localFile, moveContents, compress);
+				tree.loadBucketFor(key);
+				HistoryBucket currentBucket = (HistoryBucket) tree.getCurrent();
+				currentBucket.addBlob(key, uuid, lastModified);
+				//			currentBucket.save();
+			} finally {
+				lock.unlock();
+			}
 		} catch (CoreException e) {
 			log(e);
 		}
@@ -108,8 +227,9 @@ public class HistoryStore2 implements IHistoryStore {
 	}
 
 	@Override
-	public synchronized Set<IPath> allFiles(IPath root, int depth, IProgressMonitor monitor) {
+	public Set<IPath> allFiles(IPath root, int depth, IProgressMonitor monitor) {
 		final Set<IPath> allFiles = new HashSet<>();
+		lock.lock();
 		try {
 			tree.accept(new Bucket.Visitor() {
 				@Override
@@ -120,6 +240,8 @@ public class HistoryStore2 implements IHistoryStore {
 			}, root, depth == IResource.DEPTH_INFINITE ? BucketTree.DEPTH_INFINITE : depth);
 		} catch (CoreException e) {
 			log(e);
+		} finally {
+			lock.unlock();
 		}
 		return allFiles;
 	}
@@ -132,7 +254,7 @@ public class HistoryStore2 implements IHistoryStore {
 			if (i < maxStates && fileEntry.getTimestamp(i) >= minTimeStamp)
 				continue;
 			// "delete" the current uuid
-			blobsToRemove.add(fileEntry.getUUID(i));
+			release(fileEntry.getUUID(i));
 			fileEntry.deleteOccurrence(i);
 		}
 	}
@@ -155,52 +277,140 @@ public class HistoryStore2 implements IHistoryStore {
 		tree.getCurrent().save();
 	}
 
+	/**
+	 * Applies the clean-up policy to all the states, one bucket at a time. Other
+	 * threads can access the store between the buckets. In content addressed
+	 * mode, the first clean-up also counts the references to the blobs, and no
+	 * blob is deleted before.
+	 */
 	@Override
-	public synchronized void clean(final IProgressMonitor monitor) {
+	public void clean(final IProgressMonitor monitor) {
+		cleanLock.lock();
+		try {
+			internalClean(monitor);
+		} finally {
+			cleanLock.unlock();
+		}
+	}
+
+	/**
+	 * @GuardedBy("cleanLock")
+	 */
+	private void internalClean(final IProgressMonitor monitor) {
 		long start = System.currentTimeMillis();
+		final HistoryBucket bucket = (HistoryBucket) tree.getCurrent();
 		try {
 			monitor.beginTask(Messages.resources_pruningHistory, IProgressMonitor.UNKNOWN);
 			IWorkspaceDescription description = workspace.internalGetDescription();
 			final long minimumTimestamp = System.currentTimeMillis() - description.getFileStateLongevity();
 			final int maxStates = description.getMaxFileStates();
+			final boolean applyPolicy = description.isApplyFileStatePolicy();
 			final int[] entryCount = new int[1];
-			if (description.isApplyFileStatePolicy()) {
-				tree.accept(new Bucket.Visitor() {
+			final BlobMigration migration = contentAddressed ? new BlobMigration() : null;
+			Map<File, IPath> bucketDirs = null;
+			final boolean countReferences;
+			lock.lock();
+			try {
+				// content blobs are shared, their references are counted along the first clean-up
+				countReferences = contentAddressed && !bucket.isReferenceCountComplete();
+				if (applyPolicy || countReferences || migration != null)
+					bucketDirs = tree.getBucketDirectories();
+				if (countReferences)
+					bucket.startCountingReferences(bucketDirs.keySet());
+			} finally {
+				lock.unlock();
+			}
+			if (bucketDirs != null) {
+				Bucket.Visitor visitor = new Bucket.Visitor() {
 					@Override
 					public int visit(Entry fileEntry) {
 						if (monitor.isCanceled())
 							return STOP;
+						HistoryEntry historyEntry = (HistoryEntry) fileEntry;
 						entryCount[0] += fileEntry.getOccurrences();
-						applyPolicy((HistoryEntry) fileEntry, maxStates, minimumTimestamp);
+						if (applyPolicy)
+							applyPolicy(historyEntry, maxStates, minimumTimestamp);
+						if (migration != null)
+							migration.migrate(historyEntry);
+						if (countReferences)
+							bucket.addReferences(historyEntry);
+						return monitor.isCanceled() ? STOP : CONTINUE;
+					}
+				};
+				for (Map.Entry<File, IPath> bucketDir : bucketDirs.entrySet()) {
+					if (monitor.isCanceled())
+						break;
+					// other threads get the lock between buckets
+					lock.lock();
+					try {
+						tree.accept(visitor, bucketDir.getValue(), bucketDir.getKey());
+						if (monitor.isCanceled())
+							break;
+						if (countReferences)
+							bucket.countedReferences(bucketDir.getKey());
 						// remove unreferenced blobs, when blobsToRemove size is greater than 100
 						removeUnreferencedBlobs(100);
-						return monitor.isCanceled() ? STOP : CONTINUE;
+					} finally {
+						lock.unlock();
 					}
-				}, Path.ROOT, BucketTree.DEPTH_INFINITE);
+				}
 			}
 			if (Policy.DEBUG_HISTORY) {
 				Policy.debug("Time to apply history store policies: " + (System.currentTimeMillis() - start) + "ms."); //$NON-NLS-1$ //$NON-NLS-2$
 				Policy.debug("Total number of history store entries: " + entryCount[0]); //$NON-NLS-1$
 			}
-			// remove all remaining unreferenced blobs
-			removeUnreferencedBlobs(0);
+			lock.lock();
+			try {
+				// remove all remaining unreferenced blobs
+				removeUnreferencedBlobs(0);
+			} finally {
+				lock.unlock();
+			}
+			if (!monitor.isCanceled())
+				cleanPending = false;
 		} catch (Exception e) {
 			String message = Messages.history_problemsCleaning;
 			ResourceStatus status = new ResourceStatus(IResourceStatus.FAILED_DELETE_LOCAL, null, message, e);
 			Policy.log(status);
 		} finally {
+			lock.lock();
+			try {
+				// a canceled or failed clean-up did not count all references
+				if (bucket.isCountingReferences() && !bucket.isReferenceCountComplete())
+					bucket.stopCountingReferences();
+			} finally {
+				lock.unlock();
+			}
 			monitor.done();
 		}
 	}
 
+	/**
+	 * Forgets a reference to the given blob. The blob is deleted by a later
+	 * clean-up. In content addressed mode, it is kept if it is referenced again
+	 * by then.
+	 */
+	void release(UniversalUniqueIdentifier uuid) {
+		if (contentAddressed)
+			((HistoryBucket) tree.getCurrent()).removeReference(uuid);
+		blobsToRemove.add(uuid);
+	}
+
 	/*
 	 * Remove blobs from the blobStore. When the size of blobsToRemove exceeds the limit,
 	 * remove the given blobs from blobStore. If the limit is zero or negative, remove blobs
-	 * regardless of the limit.
+	 * regardless of the limit. In content addressed mode, blobs that are still referenced
+	 * are kept, and nothing is removed before the references were counted.
 	 */
 	void removeUnreferencedBlobs(int limit) {
+		HistoryBucket bucket = (HistoryBucket) tree.getCurrent();
+		if (contentAddressed && !bucket.isReferenceCountComplete())
+			return;
 		if (limit <= 0 || limit <= blobsToRemove.size()) {
 			long start = System.currentTimeMillis();
+			// content blobs can be shared by states of other files, and referenced again after their release
+			if (contentAddressed)
+				blobsToRemove.removeIf(uuid -> bucket.getReferenceCount(uuid) > 0);
 			// remove unreferenced blobs
 			blobStore.deleteBlobs(blobsToRemove);
 			if (Policy.DEBUG_HISTORY)
@@ -211,16 +421,19 @@ public class HistoryStore2 implements IHistoryStore {
 
 	@Override
 	public void closeHistoryStore(IResource resource) {
+		lock.lock();
 		try {
 			tree.getCurrent().save();
 			tree.getCurrent().flush();
 		} catch (CoreException e) {
 			log(e);
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
-	public synchronized void copyHistory(IResource sourceResource, IResource destinationResource, boolean moving) {
+	public void copyHistory(IResource sourceResource, IResource destinationResource, boolean moving) {
 		// return early if either of the paths are null or if the source and
 		// destination are the same.
 		if (sourceResource == null || destinationResource == null) {
@@ -242,6 +455,7 @@ public class HistoryStore2 implements IHistoryStore {
 		Assert.isLegal(destination.segmentCount() > 0);
 		Assert.isLegal(source.segmentCount() > 1 || destination.segmentCount() == 1);
 
+		lock.lock();
 		try {
 			// special case: we are moving a project
 			if (moving && sourceResource.getType() == IResource.PROJECT) {
@@ -258,6 +472,8 @@ public class HistoryStore2 implements IHistoryStore {
 			applyPolicy(destinationResource.getFullPath());
 		} catch (CoreException e) {
 			log(e);
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -276,7 +492,8 @@ public class HistoryStore2 implements IHistoryStore {
 	}
 
 	@Override
-	public synchronized IFileState[] getStates(IPath filePath, IProgressMonitor monitor) {
+	public IFileState[] getStates(IPath filePath, IProgressMonitor monitor) {
+		lock.lock();
 		try {
 			tree.loadBucketFor(filePath);
 			HistoryBucket currentBucket = (HistoryBucket) tree.getCurrent();
@@ -290,6 +507,8 @@ public class HistoryStore2 implements IHistoryStore {
 		} catch (CoreException ce) {
 			log(ce);
 			return new IFileState[0];
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -331,21 +550,23 @@ public class HistoryStore2 implements IHistoryStore {
 	}
 
 	@Override
-	public synchronized void remove(IPath root, IProgressMonitor monitor) {
+	public void remove(IPath root, IProgressMonitor monitor) {
+		lock.lock();
 		try {
-			final Set<UniversalUniqueIdentifier> tmpBlobsToRemove = blobsToRemove;
 			tree.accept(new Bucket.Visitor() {
 				@Override
 				public int visit(Entry fileEntry) {
 					for (int i = 0; i < fileEntry.getOccurrences(); i++)
 						// remember we need to delete the files later
-						tmpBlobsToRemove.add(((HistoryEntry) fileEntry).getUUID(i));
+						release(((HistoryEntry) fileEntry).getUUID(i));
 					fileEntry.delete();
 					return CONTINUE;
 				}
 			}, root, BucketTree.DEPTH_INFINITE);
 		} catch (CoreException ce) {
 			log(ce);
+		} finally {
+			lock.unlock();
 		}
 	}
 
@@ -353,7 +574,8 @@ public class HistoryStore2 implements IHistoryStore {
 	 * @see IHistoryStore#removeGarbage()
 	 */
 	@Override
-	public synchronized void removeGarbage() {
+	public void removeGarbage() {
+		lock.lock();
 		try {
 			final Set<UniversalUniqueIdentifier> tmpBlobsToRemove = blobsToRemove;
 			tree.accept(new Bucket.Visitor() {
@@ -371,12 +593,37 @@ public class HistoryStore2 implements IHistoryStore {
 			String message = Messages.history_problemsCleaning;
 			ResourceStatus status = new ResourceStatus(IResourceStatus.FAILED_DELETE_LOCAL, null, message, e);
 			Policy.log(status);
+		} finally {
+			lock.unlock();
 		}
 	}
 
+	/**
+	 * @see IHistoryStore#scheduleClean()
+	 */
+	@Override
+	public void scheduleClean() {
+		cleanPending = true;
+		cleanJob.schedule();
+	}
+
 	@Override
-	public synchronized void shutdown(IProgressMonitor monitor) throws CoreException {
-		tree.close();
+	public void shutdown(IProgressMonitor monitor) throws CoreException {
+		// a pending clean-up is completed in the foreground
+		cleanJob.cancel();
+		try {
+			cleanJob.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (cleanPending)
+			clean(Policy.monitorFor(monitor));
+		lock.lock();
+		try {
+			tree.close();
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2010 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -96,6 +96,14 @@ public interface IHistoryStore extends IManager {
 	 */
 	void clean(IProgressMonitor monitor);
 
+	/**
+	 * Schedules a clean-up of this history store in the background, see
+	 * {@link #clean(IProgressMonitor)}. The history store can be used while
+	 * the clean-up runs. A clean-up that did not complete when the history store
+	 * is shut down is completed by {@link #shutdown(IProgressMonitor)}.
+	 */
+	void scheduleClean();
+
 	/**
 	 * Closes the history store for the given resource.
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -23,6 +23,7 @@ package org.eclipse.core.internal.localstore;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.Pattern;
 import org.eclipse.core.filesystem.*;
 import org.eclipse.core.internal.refresh.RefreshJob;
@@ -34,12 +35,60 @@ import org.eclipse.core.runtime.jobs.Job;
 
 /**
  * Represents the workspace's tree merged with the file system's tree.
+ * <p>
+ * While the tree is traversed, the children of the directories that are
+ * about to be visited are listed ahead on a shared pool of threads, so that
+ * the traversal does not wait for the file system one directory at a time.
+ * Only the listing is done ahead: the children are filtered, sorted, merged
+ * with the workspace and visited in the traversing thread, in the same order
+ * as without prefetching.
+ * </p>
  */
 public class UnifiedTree {
 
 	/** Skip advanced link checking, see bug 537449 */
 	private static boolean disable_advanced_recursive_link_checks = System.getProperty("org.eclipse.core.resources.disable_advanced_recursive_link_checks") != null; //$NON-NLS-1$
 
+	/** The number of threads listing directories ahead of the traversal, 0 disables prefetching */
+	private static final int PREFETCH_THREADS = Integer.getInteger("org.eclipse.core.resources.prefetchThreads", Math.min(8, Math.max(2, Runtime.getRuntime().availableProcessors()))); //$NON-NLS-1$
+
+	/** The maximum number of directories listed ahead of the traversal */
+	private static final int PREFETCH_WINDOW = 64;
+
+	/** The pool listing directories ahead of the traversal, created on demand */
+	private static ForkJoinPool prefetchPool;
+
+	/**
+	 * The listing of the children of a directory, fetched ahead of the
+	 * traversal.
+	 */
+	static final class Prefetch implements Callable<IFileInfo[]> {
+		static final int PENDING = 0;
+		static final int SUBMITTED = 1;
+		static final int DONE = 2;
+
+		final IFileStore store;
+		int state = PENDING;
+		ForkJoinTask<IFileInfo[]> task;
+		/** the failure to list the children, rethrown to the traversing thread */
+		CoreException failure;
+
+		Prefetch(IFileStore store) {
+			this.store = store;
+		}
+
+		@Override
+		public IFileInfo[] call() {
+			//a checked exception would reach the traversing thread wrapped in a RuntimeException
+			try {
+				return store.childInfos(EFS.NONE, null);
+			} catch (CoreException e) {
+				failure = e;
+				return null;
+			}
+		}
+	}
+
 	/** special node to mark the separation of a node's children */
 	protected static final UnifiedTreeNode childrenMarker = new UnifiedTreeNode(null, null, null, null, false);
 
@@ -75,6 +124,15 @@ public class UnifiedTree {
 	/** tree's root */
 	protected IResource root;
 
+	/** whether directories are listed ahead of the traversal */
+	private boolean prefetchEnabled = PREFETCH_THREADS > 0;
+	/** the requested depth of the current traversal */
+	private int depth;
+	/** directories to list ahead, in traversal order */
+	private final ArrayDeque<Prefetch> pendingPrefetches = new ArrayDeque<>();
+	/** the number of submitted listings that were not consumed yet */
+	private int submittedPrefetches;
+
 	/**
 	 * The root must only be a file or a folder.
 	 */
@@ -105,29 +163,167 @@ public class UnifiedTree {
 	 */
 	public void accept(IUnifiedTreeVisitor visitor, int depth) throws CoreException {
 		Assert.isNotNull(root);
+		this.depth = depth;
 		initializeQueue();
 		setLevel(0, depth);
-		while (!queue.isEmpty()) {
-			UnifiedTreeNode node = queue.remove();
-			if (isChildrenMarker(node))
-				continue;
-			if (isLevelMarker(node)) {
-				if (!setLevel(getLevel() + 1, depth))
-					break;
-				continue;
+		try {
+			while (!queue.isEmpty()) {
+				UnifiedTreeNode node = queue.remove();
+				if (isChildrenMarker(node))
+					continue;
+				if (isLevelMarker(node)) {
+					if (!setLevel(getLevel() + 1, depth))
+						break;
+					continue;
+				}
+				if (visitor.visit(node))
+					addNodeChildrenToQueue(node);
+				else
+					removeNodeChildrenFromQueue(node);
+				//the children of the node were not needed if they were not consumed by now
+				discardPrefetch(node);
+				//allow reuse of the node, but don't let the freeNodes list grow infinitely
+				if (freeNodes.size() < 32767) {
+					//free memory-consuming elements of the node for garbage collection
+					node.releaseForGc();
+					freeNodes.add(node);
+				}
+				//else, the whole node will be garbage collected since there is no
+				//reference to it any more.
 			}
-			if (visitor.visit(node))
-				addNodeChildrenToQueue(node);
-			else
-				removeNodeChildrenFromQueue(node);
-			//allow reuse of the node, but don't let the freeNodes list grow infinitely
-			if (freeNodes.size() < 32767) {
-				//free memory-consuming elements of the node for garbage collection
-				node.releaseForGc();
-				freeNodes.add(node);
+		} finally {
+			discardPrefetches();
+		}
+	}
+
+	/**
+	 * Enables or disables listing directories ahead of the traversal. The
+	 * visited nodes are the same either way.
+	 */
+	public void setPrefetchEnabled(boolean enabled) {
+		this.prefetchEnabled = enabled && PREFETCH_THREADS > 0;
+	}
+
+	private static synchronized ForkJoinPool getPrefetchPool() {
+		if (prefetchPool == null) {
+			ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("Resources prefetch-" + thread.getPoolIndex()); //$NON-NLS-1$
+				return thread;
+			};
+			prefetchPool = new ForkJoinPool(PREFETCH_THREADS, factory, null, false);
+		}
+		return prefetchPool;
+	}
+
+	/**
+	 * Schedules the listing of the children of the given node ahead of the
+	 * traversal, if the node is a directory whose children will be visited.
+	 */
+	private void prefetchChildren(UnifiedTreeNode node) {
+		//the children of the node are at the level after the next one
+		if (!prefetchEnabled || !node.isFolder() || !isValidLevel(level + 2, depth))
+			return;
+		IFileStore store = node.getStore();
+		if (fileTree != null && (fileTree.getTreeRoot().equals(store) || fileTree.getTreeRoot().isParentOf(store)))
+			return;
+		if (!canPrefetch(store))
+			return;
+		node.prefetch = new Prefetch(store);
+		pendingPrefetches.add(node.prefetch);
+		submitPrefetches();
+	}
+
+	/**
+	 * Returns whether the children of the given directory can be listed on
+	 * another thread. Only the local file system is known to support concurrent
+	 * access; other file systems are listed in the traversing thread.
+	 */
+	protected boolean canPrefetch(IFileStore store) {
+		return EFS.SCHEME_FILE.equals(store.getFileSystem().getScheme());
+	}
+
+	/**
+	 * Submits pending listings, up to the maximum number of listings ahead of
+	 * the traversal.
+	 */
+	private void submitPrefetches() {
+		while (submittedPrefetches < PREFETCH_WINDOW && !pendingPrefetches.isEmpty()) {
+			Prefetch prefetch = pendingPrefetches.remove();
+			if (prefetch.state != Prefetch.PENDING)
+				continue;
+			prefetch.state = Prefetch.SUBMITTED;
+			prefetch.task = ForkJoinTask.adapt(prefetch);
+			getPrefetchPool().execute(prefetch.task);
+			submittedPrefetches++;
+		}
+	}
+
+	/**
+	 * Returns the children of the given directory, using the listing fetched
+	 * ahead if there is one.
+	 */
+	private IFileInfo[] fetchChildInfos(UnifiedTreeNode node, IFileStore store) throws CoreException {
+		Prefetch prefetch = node.prefetch;
+		node.prefetch = null;
+		if (prefetch == null || prefetch.state != Prefetch.SUBMITTED) {
+			if (prefetch != null)
+				prefetch.state = Prefetch.DONE;
+			return store.childInfos(EFS.NONE, null);
+		}
+		prefetch.state = Prefetch.DONE;
+		submittedPrefetches--;
+		submitPrefetches();
+		IFileInfo[] list;
+		try {
+			list = prefetch.task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return store.childInfos(EFS.NONE, null);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw (RuntimeException) cause;
+		}
+		if (prefetch.failure != null)
+			throw prefetch.failure;
+		return list;
+	}
+
+	/**
+	 * Discards the listing fetched ahead for the given node, if it was not
+	 * consumed.
+	 */
+	private void discardPrefetch(UnifiedTreeNode node) {
+		Prefetch prefetch = node.prefetch;
+		if (prefetch == null)
+			return;
+		node.prefetch = null;
+		if (prefetch.state == Prefetch.SUBMITTED) {
+			prefetch.task.cancel(false);
+			submittedPrefetches--;
+		}
+		prefetch.state = Prefetch.DONE;
+		submitPrefetches();
+	}
+
+	/**
+	 * Discards all listings fetched ahead at the end of a traversal.
+	 */
+	private void discardPrefetches() {
+		pendingPrefetches.clear();
+		submittedPrefetches = 0;
+		if (queue == null)
+			return;
+		for (UnifiedTreeNode node : queue) {
+			Prefetch prefetch = node.prefetch;
+			if (prefetch != null) {
+				node.prefetch = null;
+				if (prefetch.task != null)
+					prefetch.task.cancel(false);
+				prefetch.state = Prefetch.DONE;
 			}
-			//else, the whole node will be garbage collected since there is no
-			//reference to it any more.
 		}
 	}
 
@@ -240,6 +436,7 @@ public class UnifiedTree {
 		if (node.getFirstChild() == null)
 			node.setFirstChild(child);
 		addElementToQueue(child);
+		prefetchChildren(child);
 	}
 
 	protected void addElementToQueue(UnifiedTreeNode target) {
@@ -357,7 +554,7 @@ public class UnifiedTree {
 			if (fileTree != null && (fileTree.getTreeRoot().equals(store) || fileTree.getTreeRoot().isParentOf(store)))
 				list = fileTree.getChildInfos(store);
 			else
-				list = store.childInfos(EFS.NONE, null);
+				list = fetchChildInfos(node, store);
 
 			if (list == null || list.length == 0)
 				return NO_CHILDREN;
@@ -590,7 +787,9 @@ public class UnifiedTree {
 		if (first == null)
 			return;
 		while (true) {
-			if (first.equals(queue.pollLast()))
+			UnifiedTreeNode last = queue.pollLast();
+			discardPrefetch(last);
+			if (first.equals(last))
 				break;
 		}
 		node.setFirstChild(null);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -31,6 +31,8 @@ public class UnifiedTreeNode implements ILocalStoreConstants {
 	protected IResource resource;
 	protected IFileStore store;
 	protected UnifiedTree tree;
+	/** the listing of the children of this node, if it was fetched ahead */
+	UnifiedTree.Prefetch prefetch;
 
 	public UnifiedTreeNode(UnifiedTree tree, IResource resource, IFileStore store, IFileInfo fileInfo, boolean existsWorkspace) {
 		this.tree = tree;
@@ -119,6 +121,7 @@ public class UnifiedTreeNode implements ILocalStoreConstants {
 		this.store = aStore;
 		this.fileInfo = info;
 		this.existsWorkspace = existsInWorkspace;
+		this.prefetch = null;
 	}
 
 	/**
@@ -130,6 +133,7 @@ public class UnifiedTreeNode implements ILocalStoreConstants {
 		this.resource = null;
 		this.store = null;
 		this.fileInfo = null;
+		this.prefetch = null;
 	}
 
 	public void setExistsWorkspace(boolean exists) {
@@ -49,6 +49,11 @@ public interface IPropertyManager extends IManager {
 	 */
 	void deleteResource(IResource target) throws CoreException;
 
+	/**
+	 * Writes the properties that were changed in memory only to disk.
+	 */
+	void flush() throws CoreException;
+
 	/**
 	 * Returns the value of the identified property on the given resource as
 	 * maintained by this store.
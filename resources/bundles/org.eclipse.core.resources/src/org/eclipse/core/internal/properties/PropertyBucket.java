@@ -65,9 +65,10 @@ public class PropertyBucket extends Bucket {
 			// look for the right spot where to insert the new guy
 			int index = search(existing, propertyName);
 			if (index >= 0) {
-				// found existing occurrence - just replace the value
-				existing[index][2] = propertyValue;
-				return existing;
+				// found existing occurrence - replace the value in a copy, copies of the entries share the rows
+				String[][] newValue = existing.clone();
+				newValue[index] = new String[] {propertyName.getQualifier(), propertyName.getLocalName(), propertyValue};
+				return newValue;
 			}
 			// not found - insert
 			int insertPosition = -index - 1;
@@ -326,7 +327,7 @@ public class PropertyBucket extends Bucket {
 			newValue = PropertyEntry.insert(existing, name, value);
 		else
 			newValue = PropertyEntry.delete(existing, name);
-		// even if newValue == existing we should mark as dirty (insert may just change the existing array)
+		// even if newValue == existing we should mark as dirty
 		setEntryValue(pathAsString, newValue);
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2016 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,7 +16,10 @@
 package org.eclipse.core.internal.properties;
 
 import java.io.File;
+import java.lang.ref.SoftReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.core.internal.localstore.Bucket;
 import org.eclipse.core.internal.localstore.Bucket.Entry;
 import org.eclipse.core.internal.localstore.BucketTree;
@@ -26,14 +29,79 @@ import org.eclipse.core.internal.utils.Messages;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceStatus;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.osgi.util.NLS;
 
 /**
+ * Keeps the persistent properties in the buckets of a bucket tree.
+ * <p>
+ * Properties are read from immutable copies of the bucket entries, so that
+ * reads do not have to wait for each other nor for writers. The copies are
+ * softly referenced and bounded in number. Buckets that are not in memory are
+ * loaded under a lock for their directory, so only the readers of the same
+ * bucket wait for each other.
+ * </p>
+ * <p>
+ * Changes are made to the current bucket of the tree while holding the lock
+ * of the manager. A changed property is written to disk when another bucket is
+ * loaded, or at the latest after a short delay, rather than on every change.
+ * Until then, the entries of the changed bucket are copied for the readers when
+ * they are first read after a change.
+ * </p>
+ *
  * @see org.eclipse.core.internal.properties.IPropertyManager
  */
 public class PropertyManager2 implements IPropertyManager {
 	private static final int MAX_VALUE_SIZE = 2 * 1024;
 
+	/** The maximum number of buckets kept in memory for reading */
+	private static final int MAX_CACHED_BUCKETS = 1024;
+
+	/** The number of locks that the bucket directories are spread over */
+	private static final int BUCKET_LOCKS = 64;
+
+	/** The delay in milliseconds after which changed properties are written to disk */
+	private static final long FLUSH_DELAY = 500;
+
+	/**
+	 * Writes the changed properties of the current bucket to disk.
+	 */
+	private class FlushJob extends Job {
+		FlushJob() {
+			super(Messages.properties_saving);
+			setSystem(true);
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return PropertyManager2.class == family;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				flush();
+			} catch (CoreException e) {
+				return e.getStatus();
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * The directory and entries of the current bucket as they were last read
+	 * from memory.
+	 */
+	private static final class CurrentBucket {
+		final File directory;
+		final Map<String, Object> entries;
+
+		CurrentBucket(File directory, Map<String, Object> entries) {
+			this.directory = directory;
+			this.entries = entries;
+		}
+	}
+
 	class PropertyCopyVisitor extends Bucket.Visitor {
 		private List<PropertyEntry> changes = new ArrayList<>();
 		private IPath destination;
@@ -75,22 +143,40 @@ public class PropertyManager2 implements IPropertyManager {
 
 	BucketTree tree;
 
+	/** The entries of the buckets read from disk or changed, by bucket directory */
+	private final Map<File, SoftReference<Map<String, Object>>> cachedEntries = new ConcurrentHashMap<>();
+	private final Object[] bucketLocks = new Object[BUCKET_LOCKS];
+	/** Incremented whenever buckets on disk changed and their entries are forgotten */
+	private final AtomicLong invalidations = new AtomicLong();
+	/** The current bucket, which is always kept in memory */
+	private volatile CurrentBucket current;
+	/** The directory of the current bucket if it has changes that are not on disk yet */
+	private volatile File changedDirectory;
+	private final FlushJob flushJob = new FlushJob();
+
 	public PropertyManager2(Workspace workspace) {
 		this.tree = new BucketTree(workspace, new PropertyBucket());
+		for (int i = 0; i < bucketLocks.length; i++)
+			bucketLocks[i] = new Object();
 	}
 
 	@Override
-	public void closePropertyStore(IResource target) throws CoreException {
+	public synchronized void closePropertyStore(IResource target) throws CoreException {
 		// ensure any uncommitted are written to disk
 		tree.getCurrent().save();
 		// flush in-memory state to avoid confusion if another project is later
 		// created with the same name
 		tree.getCurrent().flush();
+		forgetEntries(target.getFullPath());
 	}
 
 	@Override
 	public synchronized void copy(IResource source, IResource destination, int depth) throws CoreException {
-		copyProperties(source.getFullPath(), destination.getFullPath());
+		try {
+			copyProperties(source.getFullPath(), destination.getFullPath());
+		} finally {
+			forgetEntries(destination.getFullPath());
+		}
 	}
 
 	/**
@@ -108,13 +194,17 @@ public class PropertyManager2 implements IPropertyManager {
 
 	@Override
 	public synchronized void deleteProperties(IResource target, int depth) throws CoreException {
-		tree.accept(new PropertyBucket.Visitor() {
-			@Override
-			public int visit(Entry entry) {
-				entry.delete();
-				return CONTINUE;
-			}
-		}, target.getFullPath(), depth == IResource.DEPTH_INFINITE ? BucketTree.DEPTH_INFINITE : depth);
+		try {
+			tree.accept(new PropertyBucket.Visitor() {
+				@Override
+				public int visit(Entry entry) {
+					entry.delete();
+					return CONTINUE;
+				}
+			}, target.getFullPath(), depth == IResource.DEPTH_INFINITE ? BucketTree.DEPTH_INFINITE : depth);
+		} finally {
+			forgetEntries(target.getFullPath());
+		}
 	}
 
 	@Override
@@ -122,32 +212,140 @@ public class PropertyManager2 implements IPropertyManager {
 		deleteProperties(target, IResource.DEPTH_INFINITE);
 	}
 
+	/**
+	 * Writes the changes of the current bucket to disk.
+	 */
 	@Override
-	public synchronized Map<QualifiedName, String> getProperties(IResource target) throws CoreException {
-		final Map<QualifiedName, String> result = new HashMap<>();
-		tree.accept(new PropertyBucket.Visitor() {
-			@Override
-			public int visit(Entry entry) {
-				PropertyEntry propertyEntry = (PropertyEntry) entry;
-				int propertyCount = propertyEntry.getOccurrences();
-				for (int i = 0; i < propertyCount; i++)
-					result.put(propertyEntry.getPropertyName(i), propertyEntry.getPropertyValue(i));
-				return CONTINUE;
+	public synchronized void flush() throws CoreException {
+		tree.getCurrent().save();
+		changedDirectory = null;
+	}
+
+	/**
+	 * Forgets the entries in memory of the buckets that may hold properties of
+	 * the given resource or its descendants, after they have been changed on disk.
+	 */
+	private void forgetEntries(IPath path) {
+		// the current bucket was saved when it was visited
+		current = null;
+		changedDirectory = null;
+		// readers that loaded a bucket before it was changed must not cache it
+		invalidations.incrementAndGet();
+		String prefix = path.isRoot() ? null : tree.locationFor(path).getPath();
+		for (File directory : cachedEntries.keySet()) {
+			if (prefix == null || directory.getPath().startsWith(prefix)) {
+				synchronized (getLock(directory)) {
+					cachedEntries.remove(directory);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the entries of the bucket that holds the properties of the resource
+	 * with the given path, which must not be modified.
+	 */
+	private Map<String, Object> getEntries(IPath path) throws CoreException {
+		File directory = tree.locationFor(path);
+		Map<String, Object> entries = getKnownEntries(directory);
+		if (entries != null)
+			return entries;
+		String projectName = path.isRoot() ? null : path.segment(0);
+		synchronized (getLock(directory)) {
+			entries = getKnownEntries(directory);
+			if (entries != null)
+				return entries;
+			// the changes of the current bucket are not on disk yet, they are copied below
+			if (!directory.equals(changedDirectory)) {
+				entries = readEntries(projectName, directory);
+				if (entries != null)
+					return entries;
+			}
+		}
+		// the lock of the bucket must not be held while waiting for the manager
+		synchronized (this) {
+			entries = getKnownEntries(directory);
+			if (entries != null)
+				return entries;
+			if (directory.equals(changedDirectory)) {
+				// publish the changes once, they are read again until the next change
+				entries = tree.getCurrent().copyEntries();
+				synchronized (getLock(directory)) {
+					putEntries(directory, entries);
+					current = new CurrentBucket(directory, entries);
+				}
+				return entries;
 			}
-		}, target.getFullPath(), BucketTree.DEPTH_ZERO);
+			PropertyBucket bucket = new PropertyBucket();
+			bucket.load(projectName, directory, true);
+			return bucket.copyEntries();
+		}
+	}
+
+	/**
+	 * Reads the entries of the bucket in the given directory from disk and keeps
+	 * them in memory, or returns <code>null</code> if they could not be read.
+	 * The lock of the directory must be held.
+	 */
+	private Map<String, Object> readEntries(String projectName, File directory) {
+		Map<String, Object> entries;
+		long stamp = invalidations.get();
+		PropertyBucket bucket = new PropertyBucket();
+		try {
+			bucket.load(projectName, directory, true);
+			entries = bucket.copyEntries();
+		} catch (CoreException e) {
+			// the bucket may just be written, read it again while no one writes
+			return null;
+		}
+		SoftReference<Map<String, Object>> reference = putEntries(directory, entries);
+		// the bucket may have changed on disk after it was read
+		if (invalidations.get() != stamp)
+			cachedEntries.remove(directory, reference);
+		return entries;
+	}
+
+	/**
+	 * Returns the entries of the bucket in the given directory if they are in
+	 * memory, or <code>null</code>.
+	 */
+	private Map<String, Object> getKnownEntries(File directory) {
+		CurrentBucket bucket = current;
+		if (bucket != null && directory.equals(bucket.directory))
+			return bucket.entries;
+		SoftReference<Map<String, Object>> reference = cachedEntries.get(directory);
+		return reference == null ? null : reference.get();
+	}
+
+	private Object getLock(File directory) {
+		return bucketLocks[(directory.hashCode() & Integer.MAX_VALUE) % bucketLocks.length];
+	}
+
+	@Override
+	public Map<QualifiedName, String> getProperties(IResource target) throws CoreException {
+		final Map<QualifiedName, String> result = new HashMap<>();
+		IPath resourcePath = target.getFullPath();
+		String[][] value = (String[][]) getEntries(resourcePath).get(resourcePath.toString());
+		if (value == null)
+			return result;
+		PropertyEntry propertyEntry = new PropertyEntry(resourcePath, value);
+		int propertyCount = propertyEntry.getOccurrences();
+		for (int i = 0; i < propertyCount; i++)
+			result.put(propertyEntry.getPropertyName(i), propertyEntry.getPropertyValue(i));
 		return result;
 	}
 
 	@Override
-	public synchronized String getProperty(IResource target, QualifiedName name) throws CoreException {
+	public String getProperty(IResource target, QualifiedName name) throws CoreException {
 		if (name.getQualifier() == null) {
 			String message = Messages.properties_qualifierIsNull;
 			throw new ResourceException(IResourceStatus.FAILED_READ_METADATA, target.getFullPath(), message, null);
 		}
 		IPath resourcePath = target.getFullPath();
-		PropertyBucket current = (PropertyBucket) tree.getCurrent();
-		tree.loadBucketFor(resourcePath);
-		return current.getProperty(resourcePath, name);
+		String[][] value = (String[][]) getEntries(resourcePath).get(resourcePath.toString());
+		if (value == null)
+			return null;
+		return new PropertyEntry(resourcePath, value).getProperty(name);
 	}
 
 	public BucketTree getTree() {
@@ -158,6 +356,20 @@ public class PropertyManager2 implements IPropertyManager {
 		return tree.getVersionFile();
 	}
 
+	private SoftReference<Map<String, Object>> putEntries(File directory, Map<String, Object> entries) {
+		if (cachedEntries.size() >= MAX_CACHED_BUCKETS) {
+			// make room, the buckets are equally cheap to load again
+			Iterator<File> it = cachedEntries.keySet().iterator();
+			if (it.hasNext()) {
+				it.next();
+				it.remove();
+			}
+		}
+		SoftReference<Map<String, Object>> reference = new SoftReference<>(entries);
+		cachedEntries.put(directory, reference);
+		return reference;
+	}
+
 	@Override
 	public synchronized void setProperty(IResource target, QualifiedName name, String value) throws CoreException {
 		//resource may have been deleted concurrently
@@ -180,12 +392,21 @@ public class PropertyManager2 implements IPropertyManager {
 		tree.loadBucketFor(resourcePath);
 		PropertyBucket current = (PropertyBucket) tree.getCurrent();
 		current.setProperty(resourcePath, name, value);
-		current.save();
+		// the bucket is written to disk later, until then readers copy its entries from memory
+		File directory = tree.locationFor(resourcePath);
+		synchronized (getLock(directory)) {
+			changedDirectory = directory;
+			this.current = null;
+			cachedEntries.remove(directory);
+		}
+		flushJob.schedule(FLUSH_DELAY);
 	}
 
 	@Override
-	public void shutdown(IProgressMonitor monitor) throws CoreException {
+	public synchronized void shutdown(IProgressMonitor monitor) throws CoreException {
+		flushJob.cancel();
 		tree.close();
+		changedDirectory = null;
 	}
 
 	@Override
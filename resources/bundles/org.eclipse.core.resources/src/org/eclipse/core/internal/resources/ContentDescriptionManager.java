@@ -203,6 +203,11 @@ public class ContentDescriptionManager implements IManager, IRegistryChangeListe
 
 	private Cache cache;
 
+	/**
+	 * The descriptions of the cache that are kept across sessions.
+	 */
+	private ContentDescriptionStore descriptionStore;
+
 	private volatile byte cacheState;
 
 	private FlushJob flushJob;
@@ -239,12 +244,14 @@ public class ContentDescriptionManager implements IManager, IRegistryChangeListe
 			SubMonitor subMonitor = SubMonitor.convert(monitor);
 			if (toClean.isEmpty()) {
 				// no project was added, must be a global flush
+				descriptionStore.discardAll();
 				clearContentFlags(Path.ROOT, subMonitor.split(1));
 			} else {
 				subMonitor.setWorkRemaining(toClean.size());
 				// flush a project at a time
 				for (IPath element : toClean) {
 					subMonitor.subTask("Clear content flags for project '" + element.lastSegment() + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+					descriptionStore.discard(element);
 					clearContentFlags(element, subMonitor.split(1));
 				}
 			}
@@ -371,6 +378,17 @@ public class ContentDescriptionManager implements IManager, IRegistryChangeListe
 				if (entry != null && entry.getTimestamp() == getTimestamp(info))
 					// there was a description in the cache, and it was up to date
 					return (IContentDescription) entry.getCached();
+				// the description may have been cached in a previous session, unless it is about to be flushed
+				IContentDescription stored = getCacheState() == ABOUT_TO_FLUSH ? null : descriptionStore.get(file.getFullPath(), getTimestamp(info), () -> readStoredDescription(file));
+				if (stored != null) {
+					if (entry == null)
+						cache.addEntry(file.getFullPath(), stored, getTimestamp(info));
+					else {
+						entry.setTimestamp(getTimestamp(info));
+						entry.setCached(stored);
+					}
+					return stored;
+				}
 			}
 		}
 
@@ -412,6 +430,8 @@ public class ContentDescriptionManager implements IManager, IRegistryChangeListe
 				entry.setTimestamp(getTimestamp(info));
 				entry.setCached(newDescription);
 			}
+			if (getCacheState() != ABOUT_TO_FLUSH)
+				descriptionStore.put(file.getFullPath(), getTimestamp(info), newDescription);
 			return newDescription;
 		}
 	}
@@ -477,6 +497,18 @@ public class ContentDescriptionManager implements IManager, IRegistryChangeListe
 		}
 	}
 
+	/**
+	 * Describes the file of a stored description again, for the properties
+	 * that are not stored.
+	 */
+	private IContentDescription readStoredDescription(File file) {
+		try {
+			return readDescription(file);
+		} catch (CoreException e) {
+			return null;
+		}
+	}
+
 	/**
 	 * @see IRegistryChangeListener#registryChanged(IRegistryChangeEvent)
 	 */
@@ -518,9 +550,18 @@ public class ContentDescriptionManager implements IManager, IRegistryChangeListe
 
 	@Override
 	public void shutdown(IProgressMonitor monitor) throws CoreException {
-		if (getCacheState() != INVALID_CACHE)
+		byte state = getCacheState();
+		if (state != INVALID_CACHE)
 			// remember the platform timestamp for which we have a valid cache
 			setCacheTimeStamp(Platform.getStateStamp());
+		// keep the descriptions for the next session, unless they are about to be flushed
+		if (state != EMPTY_CACHE && state != USED_CACHE)
+			descriptionStore.discardAll();
+		try {
+			descriptionStore.save();
+		} catch (CoreException e) {
+			Policy.log(e.getStatus());
+		}
 		IContentTypeManager contentTypeManager = Platform.getContentTypeManager();
 		//tolerate missing services during shutdown because they might be already gone
 		if (contentTypeManager != null)
@@ -530,6 +571,7 @@ public class ContentDescriptionManager implements IManager, IRegistryChangeListe
 			registry.removeRegistryChangeListener(this);
 		cache.dispose();
 		cache = null;
+		descriptionStore = null;
 		flushJob.cancel();
 		flushJob = null;
 		projectContentTypes = null;
@@ -538,6 +580,7 @@ public class ContentDescriptionManager implements IManager, IRegistryChangeListe
 	@Override
 	public void startup(IProgressMonitor monitor) throws CoreException {
 		cache = new Cache(100, 1000, 0.1);
+		descriptionStore = new ContentDescriptionStore(workspace.getMetaArea().getContentDescriptionsLocation().toFile(), Platform.getStateStamp());
 		projectContentTypes = new ProjectContentTypes(workspace);
 		getCacheState();
 		if (cacheState == FLUSHING_CACHE || cacheState == ABOUT_TO_FLUSH)
@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.resources;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Supplier;
+import org.eclipse.core.internal.localstore.SafeFileInputStream;
+import org.eclipse.core.internal.localstore.SafeFileOutputStream;
+import org.eclipse.core.internal.utils.Messages;
+import org.eclipse.core.internal.utils.Policy;
+import org.eclipse.core.resources.IResourceStatus;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.content.IContentDescription;
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Keeps the content descriptions of the content description cache across
+ * sessions, so that file contents do not have to be described again after a
+ * restart.
+ * <p>
+ * Descriptions are keyed by the path of the file and by the same stamp as
+ * the in-memory cache, which changes along with the contents of the file.
+ * The store is only valid for the content type registry it was written with,
+ * identified by the platform state stamp; any other change to the content type
+ * settings is handled by discarding the store along with the in-memory cache.
+ * </p>
+ * <p>
+ * Only the content type, the charset and the byte order mark of a description
+ * are kept. Stored descriptions describe the file again when asked for any
+ * other property. The store is read when it is used for the first time, and
+ * written when the workspace shuts down.
+ * </p>
+ * <p>
+ * At most 100,000 descriptions are kept. When more files are
+ * described, the descriptions that were used least recently are forgotten,
+ * which includes those of files that no longer exist.
+ * </p>
+ */
+public class ContentDescriptionStore {
+
+	/**
+	 * A description read from the store.
+	 */
+	static class StoredDescription implements IContentDescription {
+		private final IContentType contentType;
+		private final String charset;
+		private final byte[] byteOrderMark;
+		private final Supplier<IContentDescription> reader;
+		private IContentDescription actual;
+
+		StoredDescription(IContentType contentType, String charset, byte[] byteOrderMark, Supplier<IContentDescription> reader) {
+			this.contentType = contentType;
+			this.charset = charset;
+			this.byteOrderMark = byteOrderMark;
+			this.reader = reader;
+		}
+
+		@Override
+		public String getCharset() {
+			if (byteOrderMark == BOM_UTF_8)
+				return "UTF-8"; //$NON-NLS-1$
+			if (byteOrderMark == BOM_UTF_16BE || byteOrderMark == BOM_UTF_16LE)
+				// UTF-16 will properly recognize the BOM
+				return "UTF-16"; //$NON-NLS-1$
+			return charset;
+		}
+
+		@Override
+		public IContentType getContentType() {
+			return contentType;
+		}
+
+		@Override
+		public Object getProperty(QualifiedName key) {
+			if (CHARSET.equals(key))
+				return charset;
+			if (BYTE_ORDER_MARK.equals(key))
+				return byteOrderMark;
+			// other properties are not stored
+			IContentDescription description;
+			synchronized (this) {
+				if (actual == null)
+					actual = reader.get();
+				description = actual;
+			}
+			if (description == null)
+				return contentType.getDefaultDescription().getProperty(key);
+			return description.getProperty(key);
+		}
+
+		@Override
+		public boolean isRequested(QualifiedName key) {
+			// descriptions are always read with all the options
+			return true;
+		}
+
+		@Override
+		public void setProperty(QualifiedName key, Object value) {
+			throw new IllegalStateException("Content description is immutable"); //$NON-NLS-1$
+		}
+
+		@Override
+		public String toString() {
+			return "{" + CHARSET + "=" + charset + "} : " + contentType; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+	}
+
+	private static final class Entry {
+		final long stamp;
+		final String contentTypeId;
+		final String charset;
+		final byte byteOrderMark;
+
+		Entry(long stamp, String contentTypeId, String charset, byte byteOrderMark) {
+			this.stamp = stamp;
+			this.contentTypeId = contentTypeId;
+			this.charset = charset;
+			this.byteOrderMark = byteOrderMark;
+		}
+	}
+
+	private static final int VERSION = 1;
+
+	/** The maximum number of descriptions kept, to bound the memory used by the store */
+	private static final int MAX_ENTRIES = 100_000;
+
+	private static final byte NO_BOM = 0;
+	private static final byte UTF_8_BOM = 1;
+	private static final byte UTF_16BE_BOM = 2;
+	private static final byte UTF_16LE_BOM = 3;
+
+	/** @GuardedBy("this") */
+	private Map<IPath, Entry> entries;
+	/** @GuardedBy("this") */
+	private boolean dirty;
+	private final File location;
+	private final long stateStamp;
+
+	/**
+	 * @param location the file the descriptions are kept in
+	 * @param stateStamp the stamp of the content type registry
+	 */
+	public ContentDescriptionStore(File location, long stateStamp) {
+		this.location = location;
+		this.stateStamp = stateStamp;
+	}
+
+	private static byte[] decodeByteOrderMark(byte bom) {
+		switch (bom) {
+			case UTF_8_BOM :
+				return IContentDescription.BOM_UTF_8;
+			case UTF_16BE_BOM :
+				return IContentDescription.BOM_UTF_16BE;
+			case UTF_16LE_BOM :
+				return IContentDescription.BOM_UTF_16LE;
+			default :
+				return null;
+		}
+	}
+
+	/**
+	 * Forgets the descriptions of the files in the given container.
+	 */
+	public synchronized void discard(IPath root) {
+		if (getEntries().keySet().removeIf(root::isPrefixOf))
+			dirty = true;
+	}
+
+	/**
+	 * Forgets all the descriptions.
+	 */
+	public synchronized void discardAll() {
+		entries = createEntries();
+		dirty = true;
+	}
+
+	/**
+	 * Returns an empty map of descriptions, iterated from the least to the most
+	 * recently used one, that forgets the least recently used ones when it
+	 * grows beyond {@link #MAX_ENTRIES}.
+	 */
+	private static Map<IPath, Entry> createEntries() {
+		return new LinkedHashMap<IPath, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<IPath, Entry> eldest) {
+				return size() > MAX_ENTRIES;
+			}
+		};
+	}
+
+	/**
+	 * Returns the stored description of the file with the given path, or
+	 * <code>null</code> if there is none for the given stamp.
+	 *
+	 * @param reader describes the file again, for the properties that are not
+	 * stored
+	 */
+	public synchronized IContentDescription get(IPath path, long stamp, Supplier<IContentDescription> reader) {
+		Entry entry = getEntries().get(path);
+		if (entry == null || entry.stamp != stamp)
+			return null;
+		IContentType contentType = Platform.getContentTypeManager().getContentType(entry.contentTypeId);
+		if (contentType == null)
+			return null;
+		return new StoredDescription(contentType, entry.charset, decodeByteOrderMark(entry.byteOrderMark), reader);
+	}
+
+	private static byte encodeByteOrderMark(Object bom) {
+		if (bom == IContentDescription.BOM_UTF_8)
+			return UTF_8_BOM;
+		if (bom == IContentDescription.BOM_UTF_16BE)
+			return UTF_16BE_BOM;
+		if (bom == IContentDescription.BOM_UTF_16LE)
+			return UTF_16LE_BOM;
+		return NO_BOM;
+	}
+
+	private Map<IPath, Entry> getEntries() {
+		if (entries == null)
+			entries = read();
+		return entries;
+	}
+
+	/**
+	 * Stores the description of the file with the given path. Descriptions with
+	 * an unknown byte order mark are not stored.
+	 */
+	public synchronized void put(IPath path, long stamp, IContentDescription description) {
+		Map<IPath, Entry> tmpEntries = getEntries();
+		Object bom = description.getProperty(IContentDescription.BYTE_ORDER_MARK);
+		byte byteOrderMark = encodeByteOrderMark(bom);
+		Object charset = description.getProperty(IContentDescription.CHARSET);
+		if ((bom != null && byteOrderMark == NO_BOM) || (charset != null && !(charset instanceof String))) {
+			if (tmpEntries.remove(path) != null)
+				dirty = true;
+			return;
+		}
+		tmpEntries.put(path, new Entry(stamp, description.getContentType().getId(), (String) charset, byteOrderMark));
+		dirty = true;
+	}
+
+	private Map<IPath, Entry> read() {
+		Map<IPath, Entry> result = createEntries();
+		if (!location.exists() && !new File(location.getAbsolutePath() + ".bak").exists()) //$NON-NLS-1$
+			return result;
+		try (DataInputStream input = new DataInputStream(new SafeFileInputStream(location))) {
+			if (input.readInt() != VERSION || input.readLong() != stateStamp)
+				return result;
+			int count = input.readInt();
+			for (int i = 0; i < count; i++) {
+				IPath path = Path.fromPortableString(input.readUTF());
+				long stamp = input.readLong();
+				String contentTypeId = input.readUTF();
+				String charset = input.readBoolean() ? input.readUTF() : null;
+				byte byteOrderMark = input.readByte();
+				result.put(path, new Entry(stamp, contentTypeId, charset, byteOrderMark));
+			}
+		} catch (IOException e) {
+			// the store is just a cache, start over
+			if (Policy.DEBUG_CONTENT_TYPE_CACHE)
+				Policy.debug("Could not read the content description store " + location + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+			result.clear();
+		}
+		if (Policy.DEBUG_CONTENT_TYPE_CACHE)
+			Policy.debug("Read " + result.size() + " content descriptions from " + location); //$NON-NLS-1$ //$NON-NLS-2$
+		return result;
+	}
+
+	/**
+	 * Writes the descriptions to disk if they changed, or deletes the store if
+	 * there are none.
+	 */
+	public synchronized void save() throws CoreException {
+		if (!dirty)
+			return;
+		if (entries.isEmpty()) {
+			location.delete();
+			new File(location.getAbsolutePath() + ".bak").delete(); //$NON-NLS-1$
+			dirty = false;
+			return;
+		}
+		try (DataOutputStream output = new DataOutputStream(new SafeFileOutputStream(location))) {
+			output.writeInt(VERSION);
+			output.writeLong(stateStamp);
+			output.writeInt(entries.size());
+			for (Map.Entry<IPath, Entry> mapEntry : entries.entrySet()) {
+				Entry entry = mapEntry.getValue();
+				output.writeUTF(mapEntry.getKey().toPortableString());
+				output.writeLong(entry.stamp);
+				output.writeUTF(entry.contentTypeId);
+				output.writeBoolean(entry.charset != null);
+				if (entry.charset != null)
+					output.writeUTF(entry.charset);
+				output.writeByte(entry.byteOrderMark);
+			}
+		} catch (IOException e) {
+			String message = NLS.bind(Messages.resources_writeWorkspaceMeta, location.getAbsolutePath());
+			throw new ResourceException(IResourceStatus.FAILED_WRITE_METADATA, null, message, e);
+		}
+		dirty = false;
+	}
+}
@@ -34,6 +34,8 @@ import org.eclipse.osgi.util.NLS;
 
 public class LocalMetaArea implements ICoreConstants {
 	/* package */static final String F_BACKUP_FILE_EXTENSION = ".bak"; //$NON-NLS-1$
+	/* package */static final String F_BUILD_DURATIONS = ".buildDurations"; //$NON-NLS-1$
+	/* package */static final String F_CONTENT_DESCRIPTIONS = ".contentdescriptions"; //$NON-NLS-1$
 	/* package */static final String F_DESCRIPTION = ".workspace"; //$NON-NLS-1$
 
 	/* package */static final String F_HISTORY_STORE = ".history"; //$NON-NLS-1$
@@ -116,6 +118,22 @@ public class LocalMetaArea implements ICoreConstants {
 		return file.removeLastSegments(1).append(file.lastSegment() + F_BACKUP_FILE_EXTENSION);
 	}
 
+	/**
+	 * Returns the location of the file that keeps the estimated build durations
+	 * of the build configurations across sessions.
+	 */
+	public IPath getBuildDurationsLocation() {
+		return metaAreaLocation.append(F_BUILD_DURATIONS);
+	}
+
+	/**
+	 * Returns the location of the file that keeps the content description cache
+	 * across sessions.
+	 */
+	public IPath getContentDescriptionsLocation() {
+		return metaAreaLocation.append(F_CONTENT_DESCRIPTIONS);
+	}
+
 	public IPath getHistoryStoreLocation() {
 		return metaAreaLocation.append(F_HISTORY_STORE);
 	}
@@ -246,6 +264,14 @@ public class LocalMetaArea implements ICoreConstants {
 		return locationFor(target).append(sequenceNumber + F_TREE);
 	}
 
+	/**
+	 * Returns the path of the tree file with the given sequence number for
+	 * the given resource.
+	 */
+	public IPath getTreeLocationFor(IResource target, int sequenceNumber) {
+		return locationFor(target).append(sequenceNumber + F_TREE);
+	}
+
 	public IPath getWorkingLocation(IResource resource, String id) {
 		return locationFor(resource).append(id);
 	}
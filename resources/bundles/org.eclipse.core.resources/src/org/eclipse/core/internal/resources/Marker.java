@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -269,6 +269,8 @@ public class Marker extends PlatformObject implements IMarker {
 			if (needDelta) {
 				MarkerDelta delta = new MarkerDelta(IResourceDelta.CHANGED, resource, oldInfo);
 				manager.changedMarkers(resource, new MarkerDelta[] {delta});
+			} else {
+				manager.changedMarkerAttributes(resource);
 			}
 		} finally {
 			workspace.endOperation(null, false);
@@ -309,6 +311,8 @@ public class Marker extends PlatformObject implements IMarker {
 			if (needDelta) {
 				MarkerDelta delta = new MarkerDelta(IResourceDelta.CHANGED, resource, oldInfo);
 				manager.changedMarkers(resource, new MarkerDelta[] {delta});
+			} else {
+				manager.changedMarkerAttributes(resource);
 			}
 		} finally {
 			workspace.endOperation(null, false);
@@ -339,6 +343,8 @@ public class Marker extends PlatformObject implements IMarker {
 			if (needDelta) {
 				MarkerDelta delta = new MarkerDelta(IResourceDelta.CHANGED, resource, oldInfo);
 				manager.changedMarkers(resource, new MarkerDelta[] {delta});
+			} else {
+				manager.changedMarkerAttributes(resource);
 			}
 		} finally {
 			workspace.endOperation(null, false);
@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.resources;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.eclipse.core.internal.watson.ElementTreeIterator;
+import org.eclipse.core.internal.watson.IElementContentVisitor;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * An index of the resources that have markers, by marker type. Deep marker
+ * queries use it to visit only the resources that have markers of the requested
+ * types, rather than every resource of the subtree.
+ * <p>
+ * For each marker type, the index keeps the paths of the resources that have
+ * markers of that type. The paths are ordered such that the paths of a subtree
+ * are adjacent, in the order of a pre-order traversal of the element tree. The
+ * index never misses a resource that has markers, but it may still contain
+ * resources that no longer have markers of a type, so the markers themselves
+ * are always read from the tree.
+ * </p>
+ * <p>
+ * The maximum severities found for subtrees are kept until the markers of a
+ * resource in the subtree change. The index is built from the tree when it is
+ * queried for the first time, and again after markers were restored from disk.
+ * </p>
+ */
+class MarkerIndex {
+
+	/**
+	 * Orders paths segment by segment, with parents before their children.
+	 */
+	private static final Comparator<IPath> PATH_ORDER = (path1, path2) -> {
+		int count1 = path1.segmentCount();
+		int count2 = path2.segmentCount();
+		for (int i = 0, count = Math.min(count1, count2); i < count; i++) {
+			int result = path1.segment(i).compareTo(path2.segment(i));
+			if (result != 0)
+				return result;
+		}
+		return count1 - count2;
+	};
+
+	private static final class SeverityQuery {
+		final String type;
+		final boolean includeSubtypes;
+
+		SeverityQuery(String type, boolean includeSubtypes) {
+			this.type = type;
+			this.includeSubtypes = includeSubtypes;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SeverityQuery))
+				return false;
+			SeverityQuery other = (SeverityQuery) obj;
+			return includeSubtypes == other.includeSubtypes && Objects.equals(type, other.type);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(type) * 31 + (includeSubtypes ? 1 : 0);
+		}
+	}
+
+	private final MarkerManager manager;
+	private final Map<String, NavigableSet<IPath>> pathsByType = new ConcurrentHashMap<>();
+	private final ConcurrentNavigableMap<IPath, Map<SeverityQuery, Integer>> severities = new ConcurrentSkipListMap<>(PATH_ORDER);
+	/** @GuardedBy("this") for writing */
+	private volatile boolean built;
+	/** Incremented on every change, @GuardedBy("this") for writing */
+	private volatile long stamp;
+
+	MarkerIndex(MarkerManager manager) {
+		this.manager = manager;
+	}
+
+	/**
+	 * The markers of the resource with the given path changed, as described by
+	 * the given marker deltas.
+	 *
+	 * @param markers the markers the resource has now, or <code>null</code>
+	 */
+	synchronized void changed(IPath path, MarkerSet markers, IMarkerSetElement[] changes) {
+		stamp++;
+		forgetSeverities(path);
+		if (!built)
+			return;
+		Set<String> types = new HashSet<>();
+		if (markers != null) {
+			for (IMarkerSetElement element : markers.elements()) {
+				String type = ((MarkerInfo) element).getType();
+				if (types.add(type))
+					pathsByType.computeIfAbsent(type, t -> new ConcurrentSkipListSet<>(PATH_ORDER)).add(path);
+			}
+		}
+		for (IMarkerSetElement change : changes) {
+			String type = ((MarkerDelta) change).getType();
+			if (!types.contains(type)) {
+				Set<IPath> paths = pathsByType.get(type);
+				if (paths != null)
+					paths.remove(path);
+			}
+		}
+	}
+
+	/**
+	 * The attributes of markers of the resource with the given path changed.
+	 */
+	synchronized void changedAttributes(IPath path) {
+		stamp++;
+		forgetSeverities(path);
+	}
+
+	/**
+	 * The resource with the given path was deleted, along with its descendants.
+	 */
+	synchronized void deleted(IPath path) {
+		stamp++;
+		forgetSeverities(path);
+		removeSubtree(severities.navigableKeySet(), path);
+		for (NavigableSet<IPath> paths : pathsByType.values())
+			removeSubtree(paths, path);
+	}
+
+	/**
+	 * The markers of the resource with the given path were dropped without
+	 * marker deltas, for example because the resource became a phantom.
+	 */
+	synchronized void dropped(IPath path) {
+		stamp++;
+		forgetSeverities(path);
+		for (NavigableSet<IPath> paths : pathsByType.values())
+			paths.remove(path);
+	}
+
+	/**
+	 * Returns the paths of the resources in the subtree of the given path that
+	 * may have markers of the given type, in the order of a pre-order traversal.
+	 * Passing <code>null</code> for the type matches all types.
+	 */
+	Collection<IPath> findPaths(IPath path, String type, boolean includeSubtypes) {
+		ensureBuilt();
+		if (type != null && !includeSubtypes) {
+			NavigableSet<IPath> paths = pathsByType.get(type);
+			if (paths == null)
+				return Collections.emptyList();
+			List<IPath> result = new ArrayList<>();
+			for (IPath candidate : paths.tailSet(path, true)) {
+				if (!path.isPrefixOf(candidate))
+					break;
+				result.add(candidate);
+			}
+			return result;
+		}
+		// a resource may have markers of several matching types
+		NavigableSet<IPath> result = new TreeSet<>(PATH_ORDER);
+		for (Map.Entry<String, NavigableSet<IPath>> entry : pathsByType.entrySet()) {
+			if (type != null && !manager.isSubtype(entry.getKey(), type))
+				continue;
+			for (IPath candidate : entry.getValue().tailSet(path, true)) {
+				if (!path.isPrefixOf(candidate))
+					break;
+				result.add(candidate);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the maximum severity of the markers of the given type in the
+	 * subtree of the given path, or -1 if there are none. Passing
+	 * <code>null</code> for the type matches all types.
+	 */
+	int findMaxSeverity(IPath path, String type, boolean includeSubtypes) {
+		ensureBuilt();
+		long start = stamp;
+		SeverityQuery query = new SeverityQuery(type, includeSubtypes);
+		Map<SeverityQuery, Integer> known = severities.get(path);
+		Integer cached = known == null ? null : known.get(query);
+		if (cached != null)
+			return cached.intValue();
+		int max = -1;
+		for (Map.Entry<String, NavigableSet<IPath>> entry : pathsByType.entrySet()) {
+			String candidateType = entry.getKey();
+			if (type != null && !(includeSubtypes ? manager.isSubtype(candidateType, type) : candidateType.equals(type)))
+				continue;
+			for (IPath candidate : entry.getValue().tailSet(path, true)) {
+				if (!path.isPrefixOf(candidate))
+					break;
+				ResourceInfo info = manager.workspace.getResourceInfo(candidate, true, false);
+				MarkerSet markers = info == null ? null : info.getMarkers(false);
+				if (markers != null)
+					max = Math.max(max, manager.basicFindMaxSeverity(markers, type, includeSubtypes));
+				if (max >= IMarker.SEVERITY_ERROR)
+					break;
+			}
+			if (max >= IMarker.SEVERITY_ERROR)
+				break;
+		}
+		synchronized (this) {
+			// only remember the result if no markers changed while it was computed
+			if (stamp == start)
+				severities.computeIfAbsent(path, p -> new ConcurrentHashMap<>(4)).put(query, Integer.valueOf(max));
+		}
+		return max;
+	}
+
+	/**
+	 * Forgets the whole index, because the markers were replaced without going
+	 * through the marker manager. It is built again when it is queried next.
+	 */
+	synchronized void reset() {
+		stamp++;
+		built = false;
+		pathsByType.clear();
+		severities.clear();
+	}
+
+	private void ensureBuilt() {
+		if (built)
+			return;
+		synchronized (this) {
+			if (built)
+				return;
+			IElementContentVisitor visitor = (tree, requestor, elementContents) -> {
+				ResourceInfo info = (ResourceInfo) elementContents;
+				if (info == null)
+					return false;
+				MarkerSet markers = info.getMarkers(false);
+				if (markers != null) {
+					IPath path = requestor.requestPath();
+					for (IMarkerSetElement element : markers.elements())
+						pathsByType.computeIfAbsent(((MarkerInfo) element).getType(), t -> new ConcurrentSkipListSet<>(PATH_ORDER)).add(path);
+				}
+				return true;
+			};
+			new ElementTreeIterator(manager.workspace.getElementTree(), Path.ROOT).iterate(visitor);
+			built = true;
+		}
+	}
+
+	/**
+	 * Forgets the severities of the subtrees that contain the given path.
+	 */
+	private void forgetSeverities(IPath path) {
+		for (IPath ancestor = path;; ancestor = ancestor.removeLastSegments(1)) {
+			severities.remove(ancestor);
+			if (ancestor.isRoot())
+				return;
+		}
+	}
+
+	private static void removeSubtree(NavigableSet<IPath> paths, IPath path) {
+		for (Iterator<IPath> it = paths.tailSet(path, true).iterator(); it.hasNext();) {
+			if (!path.isPrefixOf(it.next()))
+				return;
+			it.remove();
+		}
+	}
+}
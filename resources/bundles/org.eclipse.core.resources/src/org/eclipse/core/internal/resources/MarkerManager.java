@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -42,12 +42,14 @@ public class MarkerManager implements IManager {
 
 	protected final Workspace workspace;
 	protected final MarkerWriter writer = new MarkerWriter(this);
+	private final MarkerIndex index;
 
 	/**
 	 * Creates a new marker manager
 	 */
 	public MarkerManager(Workspace workspace) {
 		this.workspace = workspace;
+		this.index = new MarkerIndex(this);
 	}
 
 	/**
@@ -71,9 +73,7 @@ public class MarkerManager implements IManager {
 		MarkerSet markers = info.getMarkers(true);
 		if (markers == null)
 			markers = new MarkerSet(1);
-		basicAdd(resource, markers, newMarker);
-		if (!markers.isEmpty())
-			info.setMarkers(markers);
+		basicAdd(resource, info, markers, newMarker);
 	}
 
 	/**
@@ -81,8 +81,10 @@ public class MarkerManager implements IManager {
 	 * associated with the specified resource.IMarkerDeltas for Added markers are
 	 * generated.
 	 */
-	private void basicAdd(IResource resource, MarkerSet markers, MarkerInfo newMarker) {
+	private void basicAdd(IResource resource, ResourceInfo info, MarkerSet markers, MarkerInfo newMarker) {
 		markers.add(newMarker);
+		// the markers are set first, so that the index sees them
+		info.setMarkers(markers);
 		IMarkerSetElement[] changes = new IMarkerSetElement[1];
 		changes[0] = new MarkerDelta(IResourceDelta.ADDED, resource, newMarker);
 		changedMarkers(resource, changes);
@@ -235,6 +237,34 @@ public class MarkerManager implements IManager {
 		ResourceInfo info = workspace.getResourceInfo(path, false, true);
 		if (info != null)
 			info.incrementMarkerGenerationCount();
+		index.changed(path, info == null ? null : info.getMarkers(false), changes);
+	}
+
+	/**
+	 * The attributes of markers on the given resource have changed, but the
+	 * changes are already covered by the current marker deltas.
+	 */
+	protected void changedMarkerAttributes(IResource resource) {
+		index.changedAttributes(resource.getFullPath());
+	}
+
+	/**
+	 * The resource with the given path has been removed from the tree, along
+	 * with its descendants and their markers.
+	 */
+	void deletedResource(IPath path) {
+		index.deleted(path);
+	}
+
+	/**
+	 * Drops the markers of the given resource without reporting marker deltas,
+	 * for resources that become phantoms or are reset as copy destinations.
+	 */
+	void dropMarkers(Resource resource, ResourceInfo info) {
+		if (info.getMarkers(false) == null)
+			return;
+		info.setMarkers(null);
+		index.dropped(resource.getFullPath());
 	}
 
 	/**
@@ -279,9 +309,9 @@ public class MarkerManager implements IManager {
 	 */
 	public void doFindMarkers(IResource target, ArrayList<IMarker> result, final String type,
 			final boolean includeSubtypes, int depth) {
-		// optimize the deep searches with an element tree visitor
+		// optimize the deep searches with the index of the resources that have markers
 		if (depth == IResource.DEPTH_INFINITE && target.getType() != IResource.FILE)
-			visitorFindMarkers(target.getFullPath(), result, type, includeSubtypes);
+			indexFindMarkers(target.getFullPath(), result, type, includeSubtypes);
 		else
 			recursiveFindMarkers(target.getFullPath(), result, type, includeSubtypes, depth);
 	}
@@ -291,9 +321,9 @@ public class MarkerManager implements IManager {
 	 * option to search the target's children.
 	 */
 	public int findMaxProblemSeverity(IResource target, String type, boolean includeSubtypes, int depth) {
-		// optimize the deep searches with an element tree visitor
+		// optimize the deep searches with the index of the resources that have markers
 		if (depth == IResource.DEPTH_INFINITE && target.getType() != IResource.FILE)
-			return visitorFindMaxSeverity(target.getFullPath(), type, includeSubtypes);
+			return index.findMaxSeverity(target.getFullPath(), type, includeSubtypes);
 		return recursiveFindMaxSeverity(target.getFullPath(), type, includeSubtypes, depth);
 	}
 
@@ -321,6 +351,26 @@ public class MarkerManager implements IManager {
 		return set.get(id) != null;
 	}
 
+	/**
+	 * Adds the markers for a subtree of resources to the list.
+	 */
+	private void indexFindMarkers(IPath path, ArrayList<IMarker> list, String type, boolean includeSubtypes) {
+		for (IPath candidate : index.findPaths(path, type, includeSubtypes)) {
+			ResourceInfo info = workspace.getResourceInfo(candidate, true, false);
+			if (info == null)
+				continue;
+			MarkerSet markers = info.getMarkers(false);
+			if (markers == null)
+				continue;
+			IMarkerSetElement[] matching;
+			if (type == null)
+				matching = markers.elements();
+			else
+				matching = basicFindMatching(markers, type, includeSubtypes);
+			buildMarkers(matching, candidate, info.getType(), list);
+		}
+	}
+
 	/**
 	 * Returns true if the given marker is persistent, and false otherwise.
 	 */
@@ -512,6 +562,71 @@ public class MarkerManager implements IManager {
 			recursiveRemoveMarkers(target.getFullPath(), type, includeSubtypes, depth);
 	}
 
+	/**
+	 * Replaces the markers of the given type on the given resource with markers
+	 * that have the given attributes. Existing markers of the given type with
+	 * the same attributes as a new marker are kept, so that the marker deltas
+	 * only contain the markers that were actually added or removed. All the
+	 * changes are recorded at once. The attributes must have been validated
+	 * already, and are only kept for the new markers.
+	 */
+	public void replaceMarkers(IResource resource, String type, boolean includeSubtypes, List<MarkerAttributeMap> markersAttributes) {
+		ResourceInfo info = workspace.getResourceInfo(resource.getFullPath(), false, false);
+		if (info == null)
+			return;
+		MarkerSet markers = info.getMarkers(false);
+		MarkerInfo[] existing = markers == null ? NO_MARKER_INFO : basicFindMatching(markers, type, includeSubtypes);
+		// the existing markers that can be kept, by their attributes
+		Map<Set<Map.Entry<String, Object>>, Deque<MarkerInfo>> reusable = new HashMap<>();
+		for (MarkerInfo marker : existing)
+			if (marker.getType().equals(type))
+				reusable.computeIfAbsent(getAttributeEntries(marker), key -> new ArrayDeque<>(1)).add(marker);
+		Set<MarkerInfo> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<MarkerInfo> added = new ArrayList<>();
+		long creationTime = System.currentTimeMillis();
+		for (MarkerAttributeMap map : markersAttributes) {
+			Deque<MarkerInfo> candidates = reusable.get(map.entrySet());
+			if (candidates != null && !candidates.isEmpty())
+				kept.add(candidates.poll());
+			else
+				added.add(new MarkerInfo(map, creationTime, type, workspace.nextMarkerId()));
+		}
+		List<MarkerInfo> removed = new ArrayList<>();
+		for (MarkerInfo marker : existing)
+			if (!kept.contains(marker))
+				removed.add(marker);
+		if (added.isEmpty() && removed.isEmpty())
+			return;
+		// now we need to crack open the tree
+		info = workspace.getResourceInfo(resource.getFullPath(), false, true);
+		// Concurrency: copy the marker set on modify
+		markers = info.getMarkers(true);
+		if (markers == null)
+			markers = new MarkerSet(added.size());
+		markers.removeAll(removed.toArray(new IMarkerSetElement[removed.size()]));
+		markers.addAll(added.toArray(new IMarkerSetElement[added.size()]));
+		info.setMarkers(markers.isEmpty() ? null : markers);
+		IMarkerSetElement[] changes = new IMarkerSetElement[removed.size() + added.size()];
+		int i = 0;
+		boolean persistent = false;
+		for (MarkerInfo marker : removed) {
+			persistent |= isPersistent(marker);
+			changes[i++] = new MarkerDelta(IResourceDelta.REMOVED, resource, marker);
+		}
+		for (MarkerInfo marker : added) {
+			persistent |= isPersistent(marker);
+			changes[i++] = new MarkerDelta(IResourceDelta.ADDED, resource, marker);
+		}
+		if (persistent)
+			info.set(ICoreConstants.M_MARKERS_SNAP_DIRTY);
+		changedMarkers(resource, changes);
+	}
+
+	private static Set<Map.Entry<String, Object>> getAttributeEntries(MarkerInfo marker) {
+		MarkerAttributeMap attributes = marker.getAttributes(false);
+		return attributes == null ? Collections.emptySet() : attributes.entrySet();
+	}
+
 	/**
 	 * Reset the marker deltas up to but not including the given start Id.
 	 */
@@ -524,6 +639,8 @@ public class MarkerManager implements IManager {
 		// first try and load the last saved file, then apply the snapshots
 		restoreFromSave(resource, generateDeltas);
 		restoreFromSnap(resource);
+		// the markers were set without going through the index
+		index.reset();
 	}
 
 	protected void restoreFromSave(IResource resource, boolean generateDeltas) throws CoreException {
@@ -580,61 +697,6 @@ public class MarkerManager implements IManager {
 		// do nothing
 	}
 
-	/**
-	 * Adds the markers for a subtree of resources to the list.
-	 */
-	private void visitorFindMarkers(IPath path, final ArrayList<IMarker> list, final String type,
-			final boolean includeSubtypes) {
-		IElementContentVisitor visitor = (tree, requestor, elementContents) -> {
-			ResourceInfo info = (ResourceInfo) elementContents;
-			if (info == null)
-				return false;
-			MarkerSet markers = info.getMarkers(false);
-
-			// add the matching markers for this resource
-			if (markers != null) {
-				IMarkerSetElement[] matching;
-				if (type == null)
-					matching = markers.elements();
-				else
-					matching = basicFindMatching(markers, type, includeSubtypes);
-				buildMarkers(matching, requestor.requestPath(), info.getType(), list);
-			}
-			return true;
-		};
-		new ElementTreeIterator(workspace.getElementTree(), path).iterate(visitor);
-	}
-
-	/**
-	 * Finds the max severity across problem markers for a subtree of resources.
-	 */
-	private int visitorFindMaxSeverity(IPath path, final String type, final boolean includeSubtypes) {
-		class MaxSeverityVisitor implements IElementContentVisitor {
-			int max = -1;
-
-			@Override
-			public boolean visitElement(ElementTree tree, IPathRequestor requestor, Object elementContents) {
-				// bail if an earlier sibling already hit the max
-				if (max >= IMarker.SEVERITY_ERROR) {
-					return false;
-				}
-				ResourceInfo info = (ResourceInfo) elementContents;
-				if (info == null)
-					return false;
-				MarkerSet markers = info.getMarkers(false);
-
-				// add the matching markers for this resource
-				if (markers != null) {
-					max = Math.max(max, basicFindMaxSeverity(markers, type, includeSubtypes));
-				}
-				return max < IMarker.SEVERITY_ERROR;
-			}
-		}
-		MaxSeverityVisitor visitor = new MaxSeverityVisitor();
-		new ElementTreeIterator(workspace.getElementTree(), path).iterate(visitor);
-		return visitor.max;
-	}
-
 	/**
 	 * Adds the markers for a subtree of resources to the list.
 	 */
@@ -744,7 +744,7 @@ public class Project extends Container implements IProject {
 		//clear properties, markers, and description for the new project, because they shouldn't be copied.
 		info.description = null;
 		info.natures = null;
-		info.setMarkers(null);
+		workspace.getMarkerManager().dropMarkers((Resource) destination, info);
 		info.clearSessionProperties();
 	}
 
@@ -37,11 +37,12 @@ import org.eclipse.core.internal.watson.*;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.resources.team.IMoveDeleteHook;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.IHierarchicalRule;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.MultiRule;
 import org.eclipse.osgi.util.NLS;
 
-public abstract class Resource extends PlatformObject implements IResource, ICoreConstants, Cloneable, IPathRequestor {
+public abstract class Resource extends PlatformObject implements IResource, ICoreConstants, Cloneable, IPathRequestor, IHierarchicalRule {
 	final IPath path;
 	final Workspace workspace;
 
@@ -513,7 +514,7 @@ public abstract class Resource extends PlatformObject implements IResource, ICor
 		info.clearModificationStamp();
 		// Should already be done by the #deleteResource call but left in
 		// just to be safe and for code clarity.
-		info.setMarkers(null);
+		workspace.getMarkerManager().dropMarkers(this, info);
 	}
 
 	@Override
@@ -1050,7 +1051,7 @@ public abstract class Resource extends PlatformObject implements IResource, ICor
 		info.setLocalSyncInfo(I_NULL_SYNC_INFO);
 		info.set(M_PHANTOM);
 		info.clearModificationStamp();
-		info.setMarkers(null);
+		workspace.getMarkerManager().dropMarkers(this, info);
 	}
 
 	@Override
@@ -1186,6 +1187,21 @@ public abstract class Resource extends PlatformObject implements IResource, ICor
 		return workspace.getResourceInfo(getFullPath(), phantom, mutable);
 	}
 
+	/**
+	 * Resource rules conflict when they belong to the same workspace and one
+	 * path is a prefix of the other.
+	 * @see #isConflicting(ISchedulingRule)
+	 */
+	@Override
+	public Object getRuleDomain() {
+		return workspace;
+	}
+
+	@Override
+	public IPath getRulePath() {
+		return path;
+	}
+
 	@Override
 	public Object getSessionProperty(QualifiedName key) throws CoreException {
 		ResourceInfo info = checkAccessibleAndLocal(DEPTH_ZERO);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -35,6 +35,7 @@ import java.util.stream.Collectors;
 import java.util.zip.*;
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.internal.dtree.DeltaDataTree;
 import org.eclipse.core.internal.events.*;
 import org.eclipse.core.internal.localstore.*;
 import org.eclipse.core.internal.utils.*;
@@ -91,6 +92,19 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 	protected ElementTree lastSnap;
 	protected final MasterTable masterTable;
 
+	/**
+	 * The workspace tree that the last complete workspace tree file was written
+	 * from or read from, or <code>null</code>. Full saves write the workspace
+	 * trees as deltas on this tree, until the deltas get too large.
+	 */
+	private ElementTree baseTree;
+	/** The sequence number of the tree file that contains the base tree */
+	private int baseTreeSequenceNumber;
+	/** The size of the tree file that contains the base tree */
+	private long baseTreeSize;
+	/** The size of the last tree file that was written or read if it contains deltas, or 0 */
+	private long deltaTreeSize;
+
 	/**
 	 * A flag indicating that a save operation is occurring.  This is a signal
 	 * that snapshot should not be scheduled if a nested operation occurs during
@@ -140,6 +154,30 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 	private static final String DEBUG_SNAPSHOT = "Snapshot: "; //$NON-NLS-1$
 	private static final int TREE_BUFFER_SIZE = 1024 * 64;//64KB buffer
 
+	/**
+	 * Whether the workspace tree is saved in segments, one for every project, that
+	 * are written and read in parallel. Older versions cannot read such trees.
+	 *
+	 * @see WorkspaceTreeReader_3
+	 */
+	private static final boolean SEGMENTED_TREE = Boolean.getBoolean("org.eclipse.core.resources.segmentedTree"); //$NON-NLS-1$
+
+	/**
+	 * Whether full saves write the workspace trees as deltas on the last
+	 * complete workspace tree file, so that the time they take is proportional
+	 * to the amount of change rather than to the size of the workspace. Older
+	 * versions cannot read such trees.
+	 *
+	 * @see WorkspaceTreeReader_4
+	 */
+	private static final boolean DELTA_TREE = Boolean.getBoolean("org.eclipse.core.resources.deltaTree"); //$NON-NLS-1$
+
+	/**
+	 * A complete workspace tree file is written again once the delta tree files
+	 * get larger than the complete one divided by this ratio.
+	 */
+	private static final int DELTA_TREE_COMPACTION_RATIO = 2;
+
 	public SaveManager(Workspace workspace) {
 		this.workspace = workspace;
 		this.masterTable = new MasterTable();
@@ -438,6 +476,14 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 		return (value == null) ? 0 : Integer.parseInt(value);
 	}
 
+	/**
+	 * Returns the workspace tree that the last complete workspace tree file was
+	 * written from or read from, or <code>null</code>.
+	 */
+	ElementTree getBaseTree() {
+		return baseTree;
+	}
+
 	protected String[] getSaveParticipantPluginIds() {
 		synchronized (saveParticipants) {
 			return saveParticipants.keySet().toArray(new String[saveParticipants.size()]);
@@ -630,6 +676,9 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 		List<String> valuables = new ArrayList<>(10);
 		IPath location = workspace.getMetaArea().getTreeLocationFor(workspace.getRoot(), false);
 		valuables.add(location.lastSegment());
+		// the current tree file may only contain deltas on the base tree file
+		if (baseTree != null)
+			valuables.add(workspace.getMetaArea().getTreeLocationFor(workspace.getRoot(), baseTreeSequenceNumber).lastSegment());
 		java.io.File target = location.toFile().getParentFile();
 		FilenameFilter filter = (dir, name) -> name.endsWith(LocalMetaArea.F_TREE);
 		String[] candidates = target.list(filter);
@@ -1041,15 +1090,47 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 			savedStates = Collections.synchronizedMap(new HashMap<>(10));
 			return;
 		}
+		int sequenceNumber = Integer.parseInt(masterTable.getProperty(ROOT_SEQUENCE_NUMBER_KEY, "0")); //$NON-NLS-1$
+		restoreTree(treeLocation, sequenceNumber, DELTA_TREE, monitor);
+		if (!DELTA_TREE)
+			baseTree = null;
+		if (Policy.DEBUG_RESTORE_TREE) {
+			Policy.debug("Restore Tree for workspace: " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Reads the workspace tree file at the given location, after the base tree
+	 * file if the file only contains the deltas on it.
+	 * @param keepBase whether to keep the tree that is read from a complete
+	 * tree file as the base tree
+	 */
+	private void restoreTree(IPath treeLocation, int sequenceNumber, boolean keepBase, IProgressMonitor monitor) throws CoreException {
+		IPath tempLocation = workspace.getMetaArea().getBackupLocationFor(treeLocation);
 		try (DataInputStream input = new DataInputStream(new SafeFileInputStream(treeLocation.toOSString(), tempLocation.toOSString(), TREE_BUFFER_SIZE))) {
-			WorkspaceTreeReader.getReader(workspace, input.readInt()).readTree(input, monitor);
+			int version = input.readInt();
+			if (version == ICoreConstants.WORKSPACE_TREE_VERSION_4) {
+				int baseSequenceNumber = input.readInt();
+				restoreTree(workspace.getMetaArea().getTreeLocationFor(workspace.getRoot(), baseSequenceNumber), baseSequenceNumber, true, monitor);
+				// the builders that are not in the deltas have no build state
+				for (IProject project : workspace.getRoot().getProjects(IContainer.INCLUDE_HIDDEN))
+					if (project.isAccessible())
+						workspace.getBuildManager().setBuildersPersistentInfo(project, null);
+			}
+			WorkspaceTreeReader.getReader(workspace, version).readTree(input, monitor);
+			if (keepBase && version != ICoreConstants.WORKSPACE_TREE_VERSION_4) {
+				// freeze the tree that was read, for the next deltas
+				baseTree = workspace.getElementTree();
+				baseTree.immutable();
+				workspace.newWorkingTree();
+				baseTreeSequenceNumber = sequenceNumber;
+				baseTreeSize = treeLocation.toFile().length();
+			}
+			deltaTreeSize = version == ICoreConstants.WORKSPACE_TREE_VERSION_4 ? treeLocation.toFile().length() : 0;
 		} catch (Exception e) { // "Unknown format" is passed as ResourceException
 			String msg = NLS.bind(Messages.resources_readMeta, treeLocation.toOSString());
 			throw new ResourceException(IResourceStatus.FAILED_READ_METADATA, treeLocation, msg, e);
 		}
-		if (Policy.DEBUG_RESTORE_TREE) {
-			Policy.debug("Restore Tree for workspace: " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
-		}
 	}
 
 	/**
@@ -1193,10 +1274,9 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 							removeUnusedSafeTables();
 							removeUnusedTreeFiles();
 
-							// history pruning can be always canceled
-							monitor.ignoreCancelState(false);
-							workspace.getFileSystemManager().getHistoryStore().clean(Policy.subMonitorFor(monitor, 1));
-							monitor.ignoreCancelState(keepConsistencyWhenCanceled);
+							// history pruning runs in the background, it does not need the workspace lock
+							workspace.getFileSystemManager().getHistoryStore().scheduleClean();
+							monitor.worked(1);
 
 							// write out all metainfo (e.g., workspace/project descriptions)
 							saveMetaInfo(warnings, Policy.subMonitorFor(monitor, 1));
@@ -1231,6 +1311,8 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 							monitor.worked(1);
 							break;
 					}
+					// write the properties that were only changed in memory so far
+					workspace.getPropertyManager().flush();
 					// save contexts
 					commit(contexts);
 					if (kind == ISaveContext.FULL_SAVE)
@@ -1387,20 +1469,41 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 	protected void saveTree(Map<String, SaveContext> contexts, IProgressMonitor monitor) throws CoreException {
 		long start = System.currentTimeMillis();
 		IPath treeLocation = workspace.getMetaArea().getTreeLocationFor(workspace.getRoot(), true);
+		// write deltas on the base tree, unless they have grown too large
+		boolean writeDeltas = DELTA_TREE && baseTree != null && deltaTreeSize <= baseTreeSize / DELTA_TREE_COMPACTION_RATIO;
+		ElementTree current = workspace.getElementTree();
 		try {
 			IPath tempLocation = workspace.getMetaArea().getBackupLocationFor(treeLocation);
 			try (
 				DataOutputStream output = new DataOutputStream(new SafeFileOutputStream(treeLocation.toOSString(), tempLocation.toOSString()));
 			) {
-				output.writeInt(ICoreConstants.WORKSPACE_TREE_VERSION_2);
-				writeTree(computeStatesToSave(contexts, workspace.getElementTree()), output, monitor);
+				if (writeDeltas) {
+					output.writeInt(ICoreConstants.WORKSPACE_TREE_VERSION_4);
+					output.writeInt(baseTreeSequenceNumber);
+					writeTree(computeStatesToSave(contexts, workspace.getElementTree()), output, baseTree, monitor);
+				} else if (SEGMENTED_TREE) {
+					output.writeInt(ICoreConstants.WORKSPACE_TREE_VERSION_3);
+					writeTree(computeStatesToSave(contexts, workspace.getElementTree()), output, true, monitor);
+				} else {
+					output.writeInt(ICoreConstants.WORKSPACE_TREE_VERSION_2);
+					writeTree(computeStatesToSave(contexts, workspace.getElementTree()), output, monitor);
+				}
 			}
 		} catch (Exception e) {
 			String msg = NLS.bind(Messages.resources_writeWorkspaceMeta, treeLocation);
 			throw new ResourceException(IResourceStatus.FAILED_WRITE_METADATA, Path.ROOT, msg, e);
 		}
+		if (writeDeltas) {
+			deltaTreeSize = treeLocation.toFile().length();
+		} else if (DELTA_TREE) {
+			// the written tree is the base of the next deltas
+			baseTree = current;
+			baseTreeSequenceNumber = Integer.parseInt(masterTable.getProperty(ROOT_SEQUENCE_NUMBER_KEY));
+			baseTreeSize = treeLocation.toFile().length();
+			deltaTreeSize = 0;
+		}
 		if (Policy.DEBUG_SAVE_TREE)
-			Policy.debug("Save Workspace Tree: " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+			Policy.debug("Save Workspace Tree" + (writeDeltas ? " (deltas)" : "") + ": " + (System.currentTimeMillis() - start) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
 	}
 
 	/**
@@ -2000,6 +2103,36 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 	 */
 	protected void writeTree(Map<String, ElementTree> statesToSave, DataOutputStream output, IProgressMonitor monitor)
 			throws IOException, CoreException {
+		writeTree(statesToSave, output, false, null, monitor);
+	}
+
+	/**
+	 * Saves the same information as {@link #writeTree(Map, DataOutputStream, IProgressMonitor)},
+	 * but writes the oldest of the workspace trees as a delta on the given base
+	 * tree. Such a tree can only be read by WorkspaceTreeReader versions 4.
+	 *
+	 * @see WorkspaceTreeReader_4
+	 */
+	protected void writeTree(Map<String, ElementTree> statesToSave, DataOutputStream output, ElementTree base, IProgressMonitor monitor)
+			throws IOException, CoreException {
+		writeTree(statesToSave, output, false, base, monitor);
+	}
+
+	/**
+	 * Saves the same information as {@link #writeTree(Map, DataOutputStream, IProgressMonitor)},
+	 * but writes the workspace trees in segments if <code>segmented</code> is
+	 * <code>true</code>. Such a tree can only be read by WorkspaceTreeReader
+	 * versions 3.
+	 *
+	 * @see WorkspaceTreeReader_3
+	 */
+	protected void writeTree(Map<String, ElementTree> statesToSave, DataOutputStream output, boolean segmented, IProgressMonitor monitor)
+			throws IOException, CoreException {
+		writeTree(statesToSave, output, segmented, null, monitor);
+	}
+
+	private void writeTree(Map<String, ElementTree> statesToSave, DataOutputStream output, boolean segmented, ElementTree base, IProgressMonitor monitor)
+			throws IOException, CoreException {
 		SubMonitor subMonitor = SubMonitor.convert(monitor, 10);
 		boolean wasImmutable = false;
 		try {
@@ -2048,8 +2181,13 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 			/* save the forest! */
 			ElementTreeWriter writer = new ElementTreeWriter(this);
 			ElementTree[] treesToSave = trees.toArray(new ElementTree[trees.size()]);
-			writer.writeDeltaChain(treesToSave, Path.ROOT, ElementTreeWriter.D_INFINITE, output,
-					ResourceComparator.getSaveComparator());
+			if (base != null)
+				writer.writeDeltaChain(treesToSave, base, output, ResourceComparator.getSaveComparator());
+			else if (segmented)
+				writeSegmentedTrees(writer, treesToSave, output);
+			else
+				writer.writeDeltaChain(treesToSave, Path.ROOT, ElementTreeWriter.D_INFINITE, output,
+						ResourceComparator.getSaveComparator());
 			subMonitor.worked(4);
 
 			// Since 3.7: Save the additional builders info
@@ -2067,6 +2205,57 @@ public class SaveManager implements IElementInfoFlattener, IManager, IStringPool
 		}
 	}
 
+	/**
+	 * Writes the given chain of workspace trees in segments, one for every
+	 * project, that are encoded in parallel. Every segment is preceded by the
+	 * name of its project, its length and its checksum, so that it can be
+	 * verified and decoded independently of the other segments.
+	 *
+	 * @see WorkspaceTreeReader_3#readTrees(IPath, DataInputStream, IProgressMonitor)
+	 */
+	private void writeSegmentedTrees(ElementTreeWriter writer, ElementTree[] trees, DataOutputStream output) throws IOException {
+		DeltaDataTree[] layers = writer.writeDeltaChainHeader(trees, output, ResourceComparator.getSaveComparator());
+		// include the projects that only exist in older trees
+		Set<String> projectNames = new LinkedHashSet<>();
+		for (ElementTree tree : trees)
+			for (IPath child : tree.getChildren(Path.ROOT))
+				projectNames.add(child.lastSegment());
+		output.writeInt(projectNames.size());
+		// never use a shared ForkJoinPool.commonPool() as it may be busy with other tasks, which might deadlock:
+		ForkJoinPool forkJoinPool = new ForkJoinPool(ForkJoinPool.getCommonPoolParallelism());
+		try {
+			forkJoinPool.submit(() -> projectNames.parallelStream().map(name -> {
+				ByteArrayOutputStream segment = new ByteArrayOutputStream();
+				try {
+					writer.writeDeltaChainSegment(layers, Path.ROOT.append(name), new DataOutputStream(segment));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return new AbstractMap.SimpleImmutableEntry<>(name, segment.toByteArray());
+			}).forEachOrdered(segment -> {
+				CRC32 checksum = new CRC32();
+				checksum.update(segment.getValue());
+				try {
+					output.writeUTF(segment.getKey());
+					output.writeInt(segment.getValue().length);
+					output.writeLong(checksum.getValue());
+					output.write(segment.getValue());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			})).get();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException)
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			throw new IOException(e.getCause());
+		} finally {
+			forkJoinPool.shutdown();
+		}
+		writer.writeDeltaChainLayers(layers, output);
+	}
+
 	/**
 	 * Attempts to save all the trees for the given project. This includes the current
 	 * workspace tree and a tree for each builder that has previously built state information.
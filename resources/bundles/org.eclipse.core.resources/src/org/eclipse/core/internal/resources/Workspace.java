@@ -335,6 +335,11 @@ public class Workspace extends PlatformObject implements IWorkspace, ICoreConsta
 		notificationManager.addListener(listener, eventMask);
 	}
 
+	@Override
+	public void addResourceChangeListener(IResourceChangeListener listener, int eventMask, ResourceChangeFilter filter, boolean asynchronous) {
+		notificationManager.addListener(listener, eventMask, filter, asynchronous);
+	}
+
 	/**
 	 * @deprecated Use {@link #addSaveParticipant(String, ISaveParticipant)} instead
 	 */
@@ -1469,6 +1474,7 @@ public class Workspace extends PlatformObject implements IWorkspace, ICoreConsta
 				tree.deleteElement(element.getFullPath());
 		} else
 			tree.deleteElement(path);
+		markerManager.deletedResource(path);
 	}
 
 	/**
@@ -2361,6 +2367,42 @@ public class Workspace extends PlatformObject implements IWorkspace, ICoreConsta
 		saveManager.removeParticipant(pluginId);
 	}
 
+	@Override
+	public void replaceMarkers(String type, boolean includeSubtypes, Map<? extends IResource, ? extends List<? extends Map<String, ? extends Object>>> markers) throws CoreException {
+		Assert.isNotNull(type);
+		Assert.isNotNull(markers);
+		if (markers.isEmpty())
+			return;
+		// copy and check all the attributes first, so that either all or none of the markers are replaced.
+		// The attributes are validated by the same rule as in Resource.createMarker
+		boolean validate = markerManager.isPersistentType(type);
+		Map<IResource, List<MarkerAttributeMap>> replacements = new LinkedHashMap<>();
+		for (Map.Entry<? extends IResource, ? extends List<? extends Map<String, ? extends Object>>> entry : markers.entrySet()) {
+			List<MarkerAttributeMap> attributes = new ArrayList<>(entry.getValue().size());
+			for (Map<String, ? extends Object> markerAttributes : entry.getValue())
+				attributes.add(new MarkerAttributeMap(markerAttributes, validate));
+			replacements.put(entry.getKey(), attributes);
+		}
+		ISchedulingRule[] rules = new ISchedulingRule[replacements.size()];
+		int i = 0;
+		for (IResource resource : replacements.keySet())
+			rules[i++] = getRuleFactory().markerRule(resource);
+		ISchedulingRule rule = MultiRule.combine(rules);
+		try {
+			prepareOperation(rule, null);
+			// check all the resources first, so that either all or none of the markers are replaced
+			for (IResource resource : replacements.keySet()) {
+				Resource target = (Resource) resource;
+				target.checkAccessible(target.getFlags(target.getResourceInfo(false, false)));
+			}
+			beginOperation(true);
+			for (Map.Entry<IResource, List<MarkerAttributeMap>> entry : replacements.entrySet())
+				markerManager.replaceMarkers(entry.getKey(), type, includeSubtypes, entry.getValue());
+		} finally {
+			endOperation(rule, false);
+		}
+	}
+
 	@Override
 	public void run(ICoreRunnable action, IProgressMonitor monitor) throws CoreException {
 		run(action, defaultRoot, IWorkspace.AVOID_UPDATE, monitor);
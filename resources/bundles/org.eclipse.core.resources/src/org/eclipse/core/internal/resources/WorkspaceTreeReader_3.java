@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.resources;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import org.eclipse.core.internal.dtree.AbstractDataTreeNode;
+import org.eclipse.core.internal.utils.Messages;
+import org.eclipse.core.internal.utils.Policy;
+import org.eclipse.core.internal.watson.ElementTree;
+import org.eclipse.core.internal.watson.ElementTreeReader;
+import org.eclipse.core.runtime.*;
+
+/**
+ * Reads version 3 of the workspace tree file format.
+ * <p>
+ * This version differs from version 2 in the way the chain of workspace trees
+ * is stored: the subtrees of every project are stored in a segment of their own,
+ * preceded by the name of the project, the length of the segment and its
+ * checksum. The segments are decoded in parallel while the file is read, and are
+ * linked to the root and project nodes that follow them.
+ * </p>
+ * <p>
+ * Only the tree of the workspace is written in this format; the trees of
+ * single projects and the snapshots are still written with version 2.
+ * </p>
+ */
+public class WorkspaceTreeReader_3 extends WorkspaceTreeReader_2 {
+
+	public WorkspaceTreeReader_3(Workspace workspace) {
+		super(workspace);
+	}
+
+	@Override
+	protected int getVersion() {
+		return ICoreConstants.WORKSPACE_TREE_VERSION_3;
+	}
+
+	/**
+	 * Reads the segments of the workspace trees, and decodes them in parallel.
+	 * @return the decoded segments, by project name
+	 */
+	private Map<String, AbstractDataTreeNode[][]> readSegments(ElementTreeReader treeReader, int layerCount, DataInputStream input) throws IOException {
+		int segmentCount = input.readInt();
+		Map<String, ForkJoinTask<AbstractDataTreeNode[][]>> tasks = new HashMap<>(segmentCount * 2);
+		// never use a shared ForkJoinPool.commonPool() as it may be busy with other tasks, which might deadlock:
+		ForkJoinPool forkJoinPool = new ForkJoinPool(ForkJoinPool.getCommonPoolParallelism());
+		try {
+			for (int i = 0; i < segmentCount; i++) {
+				String projectName = input.readUTF();
+				byte[] segment = new byte[input.readInt()];
+				long expectedChecksum = input.readLong();
+				input.readFully(segment);
+				CRC32 checksum = new CRC32();
+				checksum.update(segment);
+				if (checksum.getValue() != expectedChecksum)
+					throw new IOException("Checksum mismatch in the tree segment of project " + projectName); //$NON-NLS-1$
+				IPath path = Path.ROOT.append(projectName);
+				tasks.put(projectName, forkJoinPool.submit(() -> treeReader.readDeltaChainSegment(path, layerCount, new DataInputStream(new ByteArrayInputStream(segment)))));
+			}
+			Map<String, AbstractDataTreeNode[][]> segments = new HashMap<>(segmentCount * 2);
+			for (Map.Entry<String, ForkJoinTask<AbstractDataTreeNode[][]>> task : tasks.entrySet())
+				segments.put(task.getKey(), task.getValue().get());
+			return segments;
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} finally {
+			forkJoinPool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Reads the chain of workspace trees in segments. The trees of single
+	 * projects are read as in version 2.
+	 */
+	@Override
+	protected ElementTree[] readTrees(IPath root, DataInputStream input, IProgressMonitor monitor) throws IOException {
+		if (!root.isRoot())
+			return super.readTrees(root, input, monitor);
+		monitor = Policy.monitorFor(monitor);
+		try {
+			String message = Messages.resources_reading;
+			monitor.beginTask(message, 4);
+			ElementTreeReader treeReader = new ElementTreeReader(workspace.getSaveManager());
+			int[] order = treeReader.readDeltaChainHeader(input);
+			Map<String, AbstractDataTreeNode[][]> segments = readSegments(treeReader, order.length, input);
+			monitor.worked(2);
+			ElementTree[] trees = treeReader.readDeltaChainLayers(order, segments::get, input);
+			monitor.worked(1);
+			//the last tree in the chain is the complete tree
+			ElementTree newTree = trees[trees.length - 1];
+			newTree.setTreeData(workspace.tree.getTreeData());
+			workspace.tree = newTree;
+			monitor.worked(1);
+			return trees;
+		} finally {
+			monitor.done();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.resources;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import org.eclipse.core.internal.utils.Messages;
+import org.eclipse.core.internal.utils.Policy;
+import org.eclipse.core.internal.watson.ElementTree;
+import org.eclipse.core.internal.watson.ElementTreeReader;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Reads version 4 of the workspace tree file format.
+ * <p>
+ * A version 4 file does not contain complete trees: it starts with the
+ * sequence number of a tree file of another version, the base tree file,
+ * followed by the same information as version 2, except that the oldest tree
+ * of the chain of workspace trees is stored as a delta on the current tree of
+ * the base tree file. The base tree file must have been read before the rest of
+ * the file is read with this reader.
+ * </p>
+ * <p>
+ * Only the tree of the workspace is written in this format; the trees of
+ * single projects and the snapshots are still written with version 2.
+ * </p>
+ * @see SaveManager#restoreTree(IProgressMonitor)
+ */
+public class WorkspaceTreeReader_4 extends WorkspaceTreeReader_2 {
+
+	public WorkspaceTreeReader_4(Workspace workspace) {
+		super(workspace);
+	}
+
+	@Override
+	protected int getVersion() {
+		return ICoreConstants.WORKSPACE_TREE_VERSION_4;
+	}
+
+	/**
+	 * Reads the chain of workspace trees as deltas on the tree that was read
+	 * from the base tree file. The trees of single
+	 * projects are read as in version 2.
+	 */
+	@Override
+	protected ElementTree[] readTrees(IPath root, DataInputStream input, IProgressMonitor monitor) throws IOException {
+		if (!root.isRoot())
+			return super.readTrees(root, input, monitor);
+		monitor = Policy.monitorFor(monitor);
+		try {
+			String message = Messages.resources_reading;
+			monitor.beginTask(message, 4);
+			ElementTreeReader treeReader = new ElementTreeReader(workspace.getSaveManager());
+			ElementTree[] trees = treeReader.readDeltaChain(input, workspace.getSaveManager().getBaseTree());
+			monitor.worked(3);
+			//the last tree in the chain is the current tree
+			ElementTree newTree = trees[trees.length - 1];
+			newTree.setTreeData(workspace.tree.getTreeData());
+			workspace.tree = newTree;
+			monitor.worked(1);
+			return trees;
+		} finally {
+			monitor.done();
+		}
+	}
+}
@@ -0,0 +1,496 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM - Initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.resources.refresh.linux;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.internal.utils.Messages;
+import org.eclipse.core.internal.utils.Policy;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.resources.refresh.IRefreshMonitor;
+import org.eclipse.core.resources.refresh.IRefreshResult;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+import org.osgi.framework.Bundle;
+
+/**
+ * A monitor that reports the changes delivered by a {@link WatchService}.
+ * <p>
+ * A watch service only reports changes to the entries of registered
+ * directories, so every directory below a monitored resource is registered.
+ * The root of a monitored resource is registered when the monitor is
+ * installed, and its subdirectories are registered incrementally by the
+ * monitor job, a bounded number per run, so that installing a monitor on a
+ * large tree does not block. Directories created later are registered as
+ * soon as their creation is reported.
+ * </p><p>
+ * Changes made in a directory before it was registered are not reported by
+ * the watch service. When the job lists a registered directory to register
+ * its subdirectories, it therefore also compares the entries of the directory
+ * with the members of its container, like a refresh of depth one, and reports
+ * the members that were added, removed or modified meanwhile.
+ * </p><p>
+ * Events are collected until no event arrives for {@link #COALESCE_DELAY}, or
+ * for at most {@link #MAX_BATCH_DELAY}, and the changed resources of a batch
+ * are reduced before they are handed to the refresh manager: resources below
+ * another changed resource are dropped, and a container with many changed
+ * members is refreshed as a whole. When the watch service drops events
+ * ({@link StandardWatchEventKinds#OVERFLOW}), the directory that lost events
+ * is refreshed with its subtree, and its subdirectories are registered again.
+ * </p>
+ */
+class WatchServiceMonitor extends Job implements IRefreshMonitor {
+	/**
+	 * The time the job waits for the first event of a batch.
+	 */
+	private static final long POLL_TIMEOUT = 1000;
+	/**
+	 * A batch ends when no event arrived for this time.
+	 */
+	static final long COALESCE_DELAY = 50;
+	/**
+	 * A batch ends after this time, even if events keep arriving.
+	 */
+	static final long MAX_BATCH_DELAY = 500;
+	/**
+	 * The maximum number of directories registered per run of the job.
+	 */
+	private static final int MAX_REGISTRATIONS = 2000;
+	/**
+	 * The number of changed members above which a container is refreshed
+	 * instead of its members.
+	 */
+	static final int MAX_MEMBER_REQUESTS = 64;
+	private static final String DEBUG_PREFIX = "WatchServiceMonitor: "; //$NON-NLS-1$
+
+	/**
+	 * A registered directory and the container it is the location of.
+	 */
+	private static final class WatchedDirectory {
+		final Path path;
+		final IContainer container;
+		/** the monitored resource this directory belongs to */
+		final IResource root;
+
+		WatchedDirectory(Path path, IContainer container, IResource root) {
+			this.path = path;
+			this.container = container;
+			this.root = root;
+		}
+	}
+
+	private final IRefreshResult refreshResult;
+	/**
+	 * The watch service, or <code>null</code> if nothing is monitored.
+	 * Modified while holding the lock on this monitor.
+	 */
+	private volatile WatchService watcher;
+	/**
+	 * @GuardedBy("this")
+	 */
+	private final Map<WatchKey, WatchedDirectory> directories = new HashMap<>();
+	/**
+	 * @GuardedBy("this")
+	 */
+	private final Set<IResource> roots = new HashSet<>();
+	/**
+	 * The directories whose subdirectories still need to be registered.
+	 * @GuardedBy("this")
+	 */
+	private final Deque<WatchedDirectory> unregistered = new ArrayDeque<>();
+	/**
+	 * The resources changed in the current batch, only accessed by the job.
+	 */
+	private final Set<IResource> changed = new HashSet<>();
+	/**
+	 * The monitored resources that could not be registered completely, only
+	 * accessed by the job.
+	 */
+	private final Map<IResource, IOException> failed = new HashMap<>();
+
+	public WatchServiceMonitor(IRefreshResult result) {
+		super(Messages.WS_jobName);
+		this.refreshResult = result;
+		setPriority(Job.DECORATE);
+		setSystem(true);
+	}
+
+	/**
+	 * Adds a resource to be monitored by this monitor.
+	 */
+	public boolean monitor(IResource resource) {
+		IPath location = resource.getLocation();
+		if (location == null || !(resource instanceof IContainer)) {
+			// cannot monitor remotely managed containers
+			return false;
+		}
+		synchronized (this) {
+			if (roots.contains(resource))
+				return true;
+			try {
+				if (watcher == null)
+					watcher = FileSystems.getDefault().newWatchService();
+				WatchedDirectory root = new WatchedDirectory(location.toFile().toPath(), (IContainer) resource, resource);
+				if (register(root))
+					unregistered.add(root);
+			} catch (IOException e) {
+				//it will fall back to polling
+				if (Policy.DEBUG_AUTO_REFRESH)
+					Policy.debug(DEBUG_PREFIX + "failed to monitor: " + resource + ": " + e); //$NON-NLS-1$ //$NON-NLS-2$
+				if (roots.isEmpty())
+					close();
+				return false;
+			}
+			roots.add(resource);
+		}
+		//make sure the job is running
+		schedule();
+		if (Policy.DEBUG_AUTO_REFRESH)
+			Policy.debug(DEBUG_PREFIX + "added monitor for: " + resource); //$NON-NLS-1$
+		return true;
+	}
+
+	@Override
+	public void unmonitor(IResource resource) {
+		synchronized (this) {
+			if (resource == null)
+				roots.clear();
+			else
+				roots.remove(resource);
+			for (Iterator<Map.Entry<WatchKey, WatchedDirectory>> it = directories.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<WatchKey, WatchedDirectory> entry = it.next();
+				if (!roots.contains(entry.getValue().root)) {
+					entry.getKey().cancel();
+					it.remove();
+				}
+			}
+			unregistered.removeIf(directory -> !roots.contains(directory.root));
+			if (!roots.isEmpty())
+				return;
+			close();
+		}
+		//stop the job if nothing is monitored anymore
+		cancel();
+	}
+
+	/**
+	 * @GuardedBy("this")
+	 */
+	private void close() {
+		if (watcher == null)
+			return;
+		try {
+			watcher.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		watcher = null;
+		directories.clear();
+		unregistered.clear();
+	}
+
+	/**
+	 * Registers the given directory. Returns <code>false</code> if the
+	 * directory was registered already, for example because it was reached
+	 * through a symbolic link.
+	 * @GuardedBy("this")
+	 */
+	private boolean register(WatchedDirectory directory) throws IOException {
+		WatchKey key = directory.path.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+		return directories.putIfAbsent(key, directory) == null;
+	}
+
+	/**
+	 * Registers the subdirectories of the directories queued for
+	 * registration, up to {@link #MAX_REGISTRATIONS} directories, and collects
+	 * the entries of the queued directories that changed before they were
+	 * registered.
+	 */
+	private void registerDirectories() {
+		int count = 0;
+		while (count < MAX_REGISTRATIONS) {
+			WatchedDirectory parent;
+			synchronized (this) {
+				parent = unregistered.poll();
+			}
+			if (parent == null)
+				return;
+			Map<String, IResource> members = getMembers(parent.container);
+			try (DirectoryStream<Path> children = Files.newDirectoryStream(parent.path)) {
+				for (Path child : children) {
+					IPath name = toPath(child.getFileName());
+					IResource member = members == null ? null : members.remove(name.lastSegment());
+					if (!Files.isDirectory(child)) {
+						if (members != null && (member == null || member.getType() != IResource.FILE || !member.isSynchronized(IResource.DEPTH_ZERO)))
+							changed.add(parent.container.getFile(name));
+						continue;
+					}
+					IFolder folder = parent.container.getFolder(name);
+					if (members != null && (member == null || member.getType() != IResource.FOLDER))
+						changed.add(folder);
+					WatchedDirectory directory = new WatchedDirectory(child, folder, parent.root);
+					synchronized (this) {
+						// the root may have been unmonitored meanwhile
+						if (watcher == null || !roots.contains(parent.root)) {
+							members = null;
+							break;
+						}
+						if (register(directory))
+							unregistered.add(directory);
+					}
+					count++;
+				}
+				// members deleted before the directory was registered
+				if (members != null)
+					changed.addAll(members.values());
+			} catch (NoSuchFileException | NotDirectoryException | AccessDeniedException e) {
+				// deleted meanwhile or not accessible, nothing to monitor
+			} catch (IOException e) {
+				// most likely the limit of inotify watches was reached
+				failed.putIfAbsent(parent.root, e);
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the members of the given container by name, or <code>null</code>
+	 * if the container is not in the workspace yet, in which case the refresh
+	 * of an ancestor finds its members. Linked members have no entry in the
+	 * directory of the container and are omitted.
+	 */
+	private static Map<String, IResource> getMembers(IContainer container) {
+		if (!container.isAccessible())
+			return null;
+		Map<String, IResource> members = new HashMap<>();
+		try {
+			for (IResource member : container.members(IContainer.INCLUDE_HIDDEN))
+				if (!member.isLinked())
+					members.put(member.getName(), member);
+		} catch (CoreException e) {
+			// deleted meanwhile
+			return null;
+		}
+		return members;
+	}
+
+	private static IPath toPath(Path name) {
+		return new org.eclipse.core.runtime.Path(null, name.toString());
+	}
+
+	/**
+	 * Collects the resources changed according to the events of the given key.
+	 */
+	private void processEvents(WatchKey key) {
+		WatchedDirectory directory;
+		synchronized (this) {
+			directory = directories.get(key);
+		}
+		List<WatchEvent<?>> events = key.pollEvents();
+		if (directory == null) {
+			// unmonitored meanwhile
+			key.cancel();
+			return;
+		}
+		for (WatchEvent<?> event : events) {
+			WatchEvent.Kind<?> kind = event.kind();
+			if (kind == OVERFLOW) {
+				if (Policy.DEBUG_AUTO_REFRESH)
+					Policy.debug(DEBUG_PREFIX + "events lost for: " + directory.container); //$NON-NLS-1$
+				changed.add(directory.container);
+				// directories may have been created without notice
+				synchronized (this) {
+					unregistered.add(directory);
+				}
+				continue;
+			}
+			Path name = (Path) event.context();
+			IPath child = toPath(name);
+			if (kind == ENTRY_CREATE) {
+				Path path = directory.path.resolve(name);
+				if (Files.isDirectory(path)) {
+					IFolder folder = directory.container.getFolder(child);
+					changed.add(folder);
+					registerCreated(new WatchedDirectory(path, folder, directory.root));
+				} else {
+					changed.add(directory.container.getFile(child));
+				}
+				continue;
+			}
+			IResource member = directory.container.findMember(child);
+			if (member == null) {
+				// a file that was created and changed, or deleted, before the workspace knew it
+				if (kind == ENTRY_DELETE)
+					continue;
+				member = directory.container.getFile(child);
+			} else if (kind == ENTRY_MODIFY && member.getType() != IResource.FILE) {
+				// the members of a directory are reported by its own key
+				continue;
+			}
+			changed.add(member);
+		}
+		if (!key.reset()) {
+			// the directory is gone, its parent reports the deletion
+			synchronized (this) {
+				directories.remove(key);
+			}
+			if (directory.container.equals(directory.root))
+				changed.add(directory.root);
+		}
+	}
+
+	/**
+	 * Registers a directory that was just created, so that changes to its
+	 * members are reported from now on. Its members that existed before are
+	 * found by the refresh of the directory itself.
+	 */
+	private void registerCreated(WatchedDirectory directory) {
+		synchronized (this) {
+			if (watcher == null || !roots.contains(directory.root))
+				return;
+			try {
+				if (register(directory))
+					unregistered.add(directory);
+			} catch (NoSuchFileException | NotDirectoryException e) {
+				// deleted meanwhile, the refresh notices it
+			} catch (IOException e) {
+				failed.putIfAbsent(directory.root, e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the refresh requests for the given changed resources. Resources
+	 * below another changed resource are covered by its refresh, and a
+	 * container with more than {@link #MAX_MEMBER_REQUESTS} changed members is
+	 * refreshed instead of its members.
+	 */
+	static List<IResource> coalesce(Collection<IResource> resources) {
+		List<IResource> sorted = new ArrayList<>(resources);
+		sorted.sort(Comparator.comparingInt(resource -> resource.getFullPath().segmentCount()));
+		Set<IPath> requested = new HashSet<>();
+		Map<IContainer, List<IResource>> membersByParent = new LinkedHashMap<>();
+		for (IResource resource : sorted) {
+			IPath path = resource.getFullPath();
+			if (isCovered(path, requested))
+				continue;
+			requested.add(path);
+			membersByParent.computeIfAbsent(resource.getParent(), parent -> new ArrayList<>()).add(resource);
+		}
+		List<IResource> result = new ArrayList<>(requested.size());
+		for (Map.Entry<IContainer, List<IResource>> entry : membersByParent.entrySet()) {
+			IContainer parent = entry.getKey();
+			List<IResource> members = entry.getValue();
+			if (members.size() > MAX_MEMBER_REQUESTS && parent.getType() != IResource.ROOT)
+				result.add(parent);
+			else
+				result.addAll(members);
+		}
+		return result;
+	}
+
+	private static boolean isCovered(IPath path, Set<IPath> requested) {
+		for (IPath parent = path.removeLastSegments(1); !parent.isEmpty() && !parent.isRoot(); parent = parent.removeLastSegments(1))
+			if (requested.contains(parent))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Hands the changes of the current batch to the refresh manager.
+	 */
+	private void flush() {
+		if (changed.isEmpty())
+			return;
+		List<IResource> requests = coalesce(changed);
+		if (Policy.DEBUG_AUTO_REFRESH)
+			Policy.debug(DEBUG_PREFIX + changed.size() + " changes reported as " + requests.size() + " refresh requests"); //$NON-NLS-1$ //$NON-NLS-2$
+		changed.clear();
+		for (IResource resource : requests)
+			refreshResult.refresh(resource);
+	}
+
+	/**
+	 * Falls back to polling for the monitored resources that could not be
+	 * registered completely.
+	 */
+	private void reportFailures() {
+		if (failed.isEmpty())
+			return;
+		Map<IResource, IOException> failures = new HashMap<>(failed);
+		failed.clear();
+		for (Map.Entry<IResource, IOException> failure : failures.entrySet()) {
+			IResource root = failure.getKey();
+			synchronized (this) {
+				if (!roots.contains(root))
+					continue;
+			}
+			Policy.log(IStatus.WARNING, NLS.bind(Messages.WS_errRegister, root.getFullPath(), failure.getValue().getMessage()), null);
+			unmonitor(root);
+			refreshResult.monitorFailed(this, root);
+		}
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		WatchService service = watcher;
+		if (service == null)
+			return Status.OK_STATUS;
+		try {
+			registerDirectories();
+			WatchKey key = service.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+			long deadline = System.currentTimeMillis() + MAX_BATCH_DELAY;
+			while (key != null && !monitor.isCanceled()) {
+				processEvents(key);
+				if (System.currentTimeMillis() >= deadline)
+					break;
+				key = service.poll(COALESCE_DELAY, TimeUnit.MILLISECONDS);
+			}
+			// register created directories before they are refreshed, so no change in them is missed
+			registerDirectories();
+			flush();
+		} catch (ClosedWatchServiceException e) {
+			// nothing is monitored anymore
+			return Status.OK_STATUS;
+		} catch (InterruptedException e) {
+			return Status.CANCEL_STATUS;
+		} finally {
+			reportFailures();
+		}
+		final Bundle bundle = Platform.getBundle(ResourcesPlugin.PI_RESOURCES);
+		//if the bundle is null then the framework has shutdown - just bail out completely (bug 98219)
+		if (bundle == null)
+			return Status.OK_STATUS;
+		//don't reschedule the job if the resources plugin has been shut down
+		if (bundle.getState() == Bundle.ACTIVE)
+			schedule();
+		return Status.OK_STATUS;
+	}
+
+	@Override
+	public boolean shouldRun() {
+		return watcher != null;
+	}
+}
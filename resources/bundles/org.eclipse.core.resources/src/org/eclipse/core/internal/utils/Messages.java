@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2016 IBM Corporation and others.
+ * Copyright (c) 2005, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -149,6 +149,7 @@ public class Messages extends NLS {
 	public static String properties_couldNotClose;
 	public static String properties_qualifierIsNull;
 	public static String properties_readProperties;
+	public static String properties_saving;
 	public static String properties_valueTooLong;
 
 	// auto-refresh
@@ -333,6 +334,10 @@ public class Messages extends NLS {
 	public static String WM_nativeErr;
 	public static String WM_mutexAbandoned;
 
+	// auto-refresh watch service
+	public static String WS_errRegister;
+	public static String WS_jobName;
+
 	public static String updateUnknownNatureMarkers;
 
 	static {
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.utils;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the iterations of a loop in parallel and waits until all of them are
+ * done. Each iteration runs exactly once: if the calling thread is interrupted
+ * while it waits, it keeps its interrupt status, runs the iterations that were
+ * not started yet by itself and then waits for the ones that are running.
+ */
+public final class ParallelLoop {
+
+	private ParallelLoop() {
+		// not instantiated
+	}
+
+	/**
+	 * Runs the given body for the indexes from 0 to the given count, exclusive.
+	 * A runtime exception or error thrown by the body is rethrown.
+	 *
+	 * @param count the number of iterations
+	 * @param body the body of the loop, called with the index of the iteration
+	 */
+	public static void run(int count, IntConsumer body) {
+		AtomicIntegerArray started = new AtomicIntegerArray(count);
+		IntConsumer once = i -> {
+			if (started.compareAndSet(i, 0, 1))
+				body.accept(i);
+		};
+		boolean interrupted = false;
+		// never use a shared ForkJoinPool.commonPool() as it may be busy with other tasks, which might deadlock:
+		ForkJoinPool forkJoinPool = new ForkJoinPool(ForkJoinPool.getCommonPoolParallelism());
+		try {
+			Future<?> future = forkJoinPool.submit(() -> IntStream.range(0, count).parallel().forEach(once));
+			while (true) {
+				try {
+					future.get();
+					break;
+				} catch (InterruptedException e) {
+					// the results are still needed: run what the pool didn't start, then wait for the rest
+					interrupted = true;
+					for (int i = 0; i < count; i++)
+						once.accept(i);
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} finally {
+			forkJoinPool.shutdown();
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -529,7 +529,9 @@ public class ElementTree {
 			/* need to clear the lookup cache since it reports whether results were found
 			 in the topmost delta, and the order of deltas is changing */
 			lookupCache = lookupCacheIgnoreCase = null;
-			/* reroot the delta chain at this tree */
+			/* pack the complete nodes added in this tree, which stay packed
+			 when the delta chain is rerooted at this tree */
+			tree.packCompleteNodes();
 			tree.reroot();
 		}
 	}
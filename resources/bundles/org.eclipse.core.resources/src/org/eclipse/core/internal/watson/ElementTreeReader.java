@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,8 +15,8 @@
 package org.eclipse.core.internal.watson;
 
 import java.io.*;
-import org.eclipse.core.internal.dtree.DataTreeReader;
-import org.eclipse.core.internal.dtree.IDataFlattener;
+import java.util.function.Function;
+import org.eclipse.core.internal.dtree.*;
 import org.eclipse.core.internal.utils.Messages;
 import org.eclipse.core.runtime.*;
 
@@ -45,6 +45,11 @@ public class ElementTreeReader {
 	 */
 	protected DataTreeReader dataTreeReader;
 
+	/**
+	 * For reading segments of delta chains concurrently
+	 */
+	private final IDataFlattener dataFlattener;
+
 	/**
 	 * Constructs a new element tree reader that works for
 	 * the given element info flattener.
@@ -70,6 +75,7 @@ public class ElementTreeReader {
 			}
 		};
 		dataTreeReader = new DataTreeReader(f);
+		dataFlattener = f;
 	}
 
 	/**
@@ -115,6 +121,90 @@ public class ElementTreeReader {
 		return realReader.readDeltaChain(input, newProjectName);
 	}
 
+	/**
+	 * Reads the header of a chain of ElementTrees that was written in segments,
+	 * and returns the order of the trees in the chain.
+	 *
+	 * @see ElementTreeWriter#writeDeltaChainHeader(ElementTree[], DataOutput, IElementComparator)
+	 */
+	public int[] readDeltaChainHeader(DataInput input) throws IOException {
+		int formatVersion = readNumber(input);
+		if (formatVersion != 1)
+			throw new IOException(Messages.watson_unknown);
+		int treeCount = readNumber(input);
+		int[] order = new int[Math.max(treeCount, 0)];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = readNumber(input);
+		}
+		return order;
+	}
+
+	/**
+	 * Reads the layers of a chain of ElementTrees that was written in segments,
+	 * and completes them with the given segments.
+	 *
+	 * @param order the order of the trees, as returned by {@link #readDeltaChainHeader(DataInput)}
+	 * @param segments returns the segment of the node below the root with the
+	 * given name, or <code>null</code> if there is none
+	 * @return A chain of ElementTrees, where the first tree in the list is
+	 * complete, and all other trees are deltas on the previous tree in the list.
+	 */
+	public ElementTree[] readDeltaChainLayers(int[] order, Function<String, AbstractDataTreeNode[][]> segments, DataInput input) throws IOException {
+		ElementTree[] results = new ElementTree[order.length];
+		ElementTree previous = null;
+		for (int i = 0; i < order.length; i++) {
+			final int layer = i;
+			DeltaDataTree tree = dataTreeReader.readTree(previous == null ? null : previous.getDataTree(), input, name -> {
+				AbstractDataTreeNode[][] segment = segments.apply(name);
+				return segment == null ? null : segment[layer];
+			});
+			if (previous == null) {
+				previous = new ElementTree(tree);
+			} else if (!tree.isEmptyDelta()) {
+				//same as ElementTreeReaderImpl_1#readDelta
+				ElementTree delta = new ElementTree(tree);
+				IElementTreeData data = previous.getTreeData();
+				if (data != null) {
+					delta.setTreeData((IElementTreeData) data.clone());
+				}
+				tree.immutable();
+				previous = delta;
+			}
+			results[order[i]] = previous;
+		}
+		return results;
+	}
+
+	/**
+	 * Reads the segment of a chain of ElementTrees for the given node below
+	 * the root. May be called concurrently for different nodes.
+	 *
+	 * @param layerCount the number of trees in the chain
+	 * @return the children of the node in each of the layers of the chain
+	 * @see ElementTreeWriter#writeDeltaChainSegment(DeltaDataTree[], IPath, DataOutput)
+	 */
+	public AbstractDataTreeNode[][] readDeltaChainSegment(IPath path, int layerCount, DataInput input) throws IOException {
+		DataTreeReader segmentReader = new DataTreeReader(dataFlattener);
+		AbstractDataTreeNode[][] segment = new AbstractDataTreeNode[layerCount][];
+		for (int i = 0; i < layerCount; i++) {
+			segment[i] = segmentReader.readChildren(path, input);
+		}
+		return segment;
+	}
+
+	/**
+	 * Reads a chain of ElementTrees whose oldest tree was written as a delta on
+	 * the given base tree.
+	 * @return A chain of ElementTrees, where all trees are deltas on the
+	 * previous tree in the list, and the first one is a delta on the base tree.
+	 * @see ElementTreeWriter#writeDeltaChain(ElementTree[], ElementTree, DataOutput, IElementComparator)
+	 */
+	public ElementTree[] readDeltaChain(DataInput input, ElementTree base) throws IOException {
+		/* Dispatch to the appropriate reader. */
+		ElementTreeReader realReader = getReader(readNumber(input));
+		return realReader.readDeltaChain(input, base);
+	}
+
 	/**
 	 * Reads an integer stored in compact format.  Numbers between
 	 * 0 and 254 inclusive occupy 1 byte; other numbers occupy 5 bytes,
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -53,6 +53,11 @@ public class ElementTreeWriter {
 	 */
 	protected DataTreeWriter dataTreeWriter;
 
+	/**
+	 * For writing segments of delta chains concurrently
+	 */
+	private final IDataFlattener dataFlattener;
+
 	/**
 	 * Constructs a new element tree writer that works for
 	 * the given element info flattener.
@@ -76,6 +81,7 @@ public class ElementTreeWriter {
 			}
 		};
 		dataTreeWriter = new DataTreeWriter(f);
+		dataFlattener = f;
 	}
 
 	/**
@@ -172,6 +178,101 @@ public class ElementTreeWriter {
 		}
 	}
 
+	/**
+	 * Writes a chain of ElementTrees like {@link #writeDeltaChain(ElementTree[], IPath, int, DataOutput, IElementComparator)},
+	 * but writes the oldest tree of the chain as a delta on the given base tree
+	 * instead of as a complete tree. The size of the output is proportional to
+	 * the differences between the trees and the base tree.
+	 *
+	 * @see ElementTreeReader#readDeltaChain(DataInput, ElementTree)
+	 */
+	public void writeDeltaChain(ElementTree[] trees, ElementTree base, DataOutput output, IElementComparator comparator) throws IOException {
+		/* Write the format version number */
+		writeNumber(CURRENT_FORMAT, output);
+
+		/* Write the number of trees */
+		int treeCount = trees.length;
+		writeNumber(treeCount, output);
+
+		if (treeCount <= 0) {
+			return;
+		}
+
+		ElementTree[] sortedTrees = writeSortedTrees(trees, output);
+
+		/* Write the oldest tree as a delta on the base tree */
+		writeDelta(sortedTrees[0], base, Path.ROOT, D_INFINITE, output, comparator);
+
+		/* Write the deltas for each of the remaining trees */
+		for (int i = 1; i < treeCount; i++) {
+			writeDelta(sortedTrees[i], sortedTrees[i - 1], Path.ROOT, D_INFINITE, output, comparator);
+		}
+	}
+
+	/**
+	 * Writes the header of a chain of ElementTrees that is written in segments,
+	 * and returns the layers of the chain: the oldest tree as a complete tree,
+	 * followed by the deltas between consecutive trees.
+	 * <p>
+	 * A segmented chain consists of the header, followed by the segments of
+	 * the nodes below the root that are written with
+	 * {@link #writeDeltaChainSegment(DeltaDataTree[], IPath, DataOutput)},
+	 * followed by the layers written with
+	 * {@link #writeDeltaChainLayers(DeltaDataTree[], DataOutput)}.
+	 * The segments are independent of each other and may be written
+	 * concurrently and stored in any order and any place.
+	 * </p>
+	 *
+	 * @see ElementTreeReader#readDeltaChainHeader(DataInput)
+	 */
+	public DeltaDataTree[] writeDeltaChainHeader(ElementTree[] trees, DataOutput output, IElementComparator comparator) throws IOException {
+		/* Write the format version number */
+		writeNumber(CURRENT_FORMAT, output);
+
+		/* Write the number of trees */
+		int treeCount = trees.length;
+		writeNumber(treeCount, output);
+
+		DeltaDataTree[] layers = new DeltaDataTree[treeCount];
+		if (treeCount <= 0) {
+			return layers;
+		}
+
+		ElementTree[] sortedTrees = writeSortedTrees(trees, output);
+		layers[0] = new DeltaDataTree(sortedTrees[0].getDataTree().copyCompleteSubtree(Path.ROOT));
+		for (int i = 1; i < treeCount; i++) {
+			/* same as writeDelta(sortedTrees[i], sortedTrees[i - 1]) */
+			layers[i] = sortedTrees[i - 1].getDataTree().forwardDeltaWith(sortedTrees[i].getDataTree(), comparator);
+		}
+		return layers;
+	}
+
+	/**
+	 * Writes the layers of a chain of ElementTrees, down to the nodes below
+	 * the root.
+	 *
+	 * @see #writeDeltaChainHeader(ElementTree[], DataOutput, IElementComparator)
+	 */
+	public void writeDeltaChainLayers(DeltaDataTree[] layers, DataOutput output) throws IOException {
+		for (DeltaDataTree layer : layers) {
+			dataTreeWriter.writeTree(layer, Path.ROOT, 1, output);
+		}
+	}
+
+	/**
+	 * Writes the segment of a chain of ElementTrees for the given node below
+	 * the root, that is the subtrees below that node in all the layers. May be
+	 * called concurrently for different nodes.
+	 *
+	 * @see #writeDeltaChainHeader(ElementTree[], DataOutput, IElementComparator)
+	 */
+	public void writeDeltaChainSegment(DeltaDataTree[] layers, IPath path, DataOutput output) throws IOException {
+		DataTreeWriter segmentWriter = new DataTreeWriter(dataFlattener);
+		for (DeltaDataTree layer : layers) {
+			segmentWriter.writeChildren(layer, path, output);
+		}
+	}
+
 	/**
 	 * Writes an integer in a compact format biased towards
 	 * small non-negative numbers. Numbers between
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2015 IBM Corporation and others.
+ *  Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -18,7 +18,7 @@
 package org.eclipse.core.resources;
 
 import java.net.URI;
-import java.util.Map;
+import java.util.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 
@@ -2418,6 +2418,29 @@ public interface IResource extends IAdaptable, ISchedulingRule {
 	 */
 	void refreshLocal(int depth, IProgressMonitor monitor) throws CoreException;
 
+	/**
+	 * Replaces the markers of the given type on this resource with new markers
+	 * that have the given attributes, as one atomic change. Existing markers whose
+	 * attributes are equal to the attributes of a new marker are kept.
+	 *
+	 * @param type the type of the markers to replace
+	 * @param includeSubtypes whether markers of subtypes of the given type are
+	 * also replaced
+	 * @param markers the attributes of the new markers of the given type, one
+	 * map of attribute names to attribute values per marker
+	 * @exception CoreException if this method fails. Reasons include:
+	 * <ul>
+	 * <li> This resource does not exist.</li>
+	 * <li> This resource is a project that is not open.</li>
+	 * </ul>
+	 * @see IWorkspace#replaceMarkers(String, boolean, Map)
+	 * @see IResourceRuleFactory#markerRule(IResource)
+	 * @since 3.19
+	 */
+	default void replaceMarkers(String type, boolean includeSubtypes, List<? extends Map<String, ? extends Object>> markers) throws CoreException {
+		getWorkspace().replaceMarkers(type, includeSubtypes, Collections.singletonMap(this, markers));
+	}
+
 	/**
 	 * Reverts this resource's modification stamp.  This is intended to be used by
 	 * a client that is rolling back or undoing a previous change to this resource.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2015 IBM Corporation and others.
+ *  Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -17,6 +17,7 @@ package org.eclipse.core.resources;
 
 import java.io.InputStream;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
 import org.eclipse.core.resources.team.FileModificationValidationContext;
 import org.eclipse.core.runtime.*;
@@ -186,6 +187,39 @@ public interface IWorkspace extends IAdaptable {
 	 */
 	void addResourceChangeListener(IResourceChangeListener listener, int eventMask);
 
+	/**
+	 * Adds the given listener for the specified resource change events to this
+	 * workspace, notifying it only of the changes that pass the given filter.
+	 * Otherwise behaves like {@link #addResourceChangeListener(IResourceChangeListener, int)}.
+	 * <p>
+	 * The resource deltas of the events are reduced to the resources that match
+	 * the filter, along with their ancestors. The listener is not notified of
+	 * events whose delta has no matching resources. Events without a delta are
+	 * passed on unchanged.
+	 * </p>
+	 * <p>
+	 * An asynchronous listener is notified in the background after the operation
+	 * that caused the changes has ended, so that it does not delay the workspace.
+	 * It receives the events in the order they occurred, but it may see a
+	 * workspace that has changed further since. Asynchronous listeners can only
+	 * register for {@link IResourceChangeEvent#POST_CHANGE} events, and are not
+	 * prevented from modifying the workspace.
+	 * </p>
+	 *
+	 * @param listener the listener
+	 * @param eventMask the bit-wise OR of all event types of interest to the
+	 * listener
+	 * @param filter the filter of the changes of interest, or <code>null</code>
+	 * for all changes
+	 * @param asynchronous whether the listener is notified in the background
+	 * @exception IllegalArgumentException if an asynchronous listener registers
+	 * for events other than <code>POST_CHANGE</code>
+	 * @see ResourceChangeFilter
+	 * @see #removeResourceChangeListener(IResourceChangeListener)
+	 * @since 3.19
+	 */
+	void addResourceChangeListener(IResourceChangeListener listener, int eventMask, ResourceChangeFilter filter, boolean asynchronous);
+
 	/**
 	 * Registers the given plug-in's workspace save participant, and returns an
 	 * object describing the workspace state at the time of the last save in
@@ -1094,6 +1128,42 @@ public interface IWorkspace extends IAdaptable {
 	 */
 	void removeSaveParticipant(String pluginId);
 
+	/**
+	 * Replaces the markers of the given type on each of the given resources with
+	 * new markers that have the given attributes, as one atomic change.
+	 * <p>
+	 * Existing markers of the given type whose attributes are equal to the
+	 * attributes of a new marker are kept as they are, so only the markers that
+	 * were actually added or removed appear in the marker deltas. This makes it
+	 * cheap to publish the same markers again, as builders do after an incremental
+	 * build. Kept markers keep their id and creation time.
+	 * </p>
+	 * <p>
+	 * This method changes resources; these changes will be reported in a
+	 * subsequent resource change event.
+	 * </p>
+	 *
+	 * @param type the type of the markers to replace
+	 * @param includeSubtypes whether markers of subtypes of the given type are
+	 * also replaced
+	 * @param markers a map of the resources to the attributes of their new
+	 * markers of the given type, one map of attribute names to attribute values
+	 * per marker (key type : <code>String</code> value type : <code>String</code>,
+	 * <code>Integer</code>, or <code>Boolean</code>)
+	 * @exception CoreException if this method fails. Reasons include:
+	 * <ul>
+	 * <li> One of the resources does not exist.</li>
+	 * <li> One of the resources is a project that is not open.</li>
+	 * <li>Resource changes are disallowed during certain types of resource
+	 * change event notification. See <code>IResourceChangeEvent</code> for
+	 * more details.</li>
+	 * </ul>
+	 * @see IResource#replaceMarkers(String, boolean, List)
+	 * @see IResourceRuleFactory#markerRule(IResource)
+	 * @since 3.19
+	 */
+	void replaceMarkers(String type, boolean includeSubtypes, Map<? extends IResource, ? extends List<? extends Map<String, ? extends Object>>> markers) throws CoreException;
+
 	/**
 	 * Runs the given action as an atomic workspace operation.
 	 * <p>
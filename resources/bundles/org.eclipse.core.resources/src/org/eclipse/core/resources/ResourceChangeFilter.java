@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.resources;
+
+import java.util.Arrays;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * A description of the resource changes a resource change listener is
+ * interested in. The resource delta of an event is reduced to the resources
+ * that match all the criteria of the filter, along with their ancestors, and
+ * the listener is not notified at all if no resource matches.
+ * <p>
+ * Listeners registered with equal filters share the reduced delta, which is
+ * computed once per event.
+ * </p>
+ *
+ * @see IWorkspace#addResourceChangeListener(IResourceChangeListener, int, ResourceChangeFilter, boolean)
+ * @since 3.19
+ */
+public final class ResourceChangeFilter {
+
+	private final IPath[] paths;
+
+	private final String[] contentTypeIds;
+
+	private final int kindMask;
+
+	private final String[] markerTypes;
+
+	/**
+	 * Creates a new resource change filter.
+	 *
+	 * @param paths the full paths of the resources of interest, which include
+	 * their descendants, or <code>null</code> for all resources
+	 * @param contentTypeIds the ids of the content types of the files of interest,
+	 * as associated with the file names, or <code>null</code> for all resources
+	 * @param kindMask the bit-wise OR of the delta kinds of interest, as defined
+	 * in <code>IResourceDelta</code>
+	 * @param markerTypes the types of the markers of interest, which include their
+	 * subtypes, or <code>null</code> if marker changes do not matter
+	 * @see IResourceDelta#getKind()
+	 */
+	public ResourceChangeFilter(IPath[] paths, String[] contentTypeIds, int kindMask, String[] markerTypes) {
+		this.paths = paths == null ? null : paths.clone();
+		this.contentTypeIds = contentTypeIds == null ? null : contentTypeIds.clone();
+		this.kindMask = kindMask;
+		this.markerTypes = markerTypes == null ? null : markerTypes.clone();
+	}
+
+	/**
+	 * Returns the ids of the content types of the files of interest, or
+	 * <code>null</code> for all resources.
+	 */
+	public String[] getContentTypeIds() {
+		return contentTypeIds == null ? null : contentTypeIds.clone();
+	}
+
+	/**
+	 * Returns the bit-wise OR of the delta kinds of interest.
+	 */
+	public int getKindMask() {
+		return kindMask;
+	}
+
+	/**
+	 * Returns the types of the markers of interest, or <code>null</code> if
+	 * marker changes do not matter.
+	 */
+	public String[] getMarkerTypes() {
+		return markerTypes == null ? null : markerTypes.clone();
+	}
+
+	/**
+	 * Returns the full paths of the resources of interest, or <code>null</code>
+	 * for all resources.
+	 */
+	public IPath[] getPaths() {
+		return paths == null ? null : paths.clone();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(contentTypeIds);
+		result = prime * result + kindMask;
+		result = prime * result + Arrays.hashCode(markerTypes);
+		result = prime * result + Arrays.hashCode(paths);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ResourceChangeFilter other = (ResourceChangeFilter) obj;
+		return kindMask == other.kindMask && Arrays.equals(contentTypeIds, other.contentTypeIds) && Arrays.equals(markerTypes, other.markerTypes) && Arrays.equals(paths, other.paths);
+	}
+
+	@Override
+	public String toString() {
+		return "ResourceChangeFilter [paths=" + Arrays.toString(paths) + ", contentTypeIds=" + Arrays.toString(contentTypeIds) //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", kindMask=" + kindMask + ", markerTypes=" + Arrays.toString(markerTypes) + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2018 IBM Corporation and others.
+ *  Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -411,6 +411,57 @@ public class FileStoreTest extends LocalStoreTest {
 		temp.delete(EFS.NONE, null);
 	}
 
+	/**
+	 * The children listed together with their attributes must have the same
+	 * information as the children fetched one at a time.
+	 */
+	public void testChildInfos() throws Throwable {
+		IPath root = getWorkspace().getRoot().getLocation().append("" + new Date().getTime());
+		IFileStore temp = createDir(root.toString(), true);
+		try {
+			createFile(temp.getChild("file"), "contents");
+			createFile(temp.getChild("readOnly"), "");
+			setReadOnly(temp.getChild("readOnly"), true);
+			createDir(temp.getChild("folder"), true);
+			if (canCreateSymLinks()) {
+				File directory = temp.toLocalFile(EFS.NONE, getMonitor());
+				createSymLink(directory, "link", "folder", true);
+				createSymLink(directory, "broken", "missing", false);
+			}
+
+			String[] names = temp.childNames(EFS.NONE, null);
+			IFileInfo[] infos = temp.childInfos(EFS.NONE, null);
+			assertEquals("1.0", names.length, infos.length);
+			// the children may be listed in any order
+			Map<String, IFileInfo> infosByName = new HashMap<>();
+			for (IFileInfo info : infos)
+				assertNull("1.1." + info.getName(), infosByName.put(info.getName(), info));
+			for (String name : names) {
+				IFileInfo expected = temp.getChild(name).fetchInfo();
+				IFileInfo actual = infosByName.get(name);
+				String message = "2." + name;
+				assertNotNull(message, actual);
+				assertEquals(message, expected.getName(), actual.getName());
+				assertEquals(message, expected.exists(), actual.exists());
+				assertEquals(message, expected.isDirectory(), actual.isDirectory());
+				assertEquals(message, expected.getLength(), actual.getLength());
+				assertEquals(message, expected.getLastModified(), actual.getLastModified());
+				assertEquals(message, expected.getError(), actual.getError());
+				assertEquals(message, expected.getStringAttribute(EFS.ATTRIBUTE_LINK_TARGET), actual.getStringAttribute(EFS.ATTRIBUTE_LINK_TARGET));
+				int[] attributes = {EFS.ATTRIBUTE_READ_ONLY, EFS.ATTRIBUTE_SYMLINK, EFS.ATTRIBUTE_EXECUTABLE, EFS.ATTRIBUTE_HIDDEN, EFS.ATTRIBUTE_ARCHIVE};
+				for (int attribute : attributes)
+					assertEquals(message + "." + attribute, expected.getAttribute(attribute), actual.getAttribute(attribute));
+			}
+
+			// children of a file or a missing directory
+			assertEquals("3.0", 0, temp.getChild("file").childInfos(EFS.NONE, null).length);
+			assertEquals("3.1", 0, temp.getChild("missing").childInfos(EFS.NONE, null).length);
+		} finally {
+			setReadOnly(temp.getChild("readOnly"), false);
+			temp.delete(EFS.NONE, null);
+		}
+	}
+
 	public void testMove() throws Throwable {
 		/* build scenario */
 		IFileStore tempC = createDir(getWorkspace().getRoot().getLocation().append("temp").toString(), true);
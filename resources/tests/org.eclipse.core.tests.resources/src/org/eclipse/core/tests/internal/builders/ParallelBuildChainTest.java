@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2017 Red Hat Inc. and others.
+ * Copyright (c) 2017, 2022 Red Hat Inc. and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,8 @@ package org.eclipse.core.tests.internal.builders;
 
 import java.util.*;
 import org.eclipse.core.internal.events.BuildCommand;
+import org.eclipse.core.internal.events.BuildTimeline;
+import org.eclipse.core.internal.resources.Workspace;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.Job;
@@ -289,6 +291,53 @@ public class ParallelBuildChainTest extends AbstractBuilderTest {
 		assertEquals(sequentialBuildEvents(allProjects), TimerBuilder.events);
 	}
 
+	public void testBuildTimeline() throws Exception {
+		setTimerBuilderSchedulingRuleForAllProjects(RuleType.NO_CONFLICT, getMonitor());
+		IWorkspaceRoot root = getWorkspace().getRoot();
+		IProject first = root.getProject("projectLongBuild1");
+		IProject second = root.getProject("projectLongBuild2");
+		IProjectDescription desc = second.getDescription();
+		desc.setBuildConfigReferences(second.getActiveBuildConfig().getName(), new IBuildConfiguration[] {first.getActiveBuildConfig()});
+		second.setDescription(desc, getMonitor());
+		Job job = new Job("Workspace Build") {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					getWorkspace().build(IncrementalProjectBuilder.FULL_BUILD, getMonitor());
+					return Status.OK_STATUS;
+				} catch (CoreException e) {
+					return new Status(IStatus.ERROR, "org.eclipse.core.tests.resources", e.getMessage(), e);
+				}
+			}
+		};
+		job.schedule();
+		Assert.assertTrue("Timeout, most likely a deadlock", job.join(0, getMonitor()));
+
+		BuildTimeline<IBuildConfiguration> timeline = ((Workspace) getWorkspace()).getBuildManager().getLastBuildTimeline();
+		assertNotNull("1.0", timeline);
+		List<BuildTimeline.Entry<IBuildConfiguration>> entries = timeline.getEntries();
+		assertEquals("1.1", root.getProjects().length, entries.size());
+		BuildTimeline.Entry<IBuildConfiguration> firstEntry = null;
+		BuildTimeline.Entry<IBuildConfiguration> secondEntry = null;
+		for (BuildTimeline.Entry<IBuildConfiguration> entry : entries) {
+			assertTrue("2.0", entry.getReadyTime() <= entry.getScheduleTime());
+			assertTrue("2.1", entry.getScheduleTime() <= entry.getStartTime());
+			assertTrue("2.2", entry.getStartTime() <= entry.getEndTime());
+			if (entry.getItem().getProject().equals(first))
+				firstEntry = entry;
+			else if (entry.getItem().getProject().equals(second))
+				secondEntry = entry;
+		}
+		assertNotNull("3.0", firstEntry);
+		assertNotNull("3.1", secondEntry);
+		// the head of the longest chain is started first
+		for (BuildTimeline.Entry<IBuildConfiguration> entry : entries)
+			assertTrue("3.2 " + entry, firstEntry.getScheduleTime() <= entry.getScheduleTime());
+		assertEquals("3.3", first.getActiveBuildConfig(), secondEntry.getCriticalPredecessor());
+		assertTrue("3.4", secondEntry.getStartTime() >= firstEntry.getEndTime());
+		assertEquals("3.5", BuildTimeline.WaitReason.PREDECESSORS, secondEntry.getWaitReason());
+	}
+
 	private List<Object> sequentialBuildEvents(IProject[] allProjects) {
 		List<Object> res = new ArrayList<>(allProjects.length * 2);
 		for (IProject project : allProjects) {
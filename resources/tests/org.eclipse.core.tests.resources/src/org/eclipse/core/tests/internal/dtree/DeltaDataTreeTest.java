@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.*;
 import org.eclipse.core.internal.dtree.*;
 import org.eclipse.core.internal.watson.DefaultElementComparator;
 import org.eclipse.core.runtime.IPath;
@@ -777,6 +778,55 @@ public class DeltaDataTreeTest {
 		return;
 	}
 
+	/**
+	 * Tests that searches in a chain that is long enough to get lookup
+	 * shortcuts see the contents of each tree, also after a reroot.
+	 */
+	@Test
+	public void testVeryLongDeltaChain() {
+		final int NUM_DELTAS = 100;
+		IPath oneKey = leftKey.append("one");
+		DeltaDataTree deltas[] = new DeltaDataTree[NUM_DELTAS];
+		List<SortedSet<String>> expected = new ArrayList<>();
+		SortedSet<String> children = new TreeSet<>(Arrays.asList(tree.getNamesOfChildren(leftKey)));
+
+		tree.immutable();
+		DeltaDataTree current = tree;
+		for (int i = 0; i < NUM_DELTAS; i++) {
+			current = current.newEmptyDeltaTree();
+			current.setData(oneKey, i);
+			current.createChild(leftKey, "child" + i, i);
+			children.add("child" + i);
+			if (i % 3 == 0 && i > 0) {
+				current.deleteChild(leftKey, "child" + (i - 1));
+				children.remove("child" + (i - 1));
+			}
+			if (i == NUM_DELTAS / 2) {
+				current.deleteChild(leftKey, "two");
+				children.remove("two");
+			}
+			current.immutable();
+			deltas[i] = current;
+			expected.add(new TreeSet<>(children));
+		}
+		assertChain(deltas, expected, oneKey);
+
+		deltas[NUM_DELTAS / 3].reroot();
+		assertChain(deltas, expected, oneKey);
+	}
+
+	private void assertChain(DeltaDataTree[] deltas, List<SortedSet<String>> expected, IPath oneKey) {
+		for (int i = 0; i < deltas.length; i++) {
+			DeltaDataTree delta = deltas[i];
+			assertEquals("1." + i, i, delta.getData(oneKey));
+			assertEquals("2." + i, i, delta.lookup(oneKey).data);
+			assertEquals("3." + i, new ArrayList<>(expected.get(i)), Arrays.asList(delta.getNamesOfChildren(leftKey)));
+			assertEquals("4." + i, i < deltas.length / 2, delta.includes(leftKey.append("two")));
+			assertFalse("5." + i, delta.includes(leftKey.append("child" + (i + 1))));
+			assertTrue("6." + i, delta.includes(rightKey.append("rightOfRight")));
+		}
+	}
+
 	/**
 	 * Tests operations on a chain of deltas
 	 */
@@ -945,6 +995,46 @@ public class DeltaDataTreeTest {
 
 	}
 
+	/**
+	 * Tests that packing the complete nodes of a tree keeps its contents, also
+	 * when deltas on it are changed and rerooted.
+	 */
+	@Test
+	public void testPackCompleteNodes() {
+		tree.setData(leftKey.append("two"), "data");
+		tree.packCompleteNodes();
+		tree.immutable();
+		assertTree(tree);
+		assertEquals("1.0", 3, tree.getChildCount(leftKey));
+		assertEquals("1.1", Arrays.asList("one", "three", "two"), Arrays.asList(tree.getNamesOfChildren(leftKey)));
+		assertEquals("1.2", "data", tree.getData(leftKey.append("two")));
+		assertEquals("1.3", 0, tree.getChildCount(leftKey.append("two")));
+
+		/* change the packed children in a delta */
+		DeltaDataTree delta = tree.newEmptyDeltaTree();
+		delta.createChild(leftKey, "new");
+		delta.deleteChild(leftKey, "one");
+		delta.setData(leftKey.append("two"), "changed");
+		delta.createChild(leftKey.append("three"), "child");
+		delta.packCompleteNodes();
+		delta.immutable();
+		assertEquals("2.0", Arrays.asList("new", "three", "two"), Arrays.asList(delta.getNamesOfChildren(leftKey)));
+		assertEquals("2.1", "changed", delta.getData(leftKey.append("two")));
+		assertTrue("2.2", delta.includes(leftKey.append("three").append("child")));
+
+		/* reroot at the delta and pack its complete nodes */
+		delta.reroot();
+		delta.packCompleteNodes();
+		assertNull("3.0", delta.getParent());
+		assertEquals("3.1", Arrays.asList("new", "three", "two"), Arrays.asList(delta.getNamesOfChildren(leftKey)));
+		assertEquals("3.2", "changed", delta.getData(leftKey.append("two")));
+		assertEquals("3.3", 1, delta.getChildCount(leftKey.append("three")));
+		assertTree(tree);
+		assertFalse("3.4", tree.includes(leftKey.append("new")));
+		assertEquals("3.5", "data", tree.getData(leftKey.append("two")));
+		assertEquals("3.6", 0, tree.getChildCount(leftKey.append("three")));
+	}
+
 	/**
 	 * Tests that the setUp() method is doing what it should
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2012 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -171,4 +171,56 @@ public class BlobStoreTest extends LocalStoreTest {
 		}
 		assertTrue("2.5", compareContent(getContents(content), input));
 	}
+
+	public void testAddContentBlob() throws CoreException {
+		IFileStore root = createStore();
+		BlobStore store = new BlobStore(root, 64);
+		String content = "nothing important........tnatropmi gnihton";
+
+		/* equal contents are stored once */
+		IFileStore target1 = root.getChild("target1");
+		IFileStore target2 = root.getChild("target2");
+		createFile(target1, content);
+		createFile(target2, content);
+		UniversalUniqueIdentifier key1 = store.addContentBlob(target1, false, false);
+		UniversalUniqueIdentifier key2 = store.addContentBlob(target2, true, true);
+		assertTrue("1.0", BlobStore.isContentKey(key1));
+		assertEquals("1.1", key1, key2);
+		assertTrue("1.2", target1.fetchInfo().exists());
+		assertTrue("1.3", !target2.fetchInfo().exists());
+		assertTrue("1.4", compareContent(getContents(content), store.getBlob(key1)));
+
+		/* deflated blobs */
+		IFileStore target3 = root.getChild("target3");
+		String bigContent = getBigString(100000);
+		createFile(target3, bigContent);
+		UniversalUniqueIdentifier key3 = store.addContentBlob(target3, false, true);
+		assertTrue("2.0", BlobStore.isContentKey(key3));
+		assertTrue("2.1", !key3.equals(key1));
+		assertTrue("2.2", store.fileFor(key3).fetchInfo().getLength() < bigContent.length());
+		assertTrue("2.3", compareContent(getContents(bigContent), store.getBlob(key3)));
+		assertEquals("2.4", key3, store.addContentBlob(target3, false, false));
+
+		/* blobs named by time based UUIDs are not content blobs */
+		assertTrue("3.0", !BlobStore.isContentKey(store.addBlob(target1, false)));
+	}
+
+	public void testMigrateBlob() throws CoreException {
+		IFileStore root = createStore();
+		BlobStore store = new BlobStore(root, 64);
+		String content = "nothing important........tnatropmi gnihton";
+		IFileStore target = root.getChild("target");
+		createFile(target, content);
+		UniversalUniqueIdentifier uuid1 = store.addBlob(target, false);
+		UniversalUniqueIdentifier uuid2 = store.addBlob(target, false);
+		UniversalUniqueIdentifier key1 = store.migrateBlob(uuid1, true);
+		UniversalUniqueIdentifier key2 = store.migrateBlob(uuid2, false);
+		assertTrue("1.0", BlobStore.isContentKey(key1));
+		assertEquals("1.1", key1, key2);
+		assertEquals("1.2", key1, store.addContentBlob(target, false, false));
+		assertTrue("1.3", compareContent(getContents(content), store.getBlob(key1)));
+		// the original blobs are left to the caller
+		assertTrue("1.4", store.fileFor(uuid1).fetchInfo().exists());
+		assertTrue("1.5", store.fileFor(uuid2).fetchInfo().exists());
+	}
 }
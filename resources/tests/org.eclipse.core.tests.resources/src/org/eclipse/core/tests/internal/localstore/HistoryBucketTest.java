@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2015 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,8 @@
  *******************************************************************************/
 package org.eclipse.core.tests.internal.localstore;
 
+import java.io.File;
+import java.util.Arrays;
 import org.eclipse.core.internal.localstore.Bucket.Entry;
 import org.eclipse.core.internal.localstore.HistoryBucket;
 import org.eclipse.core.internal.utils.UniversalUniqueIdentifier;
@@ -175,4 +177,104 @@ public class HistoryBucketTest extends ResourceTest {
 		assertEquals("4.6", uuid1, entry.getUUID(2));
 		assertEquals("4.7", timestamp1, entry.getTimestamp(2));
 	}
+
+	/**
+	 * This test does not cause any data to be written.
+	 */
+	public void testReferenceCounts() {
+		HistoryBucket index = new HistoryBucket();
+		IPath path1 = new Path("/foo/bar");
+		IPath path2 = new Path("/foo/baz");
+		UniversalUniqueIdentifier uuid1 = new UniversalUniqueIdentifier();
+		UniversalUniqueIdentifier uuid2 = new UniversalUniqueIdentifier();
+		assertEquals("1.0", -1, index.getReferenceCount(uuid1));
+		index.startCountingReferences();
+		index.addBlob(path1, uuid1, 1);
+		// duplicates are not counted
+		index.addBlob(path1, uuid1, 1);
+		index.addBlob(path1, uuid1, 2);
+		index.addBlob(path2, uuid1, 1);
+		index.addBlob(path2, uuid2, 3);
+		assertEquals("1.1", 3, index.getReferenceCount(uuid1));
+		assertEquals("1.2", 1, index.getReferenceCount(uuid2));
+
+		// copies count the states that were not there yet
+		index.addBlobs(new HistoryBucket.HistoryEntry(path2, index.getEntry(path1)));
+		assertEquals("2.0", 4, index.getReferenceCount(uuid1));
+		assertEquals("2.1", 3, index.getEntry(path2).getOccurrences());
+
+		index.removeReference(uuid2);
+		assertEquals("3.0", 0, index.getReferenceCount(uuid2));
+		index.removeReference(uuid2);
+		assertEquals("3.1", 0, index.getReferenceCount(uuid2));
+		index.stopCountingReferences();
+		assertEquals("3.2", -1, index.getReferenceCount(uuid1));
+	}
+
+	/**
+	 * Changes to the states of buckets that were not counted yet are left to
+	 * the counting of these buckets.
+	 */
+	public void testReferenceCountsOfUncountedBuckets() throws CoreException {
+		IPath baseLocation = getRandomLocation();
+		try {
+			File counted = baseLocation.append("counted").toFile();
+			File uncounted = baseLocation.append("uncounted").toFile();
+			HistoryBucket index = new HistoryBucket();
+			UniversalUniqueIdentifier uuid = new UniversalUniqueIdentifier();
+			IPath path = new Path("/foo/bar");
+			index.load("foo", uncounted);
+			index.addBlob(path, uuid, 1);
+			index.startCountingReferences(Arrays.asList(counted, uncounted));
+			assertFalse("1.0", index.isReferenceCountComplete());
+
+			// the counted bucket is empty
+			index.load("foo", counted);
+			index.countedReferences(counted);
+			// the counted bucket counts its changes
+			index.addBlob(path, uuid, 2);
+			assertEquals("2.0", 1, index.getReferenceCount(uuid));
+
+			// the uncounted bucket does not, until it is counted
+			index.load("foo", uncounted);
+			index.addBlob(path, uuid, 3);
+			assertEquals("3.0", 1, index.getReferenceCount(uuid));
+			index.addReferences(index.getEntry(path));
+			index.countedReferences(uncounted);
+			assertTrue("3.1", index.isReferenceCountComplete());
+			assertEquals("3.2", 3, index.getReferenceCount(uuid));
+			index.removeReference(uuid);
+			assertEquals("3.3", 2, index.getReferenceCount(uuid));
+		} finally {
+			ensureDoesNotExistInFileSystem(baseLocation.toFile());
+		}
+	}
+
+	/**
+	 * This test does not cause any data to be written.
+	 */
+	public void testSetUUID() {
+		HistoryBucket index = new HistoryBucket();
+		IPath path = new Path("/foo");
+		UniversalUniqueIdentifier uuid1 = new UniversalUniqueIdentifier();
+		UniversalUniqueIdentifier uuid2 = new UniversalUniqueIdentifier();
+		UniversalUniqueIdentifier uuid3 = new UniversalUniqueIdentifier();
+		index.addBlob(path, uuid1, 10);
+		index.addBlob(path, uuid2, 10);
+		index.addBlob(path, uuid3, 20);
+		HistoryBucket.HistoryEntry entry = index.getEntry(path);
+		// states are sorted from the newest to the oldest
+		assertEquals("1.0", uuid3, entry.getUUID(0));
+		assertTrue("1.1", entry.setUUID(0, uuid1));
+		// there is a state for uuid1 at 10 already
+		int index2 = uuid2.equals(entry.getUUID(1)) ? 1 : 2;
+		assertTrue("1.2", !entry.setUUID(index2, uuid1));
+		assertTrue("1.3", entry.isDeletedOccurrence(index2));
+		entry.visited();
+		assertEquals("2.0", 2, entry.getOccurrences());
+		assertEquals("2.1", uuid1, entry.getUUID(0));
+		assertEquals("2.2", 20, entry.getTimestamp(0));
+		assertEquals("2.3", uuid1, entry.getUUID(1));
+		assertEquals("2.4", 10, entry.getTimestamp(1));
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,13 +16,16 @@ package org.eclipse.core.tests.internal.localstore;
 
 import java.io.*;
 import java.util.*;
+import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.filesystem.provider.FileInfo;
+import org.eclipse.core.internal.localstore.HistoryStore2;
 import org.eclipse.core.internal.localstore.IHistoryStore;
 import org.eclipse.core.internal.resources.*;
 import org.eclipse.core.internal.utils.UniversalUniqueIdentifier;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.tests.resources.ResourceTest;
 
 /**
@@ -131,6 +134,19 @@ public class HistoryStoreTest extends ResourceTest {
 		return i;
 	}
 
+	/**
+	 * Saves the workspace and waits for the history clean-up it schedules.
+	 */
+	private void saveWorkspace() throws CoreException {
+		getWorkspace().save(true, null);
+		IHistoryStore store = ((Workspace) getWorkspace()).getFileSystemManager().getHistoryStore();
+		try {
+			Job.getJobManager().join(store, null);
+		} catch (InterruptedException e) {
+			fail("interrupted", e);
+		}
+	}
+
 	public IWorkspaceDescription setMaxFileStates(int maxFileStates) throws CoreException {
 		IWorkspaceDescription currentDescription = getWorkspace().getDescription();
 		IWorkspaceDescription newDescription = getWorkspace().getDescription();
@@ -235,7 +251,7 @@ public class HistoryStoreTest extends ResourceTest {
 		IFileState[] oldStates = states;
 
 		try {
-			getWorkspace().save(true, null);
+			saveWorkspace();
 			states = file.getHistory(getMonitor());
 		} catch (CoreException e) {
 			fail("1.1", e);
@@ -279,7 +295,7 @@ public class HistoryStoreTest extends ResourceTest {
 			}
 		}
 		try {
-			getWorkspace().save(true, null);
+			saveWorkspace();
 			states = file.getHistory(getMonitor());
 			// #states = size + 1 for the 0 byte length file to begin with.
 			for (int i = 0; i < states.length; i++) {
@@ -329,7 +345,7 @@ public class HistoryStoreTest extends ResourceTest {
 			fail("3.4", e);
 		}
 		try {
-			getWorkspace().save(true, null);
+			saveWorkspace();
 			states = file.getHistory(getMonitor());
 			// The 5 states for file.txt should have exceeded their longevity
 			// and been removed.  Make sure we have 0 states left.
@@ -593,6 +609,158 @@ public class HistoryStoreTest extends ResourceTest {
 		}
 	}
 
+	private IFileState addState(IHistoryStore store, IFile file, String contents, long lastModified) {
+		IFileStore source = getTempStore();
+		createFileInFileSystem(source, getContents(contents));
+		FileInfo info = new FileInfo(source.getName());
+		info.setExists(true);
+		info.setLength(contents.length());
+		info.setLastModified(lastModified);
+		return store.addState(file.getFullPath(), source, info, true);
+	}
+
+	private int countBlobs(IFileStore directory) throws CoreException {
+		int count = 0;
+		for (IFileStore child : directory.childStores(EFS.NONE, getMonitor()))
+			count += child.fetchInfo().isDirectory() ? countBlobs(child) : 1;
+		return count;
+	}
+
+	/**
+	 * Tests that states are added and read while the history is cleaned, and
+	 * that the clean-up neither loses these states nor deletes blobs they share
+	 * with pruned states.
+	 */
+	public void testConcurrentClean() throws Exception {
+		IProject project = getWorkspace().getRoot().getProject("ConcurrentCleanProject");
+		ensureExistsInWorkspace(project, true);
+		IFile[] files = new IFile[20];
+		for (int i = 0; i < files.length; i++)
+			files[i] = project.getFolder("folder" + i).getFile("file.txt");
+		IFileStore location = getTempStore();
+		location.mkdir(EFS.NONE, getMonitor());
+		HistoryStore2 store = new HistoryStore2((Workspace) getWorkspace(), location, 64, true, false);
+		try {
+			long now = System.currentTimeMillis();
+			for (IFile file : files)
+				for (int i = 0; i < 5; i++)
+					addState(store, file, "contents " + i, now - 10 + i);
+			// the first clean-up counts the references
+			store.clean(getMonitor());
+			setMaxFileStates(2);
+
+			Thread cleaner = new Thread(() -> store.clean(new NullProgressMonitor()));
+			cleaner.start();
+			IFileState[] added = new IFileState[files.length];
+			for (int i = 0; i < files.length; i++) {
+				added[i] = addState(store, files[i], "contents 0", now);
+				assertTrue("1.0." + i, store.getStates(files[i].getFullPath(), getMonitor()).length >= 2);
+			}
+			cleaner.join();
+			store.clean(getMonitor());
+
+			for (int i = 0; i < files.length; i++) {
+				IFileState[] states = store.getStates(files[i].getFullPath(), getMonitor());
+				assertEquals("2.0." + i, 2, states.length);
+				assertEquals("2.1." + i, added[i], states[0]);
+				assertTrue("2.2." + i, compareContent(getContents("contents 0"), store.getContents(states[0])));
+				assertTrue("2.3." + i, compareContent(getContents("contents 4"), store.getContents(states[1])));
+			}
+			assertEquals("3.0", 2, countBlobs(location));
+		} finally {
+			store.remove(project.getFullPath(), getMonitor());
+			store.removeGarbage();
+			store.shutdown(getMonitor());
+		}
+	}
+
+	/**
+	 * Tests a history store that keys blobs by their contents: equal contents
+	 * are stored once, and a blob is only deleted when no state references it.
+	 */
+	public void testContentAddressed() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject("ContentAddressedProject");
+		IFile file1 = project.getFile("file1.txt");
+		IFile file2 = project.getFile("file2.txt");
+		ensureExistsInWorkspace(new IResource[] {project, file1, file2}, true);
+		IFileStore location = getTempStore();
+		location.mkdir(EFS.NONE, getMonitor());
+		HistoryStore2 store = new HistoryStore2((Workspace) getWorkspace(), location, 64, true, true);
+		try {
+			long now = System.currentTimeMillis();
+			IFileState state1 = addState(store, file1, "same contents", now - 3);
+			IFileState state2 = addState(store, file1, "same contents", now - 2);
+			IFileState state3 = addState(store, file2, "same contents", now - 1);
+			assertEquals("1.0", 1, countBlobs(location));
+			assertEquals("1.1", ((FileState) state1).getUUID(), ((FileState) state2).getUUID());
+			assertEquals("1.2", ((FileState) state1).getUUID(), ((FileState) state3).getUUID());
+			assertTrue("1.3", compareContent(getContents("same contents"), store.getContents(state3)));
+			assertEquals("1.4", 2, store.getStates(file1.getFullPath(), getMonitor()).length);
+
+			IFileState state4 = addState(store, file2, "other contents", now);
+			assertEquals("2.0", 2, countBlobs(location));
+
+			// the newest state of file1 still references the shared blob
+			IWorkspaceDescription description = getWorkspace().getDescription();
+			description.setMaxFileStates(1);
+			getWorkspace().setDescription(description);
+			store.clean(getMonitor());
+			assertEquals("3.0", 1, store.getStates(file1.getFullPath(), getMonitor()).length);
+			assertEquals("3.1", 1, store.getStates(file2.getFullPath(), getMonitor()).length);
+			assertTrue("3.2", store.exists(state1));
+			assertTrue("3.3", store.exists(state4));
+
+			store.remove(file1.getFullPath(), getMonitor());
+			store.clean(getMonitor());
+			assertTrue("4.0", !store.exists(state1));
+			assertTrue("4.1", compareContent(getContents("other contents"), store.getContents(state4)));
+			assertEquals("4.2", 1, countBlobs(location));
+		} finally {
+			store.remove(project.getFullPath(), getMonitor());
+			store.removeGarbage();
+			store.shutdown(getMonitor());
+		}
+	}
+
+	/**
+	 * Tests that the blobs of a history store are migrated to content blobs,
+	 * when it starts keying blobs by their contents.
+	 */
+	public void testContentAddressedMigration() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject("ContentAddressedMigrationProject");
+		IFile file1 = project.getFile("file1.txt");
+		IFile file2 = project.getFile("file2.txt");
+		ensureExistsInWorkspace(new IResource[] {project, file1, file2}, true);
+		IFileStore location = getTempStore();
+		location.mkdir(EFS.NONE, getMonitor());
+		long now = System.currentTimeMillis();
+		HistoryStore2 store = new HistoryStore2((Workspace) getWorkspace(), location, 64);
+		addState(store, file1, "same contents", now - 2);
+		addState(store, file1, "same contents", now - 1);
+		addState(store, file2, "same contents", now);
+		assertEquals("1.0", 3, countBlobs(location));
+		store.shutdown(getMonitor());
+
+		store = new HistoryStore2((Workspace) getWorkspace(), location, 64, true, false);
+		try {
+			store.clean(getMonitor());
+			assertEquals("2.0", 1, countBlobs(location));
+			IFileState[] states = store.getStates(file1.getFullPath(), getMonitor());
+			assertEquals("2.1", 2, states.length);
+			assertEquals("2.2", now - 1, states[0].getModificationTime());
+			assertEquals("2.3", now - 2, states[1].getModificationTime());
+			for (IFileState state : states)
+				assertTrue("2.4", compareContent(getContents("same contents"), store.getContents(state)));
+			states = store.getStates(file2.getFullPath(), getMonitor());
+			assertEquals("2.5", 1, states.length);
+			assertTrue("2.6", compareContent(getContents("same contents"), store.getContents(states[0])));
+		} finally {
+			store.remove(project.getFullPath(), getMonitor());
+			store.removeGarbage();
+			store.shutdown(getMonitor());
+		}
+	}
+
 	/**
 	 * Copy case for History Store of folder when the local history is being
 	 * copied.
@@ -1630,6 +1798,36 @@ public class HistoryStoreTest extends ResourceTest {
 		}
 	}
 
+	/**
+	 * Tests that the blobs of removed states are deleted by the next clean-up,
+	 * even if it is canceled, when blobs are not keyed by their contents.
+	 */
+	public void testRemoveAndCanceledClean() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject("RemoveAndCanceledCleanProject");
+		IFile file = project.getFile("file.txt");
+		ensureExistsInWorkspace(new IResource[] {project, file}, true);
+		IFileStore location = getTempStore();
+		location.mkdir(EFS.NONE, getMonitor());
+		HistoryStore2 store = new HistoryStore2((Workspace) getWorkspace(), location, 64);
+		try {
+			long now = System.currentTimeMillis();
+			addState(store, file, "contents 1", now - 1);
+			addState(store, file, "contents 2", now);
+			assertEquals("1.0", 2, countBlobs(location));
+
+			store.remove(file.getFullPath(), getMonitor());
+			NullProgressMonitor canceled = new NullProgressMonitor();
+			canceled.setCanceled(true);
+			store.clean(canceled);
+			assertEquals("2.0", 0, store.getStates(file.getFullPath(), getMonitor()).length);
+			assertEquals("2.1", 0, countBlobs(location));
+		} finally {
+			store.remove(project.getFullPath(), getMonitor());
+			store.removeGarbage();
+			store.shutdown(getMonitor());
+		}
+	}
+
 	public void testRemoveAll() {
 
 		/* Create common objects. */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2017 IBM Corporation and others.
+ *  Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -16,20 +16,47 @@ package org.eclipse.core.tests.internal.localstore;
 
 import java.io.*;
 import java.net.URI;
-import java.util.Hashtable;
+import java.util.*;
 import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
 import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.filesystem.IFileTree;
+import org.eclipse.core.filesystem.URIUtil;
 import org.eclipse.core.internal.localstore.IUnifiedTreeVisitor;
 import org.eclipse.core.internal.localstore.UnifiedTree;
 import org.eclipse.core.internal.resources.Resource;
 import org.eclipse.core.internal.resources.Workspace;
 import org.eclipse.core.resources.*;
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.tests.internal.filesystem.wrapper.WrapperFileStore;
+import org.eclipse.core.tests.internal.filesystem.wrapper.WrapperFileSystem;
 
 public class UnifiedTreeTest extends LocalStoreTest {
 	protected static int limit = 10;
 
+	/**
+	 * A store that fails to list the children of directories named "unlistable".
+	 */
+	public static class UnlistableFileStore extends WrapperFileStore {
+		public UnlistableFileStore(IFileStore baseStore) {
+			super(baseStore);
+		}
+
+		@Override
+		public IFileInfo[] childInfos(int options, IProgressMonitor monitor) throws CoreException {
+			if ("unlistable".equals(getName())) {
+				throw new CoreException(new Status(IStatus.ERROR, PI_RESOURCES_TESTS, "This exception is thrown on purpose as part of a test"));
+			}
+			return super.childInfos(options, monitor);
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		WrapperFileSystem.setCustomFileStore(null);
+		super.tearDown();
+	}
+
 	protected void createFiles(IFileStore folder, Hashtable<String, String> set) throws Exception {
 		for (int i = 0; i < limit; i++) {
 			IFileStore child = folder.getChild("fsFile" + i);
@@ -231,6 +258,81 @@ public class UnifiedTreeTest extends LocalStoreTest {
 		assertTrue("2.0", set.isEmpty());
 	}
 
+	/**
+	 * Makes sure that listing directories ahead of the traversal does not change
+	 * the visited nodes or their order.
+	 */
+	public void testPrefetchKeepsOrder() throws Throwable {
+		IProject project = projects[0];
+		Hashtable<String, String> set = new Hashtable<>();
+		createResourcesInWorkspace(project, set);
+		createResourcesInFileSystem(((Resource) project).getStore(), set);
+		// more directories than are listed ahead at once
+		IFileStore deep = ((Resource) project).getStore().getChild("deep");
+		for (int i = 0; i < 100; i++) {
+			IFileStore child = deep.getChild("folder" + i);
+			child.mkdir(EFS.NONE, null);
+			createFiles(child, set);
+			child.getChild("nested").mkdir(EFS.NONE, null);
+		}
+
+		int[] depths = {IResource.DEPTH_ZERO, IResource.DEPTH_ONE, IResource.DEPTH_INFINITE, 1002};
+		for (int depth : depths) {
+			assertEquals("1." + depth, visit(project, depth, true, false), visit(project, depth, false, false));
+			assertEquals("2." + depth, visit(project, depth, true, true), visit(project, depth, false, true));
+		}
+	}
+
+	/**
+	 * Makes sure that a directory whose listing fails ahead of the traversal is
+	 * treated as having no children, as it is without prefetching.
+	 */
+	public void testPrefetchFailure() throws Throwable {
+		IWorkspaceRoot root = getWorkspace().getRoot();
+		String name = getUniqueString();
+		IProjectDescription description = getWorkspace().newProjectDescription(name);
+		description.setLocationURI(WrapperFileSystem.getWrappedURI(URIUtil.toURI(root.getLocation().append(name))));
+		IProject project = root.getProject(name);
+		project.create(description, getMonitor());
+		project.open(getMonitor());
+		IFolder folder = project.getFolder("unlistable");
+		ensureExistsInWorkspace(folder.getFile("child"), true);
+		ensureExistsInWorkspace(project.getFolder("listable").getFile("child"), true);
+		WrapperFileSystem.setCustomFileStore(UnlistableFileStore.class);
+
+		int[] depths = {IResource.DEPTH_ONE, IResource.DEPTH_INFINITE};
+		for (int depth : depths) {
+			List<String> serial = visit(project, depth, false, false);
+			// the wrapped file system is not listed ahead unless the tree allows it
+			UnifiedTree tree = new UnifiedTree(project) {
+				@Override
+				protected boolean canPrefetch(IFileStore store) {
+					return true;
+				}
+			};
+			assertEquals("1." + depth, serial, visit(tree, depth, false));
+		}
+		List<String> visited = visit(project, IResource.DEPTH_INFINITE, false, false);
+		assertTrue("2.0", visited.contains("2 " + folder.getFile("child").getFullPath() + " false true"));
+		assertTrue("2.1", visited.contains("2 " + project.getFolder("listable").getFile("child").getFullPath() + " true true"));
+	}
+
+	private List<String> visit(IProject project, int depth, boolean prefetch, boolean skip) throws CoreException {
+		UnifiedTree tree = new UnifiedTree(project);
+		tree.setPrefetchEnabled(prefetch);
+		return visit(tree, depth, skip);
+	}
+
+	private List<String> visit(UnifiedTree tree, int depth, boolean skip) throws CoreException {
+		List<String> visited = new ArrayList<>();
+		tree.accept(node -> {
+			visited.add(node.getLevel() + " " + node.getResource().getFullPath() + " " + node.existsInFileSystem() + " " + node.existsInWorkspace());
+			// skip some folders, in the middle of a level
+			return !skip || !node.getResource().getName().endsWith("3");
+		}, depth);
+		return visited;
+	}
+
 	/**
 	 * Regression test for 342968 - Resource layers asks IFileTree for info of linked resources
 	 */
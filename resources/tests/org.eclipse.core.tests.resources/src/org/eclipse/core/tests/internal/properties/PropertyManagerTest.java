@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -23,6 +23,7 @@ import org.eclipse.core.internal.properties.PropertyManager2;
 import org.eclipse.core.internal.resources.Workspace;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.tests.internal.localstore.LocalStoreTest;
 
 public class PropertyManagerTest extends LocalStoreTest {
@@ -422,6 +423,51 @@ public class PropertyManagerTest extends LocalStoreTest {
 
 	}
 
+	/**
+	 * Changed properties are written to disk after a delay, and can be read
+	 * both before and after that.
+	 */
+	public void testDelayedSave() throws Throwable {
+		IPropertyManager manager = new PropertyManager2((Workspace) ResourcesPlugin.getWorkspace());
+		IProject project = projects[0];
+		IFolder folder = project.getFolder("folder");
+		IFile file = folder.getFile("file.txt");
+		ensureExistsInWorkspace(new IResource[] {project, folder, file}, true);
+		QualifiedName propName = new QualifiedName("test", "prop");
+
+		manager.setProperty(project, propName, "project");
+		manager.setProperty(file, propName, "file");
+		manager.setProperty(folder, propName, "folder");
+		assertEquals("1.0", "project", manager.getProperty(project, propName));
+		assertEquals("1.1", "folder", manager.getProperty(folder, propName));
+		assertEquals("1.2", "file", manager.getProperty(file, propName));
+
+		Job.getJobManager().join(PropertyManager2.class, getMonitor());
+		IPropertyManager other = new PropertyManager2((Workspace) ResourcesPlugin.getWorkspace());
+		assertEquals("2.0", "project", other.getProperty(project, propName));
+		assertEquals("2.1", "folder", other.getProperty(folder, propName));
+		assertEquals("2.2", "file", other.getProperty(file, propName));
+		other.shutdown(getMonitor());
+		manager.shutdown(getMonitor());
+	}
+
+	/**
+	 * Properties that are only changed in memory are written to disk when the
+	 * workspace is saved.
+	 */
+	public void testSnapshotWritesProperties() throws Throwable {
+		IProject project = projects[0];
+		IFile file = project.getFile("file.txt");
+		ensureExistsInWorkspace(new IResource[] {project, file}, true);
+		QualifiedName propName = new QualifiedName("test", "prop");
+
+		file.setPersistentProperty(propName, "file");
+		ResourcesPlugin.getWorkspace().save(false, getMonitor());
+		IPropertyManager other = new PropertyManager2((Workspace) ResourcesPlugin.getWorkspace());
+		assertEquals("1.0", "file", other.getProperty(file, propName));
+		other.shutdown(getMonitor());
+	}
+
 	/**
 	 * See bug 93849.
 	 */
@@ -18,6 +18,6 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ ObjectMapTest.class, CacheTest.class, FileUtilTest.class })
+@Suite.SuiteClasses({ ObjectMapTest.class, CacheTest.class, FileUtilTest.class, ParallelLoopTest.class })
 public class AllTests {
 }
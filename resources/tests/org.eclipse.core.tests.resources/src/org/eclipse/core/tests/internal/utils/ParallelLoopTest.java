@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.internal.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.eclipse.core.internal.utils.ParallelLoop;
+import org.junit.Test;
+
+public class ParallelLoopTest {
+	private static final int COUNT = 1000;
+
+	@Test
+	public void testRunsEachIterationOnce() {
+		AtomicIntegerArray runs = new AtomicIntegerArray(COUNT);
+		ParallelLoop.run(COUNT, runs::incrementAndGet);
+		assertRunOnce(runs);
+	}
+
+	@Test
+	public void testInterruptedBefore() {
+		AtomicIntegerArray runs = new AtomicIntegerArray(COUNT);
+		Thread.currentThread().interrupt();
+		try {
+			ParallelLoop.run(COUNT, runs::incrementAndGet);
+			assertTrue("1.0", Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+		assertRunOnce(runs);
+	}
+
+	@Test
+	public void testInterruptedWhileRunning() {
+		AtomicIntegerArray runs = new AtomicIntegerArray(COUNT);
+		Thread caller = Thread.currentThread();
+		try {
+			ParallelLoop.run(COUNT, i -> {
+				if (i == COUNT / 2 && Thread.currentThread() != caller)
+					caller.interrupt();
+				runs.incrementAndGet(i);
+				try {
+					// give the caller the time to take over
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		} finally {
+			Thread.interrupted();
+		}
+		assertRunOnce(runs);
+	}
+
+	@Test
+	public void testException() {
+		IllegalStateException exception = new IllegalStateException();
+		try {
+			ParallelLoop.run(COUNT, i -> {
+				if (i == COUNT - 1)
+					throw exception;
+			});
+			fail("1.0");
+		} catch (IllegalStateException e) {
+			assertSame("1.1", exception, e);
+		}
+		assertFalse("1.2", Thread.currentThread().isInterrupted());
+	}
+
+	private static void assertRunOnce(AtomicIntegerArray runs) {
+		for (int i = 0; i < COUNT; i++)
+			assertEquals("index " + i, 1, runs.get(i));
+	}
+}
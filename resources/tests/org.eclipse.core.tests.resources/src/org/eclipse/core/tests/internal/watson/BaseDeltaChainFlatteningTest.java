@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.internal.watson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.*;
+import java.util.Arrays;
+import org.eclipse.core.internal.watson.*;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests writing and reading delta chains as deltas on a base tree.
+ */
+public class BaseDeltaChainFlatteningTest extends ElementTreeSerializationTest {
+	protected ElementTree fBase;
+	protected ElementTree[] fDeltaChain;
+
+	@Override
+	public Object doRead(ElementTreeReader reader, DataInputStream input) throws IOException {
+		return reader.readDeltaChain(input, fBase);
+	}
+
+	@Override
+	public void doTest(IPath path, int depth) {
+		ElementTree[] refried = (ElementTree[]) doPipeTest();
+		assertEquals("1.0", fDeltaChain.length, refried.length);
+		for (int j = 0; j < refried.length; j++) {
+			TestUtil.assertEqualTrees("1.1." + j, fDeltaChain[j], refried[j]);
+		}
+	}
+
+	@Override
+	public void doWrite(ElementTreeWriter writer, DataOutputStream output) throws IOException {
+		writer.writeDeltaChain(fDeltaChain, fBase, output, DefaultElementComparator.getComparator());
+	}
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		fTree = TestUtil.createTestElementTree();
+		ElementTree[] trees = TestUtil.doManyRoutineOperations(fTree, project1);
+		/* the chain contains trees that are older and newer than the base */
+		fBase = trees[trees.length / 2];
+		fDeltaChain = Arrays.copyOfRange(trees, 1, trees.length);
+		TestUtil.scramble(fDeltaChain);
+	}
+
+	@Test
+	public void test0() {
+		doTest(Path.ROOT, ElementTreeWriter.D_INFINITE);
+	}
+
+	/**
+	 * Trees that are identical to the base tree have empty deltas.
+	 */
+	@Test
+	public void testBaseInChain() {
+		fDeltaChain = new ElementTree[] {fBase};
+		doTest(Path.ROOT, ElementTreeWriter.D_INFINITE);
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.internal.watson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.*;
+import java.util.*;
+import org.eclipse.core.internal.dtree.AbstractDataTreeNode;
+import org.eclipse.core.internal.dtree.DeltaDataTree;
+import org.eclipse.core.internal.watson.*;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests writing and reading delta chains in segments, one for every node
+ * below the root.
+ */
+public class SegmentedDeltaChainFlatteningTest extends ElementTreeSerializationTest {
+	protected ElementTree[] fDeltaChain;
+
+	@Override
+	public Object doRead(ElementTreeReader reader, DataInputStream input) throws IOException {
+		int[] order = reader.readDeltaChainHeader(input);
+		int segmentCount = input.readInt();
+		Map<String, AbstractDataTreeNode[][]> segments = new HashMap<>();
+		for (int i = 0; i < segmentCount; i++) {
+			String name = input.readUTF();
+			segments.put(name, reader.readDeltaChainSegment(Path.ROOT.append(name), order.length, input));
+		}
+		return reader.readDeltaChainLayers(order, segments::get, input);
+	}
+
+	@Override
+	public void doTest(IPath path, int depth) {
+		ElementTree[] refried = (ElementTree[]) doPipeTest();
+		assertEquals("1.0", fDeltaChain.length, refried.length);
+		for (int j = 0; j < refried.length; j++) {
+			TestUtil.assertEqualTrees("1.1." + j, fDeltaChain[j], refried[j]);
+		}
+	}
+
+	@Override
+	public void doWrite(ElementTreeWriter writer, DataOutputStream output) throws IOException {
+		DeltaDataTree[] layers = writer.writeDeltaChainHeader(fDeltaChain, output, DefaultElementComparator.getComparator());
+		Set<String> names = new LinkedHashSet<>();
+		for (ElementTree tree : fDeltaChain) {
+			for (IPath child : tree.getChildren(Path.ROOT)) {
+				names.add(child.lastSegment());
+			}
+		}
+		output.writeInt(names.size());
+		// write the segments in reverse order, which must not matter
+		List<String> reversed = new ArrayList<>(names);
+		Collections.reverse(reversed);
+		for (String name : reversed) {
+			output.writeUTF(name);
+			writer.writeDeltaChainSegment(layers, Path.ROOT.append(name), output);
+		}
+		writer.writeDeltaChainLayers(layers, output);
+	}
+
+	@Override
+	@Before
+	public void setUp() throws Exception {
+		super.setUp();
+		IPath other = Path.ROOT.append("other");
+		fTree = TestUtil.createTestElementTree();
+		fTree.createElement(other, "other");
+		fTree.createElement(other.append("child"), "child");
+		List<ElementTree> trees = new ArrayList<>(Arrays.asList(TestUtil.doManyRoutineOperations(fTree, project1)));
+		/* remove and add nodes below the root */
+		ElementTree tree = trees.get(trees.size() - 1).newEmptyDelta();
+		tree.deleteElement(other);
+		tree.createElement(Path.ROOT.append("new"), "new");
+		tree.createElement(Path.ROOT.append("new").append("child"), "child");
+		tree.immutable();
+		trees.add(tree);
+		tree = tree.newEmptyDelta();
+		tree.setElementData(Path.ROOT.append("new").append("child"), "changed");
+		tree.immutable();
+		trees.add(tree);
+		fDeltaChain = trees.toArray(new ElementTree[trees.size()]);
+		TestUtil.scramble(fDeltaChain);
+	}
+
+	@Test
+	public void test0() {
+		doTest(Path.ROOT, ElementTreeWriter.D_INFINITE);
+	}
+}
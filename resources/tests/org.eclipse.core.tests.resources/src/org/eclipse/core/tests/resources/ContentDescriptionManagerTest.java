@@ -15,9 +15,9 @@ package org.eclipse.core.tests.resources;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import org.eclipse.core.internal.content.*;
-import org.eclipse.core.internal.resources.ContentDescriptionManager;
-import org.eclipse.core.internal.resources.Workspace;
+import org.eclipse.core.internal.resources.*;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.content.*;
@@ -193,6 +193,53 @@ public class ContentDescriptionManagerTest extends ResourceTest {
 		}
 	}
 
+	/**
+	 * Descriptions kept across sessions are valid for the stamp of the file
+	 * contents and of the content type registry they were stored with.
+	 */
+	public void testDescriptionStore() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject("MyProject");
+		IFile file = project.getFile("file.xml");
+		String bom = new String(IContentDescription.BOM_UTF_8, StandardCharsets.ISO_8859_1);
+		ensureExistsInWorkspace(file, new ByteArrayInputStream((bom + CharsetTest.SAMPLE_XML_ISO_8859_1_ENCODING).getBytes(StandardCharsets.ISO_8859_1)));
+		IContentDescription description = file.getContentDescription();
+		assertNotNull("1.0", description);
+		java.io.File location = getRandomLocation().toFile();
+		try {
+			ContentDescriptionStore store = new ContentDescriptionStore(location, 1);
+			store.put(file.getFullPath(), 10, description);
+			store.save();
+			assertTrue("1.1", location.exists());
+
+			store = new ContentDescriptionStore(location, 1);
+			IContentDescription stored = store.get(file.getFullPath(), 10, () -> null);
+			assertNotNull("2.0", stored);
+			assertEquals("2.1", description.getContentType(), stored.getContentType());
+			assertEquals("2.2", description.getCharset(), stored.getCharset());
+			assertSame("2.3", IContentDescription.BOM_UTF_8, stored.getProperty(IContentDescription.BYTE_ORDER_MARK));
+			assertEquals("2.4", description.getProperty(IContentDescription.CHARSET), stored.getProperty(IContentDescription.CHARSET));
+			// the contents changed
+			assertNull("2.5", store.get(file.getFullPath(), 11, () -> null));
+
+			// only the descriptions of a flushed project are discarded
+			IPath other = new Path("/OtherProject/file.xml");
+			store.put(other, 10, description);
+			store.discard(file.getProject().getFullPath());
+			assertNull("2.6", store.get(file.getFullPath(), 10, () -> null));
+			assertNotNull("2.7", store.get(other, 10, () -> null));
+
+			// the content type registry changed
+			store = new ContentDescriptionStore(location, 2);
+			assertNull("3.0", store.get(file.getFullPath(), 10, () -> null));
+
+			store.discardAll();
+			store.save();
+			assertFalse("4.0", location.exists());
+		} finally {
+			ensureDoesNotExistInFileSystem(location);
+		}
+	}
+
 	/**
 	 * Ensures content type-nature associations work as expected.
 	 */
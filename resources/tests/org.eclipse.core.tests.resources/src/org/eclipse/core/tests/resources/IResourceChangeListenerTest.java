@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BooleanSupplier;
 import org.eclipse.core.internal.resources.Workspace;
 import org.eclipse.core.resources.*;
@@ -1820,4 +1821,71 @@ public class IResourceChangeListenerTest extends ResourceTest {
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Tests a listener that is only interested in text files below a folder.
+	 */
+	public void testFilteredListener() throws Exception {
+		IFile inFolder = folder1.getFile("inFolder.txt");
+		IFile outsideFolder = project1.getFile("outsideFolder.txt");
+		IFile notText = folder1.getFile("notText.class");
+		AtomicReference<IResourceDelta> lastDelta = new AtomicReference<>();
+		IResourceChangeListener listener = event -> lastDelta.set(event.getDelta());
+		ResourceChangeFilter filter = new ResourceChangeFilter(new IPath[] {folder1.getFullPath()}, new String[] {"org.eclipse.core.runtime.text"}, IResourceDelta.ADDED | IResourceDelta.CHANGED, null);
+		getWorkspace().addResourceChangeListener(listener, IResourceChangeEvent.POST_CHANGE, filter, false);
+		try {
+			getWorkspace().run((IWorkspaceRunnable) monitor -> {
+				inFolder.create(getRandomContents(), true, getMonitor());
+				outsideFolder.create(getRandomContents(), true, getMonitor());
+				notText.create(getRandomContents(), true, getMonitor());
+			}, getMonitor());
+			IResourceDelta delta = lastDelta.getAndSet(null);
+			assertNotNull("1.0", delta);
+			assertNotNull("1.1", delta.findMember(inFolder.getFullPath()));
+			assertEquals("1.2", IResourceDelta.ADDED, delta.findMember(inFolder.getFullPath()).getKind());
+			assertNull("1.3", delta.findMember(outsideFolder.getFullPath()));
+			assertNull("1.4", delta.findMember(notText.getFullPath()));
+			assertEquals("1.5", 1, delta.findMember(folder1.getFullPath()).getAffectedChildren().length);
+
+			// no matching change, no notification
+			outsideFolder.setContents(getRandomContents(), true, false, getMonitor());
+			assertNull("2.0", lastDelta.get());
+			inFolder.delete(true, getMonitor());
+			assertNull("2.1", lastDelta.get());
+		} finally {
+			getWorkspace().removeResourceChangeListener(listener);
+		}
+	}
+
+	/**
+	 * Tests a listener that is notified in the background.
+	 */
+	public void testAsynchronousListener() throws Exception {
+		try {
+			getWorkspace().addResourceChangeListener(event -> {
+				// not registered
+			}, IResourceChangeEvent.PRE_CLOSE, null, true);
+			fail("1.0");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		AtomicReference<IResourceDelta> lastDelta = new AtomicReference<>();
+		AtomicReference<Thread> notifiedThread = new AtomicReference<>();
+		IResourceChangeListener listener = event -> {
+			lastDelta.set(event.getDelta());
+			notifiedThread.set(Thread.currentThread());
+		};
+		getWorkspace().addResourceChangeListener(listener, IResourceChangeEvent.POST_CHANGE, null, true);
+		try {
+			file1.setContents(getRandomContents(), true, false, getMonitor());
+			Job.getJobManager().join(org.eclipse.core.internal.events.NotificationManager.class, getMonitor());
+			IResourceDelta delta = lastDelta.get();
+			assertNotNull("2.0", delta);
+			assertEquals("2.1", IResourceDelta.CHANGED, delta.findMember(file1.getFullPath()).getKind());
+			assertTrue("2.2", (delta.findMember(file1.getFullPath()).getFlags() & IResourceDelta.CONTENT) != 0);
+			assertNotSame("2.3", Thread.currentThread(), notifiedThread.get());
+		} finally {
+			getWorkspace().removeResourceChangeListener(listener);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,6 +13,10 @@
  *******************************************************************************/
 package org.eclipse.core.tests.resources;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.internal.events.ResourceDeltaFactory;
+import org.eclipse.core.internal.resources.Workspace;
+import org.eclipse.core.internal.watson.ElementTree;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.Path;
@@ -127,4 +131,88 @@ public class IResourceDeltaTest extends ResourceTest {
 			getWorkspace().removeResourceChangeListener(listener);
 		}
 	}
+
+	/**
+	 * Tests a delta that is large enough for the deltas of the projects to be
+	 * created in parallel, including the detection of a move between them.
+	 */
+	public void testLargeDelta() {
+		final int FILES_PER_PROJECT = 600;
+		IFile movedFile = project2.getFile("Moved");
+		AtomicInteger added = new AtomicInteger();
+		IResourceChangeListener listener = event -> {
+			try {
+				event.getDelta().accept(delta -> {
+					if (delta.getResource().getName().startsWith("Added")) {
+						assertEquals("1.0", IResourceDelta.ADDED, delta.getKind());
+						added.incrementAndGet();
+					}
+					return true;
+				});
+			} catch (CoreException e) {
+				fail("1.1", e);
+			}
+			IResourceDelta moved = event.getDelta().findMember(movedFile.getFullPath());
+			assertEquals("2.0", IResourceDelta.ADDED, moved.getKind());
+			assertEquals("2.1", file1.getFullPath(), moved.getMovedFromPath());
+			IResourceDelta source = event.getDelta().findMember(file1.getFullPath());
+			assertEquals("2.2", IResourceDelta.REMOVED, source.getKind());
+			assertEquals("2.3", movedFile.getFullPath(), source.getMovedToPath());
+		};
+		IWorkspaceRunnable body = monitor -> {
+			for (IProject project : new IProject[] {project1, project2}) {
+				IFolder folder = project.getFolder("Large");
+				folder.create(true, true, getMonitor());
+				for (int i = 0; i < FILES_PER_PROJECT; i++)
+					folder.getFile("Added" + i).create(getRandomContents(), true, getMonitor());
+			}
+			file1.move(movedFile.getFullPath(), true, getMonitor());
+		};
+		getWorkspace().addResourceChangeListener(listener, IResourceChangeEvent.POST_CHANGE);
+		try {
+			getWorkspace().run(body, getMonitor());
+		} catch (CoreException e) {
+			fail("3.0", e);
+		} finally {
+			getWorkspace().removeResourceChangeListener(listener);
+		}
+		assertEquals("4.0", 2 * FILES_PER_PROJECT, added.get());
+	}
+
+	/**
+	 * Tests that a large delta is complete when it is computed by an interrupted
+	 * thread, and that the thread stays interrupted.
+	 */
+	public void testLargeDeltaInterrupted() throws CoreException {
+		final int FILES_PER_PROJECT = 600;
+		Workspace workspace = (Workspace) getWorkspace();
+		IWorkspaceRunnable body = monitor -> {
+			for (IProject project : new IProject[] {project1, project2}) {
+				IFolder folder = project.getFolder("Large");
+				folder.create(true, true, getMonitor());
+				for (int i = 0; i < FILES_PER_PROJECT; i++)
+					folder.getFile("Added" + i).create(getRandomContents(), true, getMonitor());
+			}
+		};
+		ElementTree oldTree = workspace.getElementTree();
+		workspace.run(body, getMonitor());
+		ElementTree newTree = workspace.getElementTree();
+
+		IResourceDelta delta;
+		Thread.currentThread().interrupt();
+		try {
+			delta = ResourceDeltaFactory.computeDelta(workspace, oldTree, newTree, Path.ROOT, -1);
+		} finally {
+			assertTrue("1.0", Thread.interrupted());
+		}
+		AtomicInteger added = new AtomicInteger();
+		delta.accept(child -> {
+			if (child.getResource().getName().startsWith("Added")) {
+				assertEquals("2.0", IResourceDelta.ADDED, child.getKind());
+				added.incrementAndGet();
+			}
+			return true;
+		});
+		assertEquals("2.1", 2 * FILES_PER_PROJECT, added.get());
+	}
 }
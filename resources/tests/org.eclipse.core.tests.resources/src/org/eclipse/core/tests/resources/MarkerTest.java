@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2017 IBM Corporation and others.
+ *  Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -914,6 +914,101 @@ public class MarkerTest extends ResourceTest {
 
 	}
 
+	/**
+	 * Tests that deep marker queries see the changes to the markers and to the
+	 * resources that have them.
+	 */
+	public void testFindMarkersAfterChanges() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject("testFindMarkersAfterChanges");
+		IFolder folder = project.getFolder("top");
+		IFolder sub = folder.getFolder("sub");
+		IFile topFile = folder.getFile("a.txt");
+		IFile subFile = sub.getFile("b.txt");
+		ensureExistsInWorkspace(new IResource[] {project, folder, sub, topFile, subFile}, true);
+
+		assertEquals("1.0", -1, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		IMarker problem = subFile.createMarker(IMarker.PROBLEM);
+		problem.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_WARNING);
+		assertEquals("1.1", IMarker.SEVERITY_WARNING, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		assertEquals("1.2", IMarker.SEVERITY_WARNING, project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+
+		// the second change of an operation does not create a marker delta
+		getWorkspace().run((IWorkspaceRunnable) monitor -> {
+			problem.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_INFO);
+			problem.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+		}, getMonitor());
+		assertEquals("2.0", IMarker.SEVERITY_ERROR, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		assertEquals("2.1", -1, folder.findMaxProblemSeverity(IMarker.TASK, true, IResource.DEPTH_INFINITE));
+
+		IMarker task = topFile.createMarker(IMarker.TASK);
+		assertEquals("3.0", new IMarker[] {problem}, project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		assertEquals("3.1", new IMarker[] {task}, project.findMarkers(IMarker.TASK, false, IResource.DEPTH_INFINITE));
+		assertEquals("3.2", new IMarker[] {problem, task}, project.findMarkers(null, false, IResource.DEPTH_INFINITE));
+		assertEquals("3.3", new IMarker[] {problem}, sub.findMarkers(null, false, IResource.DEPTH_INFINITE));
+		assertEquals("3.4", new IMarker[] {problem, task}, project.findMarkers(IMarker.MARKER, true, IResource.DEPTH_INFINITE));
+
+		// the markers move along with their resources
+		IFolder moved = project.getFolder("moved");
+		sub.move(moved.getFullPath(), true, getMonitor());
+		assertEquals("4.0", -1, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		assertEquals("4.1", IMarker.SEVERITY_ERROR, moved.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		IMarker[] markers = project.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE);
+		assertEquals("4.2", 1, markers.length);
+		assertEquals("4.3", moved.getFile(subFile.getName()), markers[0].getResource());
+
+		// deleted resources take their markers along
+		moved.delete(true, getMonitor());
+		ensureExistsInWorkspace(moved.getFile(subFile.getName()), true);
+		assertEquals("5.0", -1, moved.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		assertEquals("5.1", -1, project.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		assertEquals("5.2", new IMarker[] {task}, project.findMarkers(null, false, IResource.DEPTH_INFINITE));
+
+		// closing and opening the project restores the markers
+		createProblem(topFile, IMarker.SEVERITY_ERROR);
+		project.close(getMonitor());
+		assertEquals("6.0", -1, getWorkspace().getRoot().findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		project.open(getMonitor());
+		assertEquals("6.1", IMarker.SEVERITY_ERROR, getWorkspace().getRoot().findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+		assertEquals("6.2", 2, project.findMarkers(null, true, IResource.DEPTH_INFINITE).length);
+	}
+
+	/**
+	 * Tests that deep marker queries don't see the markers of resources that
+	 * were kept as phantoms because they have sync info.
+	 */
+	public void testFindMarkersOfPhantoms() throws CoreException {
+		IProject project = getWorkspace().getRoot().getProject("testFindMarkersOfPhantoms");
+		IFolder folder = project.getFolder("top");
+		IFile deleted = folder.getFile("deleted.txt");
+		IFile moved = folder.getFile("moved.txt");
+		ensureExistsInWorkspace(new IResource[] {project, folder, deleted, moved}, true);
+		QualifiedName partner = new QualifiedName("org.eclipse.core.tests.resources", "testFindMarkersOfPhantoms");
+		ISynchronizer synchronizer = getWorkspace().getSynchronizer();
+		synchronizer.add(partner);
+		try {
+			synchronizer.setSyncInfo(partner, deleted, new byte[] {1});
+			synchronizer.setSyncInfo(partner, moved, new byte[] {1});
+			createProblem(deleted, IMarker.SEVERITY_ERROR);
+			assertEquals("1.0", IMarker.SEVERITY_ERROR, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+
+			deleted.delete(true, getMonitor());
+			assertTrue("2.0", deleted.isPhantom());
+			assertEquals("2.1", -1, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+			assertEquals("2.2", 0, folder.findMarkers(null, true, IResource.DEPTH_INFINITE).length);
+
+			createProblem(moved, IMarker.SEVERITY_WARNING);
+			assertEquals("3.0", IMarker.SEVERITY_WARNING, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+			IFile destination = project.getFile("moved.txt");
+			moved.move(destination.getFullPath(), true, getMonitor());
+			assertTrue("4.0", moved.isPhantom());
+			assertEquals("4.1", -1, folder.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+			assertEquals("4.2", IMarker.SEVERITY_WARNING, destination.findMaxProblemSeverity(IMarker.PROBLEM, true, IResource.DEPTH_INFINITE));
+			assertEquals("4.3", 1, project.findMarkers(null, true, IResource.DEPTH_INFINITE).length);
+		} finally {
+			synchronizer.remove(partner);
+		}
+	}
+
 	/**
 	 * Tests public API method IMarker#isSubTypeOf
 	 */
@@ -1878,6 +1973,74 @@ public class MarkerTest extends ResourceTest {
 		assertTrue("5.0", marker.exists());
 	}
 
+	/**
+	 * Tests that replacing markers only adds and removes the markers that changed.
+	 */
+	public void testReplaceMarkers() throws CoreException {
+		IFile file = getWorkspace().getRoot().getProject("testReplaceMarkers").getFile("a.txt");
+		ensureExistsInWorkspace(file, true);
+		IMarker first = file.createMarker(IMarker.PROBLEM, Map.of(IMarker.MESSAGE, "first", IMarker.SEVERITY, IMarker.SEVERITY_ERROR));
+		IMarker second = file.createMarker(IMarker.PROBLEM, Map.of(IMarker.MESSAGE, "second"));
+		IMarker task = file.createMarker(IMarker.TASK, Map.of(IMarker.MESSAGE, "first"));
+
+		MarkersChangeListener listener = new MarkersChangeListener();
+		addResourceChangeListener(listener);
+		try {
+			file.replaceMarkers(IMarker.PROBLEM, false, List.of(Map.of(IMarker.SEVERITY, IMarker.SEVERITY_ERROR, IMarker.MESSAGE, "first"), Map.of(IMarker.MESSAGE, "third")));
+			IMarker[] problems = file.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO);
+			assertEquals("1.0", 2, problems.length);
+			IMarker third = problems[0].equals(first) ? problems[1] : problems[0];
+			assertTrue("1.1", first.exists());
+			assertFalse("1.2", second.exists());
+			assertTrue("1.3", task.exists());
+			assertEquals("1.4", "third", third.getAttribute(IMarker.MESSAGE));
+			assertEquals("1.5", 1, listener.numAffectedResources());
+			assertTrue("1.6", listener.checkChanges(file, new IMarker[] {third}, new IMarker[] {second}, null));
+
+			// publishing the same markers again changes nothing
+			listener.reset();
+			file.replaceMarkers(IMarker.PROBLEM, false, List.of(Map.of(IMarker.MESSAGE, "third"), Map.of(IMarker.MESSAGE, "first", IMarker.SEVERITY, IMarker.SEVERITY_ERROR)));
+			assertEquals("2.0", 0, listener.numAffectedResources());
+			assertEquals("2.1", new IMarker[] {first, third}, file.findMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO));
+
+			// markers of subtypes are only replaced on request
+			listener.reset();
+			file.replaceMarkers(IMarker.MARKER, true, List.of());
+			assertEquals("3.0", 0, file.findMarkers(null, false, IResource.DEPTH_ZERO).length);
+			assertTrue("3.1", listener.checkChanges(file, null, new IMarker[] {first, third, task}, null));
+		} finally {
+			removeResourceChangeListener(listener);
+		}
+
+		// nothing is replaced if one of the resources does not exist
+		IFile missing = file.getProject().getFile("missing.txt");
+		Map<IResource, List<Map<String, Object>>> replacements = new LinkedHashMap<>();
+		replacements.put(file, List.of(Map.of(IMarker.MESSAGE, "fourth")));
+		replacements.put(missing, List.of());
+		try {
+			getWorkspace().replaceMarkers(IMarker.PROBLEM, false, replacements);
+			fail("4.0");
+		} catch (CoreException e) {
+			// expected
+		}
+		assertEquals("4.1", 0, file.findMarkers(null, false, IResource.DEPTH_ZERO).length);
+
+		// nor if the attributes of a marker of another resource are invalid
+		IFile other = file.getProject().getFile("b.txt");
+		ensureExistsInWorkspace(other, true);
+		replacements.clear();
+		replacements.put(file, List.of(Map.of(IMarker.MESSAGE, "fourth")));
+		replacements.put(other, List.of(Map.of(IMarker.MESSAGE, Long.valueOf(5))));
+		try {
+			getWorkspace().replaceMarkers(IMarker.PROBLEM, false, replacements);
+			fail("5.0");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals("5.1", 0, file.findMarkers(null, false, IResource.DEPTH_ZERO).length);
+		assertEquals("5.2", 0, other.findMarkers(null, false, IResource.DEPTH_ZERO).length);
+	}
+
 	public void testSetGetAttribute() {
 		debug("testSetGetAttribute");
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2018 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -29,6 +29,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import org.eclipse.core.internal.content.*;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.content.*;
@@ -973,6 +974,70 @@ public class IContentTypeManagerTest extends ContentTypeTest {
 		assertEquals("Text content should now match *Text* files", textContentType, single);
 	}
 
+	@Test
+	public void testFindContentTypeUserPatterns() throws IOException, CoreException {
+		IContentTypeManager contentTypeManager = Platform.getContentTypeManager();
+		IContentTypeMatcher finder = contentTypeManager.getMatcher(new LocalSelectionPolicy(), null);
+		IContentType textContentType = contentTypeManager.getContentType(Platform.PI_RUNTIME + '.' + "text");
+		String[] patterns = {"exactUserPattern.bug", "prefixUserPattern*", "*.suffixUserPattern", "middle?UserPattern*.bug"};
+		for (String pattern : patterns)
+			textContentType.addFileSpec(pattern, IContentType.FILE_PATTERN_SPEC);
+		try {
+			assertEquals("1.0", textContentType, finder.findContentTypeFor(getInputStream("Just a test"), "exactUserPattern.bug"));
+			assertNull("1.1", finder.findContentTypeFor(getInputStream("Just a test"), "exactUserPattern.bugs"));
+			assertEquals("2.0", textContentType, finder.findContentTypeFor(getInputStream("Just a test"), "prefixUserPattern.unknown"));
+			assertNull("2.1", finder.findContentTypeFor(getInputStream("Just a test"), "aprefixUserPattern.unknown"));
+			assertEquals("3.0", textContentType, finder.findContentTypeFor(getInputStream("Just a test"), "file.suffixUserPattern"));
+			assertNull("3.1", finder.findContentTypeFor(getInputStream("Just a test"), "file.suffixUserPatterns"));
+			assertEquals("4.0", textContentType, finder.findContentTypeFor(getInputStream("Just a test"), "middleXUserPattern.some.bug"));
+			assertNull("4.1", finder.findContentTypeFor(getInputStream("Just a test"), "middleUserPattern.bug"));
+		} finally {
+			for (String pattern : patterns)
+				textContentType.removeFileSpec(pattern, IContentType.FILE_PATTERN_SPEC);
+		}
+		assertNull("5.0", finder.findContentTypeFor(getInputStream("Just a test"), "exactUserPattern.bug"));
+		assertNull("5.1", finder.findContentTypeFor(getInputStream("Just a test"), "prefixUserPattern.unknown"));
+	}
+
+	/**
+	 * Lookups running concurrently with changes of the file associations must
+	 * always see either the old or the new associations.
+	 */
+	@Test
+	public void testConcurrentLookups() throws Throwable {
+		IContentTypeManager contentTypeManager = Platform.getContentTypeManager();
+		IContentType textContentType = contentTypeManager.getContentType(IContentTypeManager.CT_TEXT);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] readers = new Thread[4];
+		for (int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread(() -> {
+				try {
+					for (int j = 0; j < 2000; j++) {
+						IContentType[] found = contentTypeManager.findContentTypesFor("file.txt");
+						assertTrue("1.0", found.length > 0);
+						assertEquals("1.1", IContentTypeManager.CT_TEXT, found[0].getId());
+						found = contentTypeManager.findContentTypesFor("file.concurrentlookup");
+						assertTrue("1.2", found.length == 0 || found[0].equals(textContentType));
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			}, "Content type lookup " + i);
+			readers[i].start();
+		}
+		try {
+			for (int i = 0; i < 20; i++) {
+				textContentType.addFileSpec("concurrentlookup", IContentType.FILE_EXTENSION_SPEC);
+				textContentType.removeFileSpec("concurrentlookup", IContentType.FILE_EXTENSION_SPEC);
+			}
+		} finally {
+			for (Thread reader : readers)
+				reader.join();
+		}
+		if (failure.get() != null)
+			throw failure.get();
+	}
+
 	@Test
 	public void testImportFileAssociation() throws CoreException {
 		IContentTypeManager contentTypeManager = Platform.getContentTypeManager();
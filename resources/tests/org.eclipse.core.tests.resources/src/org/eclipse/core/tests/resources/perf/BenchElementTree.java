@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -61,6 +61,25 @@ public class BenchElementTree extends OldCorePerformanceTest {
 		}.run(this, 10, 400);
 	}
 
+	/**
+	 * Tests the performance of looking up elements and iterating over their
+	 * children, using the names found in the tree like a resource visitor does.
+	 */
+	public void testLookupAndChildren() {
+		final ElementTree tree = createTestTree(true);
+		tree.immutable();
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				for (String name : tree.getNamesOfChildren(folder)) {
+					IPath file = folder.append(name);
+					tree.getElementData(file);
+					tree.getChildCount(file);
+				}
+			}
+		}.run(this, 10, 2000);
+	}
+
 	/**
 	 * Tests the performance of the deleteElement operation.
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2017 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,9 +13,12 @@
  *******************************************************************************/
 package org.eclipse.core.tests.resources.perf;
 
+import org.eclipse.core.internal.events.ResourceDeltaFactory;
 import org.eclipse.core.internal.resources.Workspace;
+import org.eclipse.core.internal.watson.ElementTree;
 import org.eclipse.core.resources.*;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.tests.harness.PerformanceTestRunner;
 import org.eclipse.core.tests.resources.ResourceTest;
 
@@ -153,6 +156,41 @@ public class BenchWorkspace extends ResourceTest {
 		}.run(this, 10, 100);
 	}
 
+	/**
+	 * Tests computing the delta of a change to every file in several projects.
+	 */
+	public void testComputeDelta() {
+		final Workspace workspace = (Workspace) getWorkspace();
+		final IProject[] projects = new IProject[4];
+		IWorkspaceRunnable create = monitor -> {
+			for (int i = 0; i < projects.length; i++) {
+				projects[i] = getWorkspace().getRoot().getProject("DeltaProject" + i);
+				ensureExistsInWorkspace(buildResources(projects[i], defineHierarchy()), true);
+			}
+		};
+		IWorkspaceRunnable touch = monitor -> workspace.getRoot().accept(resource -> {
+			resource.touch(null);
+			return true;
+		});
+		try {
+			workspace.run(create, getMonitor());
+			waitForBackgroundActivity();
+			final ElementTree oldTree = workspace.getElementTree();
+			workspace.run(touch, getMonitor());
+			final ElementTree newTree = workspace.getElementTree();
+			new PerformanceTestRunner() {
+				@Override
+				protected void test() {
+					ResourceDeltaFactory.computeDelta(workspace, oldTree, newTree, Path.ROOT, -1);
+				}
+			}.run(this, 10, 5);
+			for (IProject p : projects)
+				p.delete(true, true, null);
+		} catch (CoreException e) {
+			fail("1.0", e);
+		}
+	}
+
 	/**
 	 * Waits until background activity settles down before running a performance test.
 	 *
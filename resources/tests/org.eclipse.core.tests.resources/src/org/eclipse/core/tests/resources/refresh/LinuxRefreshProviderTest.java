@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM - Initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.resources.refresh;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.core.internal.resources.refresh.linux.LinuxRefreshProvider;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.resources.refresh.IRefreshMonitor;
+import org.eclipse.core.resources.refresh.IRefreshResult;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.tests.resources.ResourceTest;
+
+/**
+ * Tests the watch service based refresh provider against the local file
+ * system. Only runs on Linux, where the provider is enabled.
+ */
+public class LinuxRefreshProviderTest extends ResourceTest {
+	private static final long TIMEOUT = 10_000;
+
+	/**
+	 * Records the refresh requests of a monitor.
+	 */
+	static class RecordingResult implements IRefreshResult {
+		final Set<IResource> refreshed = ConcurrentHashMap.newKeySet();
+		final List<IResource> failed = Collections.synchronizedList(new ArrayList<>());
+		volatile int requests;
+
+		@Override
+		public void monitorFailed(IRefreshMonitor monitor, IResource resource) {
+			failed.add(resource);
+		}
+
+		@Override
+		public void refresh(IResource resource) {
+			requests++;
+			refreshed.add(resource);
+		}
+
+		boolean waitForRefresh(IResource... resources) throws InterruptedException {
+			long end = System.currentTimeMillis() + TIMEOUT;
+			while (System.currentTimeMillis() < end) {
+				for (IResource resource : resources)
+					if (refreshed.contains(resource))
+						return true;
+				Thread.sleep(20);
+			}
+			return false;
+		}
+	}
+
+	private IProject project;
+	private RecordingResult result;
+	private IRefreshMonitor monitor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		project = getWorkspace().getRoot().getProject("LinuxRefreshProviderTest");
+		ensureExistsInWorkspace(project, true);
+		result = new RecordingResult();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (monitor != null)
+			monitor.unmonitor(null);
+		super.tearDown();
+	}
+
+	private boolean installMonitor() {
+		if (!Platform.OS_LINUX.equals(Platform.getOS()))
+			return false;
+		monitor = new LinuxRefreshProvider().installMonitor(project, result, getMonitor());
+		assertNotNull("monitor not installed", monitor);
+		return true;
+	}
+
+	private Path getLocation(IResource resource) {
+		return resource.getLocation().toFile().toPath();
+	}
+
+	public void testCreateFile() throws Exception {
+		if (!installMonitor())
+			return;
+		IFile file = project.getFile("file.txt");
+		Files.write(getLocation(file), new byte[] {1});
+		assertTrue("1.0", result.waitForRefresh(file));
+		assertTrue("1.1", result.failed.isEmpty());
+	}
+
+	public void testModifyAndDeleteFile() throws Exception {
+		IFile file = project.getFile("file.txt");
+		ensureExistsInWorkspace(file, "contents");
+		if (!installMonitor())
+			return;
+		Files.write(getLocation(file), new byte[] {1});
+		assertTrue("1.0", result.waitForRefresh(file));
+		result.refreshed.clear();
+		Files.delete(getLocation(file));
+		assertTrue("2.0", result.waitForRefresh(file));
+	}
+
+	/**
+	 * Directories created after the monitor was installed must be monitored as well.
+	 */
+	public void testCreateFileInNewFolder() throws Exception {
+		if (!installMonitor())
+			return;
+		IFolder folder = project.getFolder("folder");
+		Files.createDirectory(getLocation(folder));
+		assertTrue("1.0", result.waitForRefresh(folder));
+		result.refreshed.clear();
+		IFile file = folder.getFile("file.txt");
+		Files.write(getLocation(file), new byte[] {1});
+		assertTrue("2.0", result.waitForRefresh(file));
+	}
+
+	/**
+	 * Directories that existed when the monitor was installed are registered in
+	 * the background.
+	 */
+	public void testExistingFolder() throws Exception {
+		IFolder folder = project.getFolder("a").getFolder("b").getFolder("c");
+		ensureExistsInWorkspace(folder, true);
+		if (!installMonitor())
+			return;
+		IFile file = folder.getFile("file.txt");
+		long end = System.currentTimeMillis() + TIMEOUT;
+		// the folder may not be registered yet, touch the file until it is
+		while (!result.refreshed.contains(file) && System.currentTimeMillis() < end) {
+			Files.write(getLocation(file), new byte[] {1});
+			Thread.sleep(100);
+		}
+		assertTrue("1.0", result.refreshed.contains(file));
+	}
+
+	/**
+	 * Changes made in a directory before the monitor job got to register it
+	 * must be reported once it is registered.
+	 */
+	public void testChangeBeforeRegistration() throws Exception {
+		// more directories than are registered in one run of the monitor job,
+		// all known to the workspace, so that only the change is reported
+		Path location = getLocation(project);
+		for (int i = 0; i < 2500; i++)
+			Files.createDirectory(location.resolve("folder" + i));
+		IFolder folder = project.getFolder("a").getFolder("b").getFolder("c");
+		IFile file = folder.getFile("file.txt");
+		ensureExistsInWorkspace(file, "contents");
+		project.refreshLocal(IResource.DEPTH_INFINITE, getMonitor());
+		if (!installMonitor())
+			return;
+		// change the file once, most likely before its directory is registered
+		Files.write(getLocation(file), new byte[] {1});
+		assertTrue("1.0", result.waitForRefresh(file));
+		assertFalse("1.1", result.refreshed.contains(project));
+	}
+
+	/**
+	 * Many changes in one directory are reported as a refresh of the directory.
+	 */
+	public void testEventStorm() throws Exception {
+		if (!installMonitor())
+			return;
+		Path location = getLocation(project);
+		int count = 1000;
+		for (int i = 0; i < count; i++)
+			Files.write(location.resolve("file" + i + ".txt"), new byte[] {1});
+		assertTrue("1.0", result.waitForRefresh(project));
+		assertTrue("1.1: " + result.requests, result.requests < count);
+	}
+
+	public void testUnmonitor() throws Exception {
+		if (!installMonitor())
+			return;
+		monitor.unmonitor(project);
+		Files.write(getLocation(project.getFile("file.txt")), new byte[] {1});
+		Thread.sleep(2000);
+		assertTrue("1.0", result.refreshed.isEmpty());
+	}
+}
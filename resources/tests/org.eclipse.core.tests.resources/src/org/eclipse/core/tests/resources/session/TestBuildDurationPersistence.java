@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.resources.session;
+
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.Test;
+import org.eclipse.core.internal.events.BuildManager;
+import org.eclipse.core.internal.resources.Workspace;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.tests.internal.builders.TimerBuilder;
+import org.eclipse.core.tests.resources.AutomatedTests;
+import org.eclipse.core.tests.resources.WorkspaceSessionTest;
+import org.eclipse.core.tests.session.WorkspaceSessionTestSuite;
+
+/**
+ * Tests that the build durations estimated by parallel builds are kept
+ * across sessions.
+ */
+public class TestBuildDurationPersistence extends WorkspaceSessionTest {
+	private static final int BUILD_DURATION = 200;
+
+	private IProject project1;
+	private IProject project2;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		IWorkspaceRoot root = getWorkspace().getRoot();
+		project1 = root.getProject("Project1");
+		project2 = root.getProject("Project2");
+	}
+
+	private void configureTimerBuilder(IProject project) throws CoreException {
+		IProjectDescription description = project.getDescription();
+		ICommand command = description.newCommand();
+		Map<String, String> args = new HashMap<>();
+		args.put(TimerBuilder.DURATION_ARG, Integer.toString(BUILD_DURATION));
+		args.put(TimerBuilder.RULE_TYPE_ARG, TimerBuilder.RuleType.NO_CONFLICT.toString());
+		command.setBuilderName(TimerBuilder.BUILDER_NAME);
+		command.setArguments(args);
+		description.setBuildSpec(new ICommand[] {command});
+		project.setDescription(description, getMonitor());
+	}
+
+	/**
+	 * Builds the projects in parallel.
+	 */
+	public void test1() throws CoreException {
+		ensureExistsInWorkspace(new IResource[] {project1, project2}, true);
+		IWorkspaceDescription description = getWorkspace().getDescription();
+		description.setAutoBuilding(false);
+		description.setMaxConcurrentBuilds(2);
+		getWorkspace().setDescription(description);
+		configureTimerBuilder(project1);
+		configureTimerBuilder(project2);
+
+		getWorkspace().build(IncrementalProjectBuilder.FULL_BUILD, getMonitor());
+		BuildManager buildManager = ((Workspace) getWorkspace()).getBuildManager();
+		assertTrue("1.0", buildManager.getEstimatedBuildDuration(project1.getActiveBuildConfig(), IncrementalProjectBuilder.FULL_BUILD) >= BUILD_DURATION);
+
+		getWorkspace().save(true, getMonitor());
+	}
+
+	/**
+	 * Checks that the durations of the previous session are known.
+	 */
+	public void test2() throws CoreException {
+		BuildManager buildManager = ((Workspace) getWorkspace()).getBuildManager();
+		for (IProject project : new IProject[] {project1, project2})
+			assertTrue("1.0", buildManager.getEstimatedBuildDuration(project.getActiveBuildConfig(), IncrementalProjectBuilder.FULL_BUILD) >= BUILD_DURATION);
+		assertEquals("2.0", -1, buildManager.getEstimatedBuildDuration(project1.getActiveBuildConfig(), IncrementalProjectBuilder.INCREMENTAL_BUILD));
+	}
+
+	public static Test suite() {
+		return new WorkspaceSessionTestSuite(AutomatedTests.PI_RESOURCES_TESTS, TestBuildDurationPersistence.class);
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.resources.session;
+
+import java.io.*;
+import junit.framework.Test;
+import org.eclipse.core.internal.resources.ICoreConstants;
+import org.eclipse.core.internal.resources.Workspace;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.tests.resources.AutomatedTests;
+import org.eclipse.core.tests.session.SetupManager.SetupException;
+import org.eclipse.core.tests.session.WorkspaceSessionTestSuite;
+
+/**
+ * Tests saving the workspace tree as deltas on the last complete tree file,
+ * restoring it in the next session, and writing a complete tree file again
+ * once the deltas have grown too large.
+ */
+public class TestDeltaTreeSave extends WorkspaceSerializationTest {
+
+	@Override
+	public String[] defineHierarchy() {
+		// large enough for the deltas of a few changes to be much smaller
+		String[] hierarchy = new String[55];
+		hierarchy[0] = "/P1/";
+		hierarchy[1] = "/P1/folder/";
+		hierarchy[2] = "/P1/file";
+		hierarchy[3] = "/P2/";
+		hierarchy[4] = "/P2/file";
+		for (int i = 5; i < hierarchy.length; i++)
+			hierarchy[i] = "/P1/folder/file" + i;
+		return hierarchy;
+	}
+
+	/**
+	 * Returns the sequence number of the base tree file of the delta tree
+	 * file with the given sequence number.
+	 */
+	private int readBaseSequenceNumber(int sequenceNumber) throws IOException {
+		File treeFile = ((Workspace) workspace).getMetaArea().getTreeLocationFor(workspace.getRoot(), sequenceNumber).toFile();
+		try (DataInputStream input = new DataInputStream(new FileInputStream(treeFile))) {
+			assertEquals("version", ICoreConstants.WORKSPACE_TREE_VERSION_4, input.readInt());
+			return input.readInt();
+		}
+	}
+
+	private boolean treeFileExists(int sequenceNumber) {
+		return ((Workspace) workspace).getMetaArea().getTreeLocationFor(workspace.getRoot(), sequenceNumber).toFile().exists();
+	}
+
+	public void test1() throws Exception {
+		ensureExistsInWorkspace(buildResources(), true);
+
+		// the first save writes the complete tree
+		workspace.save(true, getMonitor());
+		int base = getTreeSequenceNumber();
+		assertEquals("1.0", ICoreConstants.WORKSPACE_TREE_VERSION_2, readTreeVersion(base));
+
+		// the next one only the deltas
+		getWorkspace().getRoot().getProject("P1").getFile("file").setContents(getRandomContents(), true, false, getMonitor());
+		workspace.save(true, getMonitor());
+		int sequenceNumber = getTreeSequenceNumber();
+		assertTrue("1.1", sequenceNumber != base);
+		assertEquals("1.2", base, readBaseSequenceNumber(sequenceNumber));
+		assertTrue("1.3", treeFileExists(base));
+		storeTreeDescription();
+	}
+
+	public void test2() throws Exception {
+		assertTreeDescriptionRestored("2.0");
+		assertExistsInWorkspace("2.1", buildResources());
+		int base = readBaseSequenceNumber(getTreeSequenceNumber());
+
+		// grow the deltas past half the size of the base tree file
+		IFolder folder = getWorkspace().getRoot().getProject("P2").getFolder("many");
+		ensureExistsInWorkspace(folder, true);
+		for (int i = 0; i < 200; i++)
+			ensureExistsInWorkspace(folder.getFile("file" + i), true);
+		workspace.save(true, getMonitor());
+		assertEquals("2.2", base, readBaseSequenceNumber(getTreeSequenceNumber()));
+
+		// the next save compacts the deltas into a complete tree file
+		workspace.save(true, getMonitor());
+		int compacted = getTreeSequenceNumber();
+		assertEquals("2.3", ICoreConstants.WORKSPACE_TREE_VERSION_2, readTreeVersion(compacted));
+		assertFalse("2.4", treeFileExists(base));
+		storeTreeDescription();
+	}
+
+	public void test3() throws Exception {
+		assertTreeDescriptionRestored("3.0");
+		int base = getTreeSequenceNumber();
+		assertEquals("3.1", ICoreConstants.WORKSPACE_TREE_VERSION_2, readTreeVersion(base));
+
+		// the compacted tree file is the base of the next deltas
+		getWorkspace().getRoot().getProject("P2").getFile("file").setContents(getRandomContents(), true, false, getMonitor());
+		workspace.save(true, getMonitor());
+		assertEquals("3.2", base, readBaseSequenceNumber(getTreeSequenceNumber()));
+		storeTreeDescription();
+	}
+
+	public void test4() throws Exception {
+		assertTreeDescriptionRestored("4.0");
+	}
+
+	public static Test suite() {
+		WorkspaceSessionTestSuite suite = new WorkspaceSessionTestSuite(AutomatedTests.PI_RESOURCES_TESTS, TestDeltaTreeSave.class);
+		try {
+			suite.getSetup().setSystemProperty("org.eclipse.core.resources.deltaTree", "true");
+		} catch (SetupException e) {
+			// ignore, the test will fail for us
+		}
+		return suite;
+	}
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.resources.session;
+
+import junit.framework.Test;
+import org.eclipse.core.internal.resources.ICoreConstants;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.tests.resources.AutomatedTests;
+import org.eclipse.core.tests.session.SetupManager.SetupException;
+import org.eclipse.core.tests.session.WorkspaceSessionTestSuite;
+
+/**
+ * Tests saving the workspace tree in per-project segments and restoring it
+ * in the next session.
+ */
+public class TestSegmentedTreeSave extends WorkspaceSerializationTest {
+
+	@Override
+	public String[] defineHierarchy() {
+		return new String[] {"/P1/", "/P1/folder/", "/P1/folder/file1", "/P1/folder/file2", "/P1/file", "/P2/", "/P2/a/", "/P2/a/b/", "/P2/a/b/file", "/P3/"};
+	}
+
+	public void test1() throws Exception {
+		ensureExistsInWorkspace(buildResources(), true);
+		IProject closed = getWorkspace().getRoot().getProject("Closed");
+		ensureExistsInWorkspace(closed.getFile("file"), true);
+		closed.close(getMonitor());
+
+		workspace.save(true, getMonitor());
+		assertEquals("1.0", ICoreConstants.WORKSPACE_TREE_VERSION_3, readTreeVersion(getTreeSequenceNumber()));
+		storeTreeDescription();
+	}
+
+	public void test2() throws Exception {
+		assertTreeDescriptionRestored("2.0");
+		assertExistsInWorkspace("2.1", buildResources());
+
+		// the restored tree can be saved again
+		IProject project = getWorkspace().getRoot().getProject("P1");
+		project.getFile("file").setContents(getRandomContents(), true, false, getMonitor());
+		project.getFolder("folder").delete(true, getMonitor());
+		ensureExistsInWorkspace(getWorkspace().getRoot().getProject("P4").getFile("file"), true);
+		workspace.save(true, getMonitor());
+		assertEquals("2.2", ICoreConstants.WORKSPACE_TREE_VERSION_3, readTreeVersion(getTreeSequenceNumber()));
+		storeTreeDescription();
+	}
+
+	public void test3() throws Exception {
+		assertTreeDescriptionRestored("3.0");
+		assertDoesNotExistInWorkspace("3.1", getWorkspace().getRoot().getFolder(new Path("/P1/folder")));
+	}
+
+	public static Test suite() {
+		WorkspaceSessionTestSuite suite = new WorkspaceSessionTestSuite(AutomatedTests.PI_RESOURCES_TESTS, TestSegmentedTreeSave.class);
+		try {
+			suite.getSetup().setSystemProperty("org.eclipse.core.resources.segmentedTree", "true");
+		} catch (SetupException e) {
+			// ignore, the test will fail for us
+		}
+		return suite;
+	}
+}
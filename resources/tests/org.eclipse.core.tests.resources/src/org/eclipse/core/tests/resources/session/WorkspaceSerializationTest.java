@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2015 IBM Corporation and others.
+ *  Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -13,7 +13,16 @@
  *******************************************************************************/
 package org.eclipse.core.tests.resources.session;
 
-import org.eclipse.core.resources.IWorkspace;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.eclipse.core.internal.resources.Resource;
+import org.eclipse.core.internal.resources.ResourceInfo;
+import org.eclipse.core.internal.resources.Workspace;
+import org.eclipse.core.resources.*;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.tests.resources.WorkspaceSessionTest;
 
 public class WorkspaceSerializationTest extends WorkspaceSessionTest {
@@ -42,4 +51,66 @@ public class WorkspaceSerializationTest extends WorkspaceSessionTest {
 		super.setUp();
 		workspace = getWorkspace();
 	}
+
+	/**
+	 * Returns a description of the saved state of every resource in the
+	 * workspace tree, one line per resource.
+	 */
+	protected String describeTree() throws CoreException {
+		StringBuilder description = new StringBuilder();
+		IResourceVisitor visitor = resource -> {
+			ResourceInfo info = ((Resource) resource).getResourceInfo(false, false);
+			description.append(resource.getFullPath()).append(' ').append(resource.getType());
+			description.append(" nodeId=").append(info.getNodeId());
+			description.append(" modStamp=").append(info.getModificationStamp());
+			description.append(" localSyncInfo=").append(info.getLocalSyncInfo()).append('\n');
+			return true;
+		};
+		workspace.getRoot().accept(visitor, IResource.DEPTH_INFINITE, IContainer.INCLUDE_HIDDEN);
+		return description.toString();
+	}
+
+	/**
+	 * Returns the file that keeps a tree description across sessions. It is
+	 * not part of any project.
+	 */
+	private java.io.File getTreeDescriptionFile() {
+		return workspace.getRoot().getLocation().append("treeDescription.txt").toFile();
+	}
+
+	/**
+	 * Stores the description of the workspace tree for the next session.
+	 */
+	protected void storeTreeDescription() throws CoreException, IOException {
+		Files.write(getTreeDescriptionFile().toPath(), describeTree().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Asserts that the workspace tree is described like the tree stored by the
+	 * previous session.
+	 */
+	protected void assertTreeDescriptionRestored(String message) throws CoreException, IOException {
+		String stored = new String(Files.readAllBytes(getTreeDescriptionFile().toPath()), StandardCharsets.UTF_8);
+		assertEquals(message, stored, describeTree());
+	}
+
+	/**
+	 * Returns the version of the workspace tree file with the given sequence
+	 * number.
+	 */
+	protected int readTreeVersion(int sequenceNumber) throws IOException {
+		java.io.File treeFile = ((Workspace) workspace).getMetaArea().getTreeLocationFor(workspace.getRoot(), sequenceNumber).toFile();
+		try (DataInputStream input = new DataInputStream(new FileInputStream(treeFile))) {
+			return input.readInt();
+		}
+	}
+
+	/**
+	 * Returns the sequence number of the workspace tree file that was
+	 * written last.
+	 */
+	protected int getTreeSequenceNumber() {
+		String name = ((Workspace) workspace).getMetaArea().getTreeLocationFor(workspace.getRoot(), false).lastSegment();
+		return Integer.parseInt(name.substring(0, name.indexOf('.')));
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2017 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,7 +16,6 @@ package org.eclipse.core.internal.content;
 
 import java.io.*;
 import java.util.*;
-import java.util.Map.Entry;
 import java.util.regex.Pattern;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.content.*;
@@ -28,15 +27,59 @@ public final class ContentTypeCatalog {
 	private static final IContentType[] NO_CONTENT_TYPES = new IContentType[0];
 
 	/**
-	 * All fields are guarded by lock on "this"
+	 * The lookup tables of a catalog. A snapshot is never modified, the catalog
+	 * creates a new one after it changed, so that lookups can use it without
+	 * holding the lock of the catalog.
+	 */
+	private static final class Snapshot {
+		final Map<String, IContentType> contentTypes;
+		/** The valid content types that are not aliases */
+		final IContentType[] allContentTypes;
+		final Map<IContentType, ContentType[]> children;
+		final Map<String, Set<ContentType>> fileExtensions;
+		final Map<String, Set<ContentType>> fileNames;
+		final FilePatternIndex filePatterns;
+
+		Snapshot(ContentTypeCatalog catalog) {
+			contentTypes = Map.copyOf(catalog.contentTypes);
+			List<IContentType> all = new ArrayList<>(contentTypes.size());
+			Map<IContentType, List<ContentType>> childLists = new HashMap<>();
+			for (IContentType iContentType : contentTypes.values()) {
+				ContentType type = (ContentType) iContentType;
+				if (type.isValid() && !type.isAlias())
+					all.add(type);
+				if (type.getBaseType() != null)
+					childLists.computeIfAbsent(type.getBaseType(), t -> new ArrayList<>(5)).add(type);
+			}
+			allContentTypes = all.toArray(new IContentType[all.size()]);
+			children = new HashMap<>();
+			childLists.forEach((parent, list) -> children.put(parent, list.toArray(new ContentType[list.size()])));
+			fileExtensions = copyOf(catalog.fileExtensions);
+			fileNames = copyOf(catalog.fileNames);
+			filePatterns = new FilePatternIndex(catalog.fileRegexps, catalog.initialPatternForRegexp);
+		}
+
+		private static Map<String, Set<ContentType>> copyOf(Map<String, Set<ContentType>> associations) {
+			Map<String, Set<ContentType>> copy = new HashMap<>(associations.size() * 4 / 3 + 1);
+			associations.forEach((key, types) -> copy.put(key, Set.copyOf(types)));
+			return copy;
+		}
+	}
+
+	/**
+	 * All fields but the snapshot are guarded by lock on "this"
 	 */
-	private final Map<ContentType, ContentType[]> allChildren = new HashMap<>();
 	private final Map<String, IContentType> contentTypes = new HashMap<>();
 	private final Map<String, Set<ContentType>> fileExtensions = new HashMap<>();
 	private final Map<String, Set<ContentType>> fileNames = new HashMap<>();
 	private final Map<String, Pattern> compiledRegexps = new HashMap<>();
 	private final Map<Pattern, String> initialPatternForRegexp = new HashMap<>();
 	private final Map<Pattern, Set<ContentType>> fileRegexps = new HashMap<>();
+	/**
+	 * The lookup tables, created when the catalog is organized and again after
+	 * it changed.
+	 */
+	private volatile Snapshot snapshot;
 	private int generation;
 	private ContentTypeManager manager;
 
@@ -148,6 +191,7 @@ public final class ContentTypeCatalog {
 
 	synchronized void addContentType(IContentType contentType) {
 		contentTypes.put(contentType.getId(), contentType);
+		snapshot = null;
 	}
 
 	/**
@@ -202,6 +246,7 @@ public final class ContentTypeCatalog {
 			if (existing == null)
 				fileSpecMap.put(mappingKey, existing = new HashSet<>());
 			existing.add(contentType);
+			snapshot = null;
 		} else if ((type & IContentType.FILE_PATTERN_SPEC) != 0) {
 			Pattern compiledPattern = compiledRegexps.get(text);
 			if (compiledPattern == null) {
@@ -211,6 +256,7 @@ public final class ContentTypeCatalog {
 				fileRegexps.put(compiledPattern, new HashSet<>());
 			}
 			fileRegexps.get(compiledPattern).add(contentType);
+			snapshot = null;
 		}
 	}
 
@@ -277,12 +323,19 @@ public final class ContentTypeCatalog {
 	}
 
 	synchronized void dissociate(ContentType contentType, String text, int type) {
+		if ((type & IContentType.FILE_PATTERN_SPEC) != 0) {
+			Pattern compiledPattern = compiledRegexps.get(text);
+			if (compiledPattern != null && fileRegexps.get(compiledPattern).remove(contentType))
+				snapshot = null;
+			return;
+		}
 		Map<String, Set<ContentType>> fileSpecMap = ((type & IContentType.FILE_NAME_SPEC) != 0) ? fileNames : fileExtensions;
 		String mappingKey = FileSpec.getMappingKeyFor(text);
 		Set<ContentType> existing = fileSpecMap.get(mappingKey);
 		if (existing == null)
 			return;
-		existing.remove(contentType);
+		if (existing.remove(contentType))
+			snapshot = null;
 	}
 
 	/**
@@ -347,33 +400,16 @@ public final class ContentTypeCatalog {
 		return selected;
 	}
 
-	synchronized public IContentType[] getAllContentTypes() {
-		List<ContentType> result = new ArrayList<>(contentTypes.size());
-		for (IContentType iContentType : contentTypes.values()) {
-			ContentType type = (ContentType) iContentType;
-			if (type.isValid() && !type.isAlias())
-				result.add(type);
-		}
-		return result.toArray(new IContentType[result.size()]);
+	public IContentType[] getAllContentTypes() {
+		return getSnapshot().allContentTypes.clone();
 	}
 
 	private ContentType[] getChildren(ContentType parent) {
-		ContentType[] children = allChildren.get(parent);
-		if (children != null)
-			return children;
-		List<ContentType> result = new ArrayList<>(5);
-		for (IContentType iContentType : this.contentTypes.values()) {
-			ContentType next = (ContentType) iContentType;
-			if (next.getBaseType() == parent)
-				result.add(next);
-		}
-		children = result.toArray(new ContentType[result.size()]);
-		allChildren.put(parent, children);
-		return children;
+		return getSnapshot().children.get(parent);
 	}
 
 	public ContentType getContentType(String contentTypeIdentifier) {
-		ContentType type = internalGetContentType(contentTypeIdentifier);
+		ContentType type = (ContentType) getSnapshot().contentTypes.get(contentTypeIdentifier);
 		return (type != null && type.isValid() && !type.isAlias()) ? type : null;
 	}
 
@@ -505,9 +541,32 @@ public final class ContentTypeCatalog {
 	 * @return all matching content types in the preferred order
 	 * @see IContentTypeManager#findContentTypesFor(String)
 	 */
-	synchronized private IContentType[][] internalFindContentTypesFor(ContentTypeMatcher matcher, final String fileName, Comparator<IContentType> sortingPolicy) {
+	private IContentType[][] internalFindContentTypesFor(ContentTypeMatcher matcher, final String fileName, Comparator<IContentType> sortingPolicy) {
 		IScopeContext context = matcher.getContext();
 		IContentType[][] result = { NO_CONTENT_TYPES, NO_CONTENT_TYPES, NO_CONTENT_TYPES };
+		internalFindContentTypesByName(matcher, context, fileName, sortingPolicy, result);
+
+		final Set<ContentType> allByFilePattern;
+		if (context.equals(manager.getContext()))
+			allByFilePattern = getMatchingRegexpAssociated(fileName, IContentTypeSettings.FILE_PATTERN_SPEC);
+		else {
+			allByFilePattern = new HashSet<>(getMatchingRegexpAssociated(fileName,
+					IContentTypeSettings.FILE_PATTERN_SPEC | IContentType.IGNORE_USER_DEFINED));
+			allByFilePattern
+					.addAll(matcher.getMatchingRegexpAssociated(this, fileName,
+							IContentTypeSettings.FILE_PATTERN_SPEC));
+		}
+		if (!allByFilePattern.isEmpty())
+			result[2] = allByFilePattern.toArray(new IContentType[allByFilePattern.size()]);
+
+		return result;
+	}
+
+	/**
+	 * Fills in the content types that match the given file name and its
+	 * extension, in the first two elements of the given result.
+	 */
+	private void internalFindContentTypesByName(ContentTypeMatcher matcher, IScopeContext context, final String fileName, Comparator<IContentType> sortingPolicy, IContentType[][] result) {
 
 		Set<ContentType> existing = new HashSet<>();
 
@@ -541,22 +600,6 @@ public final class ContentTypeCatalog {
 		}
 		if (result[1].length > 1)
 			Arrays.sort(result[1], sortingPolicy);
-
-		final Set<ContentType> allByFilePattern;
-		if (context.equals(manager.getContext()))
-			allByFilePattern = getMatchingRegexpAssociated(fileName, IContentTypeSettings.FILE_PATTERN_SPEC);
-		else {
-			allByFilePattern = new HashSet<>(getMatchingRegexpAssociated(fileName,
-					IContentTypeSettings.FILE_PATTERN_SPEC | IContentType.IGNORE_USER_DEFINED));
-			allByFilePattern
-					.addAll(matcher.getMatchingRegexpAssociated(this, fileName,
-							IContentTypeSettings.FILE_PATTERN_SPEC));
-		}
-		existing.addAll(allByFilePattern);
-		if (!allByFilePattern.isEmpty())
-			result[2] = allByFilePattern.toArray(new IContentType[allByFilePattern.size()]);
-
-		return result;
 	}
 
 	private Set<ContentType> getMatchingRegexpAssociated(String fileName, int typeMask) {
@@ -564,12 +607,7 @@ public final class ContentTypeCatalog {
 			throw new IllegalArgumentException("This method requires FILE_PATTERN_SPEC."); //$NON-NLS-1$
 		}
 		Set<ContentType> res = new HashSet<>();
-		for (Entry<Pattern, Set<ContentType>> spec : this.fileRegexps.entrySet()) {
-			if (spec.getKey().matcher(fileName).matches()) {
-				res.addAll(filterOnDefinitionSource(initialPatternForRegexp.get(spec.getKey()), typeMask,
-						spec.getValue()));
-			}
-		}
+		getSnapshot().filePatterns.forEachMatch(fileName, (text, associated) -> res.addAll(filterOnDefinitionSource(text, typeMask, associated)));
 		return res;
 	}
 
@@ -590,7 +628,8 @@ public final class ContentTypeCatalog {
 		if ((typeMask & IContentType.FILE_PATTERN_SPEC) != 0) {
 			throw new IllegalArgumentException("This method don't allow FILE_REGEXP_SPEC."); //$NON-NLS-1$
 		}
-		Map<String, Set<ContentType>> associations = (typeMask & IContentTypeSettings.FILE_NAME_SPEC) != 0 ? fileNames : fileExtensions;
+		Snapshot current = getSnapshot();
+		Map<String, Set<ContentType>> associations = (typeMask & IContentTypeSettings.FILE_NAME_SPEC) != 0 ? current.fileNames : current.fileExtensions;
 		Set<ContentType> result = associations.get(FileSpec.getMappingKeyFor(text));
 		if ((typeMask & (IContentType.IGNORE_PRE_DEFINED | IContentType.IGNORE_USER_DEFINED)) != 0) {
 			result = filterOnDefinitionSource(text, typeMask, result);
@@ -631,6 +670,21 @@ public final class ContentTypeCatalog {
 		return contentTypes;
 	}
 
+	/**
+	 * Returns the lookup tables of the catalog, without taking the lock unless
+	 * the catalog changed since they were created.
+	 */
+	private Snapshot getSnapshot() {
+		Snapshot current = snapshot;
+		if (current != null)
+			return current;
+		synchronized (this) {
+			if (snapshot == null)
+				snapshot = new Snapshot(this);
+			return snapshot;
+		}
+	}
+
 	synchronized ContentType internalGetContentType(String contentTypeIdentifier) {
 		return (ContentType) contentTypes.get(contentTypeIdentifier);
 	}
@@ -666,6 +720,7 @@ public final class ContentTypeCatalog {
 				if (!type.isValid())
 					ContentMessages.message("Invalid: " + type); //$NON-NLS-1$
 			}
+		snapshot = new Snapshot(this);
 	}
 
 	/**
@@ -700,7 +755,7 @@ public final class ContentTypeCatalog {
 		return destination;
 	}
 
-	void removeContentType(String contentTypeIdentifier) throws CoreException {
+	synchronized void removeContentType(String contentTypeIdentifier) throws CoreException {
 		ContentType contentType = getContentType(contentTypeIdentifier);
 		if (contentType == null) {
 			return;
@@ -709,6 +764,7 @@ public final class ContentTypeCatalog {
 			throw new IllegalArgumentException("Content type must be user-defined."); //$NON-NLS-1$
 		}
 		contentTypes.remove(contentType.getId());
+		snapshot = null;
 	}
 
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2004, 2016 IBM Corporation and others.
+ *  Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -46,7 +46,13 @@ public class ContentTypeManager extends ContentTypeMatcher implements IContentTy
 	public static final int BLOCK_SIZE = 0x400;
 	public static final String CONTENT_TYPE_PREF_NODE = IContentConstants.RUNTIME_NAME + IPath.SEPARATOR + "content-types"; //$NON-NLS-1$
 	private static final String OPTION_DEBUG_CONTENT_TYPES = "org.eclipse.core.contenttype/debug"; //$NON-NLS-1$
-	private ContentTypeCatalog catalog;
+	/**
+	 * The current catalog, which is only published once it is organized, so
+	 * that it can be read without locking. It is <code>null</code> when a new
+	 * catalog has to be built.
+	 */
+	private volatile ContentTypeCatalog catalog;
+	/** @GuardedBy("this") */
 	private int catalogGeneration;
 
 	/**
@@ -155,23 +161,32 @@ public class ContentTypeManager extends ContentTypeMatcher implements IContentTy
 		return result;
 	}
 
-	protected synchronized ContentTypeCatalog getCatalog() {
-		if (catalog != null)
+	protected ContentTypeCatalog getCatalog() {
+		ContentTypeCatalog current = catalog;
+		if (current != null)
 			// already has one
-			return catalog;
-		// create new catalog
-		ContentTypeCatalog newCatalog = new ContentTypeCatalog(this, catalogGeneration++);
-		// build catalog by parsing the extension registry
-		ContentTypeBuilder builder = createBuilder(newCatalog);
-		try {
-			builder.buildCatalog(getContext());
-			// only remember catalog if building it was successful
-			catalog = newCatalog;
-		} catch (InvalidRegistryObjectException e) {
-			// the registry has stale objects... just don't remember the returned (incomplete) catalog
+			return current;
+		synchronized (this) {
+			if (catalog != null)
+				// another thread built it in the meantime
+				return catalog;
+			// create new catalog
+			ContentTypeCatalog newCatalog = new ContentTypeCatalog(this, catalogGeneration++);
+			// build catalog by parsing the extension registry
+			ContentTypeBuilder builder = createBuilder(newCatalog);
+			boolean complete = false;
+			try {
+				builder.buildCatalog(getContext());
+				complete = true;
+			} catch (InvalidRegistryObjectException e) {
+				// the registry has stale objects... just don't remember the returned (incomplete) catalog
+			}
+			newCatalog.organize();
+			// only remember catalog if building it was successful, and only once it is organized
+			if (complete)
+				catalog = newCatalog;
+			return newCatalog;
 		}
-		newCatalog.organize();
-		return newCatalog;
 	}
 
 	@Override
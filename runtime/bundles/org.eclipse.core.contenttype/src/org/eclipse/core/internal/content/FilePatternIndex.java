@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.content;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable index of the file patterns associated with content types.
+ * <p>
+ * Patterns without wildcards are looked up by the file name. The other
+ * patterns are indexed by the literal text they start or end with, so that
+ * only the patterns that share a prefix or suffix with a file name are
+ * matched against it. Patterns that start and end with a wildcard, or that use
+ * other regular expression constructs, are matched against every file name.
+ * </p>
+ */
+final class FilePatternIndex {
+	private static final String WILDCARDS = "*?"; //$NON-NLS-1$
+	private static final String REGEXP_CHARACTERS = "\\^$|+()[]{}"; //$NON-NLS-1$
+
+	private static final class Association {
+		final String text;
+		final Pattern pattern;
+		final Set<ContentType> contentTypes;
+
+		Association(String text, Pattern pattern, Set<ContentType> contentTypes) {
+			this.text = text;
+			this.pattern = pattern;
+			this.contentTypes = contentTypes;
+		}
+	}
+
+	private final Map<String, List<Association>> byName = new HashMap<>();
+	private final Map<String, List<Association>> byPrefix = new HashMap<>();
+	private final Map<String, List<Association>> bySuffix = new HashMap<>();
+	private final List<Association> others = new ArrayList<>();
+	private final int[] prefixLengths;
+	private final int[] suffixLengths;
+
+	/**
+	 * Creates an index of the given patterns.
+	 *
+	 * @param patterns the content types associated with each compiled file
+	 *                 pattern
+	 * @param texts    the text of each compiled file pattern
+	 */
+	FilePatternIndex(Map<Pattern, Set<ContentType>> patterns, Map<Pattern, String> texts) {
+		Set<Integer> prefixLengthSet = new TreeSet<>();
+		Set<Integer> suffixLengthSet = new TreeSet<>();
+		for (Map.Entry<Pattern, Set<ContentType>> entry : patterns.entrySet()) {
+			if (entry.getValue().isEmpty())
+				continue;
+			String text = texts.get(entry.getKey());
+			Association association = new Association(text, entry.getKey(), Set.copyOf(entry.getValue()));
+			if (containsAny(text, REGEXP_CHARACTERS)) {
+				others.add(association);
+				continue;
+			}
+			int first = indexOfAny(text, WILDCARDS, 0);
+			if (first < 0) {
+				add(byName, text, association);
+				continue;
+			}
+			int last = first;
+			for (int next; (next = indexOfAny(text, WILDCARDS, last + 1)) >= 0;)
+				last = next;
+			String prefix = text.substring(0, first);
+			String suffix = text.substring(last + 1);
+			if (prefix.isEmpty() && suffix.isEmpty()) {
+				others.add(association);
+			} else if (prefix.length() >= suffix.length()) {
+				add(byPrefix, prefix, association);
+				prefixLengthSet.add(prefix.length());
+			} else {
+				add(bySuffix, suffix, association);
+				suffixLengthSet.add(suffix.length());
+			}
+		}
+		prefixLengths = prefixLengthSet.stream().mapToInt(Integer::intValue).toArray();
+		suffixLengths = suffixLengthSet.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private static void add(Map<String, List<Association>> map, String key, Association association) {
+		map.computeIfAbsent(key, k -> new ArrayList<>(1)).add(association);
+	}
+
+	private static boolean containsAny(String text, String characters) {
+		return indexOfAny(text, characters, 0) >= 0;
+	}
+
+	private static int indexOfAny(String text, String characters, int start) {
+		for (int i = start; i < text.length(); i++)
+			if (characters.indexOf(text.charAt(i)) >= 0)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Passes the text of each pattern that matches the given file name to the
+	 * given consumer, along with the content types associated with it. The sets
+	 * of content types must not be modified.
+	 */
+	void forEachMatch(String fileName, BiConsumer<String, Set<ContentType>> consumer) {
+		List<Association> candidates = byName.get(fileName);
+		if (candidates != null)
+			for (Association association : candidates)
+				consumer.accept(association.text, association.contentTypes);
+		int length = fileName.length();
+		for (int prefixLength : prefixLengths) {
+			if (prefixLength > length)
+				break;
+			matchAll(byPrefix.get(fileName.substring(0, prefixLength)), fileName, consumer);
+		}
+		for (int suffixLength : suffixLengths) {
+			if (suffixLength > length)
+				break;
+			matchAll(bySuffix.get(fileName.substring(length - suffixLength)), fileName, consumer);
+		}
+		matchAll(others, fileName, consumer);
+	}
+
+	private static void matchAll(List<Association> candidates, String fileName, BiConsumer<String, Set<ContentType>> consumer) {
+		if (candidates == null)
+			return;
+		for (Association association : candidates)
+			if (association.pattern.matcher(fileName).matches())
+				consumer.accept(association.text, association.contentTypes);
+	}
+}
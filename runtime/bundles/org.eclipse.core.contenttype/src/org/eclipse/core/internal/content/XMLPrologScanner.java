@@ -0,0 +1,503 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.content;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.xml.sax.InputSource;
+
+/**
+ * Finds the DTD system identifier and the name and namespace of the root
+ * element of an XML document by scanning the beginning of the document,
+ * without creating an XML parser.
+ * <p>
+ * The scanner only reads a bounded number of characters, and it only decides
+ * documents that are well-formed as far as it reads them and that can be
+ * understood without processing a DTD. It gives up on everything else, for
+ * instance documents with an internal DTD subset, with entity references in
+ * the attributes of the root element or in an encoding that is not supported,
+ * and these documents have to be parsed.
+ * </p>
+ * <p>
+ * The input is reset to where it was after scanning, so it has to support
+ * marking.
+ * </p>
+ */
+final class XMLPrologScanner {
+	/** The number of characters read at first */
+	private static final int INITIAL_SIZE = 2048;
+	/** The number of characters read at most */
+	private static final int MAXIMUM_SIZE = 8192;
+
+	private static final String XML_DECLARATION = "<?xml"; //$NON-NLS-1$
+	private static final String XMLNS = "xmlns"; //$NON-NLS-1$
+
+	private final boolean checkRoot;
+
+	private char[] chars;
+	private int length;
+	private int position;
+	/** Whether the scanner ran out of characters before it could decide */
+	private boolean exhausted;
+
+	private String dtd;
+	private String rootName;
+	private String rootNamespace;
+
+	/**
+	 * @param checkRoot whether to look for the root element when the document has
+	 *                  a document type declaration
+	 */
+	XMLPrologScanner(boolean checkRoot) {
+		this.checkRoot = checkRoot;
+	}
+
+	String getDTD() {
+		return dtd;
+	}
+
+	String getRootName() {
+		return rootName;
+	}
+
+	String getRootNamespace() {
+		return rootNamespace;
+	}
+
+	/**
+	 * Scans the given document without consuming it.
+	 *
+	 * @return whether the document could be understood
+	 */
+	boolean scan(InputSource contents) throws IOException {
+		Reader reader = contents.getCharacterStream();
+		InputStream stream = reader == null ? contents.getByteStream() : null;
+		if (reader == null ? stream == null || !stream.markSupported() : !reader.markSupported())
+			return false;
+		for (int size = INITIAL_SIZE;; size = MAXIMUM_SIZE) {
+			boolean complete;
+			if (reader != null) {
+				chars = new char[size];
+				reader.mark(size);
+				try {
+					length = read(reader, chars);
+				} finally {
+					reader.reset();
+				}
+				complete = length < size;
+			} else {
+				byte[] bytes = new byte[size];
+				int count;
+				stream.mark(size);
+				try {
+					count = read(stream, bytes);
+				} finally {
+					stream.reset();
+				}
+				if (!decode(bytes, count))
+					return false;
+				complete = count < size;
+			}
+			exhausted = false;
+			if (scan())
+				return true;
+			// try again with more characters only if these were not enough
+			if (!exhausted || complete || size == MAXIMUM_SIZE)
+				return false;
+		}
+	}
+
+	private static int read(Reader reader, char[] buffer) throws IOException {
+		int count = 0;
+		for (int read; count < buffer.length && (read = reader.read(buffer, count, buffer.length - count)) >= 0;)
+			count += read;
+		return count;
+	}
+
+	private static int read(InputStream stream, byte[] buffer) throws IOException {
+		int count = 0;
+		for (int read; count < buffer.length && (read = stream.read(buffer, count, buffer.length - count)) >= 0;)
+			count += read;
+		return count;
+	}
+
+	/**
+	 * Decodes the given bytes into the characters to scan, using the encoding
+	 * given by the byte order mark or the XML declaration.
+	 *
+	 * @return whether the bytes could be decoded
+	 */
+	private boolean decode(byte[] bytes, int count) {
+		int start = 0;
+		Charset charset;
+		if (count >= 2 && (bytes[0] == (byte) 0xFE && bytes[1] == (byte) 0xFF || bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xFE)) {
+			// the decoder skips the byte order mark
+			charset = StandardCharsets.UTF_16;
+		} else {
+			if (count >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF)
+				start = 3;
+			String encoding = getDeclaredEncoding(bytes, start, count);
+			if (encoding == null) {
+				charset = StandardCharsets.UTF_8;
+			} else {
+				try {
+					charset = Charset.forName(encoding);
+				} catch (IllegalArgumentException e) {
+					// unknown or unsupported encoding, leave it to the parser
+					return false;
+				}
+				// the declaration must read the same in the declared encoding
+				if (!XML_DECLARATION.equals(new String(bytes, start, XML_DECLARATION.length(), charset)))
+					return false;
+			}
+		}
+		CharsetDecoder decoder = charset.newDecoder();
+		CharBuffer out = CharBuffer.allocate((int) ((count - start) * (double) decoder.maxCharsPerByte()) + 1);
+		// a character may be cut off at the end, which is not an error
+		if (decoder.decode(ByteBuffer.wrap(bytes, start, count - start), out, false).isError())
+			return false;
+		chars = out.array();
+		length = out.position();
+		return true;
+	}
+
+	/**
+	 * Returns the value of the encoding pseudo-attribute of the XML declaration in
+	 * the given bytes, read as ASCII, or <code>null</code> if there is none.
+	 */
+	private static String getDeclaredEncoding(byte[] bytes, int start, int count) {
+		String text = new String(bytes, start, Math.min(count - start, 256), StandardCharsets.ISO_8859_1);
+		if (!text.startsWith(XML_DECLARATION))
+			return null;
+		int end = text.indexOf("?>"); //$NON-NLS-1$
+		int index = text.indexOf("encoding"); //$NON-NLS-1$
+		if (end < 0 || index < 0 || index > end)
+			return null;
+		index += 8;
+		while (index < end && isWhitespace(text.charAt(index)))
+			index++;
+		if (index == end || text.charAt(index++) != '=')
+			return null;
+		while (index < end && isWhitespace(text.charAt(index)))
+			index++;
+		if (index == end || text.charAt(index) != '"' && text.charAt(index) != '\'')
+			return null;
+		int close = text.indexOf(text.charAt(index), index + 1);
+		return close < 0 || close > end ? null : text.substring(index + 1, close);
+	}
+
+	/**
+	 * Scans the rest of the XML declaration after the version: the optional
+	 * encoding and standalone pseudo-attributes, in this order, and the closing
+	 * "?&gt;".
+	 *
+	 * @return whether the rest of the declaration is well-formed
+	 */
+	private boolean scanDeclarationEnd() {
+		boolean separated = skipWhitespace();
+		if (separated && startsWith("encoding")) { //$NON-NLS-1$
+			position += 8;
+			String encoding = scanPseudoAttributeValue();
+			if (encoding == null || !isEncodingName(encoding))
+				return false;
+			separated = skipWhitespace();
+		}
+		if (separated && startsWith("standalone")) { //$NON-NLS-1$
+			position += 10;
+			String standalone = scanPseudoAttributeValue();
+			if (!"yes".equals(standalone) && !"no".equals(standalone)) //$NON-NLS-1$ //$NON-NLS-2$
+				return false;
+			skipWhitespace();
+		}
+		if (!startsWith("?>")) { //$NON-NLS-1$
+			// the declaration may go on after the characters read so far
+			exhausted = position + 2 > length;
+			return false;
+		}
+		position += 2;
+		return true;
+	}
+
+	/**
+	 * Scans the "=" and the value of a pseudo-attribute of the XML declaration,
+	 * after its name.
+	 *
+	 * @return the value, or <code>null</code> if there is none
+	 */
+	private String scanPseudoAttributeValue() {
+		skipWhitespace();
+		if (atEnd() || chars[position++] != '=')
+			return null;
+		skipWhitespace();
+		return scanLiteral();
+	}
+
+	/**
+	 * Scans the prolog and the start tag of the root element.
+	 *
+	 * @return whether the document could be understood
+	 */
+	private boolean scan() {
+		dtd = null;
+		position = 0;
+		if (startsWith(XML_DECLARATION) && position + 5 < length && isWhitespace(chars[position + 5])) {
+			position += 5;
+			// the declaration must start with the version
+			skipWhitespace();
+			if (!startsWith("version")) //$NON-NLS-1$
+				return false;
+			position += 7;
+			// only the versions the parser understands
+			String version = scanPseudoAttributeValue();
+			if (!"1.0".equals(version) && !"1.1".equals(version)) //$NON-NLS-1$ //$NON-NLS-2$
+				return false;
+			if (!scanDeclarationEnd())
+				return false;
+		}
+		boolean doctype = false;
+		while (true) {
+			skipWhitespace();
+			if (atEnd())
+				return false;
+			if (startsWith("<!--")) { //$NON-NLS-1$
+				position += 4;
+				// comments must not contain "--"
+				if (!skipPast("--") || atEnd() || chars[position++] != '>') //$NON-NLS-1$
+					return false;
+			} else if (startsWith("<?")) { //$NON-NLS-1$
+				position += 2;
+				// an XML declaration is only allowed at the very beginning
+				String target = scanName();
+				if (target == null || target.equalsIgnoreCase("xml") || !skipPast("?>")) //$NON-NLS-1$ //$NON-NLS-2$
+					return false;
+			} else if (startsWith("<!DOCTYPE")) { //$NON-NLS-1$
+				if (doctype)
+					return false;
+				doctype = true;
+				position += 9;
+				if (!scanDoctype())
+					return false;
+				// like the parser, stop at the document type if the root does not matter
+				if (!checkRoot)
+					return true;
+			} else if (chars[position] == '<') {
+				position++;
+				return scanRootElement();
+			} else {
+				return false;
+			}
+		}
+	}
+
+	private boolean scanDoctype() {
+		if (!skipWhitespace() || scanName() == null)
+			return false;
+		boolean separated = skipWhitespace();
+		if (separated && startsWith("SYSTEM")) { //$NON-NLS-1$
+			position += 6;
+			if (!skipWhitespace() || (dtd = scanLiteral()) == null)
+				return false;
+		} else if (separated && startsWith("PUBLIC")) { //$NON-NLS-1$
+			position += 6;
+			if (!skipWhitespace() || scanLiteral() == null || !skipWhitespace() || (dtd = scanLiteral()) == null)
+				return false;
+		}
+		skipWhitespace();
+		if (atEnd())
+			return false;
+		if (chars[position] == '[')
+			// the internal subset may declare attributes of the root element
+			return !checkRoot;
+		if (chars[position] != '>')
+			return false;
+		position++;
+		return true;
+	}
+
+	private boolean scanRootElement() {
+		String qualifiedName = scanName();
+		if (qualifiedName == null)
+			return false;
+		int colon = qualifiedName.indexOf(':');
+		if (colon != qualifiedName.lastIndexOf(':') || colon == 0 || colon == qualifiedName.length() - 1)
+			return false;
+		String prefixDeclaration = colon < 0 ? XMLNS : XMLNS + ':' + qualifiedName.substring(0, colon);
+		String namespace = null;
+		List<String> attributes = new ArrayList<>();
+		while (true) {
+			boolean separated = skipWhitespace();
+			if (atEnd())
+				return false;
+			if (chars[position] == '>' || startsWith("/>")) //$NON-NLS-1$
+				break;
+			if (!separated)
+				return false;
+			String attribute = scanName();
+			if (attribute == null)
+				return false;
+			skipWhitespace();
+			if (atEnd() || chars[position] != '=')
+				return false;
+			position++;
+			skipWhitespace();
+			String value = scanLiteral();
+			if (value == null)
+				return false;
+			for (int i = 0; i < value.length(); i++) {
+				// references, markup and whitespace other than spaces need more than a scan
+				char c = value.charAt(i);
+				if (c == '&' || c == '<' || c < ' ')
+					return false;
+			}
+			if (attribute.equals(prefixDeclaration))
+				namespace = value;
+			attributes.add(attribute);
+		}
+		if (!checkAttributeNames(attributes))
+			return false;
+		if (namespace == null) {
+			if (colon >= 0)
+				// an undeclared prefix or one of the reserved prefixes
+				return false;
+			namespace = ""; //$NON-NLS-1$
+		} else if (colon >= 0 && namespace.isEmpty()) {
+			return false;
+		}
+		rootName = colon < 0 ? qualifiedName : qualifiedName.substring(colon + 1);
+		rootNamespace = namespace;
+		return true;
+	}
+
+	/**
+	 * Returns whether the names of the attributes of an element are unique and
+	 * their prefixes are declared, as far as this can be told without resolving
+	 * the namespaces.
+	 */
+	private static boolean checkAttributeNames(List<String> attributes) {
+		for (int i = 0; i < attributes.size(); i++) {
+			String attribute = attributes.get(i);
+			int colon = attribute.indexOf(':');
+			String prefix = colon < 0 ? null : attribute.substring(0, colon);
+			if (prefix != null && !prefix.equals(XMLNS) && !prefix.equals("xml") && !attributes.contains(XMLNS + ':' + prefix)) //$NON-NLS-1$
+				return false;
+			for (int j = i + 1; j < attributes.size(); j++) {
+				String other = attributes.get(j);
+				// attributes with different prefixes may still be in the same namespace
+				if (attribute.equals(other) || prefix != null && !prefix.equals(XMLNS) && other.endsWith(attribute.substring(colon)))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the name at the current position, or <code>null</code> if there is
+	 * none.
+	 */
+	private String scanName() {
+		int start = position;
+		if (atEnd() || !isNameStart(chars[position]))
+			return null;
+		position++;
+		while (!atEnd() && isNamePart(chars[position]))
+			position++;
+		return atEnd() ? null : new String(chars, start, position - start);
+	}
+
+	/**
+	 * Returns the contents of the quoted literal at the current position, or
+	 * <code>null</code> if there is none.
+	 */
+	private String scanLiteral() {
+		if (atEnd())
+			return null;
+		char quote = chars[position];
+		if (quote != '"' && quote != '\'')
+			return null;
+		int start = ++position;
+		while (!atEnd()) {
+			if (chars[position++] == quote)
+				return new String(chars, start, position - start - 1);
+		}
+		return null;
+	}
+
+	private boolean skipPast(String end) {
+		for (; position <= length - end.length(); position++) {
+			if (startsWith(end)) {
+				position += end.length();
+				return true;
+			}
+		}
+		exhausted = true;
+		return false;
+	}
+
+	/**
+	 * @return whether any whitespace was skipped
+	 */
+	private boolean skipWhitespace() {
+		int start = position;
+		while (position < length && isWhitespace(chars[position]))
+			position++;
+		return position > start;
+	}
+
+	private boolean startsWith(String text) {
+		if (position + text.length() > length)
+			return false;
+		for (int i = 0; i < text.length(); i++)
+			if (chars[position + i] != text.charAt(i))
+				return false;
+		return true;
+	}
+
+	private boolean atEnd() {
+		if (position < length)
+			return false;
+		exhausted = true;
+		return true;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private static boolean isNameStart(char c) {
+		return c == '_' || c == ':' || Character.isLetter(c);
+	}
+
+	private static boolean isEncodingName(String name) {
+		if (name.isEmpty() || !isAsciiLetter(name.charAt(0)))
+			return false;
+		for (int i = 1; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '.' && c != '_' && c != '-')
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isAsciiLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isNamePart(char c) {
+		return c == '_' || c == ':' || c == '-' || c == '.' || Character.isLetterOrDigit(c);
+	}
+}
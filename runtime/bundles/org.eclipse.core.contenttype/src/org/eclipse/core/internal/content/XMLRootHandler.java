@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2008 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -154,6 +154,14 @@ public final class XMLRootHandler extends DefaultHandler implements LexicalHandl
 	}
 
 	public boolean parseContents(InputSource contents) throws IOException, ParserConfigurationException, SAXException {
+		// Most documents can be understood without creating a parser.
+		XMLPrologScanner scanner = new XMLPrologScanner(checkRoot);
+		if (scanner.scan(contents)) {
+			dtdFound = scanner.getDTD();
+			elementFound = scanner.getRootName();
+			namespaceFound = scanner.getRootNamespace();
+			return true;
+		}
 		// Parse the file into we have what we need (or an error occurs).
 		return ServiceCaller.callOnce(getClass(), SAXParserFactory.class, factory -> {
 			try {
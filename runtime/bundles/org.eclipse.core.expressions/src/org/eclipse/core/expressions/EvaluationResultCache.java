@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.expressions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Evaluates expressions in an evaluation context and remembers the results, so
+ * that an expression is only evaluated again after something it depends on has
+ * changed. The expressions are evaluated in their
+ * {@link ExpressionCompiler compiled} form.
+ * <p>
+ * The dependencies of an expression are taken from its
+ * {@link Expression#computeExpressionInfo() expression information}: the
+ * default variable, the variables, the system properties and the properties of
+ * property testers it accesses. Since evaluation contexts don't report changes,
+ * clients tell the cache what changed, for example by calling
+ * {@link #variableChanged(String)} after setting a variable of the context.
+ * Only the results of the expressions that access the changed variable are
+ * forgotten. When the value of a property changes although the context didn't,
+ * for example because the state of the tested objects changed, the property
+ * tester calls {@link PropertyTester#notifyEvaluationResultCaches(String)},
+ * which is passed on to all the caches that are still referenced by their
+ * clients.
+ * Clients that know about such a change can call
+ * {@link #propertyChanged(String)} as well.
+ * </p>
+ * <p>
+ * The results of expressions that don't report their dependencies (see
+ * {@link ExpressionInfo#getMisbehavingExpressionTypes()}) are never remembered.
+ * Neither is {@link EvaluationResult#NOT_LOADED}, since it depends on the
+ * activation of bundles rather than on the context.
+ * </p>
+ * <p>
+ * The cache keeps the result, the expression information and the compiled
+ * form of every expression it evaluated, without limit, until
+ * {@link #remove(Expression)} is called for the expression. Clients must remove
+ * expressions that are no longer going to be evaluated, like the expressions
+ * of disposed handlers.
+ * </p>
+ * <p>
+ * This class is thread safe. Clients may instantiate this class.
+ * </p>
+ *
+ * @since 3.9
+ */
+public final class EvaluationResultCache {
+
+	/*
+	 * The caches notified of property changes by property testers, weakly
+	 * referenced so that they don't need to be disposed.
+	 */
+	private static final Set<EvaluationResultCache> fgCaches= Collections.newSetFromMap(new WeakHashMap<>());
+
+	private final IEvaluationContext fContext;
+
+	/*
+	 * All the following fields are guarded by this cache.
+	 */
+	private final Map<Expression, EvaluationResult> fResults= new HashMap<>();
+	private final Map<Expression, ExpressionInfo> fInfos= new HashMap<>();
+	private final Map<Expression, Expression> fCompiled= new HashMap<>();
+	private final Set<Expression> fDefaultVariableDependents= new HashSet<>();
+	private final Set<Expression> fSystemPropertyDependents= new HashSet<>();
+	private final Map<String, Set<Expression>> fVariableDependents= new HashMap<>();
+	private final Map<String, Set<Expression>> fPropertyDependents= new HashMap<>();
+	/* incremented whenever results are forgotten */
+	private long fGeneration;
+
+	/**
+	 * Creates a cache for the results of expressions evaluated in the given
+	 * context.
+	 *
+	 * @param context the context to evaluate the expressions in
+	 */
+	public EvaluationResultCache(IEvaluationContext context) {
+		Assert.isNotNull(context);
+		fContext= context;
+		synchronized (fgCaches) {
+			fgCaches.add(this);
+		}
+	}
+
+	/*
+	 * The caches are notified one at a time, without holding the lock on the
+	 * set of caches.
+	 */
+	static void propertyChangedInAllCaches(String name) {
+		EvaluationResultCache[] caches;
+		synchronized (fgCaches) {
+			caches= fgCaches.toArray(new EvaluationResultCache[fgCaches.size()]);
+		}
+		for (EvaluationResultCache cache : caches) {
+			cache.propertyChanged(name);
+		}
+	}
+
+	/**
+	 * Returns the context the expressions are evaluated in.
+	 *
+	 * @return the evaluation context
+	 */
+	public IEvaluationContext getContext() {
+		return fContext;
+	}
+
+	/**
+	 * Returns the result of evaluating the given expression in the context of
+	 * this cache. The expression is only evaluated if its result isn't known
+	 * yet, or if something it depends on has changed since.
+	 *
+	 * @param expression the expression to evaluate
+	 * @return the result of the evaluation
+	 *
+	 * @throws CoreException if the evaluation failed
+	 */
+	public EvaluationResult evaluate(Expression expression) throws CoreException {
+		ExpressionInfo info;
+		Expression compiled;
+		long generation;
+		synchronized (this) {
+			EvaluationResult result= fResults.get(expression);
+			if (result != null)
+				return result;
+			info= fInfos.get(expression);
+			compiled= fCompiled.get(expression);
+			generation= fGeneration;
+		}
+		if (info == null)
+			info= expression.computeExpressionInfo();
+		if (compiled == null)
+			compiled= ExpressionCompiler.compile(expression);
+		EvaluationResult result= compiled.evaluate(fContext);
+		synchronized (this) {
+			fInfos.putIfAbsent(expression, info);
+			fCompiled.putIfAbsent(expression, compiled);
+			// the result may be outdated already if anything changed during the evaluation
+			if (generation == fGeneration && result != EvaluationResult.NOT_LOADED && info.getMisbehavingExpressionTypes() == null) {
+				fResults.put(expression, result);
+				addDependent(expression, info);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Forgets the results of the expressions that access the default variable.
+	 * Must be called after the default variable of the context has changed.
+	 */
+	public synchronized void defaultVariableChanged() {
+		forget(fDefaultVariableDependents);
+	}
+
+	/**
+	 * Forgets the results of the expressions that access the given variable.
+	 * Must be called after the variable has changed in the context, including
+	 * changes of the contents of the variable's value.
+	 *
+	 * @param name the name of the variable
+	 */
+	public synchronized void variableChanged(String name) {
+		forget(fVariableDependents.remove(name));
+	}
+
+	/**
+	 * Forgets the results of the expressions that access system properties.
+	 * Must be called after a system property has changed.
+	 */
+	public synchronized void systemPropertiesChanged() {
+		forget(fSystemPropertyDependents);
+	}
+
+	/**
+	 * Forgets the results of the expressions that test the given property.
+	 * Must be called when the value of the property may have changed for
+	 * the objects it is tested on.
+	 *
+	 * @param name the name of the property, qualified by its namespace like in
+	 *  {@link ExpressionInfo#getAccessedPropertyNames()}
+	 */
+	public synchronized void propertyChanged(String name) {
+		forget(fPropertyDependents.remove(name));
+	}
+
+	/**
+	 * Forgets the result and the dependencies of the given expression, which
+	 * is no longer going to be evaluated.
+	 *
+	 * @param expression the expression to forget
+	 */
+	public synchronized void remove(Expression expression) {
+		fGeneration++;
+		fResults.remove(expression);
+		fInfos.remove(expression);
+		fCompiled.remove(expression);
+		fDefaultVariableDependents.remove(expression);
+		fSystemPropertyDependents.remove(expression);
+		fVariableDependents.values().forEach(dependents -> dependents.remove(expression));
+		fPropertyDependents.values().forEach(dependents -> dependents.remove(expression));
+	}
+
+	/**
+	 * Forgets the results of all expressions, for example after changing
+	 * whether the context allows the activation of plug-ins.
+	 */
+	public synchronized void clear() {
+		fGeneration++;
+		fResults.clear();
+		fDefaultVariableDependents.clear();
+		fSystemPropertyDependents.clear();
+		fVariableDependents.clear();
+		fPropertyDependents.clear();
+	}
+
+	private void addDependent(Expression expression, ExpressionInfo info) {
+		if (info.hasDefaultVariableAccess())
+			fDefaultVariableDependents.add(expression);
+		if (info.hasSystemPropertyAccess())
+			fSystemPropertyDependents.add(expression);
+		for (String name : info.getAccessedVariableNames())
+			fVariableDependents.computeIfAbsent(name, n -> new HashSet<>()).add(expression);
+		for (String name : info.getAccessedPropertyNames())
+			fPropertyDependents.computeIfAbsent(name, n -> new HashSet<>()).add(expression);
+	}
+
+	/*
+	 * The expressions stay registered with their other dependencies until those
+	 * change, which doesn't do any harm.
+	 */
+	private void forget(Set<Expression> dependents) {
+		fGeneration++;
+		if (dependents == null)
+			return;
+		for (Expression expression : dependents)
+			fResults.remove(expression);
+		dependents.clear();
+	}
+}
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.expressions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.internal.expressions.AdaptExpression;
+import org.eclipse.core.internal.expressions.EnablementExpression;
+import org.eclipse.core.internal.expressions.Expressions;
+import org.eclipse.core.internal.expressions.IterateExpression;
+import org.eclipse.core.internal.expressions.NotExpression;
+import org.eclipse.core.internal.expressions.ResolveExpression;
+
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Compiles expression trees into trees that are faster to evaluate repeatedly,
+ * like the enablement expressions of commands and menus.
+ * <p>
+ * The compiled tree evaluates to the same results as the original one:
+ * </p>
+ * <ul>
+ * <li>Nested <code>and</code>, <code>or</code> and <code>enablement</code>
+ * expressions are flattened into a single array of children each, which is
+ * evaluated without iterators.</li>
+ * <li>Double negations are removed.</li>
+ * <li>The children of <code>with</code>, <code>resolve</code>,
+ * <code>iterate</code> and <code>adapt</code> expressions are compiled as
+ * well.</li>
+ * </ul>
+ * <p>
+ * The <code>test</code>, <code>instanceof</code> and <code>adapt</code>
+ * expressions remember the property testers and type checks for the classes of
+ * the last objects they were evaluated for, whether they are compiled or not.
+ * The compiled tree shares them with the original one. Expressions of other
+ * types, including subclasses of the expressions provided by this plug-in, are
+ * evaluated as they are.
+ * </p>
+ * <p>
+ * The original expression tree must not be modified after it has been
+ * compiled.
+ * </p>
+ *
+ * @since 3.9
+ */
+public final class ExpressionCompiler {
+
+	/*
+	 * A compiled expression tree. It reports the expression information of the
+	 * original tree, and is equal to the compiled trees of equal expressions.
+	 */
+	private static final class CompiledExpression extends Expression {
+
+		private final Expression fSource;
+		private final Expression fCompiled;
+
+		CompiledExpression(Expression source, Expression compiled) {
+			fSource= source;
+			fCompiled= compiled;
+		}
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) throws CoreException {
+			return fCompiled.evaluate(context);
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			fSource.collectExpressionInfo(info);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof CompiledExpression))
+				return false;
+			return fSource.equals(((CompiledExpression) object).fSource);
+		}
+
+		@Override
+		protected int computeHashCode() {
+			return fSource.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return "CompiledExpression [" + fSource + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private static final class AndNode extends Expression {
+
+		final Expression[] fChildren;
+
+		AndNode(Expression[] children) {
+			fChildren= children;
+		}
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) throws CoreException {
+			EvaluationResult result= EvaluationResult.TRUE;
+			for (Expression child : fChildren) {
+				result= result.and(child.evaluate(context));
+				if (result == EvaluationResult.FALSE)
+					return result;
+			}
+			return result;
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			for (Expression child : fChildren) {
+				child.collectExpressionInfo(info);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "AndNode " + Arrays.toString(fChildren); //$NON-NLS-1$
+		}
+	}
+
+	private static final class OrNode extends Expression {
+
+		final Expression[] fChildren;
+
+		OrNode(Expression[] children) {
+			fChildren= children;
+		}
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) throws CoreException {
+			EvaluationResult result= EvaluationResult.FALSE;
+			for (Expression child : fChildren) {
+				result= result.or(child.evaluate(context));
+				if (result == EvaluationResult.TRUE)
+					return result;
+			}
+			return result;
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			for (Expression child : fChildren) {
+				child.collectExpressionInfo(info);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "OrNode " + Arrays.toString(fChildren); //$NON-NLS-1$
+		}
+	}
+
+	private ExpressionCompiler() {
+		// no instance
+	}
+
+	/**
+	 * Compiles the given expression tree. Compiling a compiled tree returns it
+	 * unchanged.
+	 *
+	 * @param expression the expression tree to compile
+	 * @return an expression that evaluates to the same results as the given one
+	 *  and reports the same expression information
+	 */
+	public static Expression compile(Expression expression) {
+		Assert.isNotNull(expression);
+		if (expression instanceof CompiledExpression)
+			return expression;
+		return new CompiledExpression(expression, compileNode(expression));
+	}
+
+	/*
+	 * Only the exact types are compiled, since subclasses may evaluate
+	 * differently.
+	 */
+	private static Expression compileNode(Expression expression) {
+		Class<?> type= expression.getClass();
+		if (type == AndExpression.class || (type == EnablementExpression.class && !Expressions.TRACING)) {
+			return compileAnd(((CompositeExpression) expression).getChildren());
+		}
+		if (type == OrExpression.class) {
+			return compileOr(((CompositeExpression) expression).getChildren());
+		}
+		if (type == NotExpression.class) {
+			Expression negated= ((NotExpression) expression).getExpression();
+			if (negated.getClass() == NotExpression.class)
+				return compileNode(((NotExpression) negated).getExpression());
+			return new NotExpression(compileNode(negated));
+		}
+		if (type == WithExpression.class) {
+			return compileChildren((CompositeExpression) expression, new WithExpression(((WithExpression) expression).getVariable()));
+		}
+		if (type == ResolveExpression.class) {
+			return compileChildren((CompositeExpression) expression, ((ResolveExpression) expression).copyWithoutChildren());
+		}
+		if (type == IterateExpression.class) {
+			return compileChildren((CompositeExpression) expression, ((IterateExpression) expression).copyWithoutChildren());
+		}
+		if (type == AdaptExpression.class) {
+			return compileChildren((CompositeExpression) expression, ((AdaptExpression) expression).copyWithoutChildren());
+		}
+		return expression;
+	}
+
+	/*
+	 * A composite evaluates its children like an and expression, so a copy with
+	 * the compiled and expression as the only child evaluates the same way.
+	 */
+	private static Expression compileChildren(CompositeExpression expression, CompositeExpression copy) {
+		Expression[] children= expression.getChildren();
+		if (children.length > 0)
+			copy.add(compileAnd(children));
+		return copy;
+	}
+
+	private static Expression compileAnd(Expression[] children) {
+		List<Expression> result= new ArrayList<>(children.length);
+		for (Expression child : children) {
+			Expression compiled= compileNode(child);
+			if (compiled instanceof AndNode) {
+				result.addAll(Arrays.asList(((AndNode) compiled).fChildren));
+			} else {
+				result.add(compiled);
+			}
+		}
+		if (result.isEmpty())
+			return Expression.TRUE;
+		if (result.size() == 1)
+			return result.get(0);
+		return new AndNode(result.toArray(new Expression[result.size()]));
+	}
+
+	/*
+	 * An or expression without children evaluates to true, so it isn't merged
+	 * into its parent.
+	 */
+	private static Expression compileOr(Expression[] children) {
+		if (children.length == 0)
+			return Expression.TRUE;
+		List<Expression> result= new ArrayList<>(children.length);
+		for (Expression child : children) {
+			Expression compiled= compileNode(child);
+			if (compiled instanceof OrNode) {
+				result.addAll(Arrays.asList(((OrNode) compiled).fChildren));
+			} else {
+				result.add(compiled);
+			}
+		}
+		if (result.size() == 1)
+			return result.get(0);
+		return new OrNode(result.toArray(new Expression[result.size()]));
+	}
+}
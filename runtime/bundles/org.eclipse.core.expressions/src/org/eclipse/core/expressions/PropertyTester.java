@@ -118,4 +118,23 @@ public abstract class PropertyTester implements IPropertyTester {
 	public final IPropertyTester instantiate() {
 		return this;
 	}
+
+	/**
+	 * Tells the {@link EvaluationResultCache evaluation result caches} that the
+	 * value of the given property may have changed for the objects it is tested
+	 * on, so that they evaluate the expressions testing it again. Must be called
+	 * when the value changes without a change of the evaluation context, for
+	 * example because the state of the tested objects changed.
+	 * <p>
+	 * Has no effect if this tester wasn't created from its extension.
+	 * </p>
+	 *
+	 * @param property the name of the property, without the namespace
+	 *
+	 * @since 3.9
+	 */
+	protected final void notifyEvaluationResultCaches(String property) {
+		if (fNamespace != null)
+			EvaluationResultCache.propertyChangedInAllCaches(fNamespace + '.' + property);
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -15,6 +15,7 @@ package org.eclipse.core.expressions;
 
 import org.w3c.dom.Element;
 
+import org.eclipse.core.internal.expressions.ClassCache;
 import org.eclipse.core.internal.expressions.ExpressionMessages;
 import org.eclipse.core.internal.expressions.ExpressionStatus;
 import org.eclipse.core.internal.expressions.Expressions;
@@ -36,6 +37,15 @@ public class TestExpression extends Expression {
 	private Object fExpectedValue;
 	private boolean fForcePluginActivation;
 
+	/*
+	 * The properties found for the classes of the last receivers, with and
+	 * without plug-in activation. Evaluating the expression for the elements of
+	 * a selection finds them without asking the type extension manager for
+	 * every element.
+	 */
+	private final ClassCache<Property> fProperties= new ClassCache<>();
+	private final ClassCache<Property> fActivatedProperties= new ClassCache<>();
+
 	private static final char PROP_SEP = '.';
 	private static final String ATT_PROPERTY= "property"; //$NON-NLS-1$
 	private static final String ATT_ARGS= "args"; //$NON-NLS-1$
@@ -101,12 +111,27 @@ public class TestExpression extends Expression {
 				return EvaluationResult.FALSE;
 			return EvaluationResult.valueOf(str.equals(fArgs[0]));
 		}
-		Property property= fgTypeExtensionManager.getProperty(element, fNamespace, fProperty, context.getAllowPluginActivation() && fForcePluginActivation);
+		Property property= getProperty(element, context.getAllowPluginActivation() && fForcePluginActivation);
 		if (!property.isInstantiated())
 			return EvaluationResult.NOT_LOADED;
 		return EvaluationResult.valueOf(property.test(element, fArgs, fExpectedValue));
 	}
 
+	private Property getProperty(Object element, boolean forcePluginActivation) throws CoreException {
+		if (element == null)
+			return fgTypeExtensionManager.getProperty(element, fNamespace, fProperty, forcePluginActivation);
+		// if we call a static method than the receiver is the class object
+		Class<?> clazz= element instanceof Class ? (Class<?>)element : element.getClass();
+		ClassCache<Property> properties= forcePluginActivation ? fActivatedProperties : fProperties;
+		Object version= fgTypeExtensionManager.getVersion();
+		Property property= properties.get(clazz, version);
+		if (property == null) {
+			property= fgTypeExtensionManager.getProperty(element, fNamespace, fProperty, forcePluginActivation);
+			properties.put(clazz, version, property);
+		}
+		return property;
+	}
+
 	@Override
 	public void collectExpressionInfo(ExpressionInfo info) {
 		info.markDefaultVariableAccessed();
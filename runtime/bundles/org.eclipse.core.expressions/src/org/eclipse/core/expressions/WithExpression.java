@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -55,6 +55,10 @@ public class WithExpression extends CompositeExpression {
 		fVariable= variable;
 	}
 
+	/* package */ String getVariable() {
+		return fVariable;
+	}
+
 	@Override
 	public boolean equals(final Object object) {
 		if (!(object instanceof WithExpression))
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -43,20 +43,38 @@ public class AdaptExpression extends CompositeExpression {
 	private static final int HASH_INITIAL= AdaptExpression.class.getName().hashCode();
 
 	private String fTypeName;
+	private final ClassCache<Boolean> fInstanceofResults;
 
 	public AdaptExpression(IConfigurationElement configElement) throws CoreException {
 		fTypeName= configElement.getAttribute(ATT_TYPE);
+		fInstanceofResults= new ClassCache<>();
 		Expressions.checkAttribute(ATT_TYPE, fTypeName);
 	}
 
 	public AdaptExpression(Element element) throws CoreException {
 		fTypeName= element.getAttribute(ATT_TYPE);
+		fInstanceofResults= new ClassCache<>();
 		Expressions.checkAttribute(ATT_TYPE, fTypeName.isEmpty() ? null : fTypeName);
 	}
 
 	public AdaptExpression(String typeName) {
+		this(typeName, new ClassCache<>());
+	}
+
+	private AdaptExpression(String typeName, ClassCache<Boolean> instanceofResults) {
 		Assert.isNotNull(typeName);
 		fTypeName= typeName;
+		fInstanceofResults= instanceofResults;
+	}
+
+	/**
+	 * Returns a new adapt expression for the same type, without children. The
+	 * new expression shares the type checks remembered by this one.
+	 *
+	 * @return the new expression
+	 */
+	public AdaptExpression copyWithoutChildren() {
+		return new AdaptExpression(fTypeName, fInstanceofResults);
 	}
 
 	@Override
@@ -85,7 +103,7 @@ public class AdaptExpression extends CompositeExpression {
 		}
 		Object adapted = null;
 		IAdapterManager manager = Platform.getAdapterManager();
-		if (Expressions.isInstanceOf(var, fTypeName)) {
+		if (Expressions.isInstanceOf(var, fTypeName, fInstanceofResults)) {
 			adapted = var;
 		} else {
 			// if the adapter manager doesn't have an adapter contributed,
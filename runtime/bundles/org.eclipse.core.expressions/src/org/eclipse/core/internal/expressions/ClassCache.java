@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.expressions;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Values computed by one expression for the classes of the objects it is
+ * evaluated for. An expression usually sees only a few classes, like the types
+ * of the elements of a selection, so the values of up to {@link #SIZE} classes
+ * are kept in an array that is searched without locking.
+ * <p>
+ * The values of further classes aren't kept, so that the classes seen first
+ * aren't replaced over and over again when an expression sees many classes.
+ * Their values are looked up in the shared caches again. When two threads add
+ * a class at the same time, one of the values may be lost, which only means it
+ * is computed again.
+ * </p>
+ * <p>
+ * The classes and the values are weakly referenced, so that the cache doesn't
+ * keep the class loaders of stopped bundles alive, even if a value references
+ * its class, like a {@link Property} does. The values must therefore be kept
+ * by the shared caches they are looked up in, or be constants like
+ * {@link Boolean#TRUE}, or they are computed again after a garbage collection.
+ * </p>
+ * <p>
+ * Values that stay valid only as long as some state doesn't change are kept
+ * with a version of that state, and are only returned for the same version.
+ * The values of other versions and the values whose class or value was
+ * collected are dropped when they are found by {@link #get(Class, Object)} or
+ * {@link #put(Class, Object, Object)}.
+ * </p>
+ *
+ * @param <V> the type of the values
+ */
+public final class ClassCache<V> {
+
+	/**
+	 * The maximum number of classes whose values are kept.
+	 */
+	public static final int SIZE= 4;
+
+	private static final class Entry extends WeakReference<Class<?>> {
+		final Object fVersion;
+		final WeakReference<Object> fValue;
+
+		Entry(Class<?> clazz, Object version, Object value) {
+			super(clazz);
+			fVersion= version;
+			fValue= new WeakReference<>(value);
+		}
+
+		boolean isStale(Object version) {
+			return fVersion != version || get() == null || fValue.get() == null;
+		}
+	}
+
+	private static final Entry[] EMPTY= new Entry[0];
+
+	private volatile Entry[] fEntries= EMPTY;
+
+	/**
+	 * Returns the value kept for the given class.
+	 *
+	 * @param clazz the class
+	 * @return the value, or <code>null</code> if there is none
+	 */
+	public V get(Class<?> clazz) {
+		return get(clazz, null);
+	}
+
+	/**
+	 * Returns the value kept for the given class with the given version.
+	 *
+	 * @param clazz the class
+	 * @param version the version, compared by identity
+	 * @return the value, or <code>null</code> if there is none for the version
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Class<?> clazz, Object version) {
+		Entry[] entries= fEntries;
+		for (Entry entry : entries) {
+			if (entry.get() == clazz) {
+				Object value= entry.fValue.get();
+				if (entry.fVersion == version && value != null)
+					return (V) value;
+				removeStaleEntries(entries, version);
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Keeps the value for the given class, replacing the previous value of the
+	 * class. The value isn't kept if the values of {@link #SIZE} other classes
+	 * are kept already.
+	 *
+	 * @param clazz the class
+	 * @param value the value, not <code>null</code>
+	 */
+	public void put(Class<?> clazz, V value) {
+		put(clazz, null, value);
+	}
+
+	/**
+	 * Keeps the value for the given class with the given version, replacing the
+	 * previous value of the class and the values of other versions.
+	 *
+	 * @param clazz the class
+	 * @param version the version, compared by identity
+	 * @param value the value, not <code>null</code>
+	 */
+	public void put(Class<?> clazz, Object version, V value) {
+		Entry[] entries= fEntries;
+		Entry[] result= new Entry[entries.length + 1];
+		int size= 0;
+		for (Entry entry : entries) {
+			if (!entry.isStale(version) && entry.get() != clazz)
+				result[size++]= entry;
+		}
+		if (size >= SIZE)
+			return;
+		result[size++]= new Entry(clazz, version, value);
+		fEntries= size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	/*
+	 * Keeps the entries of the given version whose class and value are still
+	 * referenced, unless the entries were replaced in the meantime.
+	 */
+	private void removeStaleEntries(Entry[] entries, Object version) {
+		Entry[] result= new Entry[entries.length];
+		int size= 0;
+		for (Entry entry : entries) {
+			if (!entry.isStale(version))
+				result[size++]= entry;
+		}
+		if (fEntries == entries)
+			fEntries= size == 0 ? EMPTY : Arrays.copyOf(result, size);
+	}
+}
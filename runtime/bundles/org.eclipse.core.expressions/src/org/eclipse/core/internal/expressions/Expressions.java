@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -16,12 +16,12 @@ package org.eclipse.core.internal.expressions;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
@@ -42,11 +42,12 @@ import org.eclipse.core.runtime.Platform;
 public class Expressions {
 
 	/**
-	 * Cache to optimize instanceof computation. Weak Map of Class-&gt;Map(String, Boolean). Avoid
-	 * conflicts caused by multiple classloader contributions with the same class name. It's a rare
-	 * occurrence but is supported by the OSGi classloader.
+	 * Cache to optimize instanceof computation. Maps classes to Map(String, Boolean), without
+	 * locking and without keeping the classes alive. Avoid conflicts caused by multiple classloader
+	 * contributions with the same class name. It's a rare occurrence but is supported by the OSGi
+	 * classloader. Replaced by a new cache when a bundle is stopped.
 	 */
-	private static WeakHashMap<Class<?>, Map<String, Boolean>> fgKnownClasses;
+	private static volatile ClassValue<Map<String, Boolean>> fgKnownClasses;
 
 	/**
 	 * Cache to optimize loading of classes for evaluation of adapt expressions. Keys are class
@@ -70,20 +71,37 @@ public class Expressions {
 		return isSubtype(element.getClass(), type);
 	}
 
-	private static synchronized boolean isSubtype(Class<?> clazz, String type) {
-		WeakHashMap<Class<?>, Map<String, Boolean>> knownClassesMap= getKnownClasses();
-		Map<String, Boolean> nameMap = knownClassesMap.get(clazz);
-		if (nameMap != null) {
-			Object obj = nameMap.get(type);
-			if (obj != null)
-				return ((Boolean)obj).booleanValue();
-		}
-		if (nameMap == null) {
-			nameMap = new HashMap<>();
-			knownClassesMap.put(clazz, nameMap);
-		}
-		boolean isSubtype = uncachedIsSubtype(clazz, type);
-		nameMap.put(type, isSubtype ? Boolean.TRUE : Boolean.FALSE);
+	/**
+	 * Checks whether the given element is an instance of the given type, like
+	 * {@link #isInstanceOf(Object, String)}. The results are kept in the given
+	 * cache of the expression doing the check, so that checking the elements of
+	 * a selection doesn't consult the shared cache for every element.
+	 *
+	 * @param element the element to check
+	 * @param type the qualified name of the type
+	 * @param cache the cache of the results for the given type
+	 * @return whether the element is an instance of the type
+	 */
+	public static boolean isInstanceOf(Object element, String type, ClassCache<Boolean> cache) {
+		// null isn't an instanceof of anything.
+		if (element == null)
+			return false;
+		Class<?> clazz= element.getClass();
+		Boolean cached= cache.get(clazz);
+		if (cached != null)
+			return cached.booleanValue();
+		boolean isSubtype= isSubtype(clazz, type);
+		cache.put(clazz, Boolean.valueOf(isSubtype));
+		return isSubtype;
+	}
+
+	private static boolean isSubtype(Class<?> clazz, String type) {
+		Map<String, Boolean> nameMap= getKnownClasses().get(clazz);
+		Boolean cached= nameMap.get(type);
+		if (cached != null)
+			return cached.booleanValue();
+		boolean isSubtype= uncachedIsSubtype(clazz, type);
+		nameMap.put(type, Boolean.valueOf(isSubtype));
 		return isSubtype;
 	}
 
@@ -124,9 +142,14 @@ public class Expressions {
 		return null;
 	}
 
-	private static WeakHashMap<Class<?>, Map<String, Boolean>> getKnownClasses() {
-		createClassCaches();
-		return fgKnownClasses;
+	private static ClassValue<Map<String, Boolean>> getKnownClasses() {
+		ClassValue<Map<String, Boolean>> knownClasses= fgKnownClasses;
+		if (knownClasses != null)
+			return knownClasses;
+		synchronized (Expressions.class) {
+			createClassCaches();
+			return fgKnownClasses;
+		}
 	}
 
 	private static WeakHashMap<ClassLoader, Set<String>> getNotFoundClasses() {
@@ -134,16 +157,25 @@ public class Expressions {
 		return fgNotFoundClasses;
 	}
 
+	private static ClassValue<Map<String, Boolean>> newKnownClasses() {
+		return new ClassValue<>() {
+			@Override
+			protected Map<String, Boolean> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<>();
+			}
+		};
+	}
+
 	private static void createClassCaches() {
 		if (fgKnownClasses == null) {
-			fgKnownClasses= new WeakHashMap<>();
 			fgNotFoundClasses = new WeakHashMap<>();
+			fgKnownClasses= newKnownClasses();
 			BundleContext bundleContext = FrameworkUtil.getBundle(Expressions.class).getBundleContext();
 			BundleListener listener= (BundleEvent event) -> {
 				// Invalidate the caches if any of the bundles is stopped
 				if (event.getType() == BundleEvent.STOPPED) {
 					synchronized (Expressions.class) {
-						fgKnownClasses.clear();
+						fgKnownClasses= newKnownClasses();
 						fgNotFoundClasses.clear();
 					}
 				}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2021 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -31,6 +31,7 @@ public class InstanceofExpression extends Expression {
 	private static final int HASH_INITIAL= InstanceofExpression.class.getName().hashCode();
 
 	private String fTypeName;
+	private final ClassCache<Boolean> fResults= new ClassCache<>();
 
 	public InstanceofExpression(IConfigurationElement element) throws CoreException {
 		fTypeName= element.getAttribute(ATT_VALUE);
@@ -50,7 +51,7 @@ public class InstanceofExpression extends Expression {
 	@Override
 	public EvaluationResult evaluate(IEvaluationContext context) {
 		Object element= context.getDefaultVariable();
-		return EvaluationResult.valueOf(Expressions.isInstanceOf(element, fTypeName));
+		return EvaluationResult.valueOf(Expressions.isInstanceOf(element, fTypeName, fResults));
 	}
 
 	@Override
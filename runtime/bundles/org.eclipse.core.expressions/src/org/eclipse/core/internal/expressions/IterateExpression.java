@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -125,6 +125,21 @@ public class IterateExpression extends CompositeExpression {
 		initializeEmptyResultValue(ifEmpty);
 	}
 
+	private IterateExpression(int operator, Boolean emptyResult) {
+		fOperator= operator;
+		fEmptyResult= emptyResult;
+	}
+
+	/**
+	 * Returns a new iterate expression with the same operator and result for
+	 * empty collections, without children.
+	 *
+	 * @return the new expression
+	 */
+	public IterateExpression copyWithoutChildren() {
+		return new IterateExpression(fOperator, fEmptyResult);
+	}
+
 	private void initializeOperatorValue(String opValue) throws CoreException {
 		if (opValue == null) {
 			fOperator= AND;
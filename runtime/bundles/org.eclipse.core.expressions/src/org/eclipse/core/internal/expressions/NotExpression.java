@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -34,6 +34,15 @@ public class NotExpression extends Expression {
 		fExpression= expression;
 	}
 
+	/**
+	 * Returns the negated expression.
+	 *
+	 * @return the negated expression
+	 */
+	public Expression getExpression() {
+		return fExpression;
+	}
+
 	@Override
 	public EvaluationResult evaluate(IEvaluationContext context) throws CoreException {
 		return fExpression.evaluate(context).not();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -43,6 +43,18 @@ public class Property {
 		fTester= tester;
 	}
 
+	/* package */ Class<?> getType() {
+		return fType;
+	}
+
+	/* package */ String getNamespace() {
+		return fNamespace;
+	}
+
+	/* package */ String getName() {
+		return fName;
+	}
+
 	public boolean isInstantiated() {
 		return fTester.isInstantiated();
 	}
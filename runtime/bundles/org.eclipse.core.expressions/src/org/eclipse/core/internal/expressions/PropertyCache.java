@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,26 +13,50 @@
  *******************************************************************************/
 package org.eclipse.core.internal.expressions;
 
-import org.eclipse.core.internal.expressions.util.LRUCache;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A bounded cache of properties that can be read and updated concurrently. When
+ * the cache is full, the first entry in the iteration order of the map is
+ * removed to make room for a new one, which is an arbitrary entry rather than the
+ * least recently used one.
+ * <p>
+ * The cache is read on every property test, by all threads evaluating
+ * expressions. Keeping the entries in access order would turn every read into a
+ * write to a shared list, which would have to be locked again. The type
+ * extension manager keeps 1000 properties, more than a workbench usually tests,
+ * so the cache is rarely full, and an evicted property that is still in use is
+ * simply looked up again.
+ * </p>
+ */
 /* package */ class PropertyCache {
 
-	private LRUCache fCache;
+	private final Map<Property, Property> fCache;
+	private final int fCacheSize;
 
 	public PropertyCache(final int cacheSize) {
-		fCache= new LRUCache(100);
-		fCache.setSpaceLimit(cacheSize);
+		fCache= new ConcurrentHashMap<>(100);
+		fCacheSize= cacheSize;
 	}
 
 	public Property get(Property key) {
-		return (Property)fCache.get(key);
+		return fCache.get(key);
 	}
 
 	public void put(Property method) {
+		if (fCache.size() >= fCacheSize) {
+			Iterator<Property> iter= fCache.keySet().iterator();
+			if (iter.hasNext()) {
+				iter.next();
+				iter.remove();
+			}
+		}
 		fCache.put(method, method);
 	}
 
 	public void remove(Property method) {
-		fCache.removeKey(method);
+		fCache.remove(method);
 	}
 }
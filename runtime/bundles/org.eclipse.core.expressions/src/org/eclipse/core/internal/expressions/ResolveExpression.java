@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -59,6 +59,16 @@ public class ResolveExpression extends CompositeExpression {
 		fArgs= args;
 	}
 
+	/**
+	 * Returns a new resolve expression for the same variable and arguments,
+	 * without children.
+	 *
+	 * @return the new expression
+	 */
+	public ResolveExpression copyWithoutChildren() {
+		return new ResolveExpression(fVariable, fArgs);
+	}
+
 	@Override
 	public EvaluationResult evaluate(IEvaluationContext context) throws CoreException {
 		Object variable= context.resolveVariable(fVariable, fArgs);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.SynchronousBundleListener;
+
 import org.eclipse.core.expressions.IPropertyTester;
 
 import org.eclipse.core.runtime.Assert;
@@ -79,23 +83,47 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 	private Map<String, List<IConfigurationElement>> fConfigurationElementMap;
 
 	/*
-	 * A cache to give fast access to the last 1000 method invocations.
+	 * A cache to give fast access to 1000 method invocations. It is read without
+	 * locking, but only updated while holding the lock on this manager.
+	 */
+	private volatile PropertyCache fPropertyCache;
+
+	/*
+	 * Replaced whenever a property returned by this manager may no longer be
+	 * valid: when the property testers are reloaded, and when a bundle changes
+	 * its state, since the validity of a property depends on whether the bundle
+	 * declaring its tester is active.
 	 */
-	private PropertyCache fPropertyCache;
+	private volatile Object fVersion;
 
 
 	public TypeExtensionManager(String extensionPoint) {
 		Assert.isNotNull(extensionPoint);
 		fExtensionPoint= extensionPoint;
 		Platform.getExtensionRegistry().addRegistryChangeListener(this);
+		BundleContext bundleContext= FrameworkUtil.getBundle(TypeExtensionManager.class).getBundleContext();
+		// synchronous, so that the version changes before the state change is seen by evaluations
+		bundleContext.addBundleListener((SynchronousBundleListener) event -> fVersion= new Object());
 		initializeCaches();
 	}
 
+	/**
+	 * Returns the current version of the properties returned by this manager.
+	 * A property returned by {@link #getProperty(Object, String, String, boolean)}
+	 * can be used again for receivers of the same class, without looking it up,
+	 * as long as the version read before looking it up is still current.
+	 *
+	 * @return the current version, to be compared by identity
+	 */
+	public Object getVersion() {
+		return fVersion;
+	}
+
 	public Property getProperty(Object receiver, String namespace, String method) throws CoreException  {
 		return getProperty(receiver, namespace, method, false);
 	}
 
-	public synchronized Property getProperty(Object receiver, String namespace, String method, boolean forcePluginActivation) throws CoreException  {
+	public Property getProperty(Object receiver, String namespace, String method, boolean forcePluginActivation) throws CoreException  {
 		long start= 0;
 		if (Expressions.TRACING)
 			start= System.currentTimeMillis();
@@ -104,14 +132,37 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 		Class<?> clazz= receiver instanceof Class ? (Class<?>)receiver : receiver.getClass();
 		Property result= new Property(clazz, namespace, method);
 		Property cached= fPropertyCache.get(result);
+		if (cached != null && cached.isValidCacheEntry(forcePluginActivation)) {
+			traceCacheHit(clazz, method, start);
+			return cached;
+		}
+		synchronized (this) {
+			return lookUp(result, receiver, forcePluginActivation, start);
+		}
+	}
+
+	private void traceCacheHit(Class<?> clazz, String method, long start) {
+		if (Expressions.TRACING) {
+			System.out.println("[Type Extension] - method " + //$NON-NLS-1$
+				clazz.getName() + "#" + method + //$NON-NLS-1$
+				" found in cache: " +  //$NON-NLS-1$
+				(System.currentTimeMillis() - start) + " ms."); //$NON-NLS-1$
+		}
+	}
+
+	/*
+	 * Must be called while holding the lock on this manager, since it updates the
+	 * type extensions and the property cache.
+	 */
+	private Property lookUp(Property result, Object receiver, boolean forcePluginActivation, long start) throws CoreException {
+		Class<?> clazz= result.getType();
+		String namespace= result.getNamespace();
+		String method= result.getName();
+		// the property may have been looked up by another thread in the meantime
+		Property cached= fPropertyCache.get(result);
 		if (cached != null) {
 			if (cached.isValidCacheEntry(forcePluginActivation)) {
-				if (Expressions.TRACING) {
-					System.out.println("[Type Extension] - method " + //$NON-NLS-1$
-						clazz.getName() + "#" + method + //$NON-NLS-1$
-						" found in cache: " +  //$NON-NLS-1$
-						(System.currentTimeMillis() - start) + " ms."); //$NON-NLS-1$
-				}
+				traceCacheHit(clazz, method, start);
 				return cached;
 			}
 			// The type extender isn't loaded in the cached method but can be loaded
@@ -148,7 +199,7 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 
 	/*
 	 * This method doesn't need to be synchronized since it is called
-	 * from withing the getProperty method which is synchronized
+	 * from withing the getProperty method while holding the lock
 	 */
 	/* package */ TypeExtension get(Class<?> clazz) {
 		TypeExtension result= fTypeExtensionMap.get(clazz);
@@ -161,7 +212,7 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 
 	/*
 	 * This method doesn't need to be synchronized since it is called
-	 * from withing the getProperty method which is synchronized
+	 * from withing the getProperty method while holding the lock
 	 */
 	/* package */ IPropertyTester[] loadTesters(Class<?> type) {
 		if (fConfigurationElementMap == null) {
@@ -211,5 +262,6 @@ public class TypeExtensionManager implements IRegistryChangeListener {
 		fTypeExtensionMap= new HashMap<>();
 		fConfigurationElementMap= null;
 		fPropertyCache= new PropertyCache(1000);
+		fVersion= new Object();
 	}
 }
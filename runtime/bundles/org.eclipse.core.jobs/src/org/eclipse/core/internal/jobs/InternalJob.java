@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2014 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -18,6 +18,7 @@
 package org.eclipse.core.internal.jobs;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import org.eclipse.core.runtime.*;
 import org.eclipse.core.runtime.jobs.*;
 
@@ -80,7 +81,13 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	 */
 	static final long T_NONE = -1;
 
+	/**
+	 * The job state and the flag bits. Updated atomically, so that setting a flag
+	 * never loses a concurrent state change.
+	 * @see #updateFlags(int, int)
+	 */
 	private volatile int flags = Job.NONE;
+	private static final AtomicIntegerFieldUpdater<InternalJob> FLAGS = AtomicIntegerFieldUpdater.newUpdater(InternalJob.class, "flags"); //$NON-NLS-1$
 	private final int jobNumber = getNextJobNumber();
 	/**
 	 * The list of job listeners. Never null.
@@ -134,6 +141,13 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	 */
 	private long waitQueueStamp = T_NONE;
 
+	/**
+	 * The value of {@link System#nanoTime()} when the job entered its current
+	 * state. Only maintained while job statistics are recorded.
+	 * @GuardedBy("manager.lock")
+	 */
+	private long stateStamp;
+
 	/*
 	 * The thread that is currently running this job
 	 */
@@ -303,7 +317,7 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	 * Must be called from JobManager#changeState
 	 */
 	final void internalSetState(int i) {
-		flags = (flags & ~M_STATE) | i;
+		updateFlags(M_STATE, i);
 	}
 
 	/**
@@ -394,19 +408,14 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	 * Sets whether this job was canceled when it was about to run
 	 */
 	final void setAboutToRunCanceled(boolean value) {
-		synchronized (jobStateLock) {
-			flags = value ? flags | M_ABOUT_TO_RUN_CANCELED : flags & ~M_ABOUT_TO_RUN_CANCELED;
-		}
-
+		updateFlags(M_ABOUT_TO_RUN_CANCELED, value ? M_ABOUT_TO_RUN_CANCELED : 0);
 	}
 
 	/**
 	 * Sets whether this job was canceled when it was running
 	 */
 	final void setRunCanceled(boolean value) {
-		synchronized (jobStateLock) {
-			flags = value ? flags | M_RUN_CANCELED : flags & ~M_RUN_CANCELED;
-		}
+		updateFlags(M_RUN_CANCELED, value ? M_RUN_CANCELED : 0);
 	}
 
 	protected void setName(String name) {
@@ -506,11 +515,7 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	}
 
 	protected void setSystem(boolean value) {
-		synchronized (jobStateLock) {
-			if (getState() != Job.NONE)
-				throw new IllegalStateException();
-			flags = value ? flags | M_SYSTEM : flags & ~M_SYSTEM;
-		}
+		setUnscheduledFlag(M_SYSTEM, value);
 	}
 
 	protected void setThread(Thread thread) {
@@ -518,11 +523,30 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	}
 
 	protected void setUser(boolean value) {
-		synchronized (jobStateLock) {
-			if (getState() != Job.NONE)
+		setUnscheduledFlag(M_USER, value);
+	}
+
+	/**
+	 * Atomically sets or clears a flag that may only change while the job is not
+	 * scheduled.
+	 */
+	private void setUnscheduledFlag(int flag, boolean value) {
+		int oldFlags;
+		do {
+			oldFlags = flags;
+			if ((oldFlags & M_STATE) != Job.NONE)
 				throw new IllegalStateException();
-			flags = value ? flags | M_USER : flags & ~M_USER;
-		}
+		} while (!FLAGS.compareAndSet(this, oldFlags, value ? oldFlags | flag : oldFlags & ~flag));
+	}
+
+	/**
+	 * Atomically replaces the bits selected by the mask with the given bits.
+	 */
+	private void updateFlags(int mask, int bits) {
+		int oldFlags;
+		do {
+			oldFlags = flags;
+		} while (!FLAGS.compareAndSet(this, oldFlags, (oldFlags & ~mask) | bits));
 	}
 
 	protected void setJobGroup(JobGroup jobGroup) {
@@ -567,4 +591,12 @@ public abstract class InternalJob extends PlatformObject implements Comparable<I
 	long getWaitQueueStamp() {
 		return waitQueueStamp;
 	}
+
+	long getStateStamp() {
+		return stateStamp;
+	}
+
+	void setStateStamp(long stateStamp) {
+		this.stateStamp = stateStamp;
+	}
 }
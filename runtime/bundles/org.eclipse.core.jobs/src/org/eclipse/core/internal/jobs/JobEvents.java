@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.jobs;
+
+import jdk.jfr.*;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+
+/**
+ * Java Flight Recorder events emitted while job statistics are recorded. The
+ * flight recorder is an optional dependency, so this class must only be used
+ * after {@link #isAvailable()} returned <code>true</code>. Events are only
+ * written when they are enabled in the flight recorder settings.
+ */
+final class JobEvents {
+	private static final String CATEGORY = "Eclipse Jobs"; //$NON-NLS-1$
+
+	private static final boolean AVAILABLE = checkAvailable();
+
+	@Name("org.eclipse.core.jobs.JobRun")
+	@Label("Job Run")
+	@Category(CATEGORY)
+	@Description("A job finished running or yielded its rule")
+	static final class JobRunEvent extends Event {
+		@Label("Job Name")
+		String jobName;
+		@Label("Job Class")
+		Class<?> jobClass;
+		@Label("Run Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long runTime;
+	}
+
+	@Name("org.eclipse.core.jobs.JobBlocked")
+	@Label("Job Blocked")
+	@Category(CATEGORY)
+	@Description("A job stopped waiting for a job with a conflicting scheduling rule")
+	static final class JobBlockedEvent extends Event {
+		@Label("Job Name")
+		String jobName;
+		@Label("Job Class")
+		Class<?> jobClass;
+		@Label("Blocking Job Name")
+		String blockerName;
+		@Label("Blocking Job Class")
+		Class<?> blockerClass;
+		@Label("Blocking Rule")
+		String blockingRule;
+		@Label("Blocked Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long blockedTime;
+	}
+
+	@Name("org.eclipse.core.jobs.LockStall")
+	@Label("Lock Stall")
+	@Category(CATEGORY)
+	@Description("A thread waited for a lock created by the job manager")
+	static final class LockStallEvent extends Event {
+		@Label("Lock")
+		String lock;
+		@Label("Stall Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long stallTime;
+	}
+
+	@Name("org.eclipse.core.jobs.RuleStall")
+	@Label("Rule Stall")
+	@Category(CATEGORY)
+	@Description("A thread waited in beginRule for a conflicting scheduling rule")
+	static final class RuleStallEvent extends Event {
+		@Label("Rule")
+		String rule;
+		@Label("Blocking Job Name")
+		String blockerName;
+		@Label("Blocking Job Class")
+		Class<?> blockerClass;
+		@Label("Stall Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long stallTime;
+	}
+
+	private JobEvents() {
+		// not instantiated
+	}
+
+	private static boolean checkAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, JobEvents.class.getClassLoader()); //$NON-NLS-1$
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns whether the flight recorder can be used.
+	 */
+	static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	static void jobRun(InternalJob job, long nanos) {
+		JobRunEvent event = new JobRunEvent();
+		if (!event.shouldCommit())
+			return;
+		event.jobName = job.getName();
+		event.jobClass = job.getClass();
+		event.runTime = nanos;
+		event.commit();
+	}
+
+	static void jobBlocked(InternalJob job, InternalJob blocker, long nanos) {
+		JobBlockedEvent event = new JobBlockedEvent();
+		if (!event.shouldCommit())
+			return;
+		event.jobName = job.getName();
+		event.jobClass = job.getClass();
+		if (blocker != null) {
+			event.blockerName = blocker.getName();
+			event.blockerClass = blocker.getClass();
+			event.blockingRule = String.valueOf(blocker.getRule());
+		}
+		event.blockedTime = nanos;
+		event.commit();
+	}
+
+	static void lockStalled(OrderedLock lock, long nanos) {
+		LockStallEvent event = new LockStallEvent();
+		if (!event.shouldCommit())
+			return;
+		event.lock = lock.toString();
+		event.stallTime = nanos;
+		event.commit();
+	}
+
+	static void ruleStalled(ISchedulingRule rule, InternalJob blocker, long nanos) {
+		RuleStallEvent event = new RuleStallEvent();
+		if (!event.shouldCommit())
+			return;
+		event.rule = String.valueOf(rule);
+		if (blocker != null) {
+			event.blockerName = blocker.getName();
+			event.blockerClass = blocker.getClass();
+		}
+		event.stallTime = nanos;
+		event.commit();
+	}
+}
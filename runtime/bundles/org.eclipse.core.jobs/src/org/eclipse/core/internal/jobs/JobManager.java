@@ -45,9 +45,14 @@ import org.eclipse.osgi.util.NLS;
  * never happen, or a deadlock will occur. To prevent deadlocks, this is the
  * order that locks must be acquired.
  *
- * WorkerPool -&gt; JobManager.implicitJobs -&gt; JobManager.lock -&gt;
+ * JobManager.implicitJobs -&gt; JobManager.lock -&gt;
  * InternalJob.jobStateLock or InternalJobGroup.jobGroupStateLock
  *
+ * The WorkerPool does not hold any lock, so it can be called from anywhere.
+ * The state bits of a job are updated atomically, but state transitions are
+ * still performed while holding the locks above, because the queues and the
+ * rule indexes must change together with the state.
+ *
  * @ThreadSafe
  */
 public class JobManager implements IJobManager, DebugOptionsListener {
@@ -70,6 +75,28 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 */
 	public static final long MAX_WAIT_INTERVAL = 100;
 
+	/**
+	 * A system property key indicating whether the job manager should run jobs
+	 * on virtual threads instead of platform threads. Set to <code>true</code> to
+	 * enable. Ignored on Java versions without virtual threads.
+	 * <p>
+	 * The number of virtual workers that run at the same time is the parallelism
+	 * of the virtual thread scheduler of the JVM, which defaults to the number of
+	 * processors. It is configured with the
+	 * <code>jdk.virtualThreadScheduler.parallelism</code> system property, which
+	 * must be given on the command line, like
+	 * <code>-Djdk.virtualThreadScheduler.parallelism=4</code>, since the JVM reads
+	 * it once before the first virtual thread starts.
+	 * </p>
+	 */
+	public static final String PROP_USE_VIRTUAL_THREADS = "eclipse.jobs.virtualThreads"; //$NON-NLS-1$
+
+	/**
+	 * A system property key for the soft limit on the number of idle worker
+	 * threads kept by the job manager. Defaults to 50.
+	 */
+	public static final String PROP_MAX_THREADS = "eclipse.jobs.maxThreads"; //$NON-NLS-1$
+
 	private static final String OPTION_DEADLOCK_ERROR = PI_JOBS + "/jobs/errorondeadlock"; //$NON-NLS-1$
 	private static final String OPTION_DEBUG_BEGIN_END = PI_JOBS + "/jobs/beginend"; //$NON-NLS-1$
 	private static final String OPTION_DEBUG_YIELDING = PI_JOBS + "/jobs/yielding"; //$NON-NLS-1$
@@ -163,6 +190,20 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 */
 	private final HashSet<InternalJob> running;
 
+	/**
+	 * Index of the rules of the jobs in {@link #running}. Should only be modified
+	 * from changeState
+	 * @GuardedBy("lock")
+	 */
+	private final RuleConflictIndex runningRules = new RuleConflictIndex();
+
+	/**
+	 * Index of the rules of the jobs that are blocked by running jobs. Should only
+	 * be modified from changeState
+	 * @GuardedBy("lock")
+	 */
+	private final RuleConflictIndex blockedRules = new RuleConflictIndex();
+
 	/**
 	 * Jobs that are currently yielding. Should only be modified from changeState
 	 * @GuardedBy("lock")
@@ -180,10 +221,10 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 * True if this manager has been suspended, and false otherwise.  A job manager
 	 * starts out not suspended, and becomes suspended when <code>suspend</code>
 	 * is invoked. Once suspended, no jobs will start running until <code>resume</code>
-	 * is called.
+	 * is called. Volatile so it can be read without the lock.
 	 * @GuardedBy("lock")
 	 */
-	private boolean suspended = false;
+	private volatile boolean suspended = false;
 
 	/**
 	 * jobs that are waiting to be run. Should only be modified from changeState
@@ -197,6 +238,16 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 */
 	final JobQueue waitingThreadJobs;
 
+	/**
+	 * Whether {@link #waiting} is not empty, and whether {@link #sleeping} is
+	 * not empty and the start time of its first job. Published by changeState
+	 * so that idle workers can find out that there is nothing to start without
+	 * taking the lock.
+	 */
+	private volatile boolean hasWaitingJobs;
+	private volatile boolean hasSleepingJobs;
+	private volatile long nextWakeUpTime;
+
 	/**
 	 * Counter to record wait queue insertion order.
 	 * @GuardedBy("lock")
@@ -211,6 +262,12 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 
 	private final InternalWorker internalWorker;
 
+	/**
+	 * The job statistics being recorded, or <code>null</code> if recording is
+	 * disabled.
+	 */
+	volatile JobStatistics statistics;
+
 	public static void debug(String msg) {
 		DEBUG_TRACE.trace(null, msg);
 	}
@@ -298,6 +355,11 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 			pool = new WorkerPool(this);
 		}
 		pool.setDaemon(JobOSGiUtils.getDefault().useDaemonThreads());
+		int maxThreads = JobOSGiUtils.getDefault().getMaxThreads();
+		if (maxThreads > 0)
+			pool.setMaxThreads(maxThreads);
+		if (JobOSGiUtils.getDefault().useVirtualThreads())
+			pool.setVirtualThreads(true);
 		internalWorker = new InternalWorker(this);
 		internalWorker.setDaemon(JobOSGiUtils.getDefault().useDaemonThreads());
 		internalWorker.start();
@@ -389,6 +451,16 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 * necessary queues or sets.
 	 */
 	private void changeState(InternalJob job, int newState) {
+		changeState(job, newState, null);
+	}
+
+	/**
+	 * Atomically updates the state of a job, adding or removing from the
+	 * necessary queues or sets. The unblocking job is the running job that
+	 * blocked the given job, if it is no longer blocked because that job stopped
+	 * running.
+	 */
+	private void changeState(InternalJob job, int newState, InternalJob unblockingJob) {
 		boolean blockedJobs = false;
 		synchronized (lock) {
 			int oldJobState;
@@ -396,6 +468,9 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 				job.jobStateLock.notifyAll();
 				oldJobState = job.getState();
 				int oldState = job.internalGetState();
+				JobStatistics stats = statistics;
+				if (stats != null)
+					recordStateChange(stats, job, oldState, newState, unblockingJob);
 				switch (oldState) {
 					case InternalJob.YIELDING :
 						yielding.remove(job);
@@ -405,6 +480,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 					case InternalJob.BLOCKED :
 						//remove this job from the linked list of blocked jobs
 						job.remove();
+						blockedRules.remove(job);
 						break;
 					case Job.WAITING :
 						try {
@@ -423,13 +499,14 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 					case Job.RUNNING :
 					case InternalJob.ABOUT_TO_RUN :
 						running.remove(job);
+						runningRules.remove(job);
 						//add any blocked jobs back to the wait queue
 						InternalJob blocked = job.previous();
 						job.remove();
 						blockedJobs = blocked != null;
 						while (blocked != null) {
 							InternalJob previous = blocked.previous();
-							changeState(blocked, Job.WAITING);
+							changeState(blocked, Job.WAITING, job);
 							blocked = previous;
 						}
 						break;
@@ -442,7 +519,9 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 						job.setStartTime(InternalJob.T_NONE);
 						job.setWaitQueueStamp(InternalJob.T_NONE);
 						job.setRunCanceled(false);
+						break;
 					case InternalJob.BLOCKED :
+						blockedRules.add(job);
 						break;
 					case Job.WAITING :
 						waiting.enqueue(job);
@@ -460,6 +539,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 						job.setStartTime(InternalJob.T_NONE);
 						job.setWaitQueueStamp(InternalJob.T_NONE);
 						running.add(job);
+						runningRules.add(job);
 						break;
 					case InternalJob.YIELDING :
 						yielding.add(job);
@@ -468,6 +548,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 					default :
 						Assert.isLegal(false, "Invalid job state: " + job + ", state: " + newState); //$NON-NLS-1$ //$NON-NLS-2$
 				}
+				publishQueueState();
 			}
 
 			InternalJobGroup jobGroup = job.getJobGroup();
@@ -481,6 +562,41 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 			pool.jobQueued();
 	}
 
+	/**
+	 * Publishes whether jobs are waiting or sleeping for readers that do not
+	 * hold the lock.
+	 * @GuardedBy("lock")
+	 */
+	private void publishQueueState() {
+		hasWaitingJobs = !waiting.isEmpty();
+		InternalJob next = sleeping.peek();
+		if (next != null)
+			nextWakeUpTime = next.getStartTime();
+		hasSleepingJobs = next != null;
+	}
+
+	/**
+	 * Records the time the given job spent in the state it is leaving.
+	 * @GuardedBy("lock")
+	 */
+	private static void recordStateChange(JobStatistics stats, InternalJob job, int oldState, int newState, InternalJob unblockingJob) {
+		long now = System.nanoTime();
+		long stamp = job.getStateStamp();
+		job.setStateStamp(now);
+		if (oldState == Job.NONE || !stats.isRecorded(stamp))
+			return;
+		InternalJob blocker = unblockingJob;
+		if (blocker == null && oldState == InternalJob.BLOCKED) {
+			//blocked jobs are queued behind the job that blocks them
+			blocker = job;
+			while (blocker.next() != null)
+				blocker = blocker.next();
+			if (blocker == job)
+				blocker = null;
+		}
+		stats.stateChanged(job, oldState, newState, now - stamp, blocker);
+	}
+
 	/**
 	 * Returns a new progress monitor for this job, belonging to the given
 	 * progress group.  Returns null if it is not a valid time to set the job's group.
@@ -526,6 +642,11 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		Thread current = Thread.currentThread();
 		if (current instanceof Worker)
 			return ((Worker) current).currentJob();
+		if (pool.isVirtualThreads()) {
+			VirtualWorker worker = VirtualWorker.current();
+			if (worker != null)
+				return worker.currentJob();
+		}
 		synchronized (lock) {
 			for (InternalJob internalJob : running) {
 				Job job = (Job) internalJob;
@@ -629,6 +750,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 			//discard any jobs that have not yet started running
 			sleeping.clear();
 			waiting.clear();
+			publishQueueState();
 		}
 
 		// Give running jobs a chance to finish. Wait 0.1 seconds for up to 3 times.
@@ -684,6 +806,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		synchronized (lock) {
 			//discard reference to any jobs still running at this point
 			running.clear();
+			runningRules.clear();
 		}
 
 		pool.shutdown();
@@ -773,28 +896,12 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 			if (running.isEmpty())
 				return null;
 			//check the running jobs
-			boolean hasBlockedJobs = false;
-			for (InternalJob job : running) {
-				if (waitingJob.isConflicting(job))
-					return job;
-				if (!hasBlockedJobs)
-					hasBlockedJobs = job.previous() != null;
-			}
-			//there are no blocked jobs, so we are done
-			if (!hasBlockedJobs)
-				return null;
+			InternalJob blocker = runningRules.findConflicting(waitingJob);
+			if (blocker != null)
+				return blocker;
 			//check all jobs blocked by running jobs
-			for (InternalJob job : running) {
-				while (true) {
-					job = job.previous();
-					if (job == null)
-						break;
-					if (waitingJob.isConflicting(job))
-						return job;
-				}
-			}
+			return blockedRules.findConflicting(waitingJob);
 		}
-		return null;
 	}
 
 	/**
@@ -878,6 +985,14 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		}
 	}
 
+	@Override
+	public IJobStatistics getStatistics() {
+		synchronized (lock) {
+			JobStatistics stats = statistics;
+			return stats == null ? null : stats.snapshot(pool.getThreadCount(), pool.getBusyThreads());
+		}
+	}
+
 	@Override
 	public boolean isIdle() {
 		synchronized (lock) {
@@ -887,9 +1002,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 
 	@Override
 	public boolean isSuspended() {
-		synchronized (lock) {
-			return suspended;
-		}
+		return suspended;
 	}
 
 	protected boolean join(InternalJob job, long timeout, IProgressMonitor monitor) throws InterruptedException {
@@ -1174,6 +1287,9 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 * removed from the queue, it is moved to the running jobs list.
 	 */
 	private Job nextJob() {
+		// most calls come from idle workers: find out without the lock that no job is waiting or due
+		if (!hasWaitingJobs && (!hasSleepingJobs || nextWakeUpTime >= now()))
+			return null;
 		synchronized (lock) {
 			// do nothing if the job manager is suspended
 			if (suspended)
@@ -1303,9 +1419,9 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	public final void resume() {
 		synchronized (lock) {
 			suspended = false;
-			//poke the job pool
-			pool.jobQueued();
 		}
+		//poke the job pool
+		pool.jobQueued();
 	}
 
 	@Deprecated
@@ -1463,6 +1579,15 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		}
 	}
 
+	@Override
+	public void setStatisticsEnabled(boolean enabled) {
+		synchronized (lock) {
+			JobStatistics stats = enabled ? new JobStatistics() : null;
+			statistics = stats;
+			lockManager.statistics = stats;
+		}
+	}
+
 	@Override
 	public void setProgressProvider(ProgressProvider provider) {
 		progressProvider = provider;
@@ -1522,18 +1647,16 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 * there are no sleeping or waiting jobs.
 	 */
 	protected long sleepHint() {
-		synchronized (lock) {
-			//wait forever if job manager is suspended
-			if (suspended)
-				return InternalJob.T_INFINITE;
-			if (!waiting.isEmpty())
-				return 0L;
-			//return the anticipated time that the next sleeping job will wake
-			InternalJob next = sleeping.peek();
-			if (next == null)
-				return InternalJob.T_INFINITE;
-			return next.getStartTime() - now();
-		}
+		//does not take the lock: a job queued after this returns wakes a worker by WorkerPool.jobQueued
+		//wait forever if job manager is suspended
+		if (suspended)
+			return InternalJob.T_INFINITE;
+		if (hasWaitingJobs)
+			return 0L;
+		//return the anticipated time that the next sleeping job will wake
+		if (!hasSleepingJobs)
+			return InternalJob.T_INFINITE;
+		return nextWakeUpTime - now();
 	}
 
 	/**
@@ -1726,7 +1849,7 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 	 * Returns the next job to be run, or null if no jobs are waiting to run.
 	 * The worker must call endJob when the job is finished running.
 	 */
-	protected Job startJob(Worker worker) {
+	protected Job startJob(Thread worker) {
 		Job job = null;
 		while (true) {
 			job = nextJob();
@@ -1789,6 +1912,33 @@ public class JobManager implements IJobManager, DebugOptionsListener {
 		implicitJobs.transfer(rule, destinationThread);
 	}
 
+	/**
+	 * Sets whether jobs should run on virtual threads instead of platform
+	 * threads. Only workers started after this call are affected. Running jobs
+	 * on virtual threads mostly pays off for jobs that block on I/O; CPU-bound
+	 * jobs are limited by the parallelism of the virtual thread scheduler, which
+	 * can only be configured on the command line, see
+	 * {@link #PROP_USE_VIRTUAL_THREADS}.
+	 *
+	 * @param enable whether to use virtual threads
+	 * @return whether new jobs will run on virtual threads. This is always
+	 * <code>false</code> on Java versions without virtual threads.
+	 * @see #PROP_USE_VIRTUAL_THREADS
+	 */
+	public boolean setUseVirtualThreads(boolean enable) {
+		return pool.setVirtualThreads(enable);
+	}
+
+	/**
+	 * Sets the soft limit on the number of idle worker threads kept in the pool.
+	 *
+	 * @param maxThreads the maximum number of workers, must be positive
+	 * @see #PROP_MAX_THREADS
+	 */
+	public void setMaxWorkerThreads(int maxThreads) {
+		pool.setMaxThreads(maxThreads);
+	}
+
 	/**
 	 * Validates that the given scheduling rule obeys the constraints of
 	 * scheduling rules as described in the <code>ISchedulingRule</code>
@@ -108,4 +108,41 @@ class JobOSGiUtils {
 			return false;
 		return "true".equalsIgnoreCase(value); //$NON-NLS-1$
 	}
+
+	/**
+	 * Returns whether the job plugin should run workers on virtual threads. This
+	 * is off unless the {@link JobManager#PROP_USE_VIRTUAL_THREADS} property is
+	 * <code>true</code>.
+	 */
+	boolean useVirtualThreads() {
+		return "true".equalsIgnoreCase(getProperty(JobManager.PROP_USE_VIRTUAL_THREADS)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the soft limit on the number of worker threads, as given by the
+	 * {@link JobManager#PROP_MAX_THREADS} property, or <code>-1</code> if the
+	 * property is absent or invalid.
+	 */
+	int getMaxThreads() {
+		String value = getProperty(JobManager.PROP_MAX_THREADS);
+		if (value == null)
+			return -1;
+		try {
+			int max = Integer.parseInt(value.trim());
+			return max > 0 ? max : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns the framework property with the given key, or the global system
+	 * property when running stand-alone.
+	 */
+	private String getProperty(String key) {
+		BundleContext context = JobActivator.getContext();
+		if (context == null)
+			return System.getProperty(key);
+		return context.getProperty(key);
+	}
 }
@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.jobs;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.core.runtime.jobs.*;
+
+/**
+ * Records how long jobs spend in each state, which jobs block them, the
+ * occupancy of the worker pool and how often threads stall on locks and
+ * scheduling rules.
+ * <p>
+ * An instance only exists while recording is enabled, so that the job manager
+ * pays a single null check per state change when recording is disabled. Job
+ * statistics are kept per job class, and the number of job classes and of
+ * blockers per class are bounded, so the memory used by a recording does not
+ * grow with its length.
+ * </p>
+ */
+final class JobStatistics {
+	/**
+	 * The maximum number of job classes that are reported separately.
+	 */
+	static final int MAX_JOB_CLASSES = 256;
+	/**
+	 * The maximum number of blocking job classes reported separately per job class.
+	 */
+	static final int MAX_BLOCKERS = 8;
+	/**
+	 * The name under which the classes beyond the maximums are reported.
+	 */
+	static final String OTHER = "<other>"; //$NON-NLS-1$
+
+	/**
+	 * The statistics of one job class. Instances in the recorder are mutable and
+	 * guarded by the job manager lock; snapshots are immutable copies.
+	 */
+	static final class ClassStatistics implements IJobClassStatistics {
+		final String name;
+		long runCount;
+		long runTime;
+		long maxRunTime;
+		long sleepingTime;
+		long waitingTime;
+		long blockedTime;
+		long blockedCount;
+		final Map<String, Long> blockers;
+
+		ClassStatistics(String name) {
+			this.name = name;
+			this.blockers = new HashMap<>(4);
+		}
+
+		private ClassStatistics(ClassStatistics source) {
+			name = source.name;
+			runCount = source.runCount;
+			runTime = toMillis(source.runTime);
+			maxRunTime = toMillis(source.maxRunTime);
+			sleepingTime = toMillis(source.sleepingTime);
+			waitingTime = toMillis(source.waitingTime);
+			blockedTime = toMillis(source.blockedTime);
+			blockedCount = source.blockedCount;
+			Map<String, Long> copy = new HashMap<>(source.blockers.size());
+			source.blockers.forEach((blocker, time) -> copy.put(blocker, toMillis(time)));
+			blockers = Collections.unmodifiableMap(copy);
+		}
+
+		void blockedBy(String blocker, long nanos) {
+			if (blockers.size() >= MAX_BLOCKERS && !blockers.containsKey(blocker))
+				blocker = OTHER;
+			blockers.merge(blocker, nanos, Long::sum);
+		}
+
+		@Override
+		public String getJobClassName() {
+			return name;
+		}
+
+		@Override
+		public long getRunCount() {
+			return runCount;
+		}
+
+		@Override
+		public long getRunTime() {
+			return runTime;
+		}
+
+		@Override
+		public long getMaxRunTime() {
+			return maxRunTime;
+		}
+
+		@Override
+		public long getSleepingTime() {
+			return sleepingTime;
+		}
+
+		@Override
+		public long getWaitingTime() {
+			return waitingTime;
+		}
+
+		@Override
+		public long getBlockedTime() {
+			return blockedTime;
+		}
+
+		@Override
+		public long getBlockedCount() {
+			return blockedCount;
+		}
+
+		@Override
+		public Map<String, Long> getBlockedTimeByBlocker() {
+			return blockers;
+		}
+
+		@Override
+		public String toString() {
+			return name + " runs: " + runCount + ", run: " + runTime + "ms, waiting: " + waitingTime + "ms, blocked: " + blockedTime + "ms, sleeping: " + sleepingTime + "ms"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		}
+	}
+
+	/**
+	 * An immutable snapshot of a recording.
+	 */
+	private static final class Snapshot implements IJobStatistics {
+		long recordingTime;
+		IJobClassStatistics[] classes;
+		int workers;
+		int busyWorkers;
+		int peakBusyWorkers;
+		long lockStallCount;
+		long lockStallTime;
+		long ruleStallCount;
+		long ruleStallTime;
+
+		@Override
+		public long getRecordingTime() {
+			return recordingTime;
+		}
+
+		@Override
+		public IJobClassStatistics[] getJobClassStatistics() {
+			return classes.clone();
+		}
+
+		@Override
+		public int getWorkerCount() {
+			return workers;
+		}
+
+		@Override
+		public int getBusyWorkerCount() {
+			return busyWorkers;
+		}
+
+		@Override
+		public int getPeakBusyWorkerCount() {
+			return peakBusyWorkers;
+		}
+
+		@Override
+		public long getLockStallCount() {
+			return lockStallCount;
+		}
+
+		@Override
+		public long getLockStallTime() {
+			return lockStallTime;
+		}
+
+		@Override
+		public long getRuleStallCount() {
+			return ruleStallCount;
+		}
+
+		@Override
+		public long getRuleStallTime() {
+			return ruleStallTime;
+		}
+	}
+
+	/**
+	 * The value of {@link System#nanoTime()} when the recording started.
+	 */
+	final long start = System.nanoTime();
+
+	/**
+	 * @GuardedBy("JobManager.lock")
+	 */
+	private final Map<Class<?>, ClassStatistics> classes = new HashMap<>();
+	/**
+	 * @GuardedBy("JobManager.lock")
+	 */
+	private ClassStatistics otherClasses;
+
+	private final AtomicInteger peakBusyWorkers = new AtomicInteger();
+	private final LongAdder lockStallCount = new LongAdder();
+	private final LongAdder lockStallTime = new LongAdder();
+	private final LongAdder ruleStallCount = new LongAdder();
+	private final LongAdder ruleStallTime = new LongAdder();
+
+	/**
+	 * Whether flight recorder events are emitted.
+	 */
+	private final boolean events;
+
+	JobStatistics() {
+		events = JobEvents.isAvailable();
+	}
+
+	static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * Returns whether the given time stamp was taken during this recording.
+	 */
+	boolean isRecorded(long stamp) {
+		return stamp != 0 && stamp - start >= 0;
+	}
+
+	/**
+	 * @GuardedBy("JobManager.lock")
+	 */
+	private ClassStatistics get(InternalJob job) {
+		Class<?> jobClass = job.getClass();
+		ClassStatistics result = classes.get(jobClass);
+		if (result != null)
+			return result;
+		if (classes.size() < MAX_JOB_CLASSES) {
+			result = new ClassStatistics(jobClass.getName());
+			classes.put(jobClass, result);
+			return result;
+		}
+		if (otherClasses == null)
+			otherClasses = new ClassStatistics(OTHER);
+		return otherClasses;
+	}
+
+	/**
+	 * Records that a job left the given state after the given time.
+	 *
+	 * @param job the job that changed state
+	 * @param state the internal state the job left
+	 * @param newState the internal state the job entered
+	 * @param nanos the time the job spent in the state it left
+	 * @param blocker the job that blocked the job, if it left the blocked state
+	 * @GuardedBy("JobManager.lock")
+	 */
+	void stateChanged(InternalJob job, int state, int newState, long nanos, InternalJob blocker) {
+		ClassStatistics statistics = get(job);
+		switch (state) {
+			case Job.SLEEPING :
+				statistics.sleepingTime += nanos;
+				break;
+			case Job.WAITING :
+			case InternalJob.ABOUT_TO_RUN :
+			case InternalJob.YIELDING :
+				statistics.waitingTime += nanos;
+				break;
+			case InternalJob.BLOCKED :
+				statistics.blockedTime += nanos;
+				statistics.blockedCount++;
+				statistics.blockedBy(blocker == null ? OTHER : blocker.getClass().getName(), nanos);
+				if (events)
+					JobEvents.jobBlocked(job, blocker, nanos);
+				break;
+			case Job.RUNNING :
+				statistics.runTime += nanos;
+				statistics.maxRunTime = Math.max(statistics.maxRunTime, nanos);
+				//a yielding job has not finished running
+				if (newState != InternalJob.YIELDING)
+					statistics.runCount++;
+				if (events)
+					JobEvents.jobRun(job, nanos);
+				break;
+		}
+	}
+
+	/**
+	 * Records the number of busy workers.
+	 */
+	void workersBusy(int busyWorkers) {
+		peakBusyWorkers.accumulateAndGet(busyWorkers, Math::max);
+	}
+
+	/**
+	 * Records that the current thread waited for the given time for a lock.
+	 */
+	void lockStalled(OrderedLock lock, long nanos) {
+		lockStallCount.increment();
+		lockStallTime.add(nanos);
+		if (events)
+			JobEvents.lockStalled(lock, nanos);
+	}
+
+	/**
+	 * Records that the current thread waited for the given time for a
+	 * scheduling rule held by the given job.
+	 */
+	void ruleStalled(ISchedulingRule rule, InternalJob blocker, long nanos) {
+		ruleStallCount.increment();
+		ruleStallTime.add(nanos);
+		if (events)
+			JobEvents.ruleStalled(rule, blocker, nanos);
+	}
+
+	/**
+	 * Returns an immutable snapshot of the recording.
+	 * @GuardedBy("JobManager.lock")
+	 */
+	IJobStatistics snapshot(int workers, int busyWorkers) {
+		Snapshot snapshot = new Snapshot();
+		snapshot.recordingTime = toMillis(System.nanoTime() - start);
+		List<ClassStatistics> copies = new ArrayList<>(classes.size() + 1);
+		for (ClassStatistics statistics : classes.values())
+			copies.add(new ClassStatistics(statistics));
+		if (otherClasses != null)
+			copies.add(new ClassStatistics(otherClasses));
+		copies.sort(Comparator.comparing(ClassStatistics::getJobClassName));
+		snapshot.classes = copies.toArray(new IJobClassStatistics[copies.size()]);
+		snapshot.workers = workers;
+		snapshot.busyWorkers = busyWorkers;
+		snapshot.peakBusyWorkers = Math.max(peakBusyWorkers.get(), busyWorkers);
+		snapshot.lockStallCount = lockStallCount.sum();
+		snapshot.lockStallTime = toMillis(lockStallTime.sum());
+		snapshot.ruleStallCount = ruleStallCount.sum();
+		snapshot.ruleStallTime = toMillis(ruleStallTime.sum());
+		return snapshot;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2003, 2014 IBM Corporation and others.
+ *  Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -67,6 +67,11 @@ public class LockManager {
 
 	//the lock listener for this lock manager
 	protected volatile LockListener lockListener;
+	/**
+	 * The job statistics being recorded, or <code>null</code> if recording is
+	 * disabled. Set by the job manager.
+	 */
+	volatile JobStatistics statistics;
 	/*
 	 * The internal data structure that stores all the relationships
 	 * between the locks (or rules) and the threads that own them.
@@ -220,7 +225,7 @@ public class LockManager {
 		//all job threads have to be treated as lock owners because UI thread
 		//may try to join a job
 		Thread current = Thread.currentThread();
-		if (current instanceof Worker)
+		if (current instanceof Worker || VirtualWorker.current() != null)
 			return true;
 		DeadlockDetector tempLocks = locks;
 		if (tempLocks == null)
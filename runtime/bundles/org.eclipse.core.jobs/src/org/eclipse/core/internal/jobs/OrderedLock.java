@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2012 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -170,6 +170,8 @@ public class OrderedLock implements ILock, ISchedulingRule {
 			return true;
 		final Thread currentThread = Thread.currentThread();
 		manager.addLockWaitThread(currentThread, this);
+		JobStatistics stats = manager.statistics;
+		long waitStart = stats == null ? 0 : System.nanoTime();
 		try {
 			success = semaphore.acquire(delay);
 		} catch (InterruptedException e) {
@@ -178,6 +180,8 @@ public class OrderedLock implements ILock, ISchedulingRule {
 			//remember the interrupt to throw it later
 			currentThread.interrupt();
 		}
+		if (stats != null)
+			stats.lockStalled(this, System.nanoTime() - waitStart);
 		return updateOperationQueue(semaphore, success);
 	}
 
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.jobs;
+
+import java.util.*;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.jobs.IHierarchicalRule;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
+
+/**
+ * An index of jobs by scheduling rule, used to find a job whose rule conflicts
+ * with the rule of a given job without checking every indexed job.
+ * <p>
+ * Jobs whose rule is an {@link IHierarchicalRule}, or a {@link MultiRule} made
+ * only of hierarchical rules, are stored in a path trie per rule domain. All
+ * other jobs are kept in a fallback bucket that is scanned linearly. A lookup
+ * for a job with a hierarchical rule only visits the trie nodes on the path of
+ * its rule and below it, plus the fallback bucket. Every candidate is verified
+ * with {@link InternalJob#isConflicting(InternalJob)}, so the answer is the same
+ * as the one of a linear scan.
+ * </p>
+ * <p>
+ * This class is not thread safe. The job manager only accesses it while holding
+ * its lock.
+ * </p>
+ */
+public final class RuleConflictIndex {
+	private static final Node[] NO_NODES = new Node[0];
+
+	/**
+	 * A node of the path trie. Each node knows the jobs whose rule has exactly the
+	 * path of the node, and the number of jobs registered in its subtree so that
+	 * empty subtrees can be skipped and pruned.
+	 */
+	private static final class Node {
+		final Node parent;
+		final String segment;
+		Map<String, Node> children;
+		List<InternalJob> jobs;
+		int subtreeCount;
+
+		Node(Node parent, String segment) {
+			this.parent = parent;
+			this.segment = segment;
+		}
+
+		Node child(String name) {
+			return children == null ? null : children.get(name);
+		}
+	}
+
+	/**
+	 * The trie roots, one per rule domain.
+	 */
+	private final Map<Object, Node> roots = new HashMap<>();
+
+	/**
+	 * All indexed jobs, mapped to the trie nodes they are registered at. Jobs in
+	 * the fallback bucket are mapped to an empty array.
+	 */
+	private final Map<InternalJob, Node[]> indexed = new LinkedHashMap<>();
+
+	/**
+	 * Jobs whose rules cannot be stored in the trie.
+	 */
+	private final Set<InternalJob> opaque = new LinkedHashSet<>();
+
+	/**
+	 * Adds a job to the index. Jobs without a rule never conflict and are ignored.
+	 */
+	public void add(InternalJob job) {
+		ISchedulingRule rule = job.getRule();
+		if (rule == null || indexed.containsKey(job))
+			return;
+		IHierarchicalRule[] leaves = hierarchicalLeaves(rule);
+		if (leaves == null) {
+			opaque.add(job);
+			indexed.put(job, NO_NODES);
+			return;
+		}
+		Node[] nodes = new Node[leaves.length];
+		for (int i = 0; i < leaves.length; i++) {
+			Node node = getOrCreateNode(leaves[i]);
+			if (node.jobs == null)
+				node.jobs = new ArrayList<>(2);
+			node.jobs.add(job);
+			for (Node n = node; n != null; n = n.parent)
+				n.subtreeCount++;
+			nodes[i] = node;
+		}
+		indexed.put(job, nodes);
+	}
+
+	/**
+	 * Removes a job from the index. Does nothing if the job is not indexed.
+	 */
+	public void remove(InternalJob job) {
+		Node[] nodes = indexed.remove(job);
+		if (nodes == null)
+			return;
+		if (nodes == NO_NODES) {
+			opaque.remove(job);
+			return;
+		}
+		for (Node node : nodes) {
+			node.jobs.remove(job);
+			for (Node n = node; n != null; n = n.parent)
+				n.subtreeCount--;
+			prune(node);
+		}
+	}
+
+	/**
+	 * Removes all jobs from the index.
+	 */
+	public void clear() {
+		roots.clear();
+		indexed.clear();
+		opaque.clear();
+	}
+
+	public boolean isEmpty() {
+		return indexed.isEmpty();
+	}
+
+	/**
+	 * Returns an indexed job that conflicts with the given job, or
+	 * <code>null</code> if there is none.
+	 */
+	public InternalJob findConflicting(InternalJob job) {
+		if (job.getRule() == null || indexed.isEmpty())
+			return null;
+		IHierarchicalRule[] leaves = hierarchicalLeaves(job.getRule());
+		if (leaves == null) {
+			// nothing is known about this rule, fall back to a linear scan
+			for (InternalJob other : indexed.keySet())
+				if (job.isConflicting(other))
+					return other;
+			return null;
+		}
+		for (IHierarchicalRule leaf : leaves) {
+			InternalJob conflict = findConflicting(job, leaf);
+			if (conflict != null)
+				return conflict;
+		}
+		for (InternalJob other : opaque)
+			if (job.isConflicting(other))
+				return other;
+		return null;
+	}
+
+	/**
+	 * Looks for a conflicting job on the trie path of the given rule, and in the
+	 * subtree below it.
+	 */
+	private InternalJob findConflicting(InternalJob job, IHierarchicalRule leaf) {
+		Node node = roots.get(leaf.getRuleDomain());
+		IPath path = leaf.getRulePath();
+		int segmentCount = path.segmentCount();
+		//rules on ancestor paths conflict
+		for (int i = 0; node != null; i++) {
+			InternalJob conflict = findConflicting(job, node.jobs);
+			if (conflict != null)
+				return conflict;
+			if (i == segmentCount)
+				break;
+			node = node.child(path.segment(i));
+		}
+		if (node == null)
+			return null;
+		//rules on descendant paths conflict
+		return findConflictingBelow(job, node);
+	}
+
+	private InternalJob findConflictingBelow(InternalJob job, Node node) {
+		if (node.children == null)
+			return null;
+		for (Node child : node.children.values()) {
+			if (child.subtreeCount == 0)
+				continue;
+			InternalJob conflict = findConflicting(job, child.jobs);
+			if (conflict == null)
+				conflict = findConflictingBelow(job, child);
+			if (conflict != null)
+				return conflict;
+		}
+		return null;
+	}
+
+	private static InternalJob findConflicting(InternalJob job, List<InternalJob> candidates) {
+		if (candidates == null)
+			return null;
+		for (InternalJob candidate : candidates)
+			if (job.isConflicting(candidate))
+				return candidate;
+		return null;
+	}
+
+	private Node getOrCreateNode(IHierarchicalRule leaf) {
+		Node node = roots.computeIfAbsent(leaf.getRuleDomain(), domain -> new Node(null, null));
+		IPath path = leaf.getRulePath();
+		for (int i = 0, count = path.segmentCount(); i < count; i++) {
+			String segment = path.segment(i);
+			if (node.children == null)
+				node.children = new HashMap<>(4);
+			Node parent = node;
+			node = node.children.computeIfAbsent(segment, s -> new Node(parent, s));
+		}
+		return node;
+	}
+
+	/**
+	 * Discards the empty nodes between the given node and its root.
+	 */
+	private void prune(Node node) {
+		while (node.subtreeCount == 0) {
+			Node parent = node.parent;
+			if (parent == null) {
+				roots.values().remove(node);
+				return;
+			}
+			parent.children.remove(node.segment);
+			node = parent;
+		}
+	}
+
+	/**
+	 * Returns the hierarchical rules that make up the given rule, or
+	 * <code>null</code> if the rule cannot be described by hierarchical rules.
+	 */
+	private static IHierarchicalRule[] hierarchicalLeaves(ISchedulingRule rule) {
+		if (rule instanceof IHierarchicalRule)
+			return new IHierarchicalRule[] {(IHierarchicalRule) rule};
+		//subclasses of MultiRule may change the meaning of conflicts
+		if (rule.getClass() != MultiRule.class)
+			return null;
+		ISchedulingRule[] children = ((MultiRule) rule).getChildren();
+		IHierarchicalRule[] leaves = new IHierarchicalRule[children.length];
+		for (int i = 0; i < children.length; i++) {
+			if (!(children[i] instanceof IHierarchicalRule))
+				return null;
+			leaves[i] = (IHierarchicalRule) children[i];
+		}
+		return leaves;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2012 IBM Corporation and others.
+ * Copyright (c) 2004, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -248,6 +248,9 @@ class ThreadJob extends Job {
 	private static ThreadJob waitForRun(final ThreadJob threadJob, IProgressMonitor monitor, InternalJob blockingJob) {
 		// Ask lock manager if it safe to block this thread
 		final boolean canBlock = manager.getLockManager().canBlock();
+		final JobStatistics stats = manager.statistics;
+		final long waitStart = stats == null ? 0 : System.nanoTime();
+		final InternalJob firstBlocker = blockingJob;
 		ThreadJob result = threadJob;
 		boolean interrupted = false;
 		boolean waiting = false;
@@ -364,6 +367,8 @@ class ThreadJob extends Job {
 				// must unregister monitoring this job
 				manager.endMonitoring(threadJob);
 			}
+			if (stats != null)
+				stats.ruleStalled(threadJob.getRule(), firstBlocker, System.nanoTime() - waitStart);
 		}
 	}
 
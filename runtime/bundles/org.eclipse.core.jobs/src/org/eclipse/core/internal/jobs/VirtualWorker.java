@@ -0,0 +1,105 @@
+/*******************************************************************************
+ *  Copyright (c) 2022 IBM Corporation and others.
+ *
+ *  This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License 2.0
+ *  which accompanies this distribution, and is available at
+ *  https://www.eclipse.org/legal/epl-2.0/
+ *
+ *  SPDX-License-Identifier: EPL-2.0
+ *
+ *  Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.jobs;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import org.eclipse.core.internal.runtime.RuntimeLog;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * The body of a worker that runs on a virtual thread. Virtual threads cannot be
+ * subclassed, so unlike {@link Worker} this is a runnable that the pool hands to
+ * a virtual thread factory.
+ * <p>
+ * Scheduling rules, locks and the deadlock detector are all keyed by
+ * <code>Thread.currentThread()</code>, which is the virtual thread itself and
+ * does not change when the virtual thread moves to another carrier thread.
+ * </p>
+ */
+class VirtualWorker implements Runnable {
+	/**
+	 * The worker running on the current thread, if it is a virtual worker thread.
+	 */
+	private static final ThreadLocal<VirtualWorker> current = new ThreadLocal<>();
+
+	private volatile InternalJob currentJob;
+	private final WorkerPool pool;
+
+	VirtualWorker(WorkerPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Returns the virtual worker running on the current thread, or
+	 * <code>null</code> if the current thread is not a virtual worker thread.
+	 */
+	static VirtualWorker current() {
+		return current.get();
+	}
+
+	/**
+	 * Returns a factory of named virtual threads, or <code>null</code> if the
+	 * running Java version does not support virtual threads.
+	 */
+	static ThreadFactory createThreadFactory() {
+		try {
+			// Thread.ofVirtual().name("Worker-V-", 0).factory(), looked up reflectively
+			// because this bundle must still run on Java versions without virtual threads
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null); //$NON-NLS-1$
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder"); //$NON-NLS-1$
+			Method name = builderClass.getMethod("name", String.class, long.class); //$NON-NLS-1$
+			builder = name.invoke(builder, "Worker-V-", 0L); //$NON-NLS-1$
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder); //$NON-NLS-1$
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			if (JobManager.DEBUG)
+				JobManager.debug("virtual threads are not available: " + e); //$NON-NLS-1$
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the currently running job, or null if none.
+	 */
+	Job currentJob() {
+		return (Job) currentJob;
+	}
+
+	@Override
+	public void run() {
+		Thread thread = Thread.currentThread();
+		String generalName = thread.getName();
+		thread.setContextClassLoader(pool.defaultContextLoader);
+		current.set(this);
+		try {
+			while ((currentJob = pool.startJob(thread)) != null) {
+				try {
+					thread.setName(Worker.getJobName(generalName, currentJob));
+					Worker.runJob(pool, currentJob);
+				} finally {
+					currentJob = null;
+					thread.setName(generalName);
+				}
+			}
+		} catch (Throwable t) {
+			RuntimeLog.log(new Status(IStatus.ERROR, JobManager.PI_JOBS, JobManager.PLUGIN_ERROR, "Unhandled error", t)); //$NON-NLS-1$
+		} finally {
+			currentJob = null;
+			current.remove();
+			pool.endWorker(thread);
+		}
+	}
+}
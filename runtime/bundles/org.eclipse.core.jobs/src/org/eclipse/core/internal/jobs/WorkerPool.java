@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2003, 2012 IBM Corporation and others.
+ *  Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  *  This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License 2.0
@@ -14,6 +14,12 @@
  *******************************************************************************/
 package org.eclipse.core.internal.jobs;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.jobs.Job;
@@ -23,10 +29,17 @@ import org.eclipse.core.runtime.jobs.Job;
  * required, and are eventually discarded if not in use for awhile. This class
  * maintains the thread creation/destruction policies for the job manager.
  *
- * Implementation note: all the data structures of this class are protected
- * by the instance's object monitor.  To avoid deadlock with third party code,
- * this lock is never held when calling methods outside this class that may in
- * turn use locks.
+ * Implementation note: this class does not use any monitor. The thread counts
+ * are atomic, and idle workers park themselves on a concurrent stack from which
+ * {@link #jobQueued()} takes and unparks one when there is work to do. Since
+ * the counts are read and updated independently, the thread limits are soft
+ * limits, exactly like they were when the counts were guarded by a monitor
+ * that was released while waiting.
+ *
+ * Workers are platform {@link Worker} threads by default. When
+ * {@link JobManager#PROP_USE_VIRTUAL_THREADS} is set, and the running Java
+ * version supports it, workers are {@link VirtualWorker}s running on virtual
+ * threads instead.
  */
 class WorkerPool {
 	/**
@@ -39,17 +52,18 @@ class WorkerPool {
 	private static final int MIN_THREADS = 1;
 
 	/**
-	 * Soft limit on the maximum number of workers in the pool. An idle worker
-	 * is not put back in the pool if the total number of workers is more than
-	 * MAX_THREADS.
+	 * Default soft limit on the maximum number of workers in the pool.
+	 * @see #maxThreads
 	 */
-	private static final int MAX_THREADS = 50;
+	static final int MAX_THREADS = 50;
+
+	private static final int NANOS_IN_MS = 1_000_000;
 
 	/**
 	 * Use the busy thread count to avoid starting new threads when a living
 	 * thread is just doing house cleaning (notifying listeners, etc).
 	 */
-	private int busyThreads = 0;
+	private final AtomicInteger busyThreads = new AtomicInteger();
 
 	/**
 	 * The default context class loader to use when creating worker threads.
@@ -59,21 +73,35 @@ class WorkerPool {
 	/**
 	 * Records whether new worker threads should be daemon threads.
 	 */
-	private boolean isDaemon = false;
+	private volatile boolean isDaemon = false;
 
 	private final JobManager manager;
+
+	/**
+	 * Soft limit on the maximum number of workers in the pool. An idle worker
+	 * is not put back in the pool if the total number of workers is more than
+	 * maxThreads.
+	 */
+	private volatile int maxThreads = MAX_THREADS;
+
 	/**
-	 * The number of workers in the threads array
+	 * The factory of virtual worker threads, or <code>null</code> if workers
+	 * are platform threads.
 	 */
-	private int numThreads = 0;
+	private volatile ThreadFactory virtualThreadFactory;
+
 	/**
-	 * The number of threads that are currently sleeping
+	 * The number of workers in the threads set
 	 */
-	private int sleepingThreads = 0;
+	private final AtomicInteger numThreads = new AtomicInteger();
+	/**
+	 * The workers that are currently sleeping, most recently parked first.
+	 */
+	private final ConcurrentLinkedDeque<Thread> sleepingThreads = new ConcurrentLinkedDeque<>();
 	/**
 	 * The living set of workers in this pool.
 	 */
-	private Worker[] threads = new Worker[10];
+	private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
 
 	protected WorkerPool(JobManager manager) {
 		this.manager = manager;
@@ -81,24 +109,18 @@ class WorkerPool {
 	}
 
 	/**
-	 * Adds a worker to the list of workers.
+	 * Adds a worker to the set of workers.
 	 */
-	private synchronized void add(Worker worker) {
-		int size = threads.length;
-		if (numThreads + 1 > size) {
-			Worker[] newThreads = new Worker[2 * size];
-			System.arraycopy(threads, 0, newThreads, 0, size);
-			threads = newThreads;
-		}
-		threads[numThreads++] = worker;
+	private void add(Thread worker) {
+		threads.add(worker);
 	}
 
-	private synchronized void decrementBusyThreads() {
+	private void decrementBusyThreads() {
 		//impossible to have less than zero busy threads
-		if (--busyThreads < 0) {
+		if (busyThreads.decrementAndGet() < 0) {
 			if (JobManager.DEBUG)
-				Assert.isTrue(false, Integer.toString(busyThreads));
-			busyThreads = 0;
+				Assert.isTrue(false, Integer.toString(busyThreads.get()));
+			busyThreads.updateAndGet(busy -> Math.max(busy, 0));
 		}
 	}
 
@@ -126,53 +148,106 @@ class WorkerPool {
 	 * Signals the death of a worker thread.  Note that this method can be called under
 	 * OutOfMemoryError conditions and thus must be paranoid about allocating objects.
 	 */
-	protected synchronized void endWorker(Worker worker) {
+	protected void endWorker(Thread worker) {
 		if (remove(worker) && JobManager.DEBUG)
 			JobManager.debug("worker removed from pool: " + worker); //$NON-NLS-1$
 	}
 
-	private synchronized void incrementBusyThreads() {
+	private void incrementBusyThreads() {
 		//impossible to have more busy threads than there are threads
-		if (++busyThreads > numThreads) {
+		int threadCount = numThreads.get();
+		int busy = busyThreads.incrementAndGet();
+		if (busy > threadCount) {
 			if (JobManager.DEBUG)
-				Assert.isTrue(false, Integer.toString(busyThreads) + ',' + numThreads);
-			busyThreads = numThreads;
+				Assert.isTrue(false, Integer.toString(busyThreads.get()) + ',' + threadCount);
+			busy = busyThreads.updateAndGet(b -> Math.min(b, numThreads.get()));
 		}
+		JobStatistics stats = manager.statistics;
+		if (stats != null)
+			stats.workersBusy(busy);
+	}
+
+	/**
+	 * Returns the number of workers that are running or about to run a job.
+	 */
+	int getBusyThreads() {
+		return busyThreads.get();
+	}
+
+	/**
+	 * Returns the number of workers in the pool.
+	 */
+	int getThreadCount() {
+		return numThreads.get();
 	}
 
 	/**
 	 * Notification that a job has been added to the queue. Wake a worker,
 	 * creating a new worker if necessary. The provided job may be null.
 	 */
-	protected synchronized void jobQueued() {
+	protected void jobQueued() {
 		//if there is a sleeping thread, wake it up
-		if (sleepingThreads > 0) {
-			notify();
+		Thread sleeper = sleepingThreads.pollFirst();
+		if (sleeper != null) {
+			LockSupport.unpark(sleeper);
 			return;
 		}
 		//create a thread if all threads are busy
-		if (busyThreads >= numThreads) {
-			Worker worker = new Worker(this);
-			worker.setDaemon(isDaemon);
-			add(worker);
-			if (JobManager.DEBUG)
-				JobManager.debug("worker added to pool: " + worker); //$NON-NLS-1$
-			worker.start();
-			return;
+		while (true) {
+			int threadCount = numThreads.get();
+			if (busyThreads.get() < threadCount)
+				return;
+			//reserve the slot first so that concurrent callers don't both create a thread
+			if (numThreads.compareAndSet(threadCount, threadCount + 1))
+				break;
+		}
+		Thread worker = newWorker();
+		add(worker);
+		if (JobManager.DEBUG)
+			JobManager.debug("worker added to pool: " + worker); //$NON-NLS-1$
+		worker.start();
+	}
+
+	/**
+	 * Creates a new, not yet started worker thread.
+	 */
+	private Thread newWorker() {
+		ThreadFactory factory = virtualThreadFactory;
+		if (factory != null)
+			return factory.newThread(new VirtualWorker(this));
+		Worker worker = new Worker(this);
+		worker.setDaemon(isDaemon);
+		return worker;
+	}
+
+	/**
+	 * Removes the given idle worker if more than {@link #MIN_THREADS} workers are
+	 * idle. The thread count is updated atomically, so that idle workers that
+	 * expire at the same time cannot shrink the pool below that.
+	 * @return true if the worker was removed, and false otherwise.
+	 */
+	private boolean expire(Thread worker) {
+		while (true) {
+			int threadCount = numThreads.get();
+			if (threadCount - busyThreads.get() <= MIN_THREADS)
+				return false;
+			if (numThreads.compareAndSet(threadCount, threadCount - 1))
+				break;
 		}
+		threads.remove(worker);
+		if (JobManager.DEBUG)
+			JobManager.debug("worker removed from pool: " + worker); //$NON-NLS-1$
+		return true;
 	}
 
 	/**
-	 * Remove a worker thread from our list.
+	 * Remove a worker thread from our set.
 	 * @return true if a worker was removed, and false otherwise.
 	 */
-	private synchronized boolean remove(Worker worker) {
-		for (int i = 0; i < threads.length; i++) {
-			if (threads[i] == worker) {
-				System.arraycopy(threads, i + 1, threads, i, numThreads - i - 1);
-				threads[--numThreads] = null;
-				return true;
-			}
+	private boolean remove(Thread worker) {
+		if (threads.remove(worker)) {
+			numThreads.decrementAndGet();
+			return true;
 		}
 		return false;
 	}
@@ -184,45 +259,96 @@ class WorkerPool {
 		this.isDaemon = value;
 	}
 
-	protected synchronized void shutdown() {
-		notifyAll();
+	/**
+	 * Sets the soft limit on the number of workers kept in the pool.
+	 */
+	void setMaxThreads(int value) {
+		Assert.isLegal(value >= MIN_THREADS, "maximum number of threads must be positive"); //$NON-NLS-1$
+		this.maxThreads = value;
+	}
+
+	/**
+	 * Sets whether new workers should run on virtual threads. Workers that are
+	 * already running are not affected. Returns whether new workers will run on
+	 * virtual threads, which is <code>false</code> if the running Java version
+	 * does not support them.
+	 */
+	boolean setVirtualThreads(boolean value) {
+		virtualThreadFactory = value ? VirtualWorker.createThreadFactory() : null;
+		return virtualThreadFactory != null;
+	}
+
+	boolean isVirtualThreads() {
+		return virtualThreadFactory != null;
 	}
 
 	/**
-	 * Sleep for the given duration or until woken.
+	 * Returns whether the given worker is not of the kind the pool currently
+	 * creates, because the pool switched to or from virtual threads.
 	 */
-	private synchronized void sleep(long duration) {
-		sleepingThreads++;
-		busyThreads--;
+	private boolean isOutdated(Thread worker) {
+		return (worker instanceof Worker) == (virtualThreadFactory != null);
+	}
+
+	/**
+	 * Removes an outdated worker and lets the pool start a replacement if there
+	 * is work to do, so that switching thread kinds does not strand any job.
+	 */
+	private void retire(Thread worker) {
+		endWorker(worker);
+		if (manager.sleepHint() < InternalJob.T_INFINITE)
+			jobQueued();
+	}
+
+	protected void shutdown() {
+		Thread sleeper;
+		while ((sleeper = sleepingThreads.pollFirst()) != null)
+			LockSupport.unpark(sleeper);
+	}
+
+	/**
+	 * Sleep for the given duration or until woken. If <code>recheck</code> is
+	 * true, the worker doesn't sleep if a job started waiting since the caller
+	 * found none.
+	 */
+	private void sleep(Thread worker, long duration, boolean recheck) {
 		if (JobManager.DEBUG)
 			JobManager.debug("worker sleeping for: " + duration + "ms"); //$NON-NLS-1$ //$NON-NLS-2$
+		//register before becoming idle, so that jobQueued either finds this worker
+		//or still counts it as busy and starts a new one. A wake up that happens
+		//between registering and parking is not lost, because unpark makes the
+		//next park return immediately
+		sleepingThreads.addFirst(worker);
+		busyThreads.decrementAndGet();
 		try {
-			wait(duration);
-		} catch (InterruptedException e) {
-			if (JobManager.DEBUG)
+			//a job may have been queued before this worker was registered
+			if (!recheck || manager.sleepHint() > 0)
+				LockSupport.parkNanos(this, duration * NANOS_IN_MS);
+			if (Thread.interrupted() && JobManager.DEBUG)
 				JobManager.debug("worker interrupted while waiting... :-|"); //$NON-NLS-1$
 		} finally {
-			sleepingThreads--;
-			busyThreads++;
+			//no-op if we were woken by jobQueued
+			sleepingThreads.remove(worker);
+			busyThreads.incrementAndGet();
 		}
 	}
 
 	/**
 	 * Returns a new job to run. Returns null if the thread should die.
 	 */
-	protected InternalJob startJob(Worker worker) {
-		// must endWorker and decrementBusyThreads from the same synchronized block
-		boolean busy;
-		synchronized (this) {
-			if (!manager.isActive()) {
-				//must remove the worker immediately to prevent all threads from expiring
-				endWorker(worker);
-				return null;
-			}
-			// set the thread to be busy now in case of reentrant scheduling
-			incrementBusyThreads();
-			busy = true;
+	protected InternalJob startJob(Thread worker) {
+		if (!manager.isActive()) {
+			//must remove the worker immediately to prevent all threads from expiring
+			endWorker(worker);
+			return null;
 		}
+		if (isOutdated(worker)) {
+			retire(worker);
+			return null;
+		}
+		// set the thread to be busy now in case of reentrant scheduling
+		incrementBusyThreads();
+		boolean busy = true;
 		Job job = null;
 		try {
 			job = manager.startJob(worker);
@@ -231,31 +357,32 @@ class WorkerPool {
 			while (manager.isActive() && job == null) {
 				long hint = manager.sleepHint();
 				if (hint > 0) {
-					synchronized (this) {
-						if (numThreads > MAX_THREADS) {
-							endWorker(worker);
-							decrementBusyThreads();
-							busy = false;
-							return null;
-						}
-					}
-					sleep(Math.min(hint, BEST_BEFORE));
-				}
-				job = manager.startJob(worker);
-				//if we were already idle, and there are still no new jobs, then
-				// the thread can expire
-				synchronized (this) {
-					if (job == null && (manager.now() - idleStart > BEST_BEFORE) && (numThreads - busyThreads) > MIN_THREADS) {
-						//must remove the worker immediately to prevent all threads from expiring
+					if (numThreads.get() > maxThreads) {
 						endWorker(worker);
 						decrementBusyThreads();
 						busy = false;
 						return null;
 					}
+					sleep(worker, Math.min(hint, BEST_BEFORE), true);
+					if (isOutdated(worker)) {
+						decrementBusyThreads();
+						busy = false;
+						retire(worker);
+						return null;
+					}
+				}
+				job = manager.startJob(worker);
+				//if we were already idle, and there are still no new jobs, then
+				// the thread can expire
+				if (job == null && (manager.now() - idleStart > BEST_BEFORE) && expire(worker)) {
+					//the worker was removed immediately to prevent all threads from expiring
+					decrementBusyThreads();
+					busy = false;
+					return null;
 				}
 				//if we didn't sleep but there was no job available, make sure we sleep to avoid a tight loop (bug 260724)
 				if (hint <= 0 && job == null)
-					sleep(50);
+					sleep(worker, 50, false);
 			}
 			if (job != null) {
 				//if this job has a rule, then we are essentially acquiring a lock
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.runtime.jobs;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * A scheduling rule whose conflicts with other rules of the same kind are fully
+ * described by a path. Two hierarchical rules can only conflict if they have
+ * equal domains and the path of one rule is a prefix of the path of the other.
+ * <p>
+ * The job manager uses this contract to index running and blocked jobs by
+ * path, so that a waiting job is only checked against jobs whose rules can
+ * possibly conflict with its own. Implementations must still answer
+ * {@link #isConflicting(ISchedulingRule)} consistently with the contract,
+ * because the job manager verifies every candidate it finds. A
+ * {@link MultiRule} made only of hierarchical rules is indexed by the paths of
+ * its children.
+ * </p>
+ * <p>
+ * Clients may implement this interface.
+ * </p>
+ *
+ * @since 3.14
+ */
+public interface IHierarchicalRule extends ISchedulingRule {
+	/**
+	 * Returns the domain of this rule. Rules from different domains never
+	 * conflict through their paths.
+	 */
+	Object getRuleDomain();
+
+	/**
+	 * Returns the path of this rule. The root path conflicts with every other
+	 * hierarchical rule of the same domain.
+	 */
+	IPath getRulePath();
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.runtime.jobs;
+
+import java.util.Map;
+
+/**
+ * The statistics recorded by the job manager for all jobs of one class.
+ * <p>
+ * All times are in milliseconds. The time a job spends in a state is recorded
+ * when the job leaves that state, and only if it entered the state during the
+ * recording. A job that is already in a state when the recording starts, or
+ * that is still in it when the statistics are read, does not contribute the
+ * time it spends in that state.
+ * </p>
+ *
+ * @see IJobStatistics#getJobClassStatistics()
+ * @since 3.14
+ * @noimplement This interface is not intended to be implemented by clients.
+ * @noextend This interface is not intended to be extended by clients.
+ */
+public interface IJobClassStatistics {
+	/**
+	 * Returns the fully qualified name of the job class. When too many job
+	 * classes are seen during a recording, the remaining classes are reported
+	 * together under the name <code>"&lt;other&gt;"</code>.
+	 *
+	 * @return the name of the job class
+	 */
+	String getJobClassName();
+
+	/**
+	 * Returns the number of times jobs of this class finished running.
+	 *
+	 * @return the run count
+	 */
+	long getRunCount();
+
+	/**
+	 * Returns the total time jobs of this class spent in the
+	 * {@link Job#RUNNING} state.
+	 *
+	 * @return the total run time
+	 */
+	long getRunTime();
+
+	/**
+	 * Returns the longest time a job of this class spent in the
+	 * {@link Job#RUNNING} state without interruption.
+	 *
+	 * @return the longest run time
+	 */
+	long getMaxRunTime();
+
+	/**
+	 * Returns the total time jobs of this class spent in the
+	 * {@link Job#SLEEPING} state.
+	 *
+	 * @return the total sleeping time
+	 */
+	long getSleepingTime();
+
+	/**
+	 * Returns the total time jobs of this class spent in the
+	 * {@link Job#WAITING} state while no conflicting job was known, including
+	 * the time needed to hand them to a worker thread.
+	 *
+	 * @return the total waiting time
+	 */
+	long getWaitingTime();
+
+	/**
+	 * Returns the total time jobs of this class waited for a running job with
+	 * a conflicting scheduling rule. Such jobs report the {@link Job#WAITING}
+	 * state to clients.
+	 *
+	 * @return the total blocked time
+	 */
+	long getBlockedTime();
+
+	/**
+	 * Returns the number of times a job of this class was blocked by a job with
+	 * a conflicting scheduling rule.
+	 *
+	 * @return the blocked count
+	 */
+	long getBlockedCount();
+
+	/**
+	 * Returns the blocked time of this job class per class of blocking job.
+	 * Only a few blocking classes are reported separately; the time caused by
+	 * the others is reported under the name <code>"&lt;other&gt;"</code>.
+	 *
+	 * @return the blocked time per blocking job class name
+	 */
+	Map<String, Long> getBlockedTimeByBlocker();
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2012 IBM Corporation and others.
+ * Copyright (c) 2003, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -195,6 +195,16 @@ public interface IJobManager {
 	 */
 	Job[] find(Object family);
 
+	/**
+	 * Returns a snapshot of the job statistics recorded since recording was
+	 * last enabled, or <code>null</code> if recording is disabled.
+	 *
+	 * @return the recorded statistics, or <code>null</code>
+	 * @see #setStatisticsEnabled(boolean)
+	 * @since 3.14
+	 */
+	IJobStatistics getStatistics();
+
 	/**
 	 * Returns whether the job manager is currently idle.  The job manager is
 	 * idle if no jobs are currently running or waiting to run.
@@ -320,6 +330,27 @@ public interface IJobManager {
 	 */
 	void setProgressProvider(ProgressProvider provider);
 
+	/**
+	 * Starts or stops recording job statistics. While recording, the job
+	 * manager records per job class how long jobs spend in each state and which
+	 * jobs blocked them, the occupancy of the worker pool, and how often threads
+	 * wait for locks and scheduling rules. If the Java Flight Recorder is
+	 * available, the same information is also emitted as flight recorder
+	 * events, which are only recorded when enabled in the flight recorder
+	 * settings.
+	 * <p>
+	 * Recording has no cost while disabled, and a small bounded cost per job
+	 * state change while enabled. Enabling recording discards all previously
+	 * recorded statistics.
+	 * </p>
+	 *
+	 * @param enabled <code>true</code> to start recording, and
+	 * <code>false</code> to stop recording
+	 * @see #getStatistics()
+	 * @since 3.14
+	 */
+	void setStatisticsEnabled(boolean enabled);
+
 	/**
 	 * Suspends execution of all jobs.  Jobs that are already running
 	 * when this method is invoked will complete as usual, but all sleeping and
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.runtime.jobs;
+
+/**
+ * A snapshot of the statistics recorded by the job manager since recording was
+ * enabled. Snapshots do not change once they have been returned.
+ * <p>
+ * All times are in milliseconds.
+ * </p>
+ *
+ * @see IJobManager#setStatisticsEnabled(boolean)
+ * @see IJobManager#getStatistics()
+ * @since 3.14
+ * @noimplement This interface is not intended to be implemented by clients.
+ * @noextend This interface is not intended to be extended by clients.
+ */
+public interface IJobStatistics {
+	/**
+	 * Returns the time elapsed between the start of the recording and this
+	 * snapshot.
+	 *
+	 * @return the recording time
+	 */
+	long getRecordingTime();
+
+	/**
+	 * Returns the statistics of every job class that changed state during the
+	 * recording. Implicit jobs created by {@link IJobManager#beginRule} are
+	 * reported under the name of the internal class that represents them.
+	 *
+	 * @return the statistics per job class, sorted by class name
+	 */
+	IJobClassStatistics[] getJobClassStatistics();
+
+	/**
+	 * Returns the number of worker threads in the pool when the snapshot was
+	 * taken.
+	 *
+	 * @return the number of worker threads
+	 */
+	int getWorkerCount();
+
+	/**
+	 * Returns the number of worker threads that were running or about to run a
+	 * job when the snapshot was taken.
+	 *
+	 * @return the number of busy worker threads
+	 */
+	int getBusyWorkerCount();
+
+	/**
+	 * Returns the highest number of busy worker threads seen during the
+	 * recording.
+	 *
+	 * @return the peak number of busy worker threads
+	 */
+	int getPeakBusyWorkerCount();
+
+	/**
+	 * Returns the number of times a thread had to wait for an {@link ILock}.
+	 *
+	 * @return the number of lock stalls
+	 */
+	long getLockStallCount();
+
+	/**
+	 * Returns the total time threads spent waiting for an {@link ILock}.
+	 *
+	 * @return the total lock stall time
+	 */
+	long getLockStallTime();
+
+	/**
+	 * Returns the number of times a thread had to wait in
+	 * {@link IJobManager#beginRule} for a conflicting scheduling rule.
+	 *
+	 * @return the number of rule stalls
+	 */
+	long getRuleStallCount();
+
+	/**
+	 * Returns the total time threads spent waiting in
+	 * {@link IJobManager#beginRule} for a conflicting scheduling rule.
+	 *
+	 * @return the total rule stall time
+	 */
+	long getRuleStallTime();
+}
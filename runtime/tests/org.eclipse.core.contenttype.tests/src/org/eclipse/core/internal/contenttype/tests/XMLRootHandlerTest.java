@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2020, 2021 Alex Blewitt and others.
+ * Copyright (c) 2020, 2022 Alex Blewitt and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -13,10 +13,12 @@
  *******************************************************************************/
 package org.eclipse.core.internal.contenttype.tests;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
-import java.io.IOException;
-import java.io.StringReader;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -49,4 +51,103 @@ public class XMLRootHandlerTest {
 
 		assertTrue(handler.parseContents(contents));
 	}
+
+	/**
+	 * Documents that are scanned must give the same results as when they are
+	 * parsed, which happens for contents that cannot be marked.
+	 */
+	@Test
+	public void testScanLikeParse() throws IOException, ParserConfigurationException {
+		String[] documents = { //
+				"<root/>", //
+				"<?xml version=\"1.0\"?>\n<root attribute='value'>text</root>", //
+				"\uFEFF<?xml version=\"1.0\" encoding=\"UTF-8\"?><root></root>", //
+				"<?xml version=\"1.0\"?>\n<!-- comment <root2/> -->\n<?pi data?>\n<!DOCTYPE root SYSTEM \"root.dtd\">\n<root/>", //
+				"<!DOCTYPE root PUBLIC \"-//Public//EN\" 'http://www.example.org/root.dtd'><root/>", //
+				"<!DOCTYPE root><root/>", //
+				"<!DOCTYPE root [<!ATTLIST root xmlns CDATA #FIXED 'urn:fixed'>]><root/>", //
+				"<root xmlns=\"urn:default\" xmlns:p=\"urn:p\"/>", //
+				"<p:root xmlns=\"urn:default\"\n\txmlns:p=\"urn:p\"><p:child/></p:root>", //
+				"<p:root xmlns:p=\"\"/>", //
+				"<root xmlns=\"urn:a&amp;b\"/>", //
+				"<root a=\"1\" a=\"2\"/>", //
+				"<\u00e9l\u00e9ment xmlns='urn:\u00e9'/>", //
+				"<root", //
+				"text<root/>", //
+				"<!-- unterminated comment <root/>", //
+				" <?xml version='1.0'?><root/>", //
+				"<!--x--><?xml version='1.0'?><root/>", //
+				"<?XML version='1.0'?><root/>", //
+				"<?xml garbage?><root/>", //
+				"<?xml version=\"1.0\" garbage?><root/>", //
+				"<?xml version=\"2.0\"?><root/>", //
+				"<?xml version='1.1' encoding='UTF-8' standalone='yes'?><root/>", //
+				"<?xml version='1.0' standalone='no' ?><root/>", //
+				"<?xml version='1.0' standalone='maybe'?><root/>", //
+				"<?xml version='1.0' standalone='yes' encoding='UTF-8'?><root/>", //
+				"<?xml version='1.0'encoding='UTF-8'?><root/>", //
+				"<?xml version='1.0' encoding='8bit'?><root/>", //
+				"<?xml version='1.0'", //
+				"<!-- a -- b --><root/>", //
+				"<!-- a ---><root/>", //
+				"", //
+		};
+		for (String document : documents) {
+			assertEquals(document, parse(new StringReader(document), true), parse(new StringReader(document), false));
+			for (Charset charset : new Charset[] {StandardCharsets.UTF_8, StandardCharsets.UTF_16}) {
+				byte[] bytes = document.getBytes(charset);
+				assertEquals(document, parse(new ByteArrayInputStream(bytes), true), parse(new ByteArrayInputStream(bytes), false));
+			}
+		}
+		// declared encodings
+		byte[] bytes = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><\u00e9l\u00e9ment/>".getBytes(StandardCharsets.ISO_8859_1);
+		assertEquals("ISO-8859-1", parse(new ByteArrayInputStream(bytes), true), parse(new ByteArrayInputStream(bytes), false));
+		bytes = "<?xml version=\"1.0\" encoding=\"no-such-encoding\"?><root/>".getBytes(StandardCharsets.ISO_8859_1);
+		assertEquals("no-such-encoding", parse(new ByteArrayInputStream(bytes), true), parse(new ByteArrayInputStream(bytes), false));
+	}
+
+	/**
+	 * Documents that are longer than what is scanned at first.
+	 */
+	@Test
+	public void testScanLongProlog() throws IOException, ParserConfigurationException {
+		StringBuilder document = new StringBuilder("<?xml version=\"1.0\"?>\n<!--");
+		for (int i = 0; i < 1000; i++)
+			document.append(" comment");
+		document.append(" -->\n<root xmlns=\"urn:root\"/>");
+		String text = document.toString();
+		assertEquals("{urn:root}root null", parse(new StringReader(text), true));
+		assertEquals(parse(new StringReader(text), true), parse(new StringReader(text), false));
+	}
+
+	private String parse(Reader reader, boolean markable) throws IOException, ParserConfigurationException {
+		return parse(new InputSource(markable ? reader : new FilterReader(reader) {
+			@Override
+			public boolean markSupported() {
+				return false;
+			}
+		}));
+	}
+
+	private String parse(InputStream stream, boolean markable) throws IOException, ParserConfigurationException {
+		return parse(new InputSource(markable ? stream : new FilterInputStream(stream) {
+			@Override
+			public boolean markSupported() {
+				return false;
+			}
+		}));
+	}
+
+	private String parse(InputSource contents) throws IOException, ParserConfigurationException {
+		XMLRootHandler parser = new XMLRootHandler(true);
+		try {
+			if (!parser.parseContents(contents))
+				return "failed"; //$NON-NLS-1$
+		} catch (SAXException e) {
+			return "invalid"; //$NON-NLS-1$
+		} catch (IOException e) {
+			return "unreadable"; //$NON-NLS-1$
+		}
+		return "{" + parser.getRootNamespace() + "}" + parser.getRootName() + " " + parser.getDTD(); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
 }
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.expressions.tests;
+
+import org.eclipse.core.expressions.PropertyTester;
+
+import org.eclipse.core.runtime.Assert;
+
+/*
+ * Tests a property whose value changes without a change of the tested object.
+ */
+public class A_TypeExtender4 extends PropertyTester {
+
+	static volatile A_TypeExtender4 fgInstance;
+	private static volatile String fgValue= "initial"; //$NON-NLS-1$
+
+	public A_TypeExtender4() {
+		fgInstance= this;
+	}
+
+	static void setValue(String value) {
+		fgValue= value;
+		if (fgInstance != null)
+			fgInstance.notifyEvaluationResultCaches("changing"); //$NON-NLS-1$
+	}
+
+	@Override
+	public boolean test(Object receiver, String method, Object[] args, Object expectedValue) {
+		if ("changing".equals(method)) { //$NON-NLS-1$
+			return fgValue.equals(expectedValue);
+		}
+		Assert.isTrue(false);
+		return false;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -25,6 +25,7 @@ public class AllTests {
 		suite.addTest(new JUnit4TestAdapter(ExpressionTests.class));
 		suite.addTest(ExpressionInfoTests.suite());
 		suite.addTest(CountExpressionTest.suite());
+		suite.addTest(EvaluationResultCacheTest.suite());
 		return suite;
 	}
 }
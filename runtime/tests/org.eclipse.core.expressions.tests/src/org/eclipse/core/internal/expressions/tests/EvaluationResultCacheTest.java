@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.internal.expressions.tests;
+
+import org.eclipse.core.expressions.EvaluationContext;
+import org.eclipse.core.expressions.EvaluationResult;
+import org.eclipse.core.expressions.EvaluationResultCache;
+import org.eclipse.core.expressions.Expression;
+import org.eclipse.core.expressions.ExpressionInfo;
+import org.eclipse.core.expressions.IEvaluationContext;
+import org.eclipse.core.expressions.TestExpression;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+public class EvaluationResultCacheTest extends TestCase {
+
+	/*
+	 * Tests whether a variable or the default variable is Boolean.TRUE, and
+	 * counts how often it is evaluated.
+	 */
+	private static class CountingExpression extends Expression {
+		private final String fVariable;
+		private final String fProperty;
+		int fEvaluations;
+
+		CountingExpression(String variable, String property) {
+			fVariable= variable;
+			fProperty= property;
+		}
+
+		@Override
+		public EvaluationResult evaluate(IEvaluationContext context) {
+			fEvaluations++;
+			Object value= fVariable == null ? context.getDefaultVariable() : context.getVariable(fVariable);
+			return EvaluationResult.valueOf(Boolean.TRUE.equals(value));
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			if (fVariable == null)
+				info.markDefaultVariableAccessed();
+			else
+				info.addVariableNameAccess(fVariable);
+			if (fProperty != null)
+				info.addAccessedPropertyName(fProperty);
+		}
+	}
+
+	private static class MisbehavingExpression extends CountingExpression {
+		MisbehavingExpression(String variable) {
+			super(variable, null);
+		}
+
+		@Override
+		public void collectExpressionInfo(ExpressionInfo info) {
+			info.addMisBehavingExpressionType(getClass());
+		}
+	}
+
+	private EvaluationContext context;
+	private EvaluationResultCache cache;
+
+	public static Test suite() {
+		return new TestSuite(EvaluationResultCacheTest.class);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		context= new EvaluationContext(null, Boolean.FALSE);
+		context.addVariable("a", Boolean.TRUE); //$NON-NLS-1$
+		context.addVariable("b", Boolean.FALSE); //$NON-NLS-1$
+		cache= new EvaluationResultCache(context);
+	}
+
+	public void testVariableChanged() throws Exception {
+		CountingExpression a= new CountingExpression("a", null); //$NON-NLS-1$
+		CountingExpression b= new CountingExpression("b", null); //$NON-NLS-1$
+		assertEquals(EvaluationResult.TRUE, cache.evaluate(a));
+		assertEquals(EvaluationResult.FALSE, cache.evaluate(b));
+		assertEquals(EvaluationResult.TRUE, cache.evaluate(a));
+		assertEquals(EvaluationResult.FALSE, cache.evaluate(b));
+		assertEquals(1, a.fEvaluations);
+		assertEquals(1, b.fEvaluations);
+
+		context.addVariable("a", Boolean.FALSE); //$NON-NLS-1$
+		cache.variableChanged("a"); //$NON-NLS-1$
+		assertEquals(EvaluationResult.FALSE, cache.evaluate(a));
+		assertEquals(EvaluationResult.FALSE, cache.evaluate(b));
+		assertEquals(2, a.fEvaluations);
+		assertEquals(1, b.fEvaluations);
+	}
+
+	public void testDefaultVariableChanged() throws Exception {
+		EvaluationContext child= new EvaluationContext(context, Boolean.TRUE);
+		EvaluationResultCache childCache= new EvaluationResultCache(child);
+		CountingExpression defaultVariable= new CountingExpression(null, null);
+		CountingExpression a= new CountingExpression("a", null); //$NON-NLS-1$
+		assertEquals(EvaluationResult.TRUE, childCache.evaluate(defaultVariable));
+		assertEquals(EvaluationResult.TRUE, childCache.evaluate(a));
+
+		childCache.defaultVariableChanged();
+		childCache.evaluate(defaultVariable);
+		childCache.evaluate(a);
+		assertEquals(2, defaultVariable.fEvaluations);
+		assertEquals(1, a.fEvaluations);
+	}
+
+	public void testPropertyChanged() throws Exception {
+		CountingExpression tested= new CountingExpression("a", "org.eclipse.core.internal.expressions.tests.simple"); //$NON-NLS-1$ //$NON-NLS-2$
+		CountingExpression other= new CountingExpression("a", null); //$NON-NLS-1$
+		cache.evaluate(tested);
+		cache.evaluate(other);
+
+		cache.propertyChanged("org.eclipse.core.internal.expressions.tests.other"); //$NON-NLS-1$
+		cache.evaluate(tested);
+		assertEquals(1, tested.fEvaluations);
+
+		cache.propertyChanged("org.eclipse.core.internal.expressions.tests.simple"); //$NON-NLS-1$
+		cache.evaluate(tested);
+		cache.evaluate(other);
+		assertEquals(2, tested.fEvaluations);
+		assertEquals(1, other.fEvaluations);
+	}
+
+	public void testPropertyTesterChange() throws Exception {
+		EvaluationResultCache testerCache= new EvaluationResultCache(new EvaluationContext(null, new A()));
+		Expression expression= new TestExpression("org.eclipse.core.internal.expressions.tests", "changing", null, "initial"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		try {
+			assertEquals(EvaluationResult.TRUE, testerCache.evaluate(expression));
+			assertNotNull(A_TypeExtender4.fgInstance);
+
+			A_TypeExtender4.setValue("changed"); //$NON-NLS-1$
+			assertEquals(EvaluationResult.FALSE, testerCache.evaluate(expression));
+		} finally {
+			A_TypeExtender4.setValue("initial"); //$NON-NLS-1$
+		}
+	}
+
+	public void testMisbehavingExpression() throws Exception {
+		CountingExpression misbehaving= new MisbehavingExpression("a"); //$NON-NLS-1$
+		cache.evaluate(misbehaving);
+		cache.evaluate(misbehaving);
+		assertEquals(2, misbehaving.fEvaluations);
+	}
+
+	public void testClearAndRemove() throws Exception {
+		CountingExpression a= new CountingExpression("a", null); //$NON-NLS-1$
+		cache.evaluate(a);
+		cache.clear();
+		cache.evaluate(a);
+		assertEquals(2, a.fEvaluations);
+
+		cache.remove(a);
+		cache.evaluate(a);
+		cache.evaluate(a);
+		assertEquals(3, a.fEvaluations);
+	}
+}
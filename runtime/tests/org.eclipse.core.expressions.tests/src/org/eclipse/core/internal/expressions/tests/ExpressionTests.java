@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2018 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -20,6 +20,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
@@ -29,6 +31,9 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -46,6 +51,7 @@ import org.eclipse.core.expressions.EqualsExpression;
 import org.eclipse.core.expressions.EvaluationContext;
 import org.eclipse.core.expressions.EvaluationResult;
 import org.eclipse.core.expressions.Expression;
+import org.eclipse.core.expressions.ExpressionCompiler;
 import org.eclipse.core.expressions.ExpressionConverter;
 import org.eclipse.core.expressions.IEvaluationContext;
 import org.eclipse.core.expressions.IVariableResolver;
@@ -53,6 +59,7 @@ import org.eclipse.core.expressions.OrExpression;
 import org.eclipse.core.expressions.TestExpression;
 import org.eclipse.core.expressions.WithExpression;
 import org.eclipse.core.internal.expressions.AdaptExpression;
+import org.eclipse.core.internal.expressions.ClassCache;
 import org.eclipse.core.internal.expressions.EnablementExpression;
 import org.eclipse.core.internal.expressions.ExpressionStatus;
 import org.eclipse.core.internal.expressions.Expressions;
@@ -1140,4 +1147,148 @@ public class ExpressionTests {
 				cachedDelta < instanceDelta);
 	}
 
+
+	@Test
+	public void testConcurrentEvaluation() throws Exception {
+		List<Object> selection= new ArrayList<>();
+		for (int i= 0; i < 1000; i++) {
+			selection.add(i % 2 == 0 ? new A() : new B());
+		}
+		EvaluationContext context= new EvaluationContext(null, new Object());
+		context.addVariable("selection", selection); //$NON-NLS-1$
+
+		WithExpression with= new WithExpression("selection"); //$NON-NLS-1$
+		IterateExpression iterate= new IterateExpression("and", "false"); //$NON-NLS-1$ //$NON-NLS-2$
+		with.add(iterate);
+		iterate.add(new InstanceofExpression("org.eclipse.core.internal.expressions.tests.A")); //$NON-NLS-1$
+		iterate.add(new TestExpression("org.eclipse.core.internal.expressions.tests", "simple", null, "simple")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		WithExpression withB= new WithExpression("selection"); //$NON-NLS-1$
+		IterateExpression iterateB= new IterateExpression("or", "false"); //$NON-NLS-1$ //$NON-NLS-2$
+		withB.add(iterateB);
+		iterateB.add(new InstanceofExpression("org.eclipse.core.internal.expressions.tests.B")); //$NON-NLS-1$
+		iterateB.add(new TestExpression("org.eclipse.core.internal.expressions.tests", "overridden", null, "A")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		Expression compiled= ExpressionCompiler.compile(with);
+		Expression compiledB= ExpressionCompiler.compile(withB);
+
+		ExecutorService executor= Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> results= new ArrayList<>();
+			for (int i= 0; i < 4; i++) {
+				results.add(executor.submit(() -> {
+					for (int n= 0; n < 100; n++) {
+						assertEquals(EvaluationResult.TRUE, with.evaluate(context));
+						assertEquals(EvaluationResult.FALSE, withB.evaluate(context));
+						assertEquals(EvaluationResult.TRUE, compiled.evaluate(context));
+						assertEquals(EvaluationResult.FALSE, compiledB.evaluate(context));
+					}
+					return null;
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCompiledExpression() throws Exception {
+		List<Object> selection= new ArrayList<>();
+		selection.add(new A());
+		selection.add(new B());
+		EvaluationContext context= new EvaluationContext(null, new B());
+		context.addVariable("selection", selection); //$NON-NLS-1$
+		context.addVariable("empty", Collections.emptyList()); //$NON-NLS-1$
+
+		AndExpression and= new AndExpression();
+		and.add(new InstanceofExpression("org.eclipse.core.internal.expressions.tests.A")); //$NON-NLS-1$
+		AndExpression nestedAnd= new AndExpression();
+		nestedAnd.add(new TestExpression("org.eclipse.core.internal.expressions.tests", "overridden", null, "B")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		nestedAnd.add(new NotExpression(new NotExpression(new InstanceofExpression("org.eclipse.core.internal.expressions.tests.I")))); //$NON-NLS-1$
+		and.add(nestedAnd);
+		and.add(new AndExpression());
+
+		OrExpression or= new OrExpression();
+		OrExpression nestedOr= new OrExpression();
+		nestedOr.add(new EqualsExpression("something")); //$NON-NLS-1$
+		nestedOr.add(new NotExpression(new InstanceofExpression("org.eclipse.core.internal.expressions.tests.I"))); //$NON-NLS-1$
+		or.add(nestedOr);
+		or.add(new OrExpression());
+
+		WithExpression with= new WithExpression("selection"); //$NON-NLS-1$
+		IterateExpression iterate= new IterateExpression("or", "false"); //$NON-NLS-1$ //$NON-NLS-2$
+		iterate.add(new TestExpression("org.eclipse.core.internal.expressions.tests", "overridden", null, "A")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		iterate.add(new NotExpression(new InstanceofExpression("org.eclipse.core.internal.expressions.tests.B"))); //$NON-NLS-1$
+		with.add(iterate);
+
+		WithExpression withEmpty= new WithExpression("empty"); //$NON-NLS-1$
+		withEmpty.add(new IterateExpression("and", "false")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Expression[] expressions= { and, nestedAnd, or, nestedOr, new OrExpression(), new AndExpression(), with, withEmpty };
+		for (Expression expression : expressions) {
+			Expression compiled= ExpressionCompiler.compile(expression);
+			assertEquals(expression.toString(), expression.evaluate(context), compiled.evaluate(context));
+			assertEquals(expression.toString(), expression.computeExpressionInfo().hasDefaultVariableAccess(), compiled.computeExpressionInfo().hasDefaultVariableAccess());
+			assertEquals(expression.toString(), Arrays.asList(expression.computeExpressionInfo().getAccessedVariableNames()), Arrays.asList(compiled.computeExpressionInfo().getAccessedVariableNames()));
+			assertEquals(ExpressionCompiler.compile(expression), compiled);
+			assertTrue(ExpressionCompiler.compile(compiled) == compiled);
+		}
+		assertEquals(EvaluationResult.TRUE, ExpressionCompiler.compile(and).evaluate(context));
+		assertEquals(EvaluationResult.TRUE, ExpressionCompiler.compile(with).evaluate(context));
+		assertEquals(EvaluationResult.FALSE, ExpressionCompiler.compile(withEmpty).evaluate(context));
+	}
+
+	@Test
+	public void testClassCacheKeepsNoClassLoader() throws Exception {
+		ClassCache<Object[]> cache= new ClassCache<>();
+		Object version= new Object();
+		Class<?> clazz= loadThrowawayClass();
+		// the value references the class, like a property does
+		Object[] value= { clazz };
+		cache.put(clazz, version, value);
+		assertTrue(cache.get(clazz, version) == value);
+		assertNull(cache.get(clazz, new Object()));
+
+		WeakReference<ClassLoader> loader= new WeakReference<>(clazz.getClassLoader());
+		cache.put(clazz, version, value);
+		clazz= null;
+		value= null;
+		for (int i= 0; i < 100 && loader.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(loader.get());
+	}
+
+	public static class Throwaway {
+		// loaded by a class loader of its own
+	}
+
+	/*
+	 * Loads the Throwaway class again by a new class loader, which is only
+	 * referenced by the class.
+	 */
+	private static Class<?> loadThrowawayClass() throws Exception {
+		String name= Throwaway.class.getName();
+		byte[] bytes;
+		try (InputStream stream= Throwaway.class.getResourceAsStream('/' + name.replace('.', '/') + ".class")) { //$NON-NLS-1$
+			bytes= stream.readAllBytes();
+		}
+		ClassLoader loader= new ClassLoader(ExpressionTests.class.getClassLoader()) {
+			@Override
+			protected Class<?> loadClass(String className, boolean resolve) throws ClassNotFoundException {
+				if (!className.equals(name))
+					return super.loadClass(className, resolve);
+				synchronized (getClassLoadingLock(className)) {
+					Class<?> loaded= findLoadedClass(className);
+					return loaded != null ? loaded : defineClass(className, bytes, 0, bytes.length);
+				}
+			}
+		};
+		Class<?> clazz= loader.loadClass(name);
+		assertTrue(clazz != Throwaway.class);
+		return clazz;
+	}
 }
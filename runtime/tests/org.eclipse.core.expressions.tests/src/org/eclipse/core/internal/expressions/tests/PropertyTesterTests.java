@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -175,6 +175,16 @@ public class PropertyTesterTests extends TestCase {
 		assertEquals(EvaluationResult.TRUE, result);
 	}
 
+	public void testDifferentReceivers() throws Exception {
+		TestExpression exp= new TestExpression("org.eclipse.core.internal.expressions.tests", "overridden", null, "B"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		// alternate between receivers of different types to check that the property found for one type isn't used for the other
+		for (int n= 0; n < 3; n++) {
+			assertEquals(EvaluationResult.FALSE, exp.evaluate(new EvaluationContext(null, a)));
+			assertEquals(EvaluationResult.TRUE, exp.evaluate(new EvaluationContext(null, b)));
+			assertEquals(EvaluationResult.TRUE, exp.evaluate(new EvaluationContext(null, b)));
+		}
+	}
+
 	public void testDifferentNameSpace() throws Exception {
 		assertTrue(test("org.eclipse.core.internal.expressions.tests2", a, "differentNamespace", null, "A3"));		 //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM - Initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.jobs;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.Test;
+
+/**
+ * Schedules, sleeps, wakes up, cancels and reprioritizes many short jobs from
+ * several threads at once, and checks that the job manager neither deadlocks
+ * nor runs conflicting jobs at the same time.
+ */
+public class JobSchedulingStressTest {
+	private static final int THREADS = 8;
+	private static final int JOBS_PER_THREAD = 500;
+	private static final int RULES = 4;
+	private static final long TIMEOUT_MS = 60_000;
+
+	private final ISchedulingRule[] rules = new ISchedulingRule[RULES];
+	private final AtomicInteger[] holders = new AtomicInteger[RULES];
+	private final AtomicBoolean overlapped = new AtomicBoolean();
+
+	class StressJob extends Job {
+		private final int rule;
+
+		StressJob(int number, int rule) {
+			super("JobSchedulingStressTest-" + number);
+			this.rule = rule;
+			if (rule >= 0)
+				setRule(rules[rule]);
+			setSystem(true);
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == JobSchedulingStressTest.this;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			if (rule >= 0 && holders[rule].incrementAndGet() != 1)
+				overlapped.set(true);
+			Thread.onSpinWait();
+			if (rule >= 0)
+				holders[rule].decrementAndGet();
+			return Status.OK_STATUS;
+		}
+	}
+
+	@Test
+	public void testConcurrentTransitions() throws Exception {
+		for (int i = 0; i < RULES; i++) {
+			rules[i] = new IdentityRule();
+			holders[i] = new AtomicInteger();
+		}
+		List<Job> jobs = Collections.synchronizedList(new ArrayList<>());
+		CyclicBarrier start = new CyclicBarrier(THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> schedulers = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				int thread = t;
+				schedulers.add(executor.submit(() -> {
+					start.await(10, TimeUnit.SECONDS);
+					Random random = new Random(thread);
+					int[] priorities = {Job.INTERACTIVE, Job.SHORT, Job.LONG, Job.BUILD};
+					for (int i = 0; i < JOBS_PER_THREAD; i++) {
+						Job job = new StressJob(thread * JOBS_PER_THREAD + i, random.nextInt(RULES + 1) - 1);
+						jobs.add(job);
+						job.schedule(random.nextInt(4) == 0 ? random.nextInt(3) : 0);
+						switch (random.nextInt(4)) {
+							case 0 :
+								job.sleep();
+								job.wakeUp(random.nextInt(2));
+								break;
+							case 1 :
+								job.setPriority(priorities[random.nextInt(priorities.length)]);
+								break;
+							case 2 :
+								if (random.nextInt(4) == 0)
+									job.cancel();
+								break;
+							default :
+								break;
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<?> scheduler : schedulers)
+				scheduler.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (!isDone(jobs)) {
+			assertNull("1.0", findDeadlock());
+			assertTrue("1.1 jobs did not finish: " + Job.getJobManager().find(this).length, System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+		assertFalse("2.0", overlapped.get());
+	}
+
+	private static boolean isDone(List<Job> jobs) {
+		synchronized (jobs) {
+			for (Job job : jobs) {
+				if (job.getState() != Job.NONE)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the stack traces of the threads that are deadlocked on monitors or
+	 * locks, or <code>null</code> if there are none.
+	 */
+	private static String findDeadlock() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long[] ids = threads.findDeadlockedThreads();
+		if (ids == null)
+			return null;
+		StringBuilder result = new StringBuilder();
+		for (ThreadInfo info : threads.getThreadInfo(ids, true, true))
+			result.append(info);
+		return result.toString();
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM - Initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.jobs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.*;
+import org.junit.After;
+import org.junit.Test;
+
+public class JobStatisticsTest {
+	static class HoldingJob extends Job {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		HoldingJob(ISchedulingRule rule) {
+			super("HoldingJob");
+			setRule(rule);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				return Status.CANCEL_STATUS;
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	static class BlockedJob extends Job {
+		BlockedJob(ISchedulingRule rule) {
+			super("BlockedJob");
+			setRule(rule);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			return Status.OK_STATUS;
+		}
+	}
+
+	private final IJobManager manager = Job.getJobManager();
+
+	@After
+	public void tearDown() {
+		manager.setStatisticsEnabled(false);
+	}
+
+	@Test
+	public void testDisabled() {
+		manager.setStatisticsEnabled(false);
+		assertNull("1.0", manager.getStatistics());
+	}
+
+	@Test
+	public void testBlockedJob() throws Exception {
+		manager.setStatisticsEnabled(true);
+		ISchedulingRule rule = new PathRule("/testBlockedJob");
+		HoldingJob holder = new HoldingJob(rule);
+		holder.schedule();
+		assertTrue("1.0", holder.started.await(10, TimeUnit.SECONDS));
+		BlockedJob blocked = new BlockedJob(new PathRule("/testBlockedJob/child"));
+		blocked.schedule();
+		// wait until the job is blocked behind the holder
+		Thread.sleep(200);
+		holder.release.countDown();
+		holder.join();
+		blocked.join();
+
+		IJobStatistics statistics = manager.getStatistics();
+		assertNotNull("2.0", statistics);
+		IJobClassStatistics holderStatistics = find(statistics, HoldingJob.class);
+		assertEquals("2.1", 1, holderStatistics.getRunCount());
+		assertTrue("2.2", holderStatistics.getRunTime() >= 100);
+		IJobClassStatistics blockedStatistics = find(statistics, BlockedJob.class);
+		assertEquals("2.3", 1, blockedStatistics.getRunCount());
+		assertEquals("2.4", 1, blockedStatistics.getBlockedCount());
+		assertTrue("2.5", blockedStatistics.getBlockedTime() >= 100);
+		Long blockedTime = blockedStatistics.getBlockedTimeByBlocker().get(HoldingJob.class.getName());
+		assertNotNull("2.6", blockedTime);
+		assertEquals("2.7", blockedStatistics.getBlockedTime(), blockedTime.longValue());
+		assertTrue("2.8", statistics.getPeakBusyWorkerCount() >= 1);
+		assertTrue("2.9", statistics.getWorkerCount() >= statistics.getBusyWorkerCount());
+
+		// enabling again starts a new recording; jobs of other bundles may be recorded already
+		manager.setStatisticsEnabled(true);
+		statistics = manager.getStatistics();
+		assertFalse("3.0", contains(statistics, HoldingJob.class));
+		assertFalse("3.1", contains(statistics, BlockedJob.class));
+	}
+
+	@Test
+	public void testStalls() throws Exception {
+		manager.setStatisticsEnabled(true);
+		ISchedulingRule rule = new PathRule("/testStalls");
+		HoldingJob holder = new HoldingJob(rule);
+		holder.schedule();
+		assertTrue("1.0", holder.started.await(10, TimeUnit.SECONDS));
+		Thread releaser = new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				// release now
+			}
+			holder.release.countDown();
+		});
+		releaser.start();
+		manager.beginRule(rule, null);
+		manager.endRule(rule);
+		releaser.join();
+		holder.join();
+
+		ILock lock = manager.newLock();
+		lock.acquire();
+		Thread waiter = new Thread(() -> {
+			lock.acquire();
+			lock.release();
+		});
+		waiter.start();
+		Thread.sleep(200);
+		lock.release();
+		waiter.join();
+
+		IJobStatistics statistics = manager.getStatistics();
+		// other threads may use the global job manager at the same time
+		assertTrue("2.0", statistics.getRuleStallCount() >= 1);
+		assertTrue("2.1", statistics.getRuleStallTime() >= 100);
+		assertTrue("2.2", statistics.getLockStallCount() >= 1);
+		assertTrue("2.3", statistics.getLockStallTime() >= 100);
+	}
+
+	private static boolean contains(IJobStatistics statistics, Class<?> jobClass) {
+		for (IJobClassStatistics classStatistics : statistics.getJobClassStatistics())
+			if (classStatistics.getJobClassName().equals(jobClass.getName()))
+				return true;
+		return false;
+	}
+
+	private static IJobClassStatistics find(IJobStatistics statistics, Class<?> jobClass) {
+		for (IJobClassStatistics classStatistics : statistics.getJobClassStatistics())
+			if (classStatistics.getJobClassName().equals(jobClass.getName()))
+				return classStatistics;
+		throw new AssertionError("No statistics for " + jobClass.getName());
+	}
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM - Initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.jobs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.*;
+import org.eclipse.core.internal.jobs.InternalJob;
+import org.eclipse.core.internal.jobs.RuleConflictIndex;
+import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("restriction")
+public class RuleConflictIndexTest {
+	static class Entry extends InternalJob {
+		final ISchedulingRule rule;
+
+		Entry(ISchedulingRule rule) {
+			super("Entry");
+			this.rule = rule;
+			setRule(rule);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			return Status.OK_STATUS;
+		}
+	}
+
+	private RuleConflictIndex index;
+
+	@Before
+	public void setUp() throws Exception {
+		index = new RuleConflictIndex();
+	}
+
+	@Test
+	public void testEmpty() {
+		assertTrue("1.0", index.isEmpty());
+		assertNull("1.1", index.findConflicting(new Entry(new PathRule("/a"))));
+		index.add(new Entry(null));
+		assertTrue("1.2", index.isEmpty());
+	}
+
+	@Test
+	public void testPathRules() {
+		Entry ab = new Entry(new PathRule("/a/b"));
+		index.add(ab);
+		assertEquals("1.0", ab, index.findConflicting(new Entry(new PathRule("/a/b"))));
+		assertEquals("1.1", ab, index.findConflicting(new Entry(new PathRule("/a"))));
+		assertEquals("1.2", ab, index.findConflicting(new Entry(new PathRule("/"))));
+		assertEquals("1.3", ab, index.findConflicting(new Entry(new PathRule("/a/b/c/d"))));
+		assertNull("1.4", index.findConflicting(new Entry(new PathRule("/a/c"))));
+		assertNull("1.5", index.findConflicting(new Entry(new PathRule("/b"))));
+		assertNull("1.6", index.findConflicting(new Entry(null)));
+
+		index.remove(ab);
+		assertTrue("2.0", index.isEmpty());
+		assertNull("2.1", index.findConflicting(new Entry(new PathRule("/a/b"))));
+	}
+
+	@Test
+	public void testMultiRules() {
+		Entry multi = new Entry(MultiRule.combine(new PathRule("/a/b"), new PathRule("/c")));
+		index.add(multi);
+		assertEquals("1.0", multi, index.findConflicting(new Entry(new PathRule("/c/d"))));
+		assertEquals("1.1", multi, index.findConflicting(new Entry(new PathRule("/a"))));
+		assertNull("1.2", index.findConflicting(new Entry(new PathRule("/a/c"))));
+		ISchedulingRule waiting = MultiRule.combine(new PathRule("/x"), new PathRule("/c/e"));
+		assertEquals("1.3", multi, index.findConflicting(new Entry(waiting)));
+		waiting = MultiRule.combine(new PathRule("/x"), new PathRule("/y"));
+		assertNull("1.4", index.findConflicting(new Entry(waiting)));
+
+		index.remove(multi);
+		assertTrue("2.0", index.isEmpty());
+		assertNull("2.1", index.findConflicting(new Entry(new PathRule("/c"))));
+	}
+
+	@Test
+	public void testOpaqueRules() {
+		IdentityRule identity = new IdentityRule();
+		Entry opaque = new Entry(identity);
+		Entry mixed = new Entry(MultiRule.combine(new PathRule("/a"), new IdentityRule()));
+		index.add(opaque);
+		index.add(mixed);
+		assertEquals("1.0", opaque, index.findConflicting(new Entry(identity)));
+		assertEquals("1.1", mixed, index.findConflicting(new Entry(new PathRule("/a/b"))));
+		assertNull("1.2", index.findConflicting(new Entry(new PathRule("/b"))));
+		assertNull("1.3", index.findConflicting(new Entry(new IdentityRule())));
+
+		index.remove(opaque);
+		assertNull("2.0", index.findConflicting(new Entry(identity)));
+		index.remove(mixed);
+		assertTrue("2.1", index.isEmpty());
+	}
+
+	/**
+	 * Compares the index against a linear scan for random sets of rules.
+	 */
+	@Test
+	public void testRandomAgainstLinearScan() {
+		Random random = new Random(42);
+		List<Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Entry entry = new Entry(randomRule(random));
+			entries.add(entry);
+			index.add(entry);
+		}
+		for (int i = 0; i < 1000; i++) {
+			if (i % 10 == 0) {
+				Entry removed = entries.remove(random.nextInt(entries.size()));
+				index.remove(removed);
+			}
+			ISchedulingRule rule = randomRule(random);
+			Entry conflict = (Entry) index.findConflicting(new Entry(rule));
+			if (conflict == null) {
+				for (Entry entry : entries)
+					assertTrue("1." + i + ": " + rule + " conflicts with " + entry.rule, !isConflicting(rule, entry.rule));
+			} else {
+				assertTrue("2." + i, entries.contains(conflict));
+				assertTrue("3." + i, isConflicting(rule, conflict.rule));
+			}
+		}
+	}
+
+	private static ISchedulingRule randomRule(Random random) {
+		switch (random.nextInt(4)) {
+			case 0 :
+				return MultiRule.combine(randomPathRule(random), randomPathRule(random));
+			case 1 :
+				return random.nextBoolean() ? new IdentityRule() : MultiRule.combine(randomPathRule(random), new IdentityRule());
+			default :
+				return randomPathRule(random);
+		}
+	}
+
+	private static PathRule randomPathRule(Random random) {
+		StringBuilder path = new StringBuilder("/");
+		int depth = random.nextInt(4);
+		for (int i = 0; i < depth; i++)
+			path.append((char) ('a' + random.nextInt(3))).append('/');
+		return new PathRule(path.toString());
+	}
+
+	/**
+	 * Same semantics as InternalJob#isConflicting
+	 */
+	private static boolean isConflicting(ISchedulingRule waiting, ISchedulingRule other) {
+		if (waiting.getClass() == MultiRule.class)
+			return waiting.isConflicting(other);
+		return other.isConflicting(waiting);
+	}
+}
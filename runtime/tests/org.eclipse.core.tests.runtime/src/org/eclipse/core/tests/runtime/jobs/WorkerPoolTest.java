@@ -13,11 +13,20 @@
  *******************************************************************************/
 package org.eclipse.core.tests.runtime.jobs;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.eclipse.core.internal.jobs.JobManager;
 import org.eclipse.core.internal.jobs.Worker;
 import org.eclipse.core.runtime.*;
+import org.eclipse.core.runtime.jobs.IJobManager;
+import org.eclipse.core.runtime.jobs.ILock;
 import org.eclipse.core.runtime.jobs.Job;
 import org.junit.Test;
 
@@ -68,4 +77,123 @@ public class WorkerPoolTest {
 		assertTrue("Too many worker threads active: " + wcount + ", must be <= " + MAX_THREADS, wcount <= MAX_THREADS);
 	}
 
+	@Test
+	public void testVirtualThreads() throws Exception {
+		JobManager manager = (JobManager) Job.getJobManager();
+		assumeTrue("virtual threads are not supported", manager.setUseVirtualThreads(true));
+		try {
+			AtomicReference<Thread> thread = new AtomicReference<>();
+			AtomicReference<Job> current = new AtomicReference<>();
+			Job job = Job.create("testVirtualThreads", monitor -> {
+				IJobManager jobManager = Job.getJobManager();
+				thread.set(Thread.currentThread());
+				current.set(jobManager.currentJob());
+				// nested rules are owned by the virtual thread, whatever its carrier
+				PathRule nested = new PathRule("/testVirtualThreads/nested");
+				jobManager.beginRule(nested, monitor);
+				try {
+					Thread.sleep(10);
+					assertTrue(jobManager.currentRule().contains(nested));
+				} catch (InterruptedException e) {
+					return Status.CANCEL_STATUS;
+				} finally {
+					jobManager.endRule(nested);
+				}
+				return Status.OK_STATUS;
+			});
+			job.setRule(new PathRule("/testVirtualThreads"));
+			job.schedule();
+			job.join();
+			assertTrue("1.0", job.getResult().isOK());
+			assertFalse("1.1", thread.get() instanceof Worker);
+			assertEquals("1.2", job, current.get());
+		} finally {
+			manager.setUseVirtualThreads(false);
+		}
+	}
+
+	/**
+	 * Tests that a lock excludes virtual workers from each other while they
+	 * block, and may move to other carrier threads, inside the lock.
+	 */
+	@Test
+	public void testVirtualThreadsLock() throws Exception {
+		JobManager manager = (JobManager) Job.getJobManager();
+		assumeTrue("virtual threads are not supported", manager.setUseVirtualThreads(true));
+		try {
+			ILock lock = manager.newLock();
+			AtomicInteger holders = new AtomicInteger();
+			AtomicBoolean overlapped = new AtomicBoolean();
+			Job[] jobs = new Job[8];
+			for (int i = 0; i < jobs.length; i++) {
+				jobs[i] = Job.create("testVirtualThreadsLock-" + i, monitor -> {
+					for (int j = 0; j < 20; j++) {
+						lock.acquire();
+						try {
+							if (holders.incrementAndGet() != 1)
+								overlapped.set(true);
+							Thread.sleep(1);
+							holders.decrementAndGet();
+						} catch (InterruptedException e) {
+							return Status.CANCEL_STATUS;
+						} finally {
+							lock.release();
+						}
+					}
+					return Status.OK_STATUS;
+				});
+				jobs[i].schedule();
+			}
+			for (Job job : jobs) {
+				assertTrue("1.0", job.join(10_000, null));
+				assertTrue("1.1", job.getResult().isOK());
+			}
+			assertFalse("2.0", overlapped.get());
+		} finally {
+			manager.setUseVirtualThreads(false);
+		}
+	}
+
+	/**
+	 * Tests that the deadlock detector resolves a deadlock between two virtual
+	 * workers that acquire two locks in opposite orders.
+	 */
+	@Test
+	public void testVirtualThreadsDeadlock() throws Exception {
+		JobManager manager = (JobManager) Job.getJobManager();
+		assumeTrue("virtual threads are not supported", manager.setUseVirtualThreads(true));
+		try {
+			ILock lock1 = manager.newLock();
+			ILock lock2 = manager.newLock();
+			CyclicBarrier barrier = new CyclicBarrier(2);
+			Job first = createLockingJob("testVirtualThreadsDeadlock-1", lock1, lock2, barrier);
+			Job second = createLockingJob("testVirtualThreadsDeadlock-2", lock2, lock1, barrier);
+			first.schedule();
+			second.schedule();
+			assertTrue("1.0", first.join(10_000, null));
+			assertTrue("1.1", second.join(10_000, null));
+			assertTrue("2.0", first.getResult().isOK());
+			assertTrue("2.1", second.getResult().isOK());
+		} finally {
+			manager.setUseVirtualThreads(false);
+		}
+	}
+
+	private Job createLockingJob(String name, ILock outer, ILock inner, CyclicBarrier barrier) {
+		return Job.create(name, monitor -> {
+			outer.acquire();
+			try {
+				// both jobs hold their outer lock before they wait for the other one
+				barrier.await(10, TimeUnit.SECONDS);
+				inner.acquire();
+				inner.release();
+			} catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+				return Status.CANCEL_STATUS;
+			} finally {
+				outer.release();
+			}
+			return Status.OK_STATUS;
+		});
+	}
+
 }
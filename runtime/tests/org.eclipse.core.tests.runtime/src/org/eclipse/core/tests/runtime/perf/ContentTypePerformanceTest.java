@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2015 IBM Corporation and others.
+ * Copyright (c) 2005, 2022 IBM Corporation and others.
  *
  * This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
@@ -17,9 +17,11 @@ package org.eclipse.core.tests.runtime.perf;
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import org.eclipse.core.internal.content.*;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.*;
@@ -142,6 +144,7 @@ public class ContentTypePerformanceTest extends RuntimeTest {
 		singleRun.addTest(new ContentTypePerformanceTest("testContentMatching"));
 		singleRun.addTest(new ContentTypePerformanceTest("testNameMatching"));
 		singleRun.addTest(new ContentTypePerformanceTest("testIsKindOf"));
+		singleRun.addTest(new ContentTypePerformanceTest("testXMLRootElementMatching"));
 		suite.addTest(singleRun);
 
 		TestSuite loadCatalog = new PerformanceSessionTestSuite(PI_RUNTIME_TESTS, 10, "multipleSessionTests");
@@ -378,4 +381,27 @@ public class ContentTypePerformanceTest extends RuntimeTest {
 			}
 		}.run(this, 10, 200000);
 	}
+
+	/** Tests the performance of content description by the root element of XML documents */
+	public void testXMLRootElementMatching() throws CoreException {
+		final XMLRootElementContentDescriber2 describer = new XMLRootElementContentDescriber2();
+		describer.setInitializationData(null, null, "{http://maven.apache.org/POM/4.0.0}project");
+		final byte[] contents = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+				+ "<!-- Licensed under the Eclipse Public License 2.0 -->\n" //
+				+ "<project xmlns=\"http://maven.apache.org/POM/4.0.0\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n" //
+				+ "\txsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n" //
+				+ "\t<modelVersion>4.0.0</modelVersion>\n" //
+				+ "</project>\n").getBytes(StandardCharsets.UTF_8);
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				try {
+					for (int i = 0; i < 1000; i++)
+						assertEquals("1.0", IContentDescriber.VALID, describer.describe(new ByteArrayInputStream(contents), null));
+				} catch (IOException e) {
+					fail("2.0", e);
+				}
+			}
+		}.run(this, 10, 20);
+	}
 }
\ No newline at end of file
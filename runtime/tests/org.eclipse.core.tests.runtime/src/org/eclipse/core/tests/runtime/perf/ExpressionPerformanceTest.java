@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2022 IBM Corporation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.tests.runtime.perf;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.eclipse.core.expressions.*;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.tests.harness.PerformanceTestRunner;
+import org.eclipse.core.tests.runtime.RuntimeTest;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Benchmarks the evaluation of an enablement expression for a large
+ * selection, as it happens when the enablement of a command or menu
+ * contribution is computed.
+ */
+public class ExpressionPerformanceTest extends RuntimeTest {
+
+	private static final int SELECTION_SIZE = 10000;
+
+	private static final String ENABLEMENT = "<enablement>" //
+			+ "<with variable=\"selection\">" //
+			+ "<iterate operator=\"and\" ifEmpty=\"false\">" //
+			+ "<instanceof value=\"org.eclipse.core.tests.runtime.perf.ExpressionPerformanceTest$Element\"/>" //
+			+ "<test property=\"org.eclipse.core.tests.runtime.perf.extension\" value=\"java\"/>" //
+			+ "</iterate>" //
+			+ "</with>" //
+			+ "</enablement>";
+
+	public static class Element {
+		final String name;
+
+		Element(String name) {
+			this.name = name;
+		}
+	}
+
+	public static class LinkedElement extends Element {
+		LinkedElement(String name) {
+			super(name);
+		}
+	}
+
+	/**
+	 * Tests the file extension of elements. Declared in the plugin.xml.
+	 */
+	public static class ElementPropertyTester extends PropertyTester {
+		@Override
+		public boolean test(Object receiver, String property, Object[] args, Object expectedValue) {
+			return ((Element) receiver).name.endsWith("." + expectedValue);
+		}
+	}
+
+	public ExpressionPerformanceTest() {
+		super();
+	}
+
+	public ExpressionPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Tests the performance of evaluating an expression tree as it was read
+	 * from the extension registry.
+	 */
+	public void testEvaluateSelection() throws Exception {
+		evaluate(readEnablement());
+	}
+
+	/**
+	 * Tests the performance of evaluating a compiled expression tree.
+	 */
+	public void testEvaluateCompiledSelection() throws Exception {
+		evaluate(ExpressionCompiler.compile(readEnablement()));
+	}
+
+	private void evaluate(Expression expression) {
+		List<Element> selection = new ArrayList<>(SELECTION_SIZE);
+		for (int i = 0; i < SELECTION_SIZE; i++) {
+			String name = "Element" + i + ".java";
+			selection.add(i % 2 == 0 ? new Element(name) : new LinkedElement(name));
+		}
+		EvaluationContext context = new EvaluationContext(null, Collections.emptyList());
+		context.addVariable("selection", selection);
+		new PerformanceTestRunner() {
+			@Override
+			protected void test() {
+				try {
+					assertEquals("1.0", EvaluationResult.TRUE, expression.evaluate(context));
+				} catch (CoreException e) {
+					fail("2.0", e);
+				}
+			}
+		}.run(this, 10, 100);
+	}
+
+	private static Expression readEnablement() throws Exception {
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(ENABLEMENT)));
+		return ExpressionConverter.getDefault().perform(document.getDocumentElement());
+	}
+}